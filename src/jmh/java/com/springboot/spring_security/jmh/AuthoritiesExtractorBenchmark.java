@@ -0,0 +1,107 @@
+package com.springboot.spring_security.jmh;
+
+import com.springboot.spring_security.cache.ExpiringCache;
+import com.springboot.spring_security.configuration.ServletCustomizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.AuthoritiesExtractor;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.client.OAuth2RestTemplate;
+import org.springframework.security.oauth2.client.resource.BaseOAuth2ProtectedResourceDetails;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The authoritiesExtractor of the GitHub login against a stubbed OAuth2RestOperations answering the organizations lookup at once,
+ * so what is measured is the extractor and its cache: a member found in the cache, a rejection found in the cache,
+ * and a new user every time, which always misses and evicts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthoritiesExtractorBenchmark {
+
+    private static final String MEMBER_ORGS = "https://api.github.com/users/member/orgs";
+
+    private final AtomicLong ids = new AtomicLong();
+
+    private AuthoritiesExtractor authoritiesExtractor;
+
+    private Map<String, Object> member;
+
+    private Map<String, Object> outsider;
+
+    @Setup
+    public void setUp() {
+        ExpiringCache<Object, List<GrantedAuthority>> cache = new ExpiringCache<>("authorities");
+        cache.setNegativelyCached(ServletCustomizer.Custom401Exceprion.class);
+        cache.setNegativeTimeToLive(cache.getTimeToLive());
+        authoritiesExtractor = ServletCustomizer.authoritiesExtractor(new StubGitHub(), cache);
+        member = user(1, MEMBER_ORGS);
+        outsider = user(2, "https://api.github.com/users/outsider/orgs");
+    }
+
+    @Benchmark
+    public List<GrantedAuthority> cachedMember() {
+        return authoritiesExtractor.extractAuthorities(member);
+    }
+
+    @Benchmark
+    public Object cachedRejection() {
+        try {
+            return authoritiesExtractor.extractAuthorities(outsider);
+        } catch (ServletCustomizer.Custom401Exceprion ex) {
+            return ex;
+        }
+    }
+
+    @Benchmark
+    public List<GrantedAuthority> newMember() {
+        return authoritiesExtractor.extractAuthorities(user(1_000 + ids.incrementAndGet(), MEMBER_ORGS));
+    }
+
+    private static Map<String, Object> user(long id, String organizationsUrl) {
+        Map<String, Object> user = new HashMap<>();
+        user.put("id", id);
+        user.put("organizations_url", organizationsUrl);
+        return user;
+    }
+
+    /**
+     * Answers the organizations lookup without a remote call: the "member" is in spring-projects, everyone else in another organization.
+     */
+    private static class StubGitHub extends OAuth2RestTemplate {
+
+        private final List<Map<String, Object>> springProjects = Arrays.asList(
+                Collections.singletonMap("login", "spring-cloud"), Collections.singletonMap("login", "spring-projects"));
+
+        private final List<Map<String, Object>> other = Collections.singletonList(Collections.singletonMap("login", "acme"));
+
+        StubGitHub() {
+            super(new BaseOAuth2ProtectedResourceDetails());
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T getForObject(String url, Class<T> responseType, Object... uriVariables) {
+            return (T) (MEMBER_ORGS.equals(url) ? springProjects : other);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.springboot.spring_security.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.AuthorizationServerTokenServices;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * /me with a bearer token, through the chain of the ResourceServerConfiguration and on to the UserController,
+ * for opaque tokens (resolved against the log-structured token store) and for signed tokens.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BearerTokenBenchmark {
+
+    @Param({"log", "signed"})
+    public String tokenStore;
+
+    private ConfigurableApplicationContext context;
+
+    private MockMvc mvc;
+
+    private String authorization;
+
+    @Setup
+    public void start() throws Exception {
+        context = BenchmarkApplication.start("--token-store.type=" + tokenStore, "--token-store.signing-key=benchmark");
+        mvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context)
+                .addFilters(BenchmarkApplication.filterChainProxy(context))
+                .build();
+        authorization = "Bearer " + context.getBean(AuthorizationServerTokenServices.class).createAccessToken(authentication()).getValue();
+        if (me(authorization) != 200) {
+            throw new IllegalStateException("/me rejected the token");
+        }
+    }
+
+    @TearDown
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public int me() throws Exception {
+        return me(authorization);
+    }
+
+    @Benchmark
+    public int meWithUnknownToken() throws Exception {
+        return me("Bearer unknown");
+    }
+
+    private int me(String authorization) throws Exception {
+        return mvc.perform(get("/me").header("Authorization", authorization)).andReturn().getResponse().getStatus();
+    }
+
+    private static OAuth2Authentication authentication() {
+        OAuth2Request request = new OAuth2Request(Collections.emptyMap(), "acme", AuthorityUtils.NO_AUTHORITIES, true,
+                Collections.singleton("read"), Collections.emptySet(), null, Collections.emptySet(), Collections.emptyMap());
+        return new OAuth2Authentication(request,
+                new UsernamePasswordAuthenticationToken("user", null, AuthorityUtils.createAuthorityList("ROLE_USER")));
+    }
+}
@@ -0,0 +1,75 @@
+package com.springboot.spring_security.jmh;
+
+import com.springboot.spring_security.SpringSecurityApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.web.FilterChainProxy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * The application as the benchmarks run it: on a random port, with its files in a directory of its own
+ * and without the login throttling, which would otherwise reject the benchmark's repeated logins after a few attempts.
+ */
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    /**
+     * @param args further command line arguments, overriding application.properties
+     * @return the started application
+     * @throws IOException if the working directory cannot be created
+     */
+    static ConfigurableApplicationContext start(String... args) throws IOException {
+        Path directory = Files.createTempDirectory("spring_security-jmh");
+        String[] defaults = {
+                "--server.port=0",
+                "--logging.level.root=warn",
+                "--login-throttle.enabled=false",
+                "--token-store.directory=" + directory.resolve("tokens"),
+                "--audit.file=" + directory.resolve("audit/authentication.log")
+        };
+        String[] all = Arrays.copyOf(defaults, defaults.length + args.length);
+        System.arraycopy(args, 0, all, defaults.length, args.length);
+        return new SpringApplicationBuilder(SpringSecurityApplication.class).run(all);
+    }
+
+    /**
+     * @param context the started application
+     * @return the FilterChainProxy holding the security filter chains of the application, the resource server and the authorization server
+     */
+    static FilterChainProxy filterChainProxy(ConfigurableApplicationContext context) {
+        return context.getBean("springSecurityFilterChain", FilterChainProxy.class);
+    }
+
+    /**
+     * @param method
+     * @param path
+     * @return a request for the path, with the servlet path set as the request matchers of the filter chains expect it
+     */
+    static MockHttpServletRequest request(String method, String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setServletPath(path);
+        return request;
+    }
+
+    /**
+     * Passes the request through the security filter chains only; what is left of it after them is not served.
+     *
+     * @param filterChainProxy
+     * @param request
+     * @return the response status, 200 when the request got through
+     */
+    static int filter(FilterChainProxy filterChainProxy, MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filterChainProxy.doFilter(request, response, new MockFilterChain());
+        return response.getStatus();
+    }
+}
@@ -0,0 +1,102 @@
+package com.springboot.spring_security.jmh;
+
+import com.springboot.spring_security.csrf.HmacCsrfTokenRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
+import org.springframework.security.web.csrf.CsrfFilter;
+import org.springframework.security.web.csrf.CsrfToken;
+import org.springframework.security.web.csrf.CsrfTokenRepository;
+
+import javax.servlet.http.Cookie;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Requests per second through the CsrfFilter with Spring Security's CookieCsrfTokenRepository (cookie) and with the
+ * HmacCsrfTokenRepository (hmac):
+ * <ul>
+ * <li>firstVisit: a GET without the cookie, which gets a new token in a Set-Cookie</li>
+ * <li>page: a GET with the cookie</li>
+ * <li>post: a POST with the cookie and the X-XSRF-TOKEN header, as the page's script sends it</li>
+ * </ul>
+ * Run with e.g. {@code -Pjmh.includes='CsrfTokenRepositoryBenchmark -t 8'} to see the repositories under contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsrfTokenRepositoryBenchmark {
+
+    @Param({"cookie", "hmac"})
+    public String repository;
+
+    private CsrfFilter filter;
+
+    private MockHttpSession session;
+
+    private String token;
+
+    @Setup
+    public void start() throws Exception {
+        CsrfTokenRepository tokenRepository = repository.equals("hmac")
+                ? new HmacCsrfTokenRepository("benchmark".getBytes(StandardCharsets.UTF_8), Duration.ofHours(1), Clock.systemUTC())
+                : CookieCsrfTokenRepository.withHttpOnlyFalse();
+        filter = new CsrfFilter(tokenRepository);
+        session = new MockHttpSession();
+        MockHttpServletRequest request = request("GET", null);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        token = ((CsrfToken) request.getAttribute(CsrfToken.class.getName())).getToken();
+    }
+
+    @Benchmark
+    public int firstVisit() throws Exception {
+        MockHttpServletRequest request = request("GET", null);
+        request.setSession(null);
+        return filter(request);
+    }
+
+    @Benchmark
+    public int page() throws Exception {
+        return filter(request("GET", token));
+    }
+
+    @Benchmark
+    public int post() throws Exception {
+        MockHttpServletRequest request = request("POST", token);
+        request.addHeader("X-XSRF-TOKEN", token);
+        return filter(request);
+    }
+
+    private int filter(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response.getStatus() + response.getCookies().length;
+    }
+
+    private MockHttpServletRequest request(String method, String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, "/user");
+        request.setSession(session);
+        if (token != null) {
+            request.setCookies(new Cookie("XSRF-TOKEN", token));
+        }
+        return request;
+    }
+}
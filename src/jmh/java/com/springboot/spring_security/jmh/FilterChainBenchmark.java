@@ -0,0 +1,85 @@
+package com.springboot.spring_security.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.web.FilterChainProxy;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One pass through the FilterChainProxy for the permitted paths ("/", "/webjars/**") and for a path that needs an authenticated user,
+ * once without a session (redirected to the login page) and once with a logged in session.
+ * Each runs with and without the FilterMetrics, so the cost of timing every filter shows as the difference.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilterChainBenchmark {
+
+    @Param({"false", "true"})
+    public boolean filterMetrics;
+
+    private ConfigurableApplicationContext context;
+
+    private FilterChainProxy filterChainProxy;
+
+    private MockHttpSession session;
+
+    @Setup
+    public void start() throws Exception {
+        context = BenchmarkApplication.start("--filter-metrics.enabled=" + filterMetrics, "--filter-metrics.log-interval=0s");
+        filterChainProxy = BenchmarkApplication.filterChainProxy(context);
+        SecurityContext securityContext = new SecurityContextImpl(
+                new UsernamePasswordAuthenticationToken("user", null, AuthorityUtils.createAuthorityList("ROLE_USER")));
+        session = new MockHttpSession();
+        session.setAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY, securityContext);
+    }
+
+    @TearDown
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public int permittedHome() throws Exception {
+        return BenchmarkApplication.filter(filterChainProxy, BenchmarkApplication.request("GET", "/"));
+    }
+
+    @Benchmark
+    public int permittedWebjars() throws Exception {
+        return BenchmarkApplication.filter(filterChainProxy, BenchmarkApplication.request("GET", "/webjars/jquery/jquery.min.js"));
+    }
+
+    @Benchmark
+    public int authenticatedWithoutSession() throws Exception {
+        return BenchmarkApplication.filter(filterChainProxy, BenchmarkApplication.request("GET", "/user"));
+    }
+
+    @Benchmark
+    public int authenticatedWithSession() throws Exception {
+        MockHttpServletRequest request = BenchmarkApplication.request("GET", "/user");
+        request.setSession(session);
+        return BenchmarkApplication.filter(filterChainProxy, request);
+    }
+}
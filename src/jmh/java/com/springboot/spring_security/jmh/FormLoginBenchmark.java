@@ -0,0 +1,98 @@
+package com.springboot.spring_security.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.web.FilterChainProxy;
+
+import javax.servlet.http.Cookie;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A form login (POST /login) of the "user" of the userDetailsService(), through the FilterChainProxy:
+ * with the verified-password cache, so only the first login hashes, and without it, so every login hashes with bcrypt.
+ * The lookup in the userDetailsService() is measured on its own as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FormLoginBenchmark {
+
+    private static final String CSRF = "jmh-csrf-token";
+
+    /**
+     * password-hashing.verified-cache.time-to-live; zero keeps nothing
+     */
+    @Param({"1m", "0s"})
+    public String verifiedCache;
+
+    private ConfigurableApplicationContext context;
+
+    private FilterChainProxy filterChainProxy;
+
+    private UserDetailsService userDetailsService;
+
+    @Setup
+    public void start() throws Exception {
+        context = BenchmarkApplication.start("--password-hashing.verified-cache.time-to-live=" + verifiedCache);
+        filterChainProxy = BenchmarkApplication.filterChainProxy(context);
+        userDetailsService = context.getBean("userDetailsService", UserDetailsService.class);
+        if (!"/".equals(login("123"))) {
+            throw new IllegalStateException("The form login of user failed");
+        }
+    }
+
+    @TearDown
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public String login() throws Exception {
+        return login("123");
+    }
+
+    @Benchmark
+    public String loginWithWrongPassword() throws Exception {
+        return login("wrong");
+    }
+
+    @Benchmark
+    public UserDetails loadUserByUsername() {
+        return userDetailsService.loadUserByUsername("user");
+    }
+
+    /**
+     * @param password
+     * @return where the login redirects to: "/" on success, "/login?error" on failure
+     */
+    private String login(String password) throws Exception {
+        MockHttpServletRequest request = BenchmarkApplication.request("POST", "/login");
+        request.setParameter("username", "user");
+        request.setParameter("password", password);
+        // the CookieCsrfTokenRepository only compares the cookie with the parameter
+        request.setCookies(new Cookie("XSRF-TOKEN", CSRF));
+        request.setParameter("_csrf", CSRF);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filterChainProxy.doFilter(request, response, new MockFilterChain());
+        return response.getRedirectedUrl();
+    }
+}
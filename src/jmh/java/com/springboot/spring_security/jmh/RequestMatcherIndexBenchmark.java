@@ -0,0 +1,128 @@
+package com.springboot.spring_security.jmh;
+
+import com.springboot.spring_security.matcher.RequestMatcherIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.AnyRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finding the first of 10, 100 and 1000 access rules a request matches: the antMatchers tried in turn, as authorizeRequests()
+ * does, against one lookup in the RequestMatcherIndex. The rules are the ones of the WebSecurityConfiguration in front
+ * of generated ones in the same styles (literal paths, "/**" subtrees, "*.css" and "error**" segment patterns, {id} variables,
+ * rules for one method), with anyRequest() last.
+ * <p>
+ * Each operation matches one request out of a mix: the home page, a webjar, a rule in the middle and at the end of the list,
+ * and a path only anyRequest() matches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestMatcherIndexBenchmark {
+
+    private static final int REQUESTS = 6;
+
+    @Param({"10", "100", "1000"})
+    public int rules;
+
+    private List<RequestMatcher> matchers;
+
+    private RequestMatcherIndex index;
+
+    private MockHttpServletRequest[] requests;
+
+    @Setup
+    public void compile() {
+        // the matchers log every comparison at debug level, which is what a logging system without configuration would print
+        LoggingSystem.get(getClass().getClassLoader()).setLogLevel(LoggingSystem.ROOT_LOGGER_NAME, LogLevel.WARN);
+        matchers = new ArrayList<>();
+        for (String pattern : new String[]{"/", "/unauthenticated", "/error**", "/webjars/**", "/login**"}) {
+            matchers.add(new AntPathRequestMatcher(pattern));
+        }
+        for (int rule = 0; matchers.size() < rules - 1; rule++) {
+            switch (rule % 5) {
+                case 0:
+                    matchers.add(new AntPathRequestMatcher("/api/v" + rule + "/items/**"));
+                    break;
+                case 1:
+                    matchers.add(new AntPathRequestMatcher("/static/s" + rule + "/*.css"));
+                    break;
+                case 2:
+                    matchers.add(new AntPathRequestMatcher("/report" + rule + "**"));
+                    break;
+                case 3:
+                    matchers.add(new AntPathRequestMatcher("/users/{id}/orders" + rule));
+                    break;
+                default:
+                    matchers.add(new AntPathRequestMatcher("/admin/page" + rule, "POST"));
+            }
+        }
+        matchers.add(AnyRequestMatcher.INSTANCE);
+        index = new RequestMatcherIndex(matchers);
+
+        int middle = rules / 2 / 5 * 5;
+        int last = Math.max(0, (rules - 7) / 5 * 5);
+        requests = new MockHttpServletRequest[]{
+                request("/"),
+                request("/webjars/jquery/jquery.min.js"),
+                request("/api/v" + middle + "/items/42"),
+                request("/api/v" + last + "/items/42"),
+                request("/users/7/orders" + (last + 3)),
+                request("/user")};
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REQUESTS)
+    public int antMatchers() {
+        int sum = 0;
+        for (MockHttpServletRequest request : requests) {
+            request.clearAttributes();
+            for (int position = 0; position < matchers.size(); position++) {
+                if (matchers.get(position).matches(request)) {
+                    sum += position;
+                    break;
+                }
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REQUESTS)
+    public int index() {
+        int sum = 0;
+        for (MockHttpServletRequest request : requests) {
+            // a new request every time: the index keeps the split path on the request
+            request.clearAttributes();
+            sum += index.indexOf(request);
+        }
+        return sum;
+    }
+
+    private static MockHttpServletRequest request(String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setServletPath(path);
+        return request;
+    }
+}
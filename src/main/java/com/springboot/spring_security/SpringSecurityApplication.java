@@ -1,10 +1,21 @@
 package com.springboot.spring_security;
 
+import com.springboot.spring_security.configuration.ReactiveResourceServerConfiguration;
+import com.springboot.spring_security.controller.ReactiveStatsController;
+import com.springboot.spring_security.controller.UserController;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.SpringApplication;
-import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationExcludeFilter;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.boot.autoconfigure.security.oauth2.resource.AuthoritiesExtractor;
+import org.springframework.boot.context.TypeExcludeFilter;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.oauth2.client.OAuth2ClientContext;
@@ -16,13 +27,33 @@ import java.util.List;
 import java.util.Map;
 
 /**
- *
+ * The servlet stack, the default, scans the components of the application; the reactive profile
+ * (spring.main.web-application-type=reactive) only imports its resource server and the UserController.
  */
-@SpringBootApplication
+@SpringBootConfiguration
+@EnableAutoConfiguration
 public class SpringSecurityApplication {
 
     public static void main(String[] args) {
         SpringApplication.run(SpringSecurityApplication.class, args);
     }
 
+    /**
+     * The component scan reads the index that spring-context-indexer writes at build time (META-INF/spring.components).
+     * The index matches a plain base package as a prefix of the class name, which would take in the ClientApplication
+     * of com.springboot.spring_security_client as well, hence the package pattern; it leaves out this package itself, so these nested configurations are not scanned again.
+     */
+    @Configuration
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    @ComponentScan(basePackages = "com.springboot.spring_security.*.**", excludeFilters = {
+            @ComponentScan.Filter(type = FilterType.CUSTOM, classes = TypeExcludeFilter.class),
+            @ComponentScan.Filter(type = FilterType.CUSTOM, classes = AutoConfigurationExcludeFilter.class)})
+    static class ServletStack {
+    }
+
+    @Configuration
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    @Import({ReactiveResourceServerConfiguration.class, UserController.class, ReactiveStatsController.class})
+    static class ReactiveStack {
+    }
 }
@@ -0,0 +1,52 @@
+package com.springboot.spring_security.assets;
+
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.resource.HttpResource;
+import org.springframework.web.servlet.resource.ResourceTransformerChain;
+import org.springframework.web.servlet.resource.ResourceTransformerSupport;
+import org.springframework.web.servlet.resource.TransformedResource;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rewrites the src and href links of static HTML pages (index.html) to the content-versioned urls of what they link to,
+ * e.g. "/webjars/jquery/jquery.min.js" to "/webjars/jquery/jquery.min-&lt;md5&gt;.js", the way the CssLinkResourceTransformer
+ * does for the url(...) links of style sheets. Links to anything that is not a static resource, such as "/login/github", are left alone.
+ */
+public class HtmlLinkResourceTransformer extends ResourceTransformerSupport {
+
+    private static final Pattern LINK = Pattern.compile("\\b(src|href)=\"(/[^\"]*)\"");
+
+    @Override
+    public Resource transform(HttpServletRequest request, Resource resource, ResourceTransformerChain transformerChain) throws IOException {
+        resource = transformerChain.transform(request, resource);
+        if (!"html".equals(StringUtils.getFilenameExtension(resource.getFilename())) || isEncoded(resource)) {
+            return resource;
+        }
+        String content = new String(FileCopyUtils.copyToByteArray(resource.getInputStream()), StandardCharsets.UTF_8);
+        Matcher link = LINK.matcher(content);
+        StringBuffer transformed = new StringBuffer(content.length());
+        while (link.find()) {
+            String versioned = resolveUrlPath(link.group(2), request, resource, transformerChain);
+            String url = versioned != null ? versioned : link.group(2);
+            link.appendReplacement(transformed, Matcher.quoteReplacement(link.group(1) + "=\"" + url + "\""));
+        }
+        link.appendTail(transformed);
+        return new TransformedResource(resource, transformed.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param resource
+     * @return whether the resource is the gzip or brotli variant of the EncodedResourceResolver, whose bytes cannot be rewritten
+     */
+    private static boolean isEncoded(Resource resource) {
+        return resource instanceof HttpResource && ((HttpResource) resource).getResponseHeaders().containsKey(HttpHeaders.CONTENT_ENCODING);
+    }
+}
@@ -0,0 +1,74 @@
+package com.springboot.spring_security.assets;
+
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.web.servlet.resource.HttpResource;
+import org.springframework.web.servlet.resource.ResourceTransformer;
+import org.springframework.web.servlet.resource.ResourceTransformerChain;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+
+/**
+ * Reads the final form of a static resource (resolved from a webjar or the static folder, in its gzip or brotli variant,
+ * with its links rewritten) into memory, so that, once the CachingResourceTransformer in front of it keeps the result,
+ * serving it again copies bytes from the heap rather than opening a jar entry and inflating it.
+ * Resources larger than the limit are left to be read on every request.
+ */
+public class InMemoryResourceTransformer implements ResourceTransformer {
+
+    private final long maxFileSize;
+
+    /**
+     * @param maxFileSize size in bytes above which a resource is not held in memory
+     */
+    public InMemoryResourceTransformer(long maxFileSize) {
+        this.maxFileSize = maxFileSize;
+    }
+
+    @Override
+    public Resource transform(HttpServletRequest request, Resource resource, ResourceTransformerChain transformerChain) throws IOException {
+        resource = transformerChain.transform(request, resource);
+        if (resource instanceof InMemoryResource || resource.contentLength() > maxFileSize) {
+            return resource;
+        }
+        return new InMemoryResource(resource);
+    }
+
+    /**
+     * The bytes of a resource, with its file name (for the content type), last modified time and, for the encoded
+     * and versioned resources, its response headers (Content-Encoding, Vary, ETag).
+     */
+    static final class InMemoryResource extends ByteArrayResource implements HttpResource {
+
+        private final String filename;
+
+        private final long lastModified;
+
+        private final HttpHeaders headers;
+
+        InMemoryResource(Resource resource) throws IOException {
+            super(FileCopyUtils.copyToByteArray(resource.getInputStream()), resource.getDescription());
+            this.filename = resource.getFilename();
+            this.lastModified = resource.lastModified();
+            this.headers = resource instanceof HttpResource ? ((HttpResource) resource).getResponseHeaders() : new HttpHeaders();
+        }
+
+        @Override
+        public String getFilename() {
+            return filename;
+        }
+
+        @Override
+        public long lastModified() {
+            return lastModified;
+        }
+
+        @Override
+        public HttpHeaders getResponseHeaders() {
+            return headers;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.springboot.spring_security.assets;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+import org.springframework.web.servlet.resource.ResourceHttpRequestHandler;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Cache headers of the static resources, by url: one with the content hash of the ContentVersionStrategy in its file name
+ * ("jquery.min-&lt;md5&gt;.js") never changes, so browsers and proxies may keep it for the whole cache period without asking again;
+ * anything else, index.html first of all, is revalidated (against its ETag or Last-Modified) on every use.
+ */
+public class StaticResourceCacheInterceptor extends HandlerInterceptorAdapter {
+
+    private static final Pattern VERSIONED = Pattern.compile("-[0-9a-f]{32}(\\.[^/.]+)?$");
+
+    private final String versioned;
+
+    private final String unversioned = CacheControl.noCache().getHeaderValue();
+
+    /**
+     * @param cachePeriod how long versioned resources may be cached
+     */
+    public StaticResourceCacheInterceptor(Duration cachePeriod) {
+        // CacheControl has no immutable() before Spring 5.3
+        this.versioned = CacheControl.maxAge(cachePeriod.getSeconds(), TimeUnit.SECONDS).cachePublic().getHeaderValue() + ", immutable";
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof ResourceHttpRequestHandler) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, VERSIONED.matcher(request.getRequestURI()).find() ? versioned : unversioned);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,102 @@
+package com.springboot.spring_security.assets;
+
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.web.servlet.resource.AbstractResourceResolver;
+import org.springframework.web.servlet.resource.ResourceResolverChain;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves version-less webjar paths ("jquery/jquery.min.js") to the versioned ones inside the jars ("jquery/2.1.1/jquery.min.js"),
+ * like Spring's WebJarsResourceResolver, but without the WebJarAssetLocator, which scans every jar of the classpath
+ * when it is created, i.e. at startup.
+ * <p>
+ * The version of a webjar is read from the pom.properties that every webjar carries (META-INF/maven/org.webjars/&lt;name&gt;/pom.properties):
+ * a single classpath lookup, the first time the webjar is asked for, and remembered after that.
+ */
+public class WebJarVersionResourceResolver extends AbstractResourceResolver {
+
+    private static final String[] GROUPS = {"org.webjars", "org.webjars.npm", "org.webjars.bower"};
+
+    /**
+     * Versions by webjar name; "" for names that are no webjar.
+     */
+    private final Map<String, String> versions = new ConcurrentHashMap<>();
+
+    private final ClassLoader classLoader;
+
+    public WebJarVersionResourceResolver() {
+        this(WebJarVersionResourceResolver.class.getClassLoader());
+    }
+
+    public WebJarVersionResourceResolver(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    @Override
+    protected Resource resolveResourceInternal(@Nullable HttpServletRequest request, String requestPath, List<? extends Resource> locations, ResourceResolverChain chain) {
+        Resource resolved = chain.resolveResource(request, requestPath, locations);
+        if (resolved == null) {
+            String versionedPath = versionedPath(requestPath);
+            if (versionedPath != null) {
+                resolved = chain.resolveResource(request, versionedPath, locations);
+            }
+        }
+        return resolved;
+    }
+
+    @Override
+    protected String resolveUrlPathInternal(String resourceUrlPath, List<? extends Resource> locations, ResourceResolverChain chain) {
+        String path = chain.resolveUrlPath(resourceUrlPath, locations);
+        if (path == null) {
+            String versionedPath = versionedPath(resourceUrlPath);
+            if (versionedPath != null) {
+                path = chain.resolveUrlPath(versionedPath, locations);
+            }
+        }
+        return path;
+    }
+
+    /**
+     * @param path
+     * @return the path with the version of its webjar after the first segment, or null if the first segment is no webjar
+     */
+    @Nullable
+    String versionedPath(String path) {
+        int slash = path.indexOf('/');
+        if (slash <= 0) {
+            return null;
+        }
+        String name = path.substring(0, slash);
+        String version = versions.computeIfAbsent(name, this::readVersion);
+        if (version.isEmpty() || path.startsWith(version + "/", slash + 1)) {
+            return null;
+        }
+        return name + "/" + version + path.substring(slash);
+    }
+
+    private String readVersion(String name) {
+        for (String group : GROUPS) {
+            try (InputStream in = classLoader.getResourceAsStream("META-INF/maven/" + group + "/" + name + "/pom.properties")) {
+                if (in != null) {
+                    Properties properties = new Properties();
+                    properties.load(in);
+                    String version = properties.getProperty("version");
+                    if (version != null) {
+                        return version;
+                    }
+                }
+            } catch (IOException ex) {
+                logger.debug("Cannot read the version of webjar " + name, ex);
+            }
+        }
+        return "";
+    }
+}
@@ -0,0 +1,369 @@
+package com.springboot.spring_security.audit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.security.authentication.event.AbstractAuthenticationEvent;
+import org.springframework.security.authentication.event.AbstractAuthenticationFailureEvent;
+import org.springframework.security.authentication.event.AuthenticationSuccessEvent;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.provider.authentication.OAuth2AuthenticationDetails;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An audit trail of the authentication successes and failures, written as JSON lines, one event per line:
+ * <pre>
+ * {"time":"2019-07-01T12:00:00.123Z","event":"success","principal":"user","remoteAddress":"127.0.0.1","sessionId":"...","type":"UsernamePasswordAuthenticationToken"}
+ * {"time":"2019-07-01T12:00:01.456Z","event":"failure","principal":"user","remoteAddress":"127.0.0.1","sessionId":"...","error":"BadCredentialsException"}
+ * </pre>
+ * The login thread only turns the event into a record and offers it to a lock-free ring buffer. A background writer drains the buffer
+ * in batches, encodes them into one direct buffer and appends it to the file with a single channel write,
+ * so login latency never depends on the disk. The file is rotated when it reaches the maximum size.
+ * <p>
+ * When the ring buffer is full the record is dropped, or with {@link OverflowPolicy#BLOCK} the login thread waits
+ * (at most the block timeout) for the writer to make room. Either way every lost record is counted.
+ */
+public class AuthenticationAuditLog implements Closeable {
+
+    private static final Log logger = LogFactory.getLog(AuthenticationAuditLog.class);
+
+    private static final DateTimeFormatter ROTATED_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS").withZone(ZoneOffset.UTC);
+
+    public enum OverflowPolicy {
+        DROP, BLOCK
+    }
+
+    private final Path file;
+
+    private final MpscRingBuffer<Record> buffer;
+
+    private final Thread writer;
+
+    private final LongAdder emitted = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder rotations = new LongAdder();
+    private final LongAdder writeFailures = new LongAdder();
+
+    private final StringBuilder line = new StringBuilder(256);
+
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+
+    /**
+     * The record being appended, encoded whole before it goes into the batch.
+     */
+    private ByteBuffer encoded = ByteBuffer.allocate(1024);
+
+    private ByteBuffer batch = ByteBuffer.allocateDirect(64 * 1024);
+
+    /**
+     * Records appended to the batch since the last flush, counted as written once the flush succeeds.
+     */
+    private int batched;
+
+    private FileChannel channel;
+
+    private long fileSize;
+
+    private volatile boolean running = true;
+
+    private volatile OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+
+    private volatile long blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private volatile int batchSize = 512;
+
+    private volatile long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(200);
+
+    private volatile long maxFileSize = 64 * 1024 * 1024;
+
+    private volatile int maxHistory = 10;
+
+    /**
+     * @param file           the audit file; rotated files are kept next to it
+     * @param bufferCapacity records the ring buffer holds, a power of two
+     * @throws IOException if the file cannot be opened
+     */
+    public AuthenticationAuditLog(Path file, int bufferCapacity) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.buffer = new MpscRingBuffer<>(bufferCapacity);
+        Files.createDirectories(this.file.getParent());
+        openChannel();
+        this.writer = new Thread(this::writeLoop, "authentication-audit-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Records a success or failure event. Every other authentication event is skipped: the InteractiveAuthenticationSuccessEvent
+     * and the SessionFixationProtectionEvent of a login follow its AuthenticationSuccessEvent, which is recorded.
+     *
+     * @param event
+     */
+    public void record(AbstractAuthenticationEvent event) {
+        if (!(event instanceof AuthenticationSuccessEvent) && !(event instanceof AbstractAuthenticationFailureEvent)) {
+            return;
+        }
+        Authentication authentication = event.getAuthentication();
+        boolean failure = event instanceof AbstractAuthenticationFailureEvent;
+        String remoteAddress = null;
+        String sessionId = null;
+        Object details = authentication.getDetails();
+        if (details instanceof WebAuthenticationDetails) {
+            remoteAddress = ((WebAuthenticationDetails) details).getRemoteAddress();
+            sessionId = ((WebAuthenticationDetails) details).getSessionId();
+        } else if (details instanceof OAuth2AuthenticationDetails) {
+            remoteAddress = ((OAuth2AuthenticationDetails) details).getRemoteAddress();
+            sessionId = ((OAuth2AuthenticationDetails) details).getSessionId();
+        }
+        String detail = failure
+                ? ((AbstractAuthenticationFailureEvent) event).getException().getClass().getSimpleName()
+                : authentication.getClass().getSimpleName();
+        offer(new Record(event.getTimestamp(), failure, authentication.getName(), remoteAddress, sessionId, detail));
+    }
+
+    /**
+     * @return the file and the overflow policy; the records in the ring buffer now and its capacity; the records emitted, dropped and
+     * written since the start, the batches and rotations, and the writes that failed
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("file", file.toString());
+        stats.put("overflowPolicy", overflowPolicy);
+        stats.put("buffered", buffer.size());
+        stats.put("capacity", buffer.capacity());
+        stats.put("emitted", emitted.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("written", written.sum());
+        stats.put("batches", batches.sum());
+        stats.put("rotations", rotations.sum());
+        stats.put("writeFailures", writeFailures.sum());
+        return stats;
+    }
+
+    /**
+     * Stops the writer after it has written what is still buffered.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public void setBlockTimeout(Duration blockTimeout) {
+        this.blockTimeoutNanos = blockTimeout.toNanos();
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public void setFlushInterval(Duration flushInterval) {
+        this.flushIntervalNanos = flushInterval.toNanos();
+    }
+
+    public void setMaxFileSize(long maxFileSize) {
+        this.maxFileSize = maxFileSize;
+    }
+
+    public void setMaxHistory(int maxHistory) {
+        this.maxHistory = maxHistory;
+    }
+
+    private void offer(Record record) {
+        emitted.increment();
+        if (buffer.offer(record)) {
+            return;
+        }
+        if (overflowPolicy == OverflowPolicy.BLOCK) {
+            long deadline = System.nanoTime() + blockTimeoutNanos;
+            LockSupport.unpark(writer);
+            while (System.nanoTime() - deadline < 0) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+                if (buffer.offer(record)) {
+                    return;
+                }
+            }
+        }
+        dropped.increment();
+    }
+
+    private void writeLoop() {
+        while (true) {
+            boolean stopping = !running;
+            int drained = buffer.drain(this::append, batchSize);
+            if (batch.position() > 0) {
+                flush();
+                if (drained > 0) {
+                    batches.increment();
+                }
+            }
+            if (drained < batchSize) {
+                if (stopping) {
+                    break;
+                }
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+        }
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            logger.warn("Closing the audit file " + file + " failed", ex);
+        }
+    }
+
+    private void append(Record record) {
+        line.setLength(0);
+        line.append("{\"time\":\"").append(Instant.ofEpochMilli(record.timestamp)).append("\",\"event\":\"")
+                .append(record.failure ? "failure" : "success").append('"');
+        field("principal", record.principal);
+        field("remoteAddress", record.remoteAddress);
+        field("sessionId", record.sessionId);
+        field(record.failure ? "error" : "type", record.detail);
+        line.append("}\n");
+
+        encodeLine();
+        if (encoded.remaining() > batch.remaining()) {
+            // flush (and rotate) between records only, so no line is split across two writes or two files
+            if (batch.position() > 0) {
+                flush();
+            }
+            if (encoded.remaining() > batch.capacity()) {
+                // a single record larger than the batch buffer
+                batch = ByteBuffer.allocateDirect(Integer.highestOneBit(encoded.remaining()) * 2);
+            }
+        }
+        batch.put(encoded);
+        batched++;
+    }
+
+    private void encodeLine() {
+        CharBuffer chars = CharBuffer.wrap(line);
+        encoder.reset();
+        encoded.clear();
+        while (encoder.encode(chars, encoded, true).isOverflow()) {
+            ByteBuffer larger = ByteBuffer.allocate(encoded.capacity() * 2);
+            encoded.flip();
+            encoded = larger.put(encoded);
+        }
+        encoded.flip();
+    }
+
+    private void field(String name, String value) {
+        if (value == null) {
+            return;
+        }
+        line.append(",\"").append(name).append("\":\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\').append(c);
+            } else if (c < 0x20) {
+                line.append(String.format("\\u%04x", (int) c));
+            } else {
+                line.append(c);
+            }
+        }
+        line.append('"');
+    }
+
+    private void flush() {
+        batch.flip();
+        try {
+            if (fileSize > 0 && fileSize + batch.remaining() > maxFileSize) {
+                rotate();
+            }
+            while (batch.hasRemaining()) {
+                fileSize += channel.write(batch);
+            }
+            written.add(batched);
+        } catch (IOException ex) {
+            writeFailures.increment();
+            logger.warn("Writing the audit file " + file + " failed", ex);
+        } finally {
+            batch.clear();
+            batched = 0;
+        }
+    }
+
+    private void rotate() throws IOException {
+        channel.close();
+        try {
+            Files.move(file, file.resolveSibling(file.getFileName() + "." + ROTATED_SUFFIX.format(Instant.now())));
+            rotations.increment();
+        } finally {
+            // the new file, or the old one again if it could not be moved, so a failed rotation never leaves the log closed
+            openChannel();
+        }
+        List<Path> rotated = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(file.getParent(), file.getFileName() + ".*")) {
+            files.forEach(rotated::add);
+        }
+        // the suffix sorts by time
+        rotated.sort(null);
+        for (int i = 0; i < rotated.size() - maxHistory; i++) {
+            Files.deleteIfExists(rotated.get(i));
+        }
+    }
+
+    private void openChannel() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        fileSize = channel.size();
+    }
+
+    private static final class Record {
+
+        private final long timestamp;
+
+        private final boolean failure;
+
+        private final String principal;
+
+        private final String remoteAddress;
+
+        private final String sessionId;
+
+        private final String detail;
+
+        Record(long timestamp, boolean failure, String principal, String remoteAddress, String sessionId, String detail) {
+            this.timestamp = timestamp;
+            this.failure = failure;
+            this.principal = principal;
+            this.remoteAddress = remoteAddress;
+            this.sessionId = sessionId;
+            this.detail = detail;
+        }
+    }
+}
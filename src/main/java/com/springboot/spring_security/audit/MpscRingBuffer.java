@@ -0,0 +1,107 @@
+package com.springboot.spring_security.audit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * A bounded, lock-free queue for many producers and a single consumer.
+ * <p>
+ * Every slot carries a sequence number. A producer claims the next position with one compare-and-set on the tail,
+ * stores its element and then publishes the slot by advancing its sequence; the consumer takes a slot only once it is published,
+ * and hands it back to the producers by advancing the sequence by one lap. Neither side ever waits for the other:
+ * a producer finding the buffer full gets false from {@link #offer} at once.
+ *
+ * @param <E> element type
+ */
+final class MpscRingBuffer<E> {
+
+    private final Object[] elements;
+
+    private final AtomicLongArray sequences;
+
+    private final int mask;
+
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Only written by the consumer; volatile so {@link #size()} can be read from other threads.
+     */
+    private volatile long head;
+
+    /**
+     * @param capacity a power of two
+     */
+    MpscRingBuffer(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("The capacity must be a power of two");
+        }
+        this.elements = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @param element
+     * @return false if the buffer is full
+     */
+    boolean offer(E element) {
+        long position;
+        int index;
+        while (true) {
+            position = tail.get();
+            index = (int) position & mask;
+            long lag = sequences.get(index) - position;
+            if (lag == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            } else if (lag < 0) {
+                // the slot still holds the element of the previous lap
+                return false;
+            }
+            // else another producer claimed this position first
+        }
+        elements[index] = element;
+        sequences.lazySet(index, position + 1);
+        return true;
+    }
+
+    /**
+     * Takes up to max published elements, in order. Must only be called from the consumer thread.
+     *
+     * @param consumer
+     * @param max
+     * @return the number of elements taken
+     */
+    @SuppressWarnings("unchecked")
+    int drain(Consumer<? super E> consumer, int max) {
+        long position = head;
+        int count = 0;
+        while (count < max) {
+            int index = (int) position & mask;
+            if (sequences.get(index) != position + 1) {
+                break;
+            }
+            E element = (E) elements[index];
+            elements[index] = null;
+            sequences.lazySet(index, position + elements.length);
+            position++;
+            count++;
+            consumer.accept(element);
+        }
+        head = position;
+        return count;
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    int capacity() {
+        return elements.length;
+    }
+}
@@ -0,0 +1,404 @@
+package com.springboot.spring_security.cache;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * A small bounded cache whose entries expire after a time-to-live.
+ * <p>
+ * Concurrent misses for the same key are coalesced ("single flight"): the first caller runs the loader
+ * and every other caller waits for that load instead of issuing its own remote call.
+ * Failures of a configured type can be cached too (negative caching), so a rejected login is not re-checked on every attempt.
+ * When the cache is full the oldest entries are evicted first.
+ * <p>
+ * With a refresh-after shorter than the time-to-live the cache serves stale-while-revalidate:
+ * a hit on an entry older than refresh-after returns the cached value at once and reloads it in the background,
+ * so repeat callers never wait on the loader until the entry actually expires.
+ * <p>
+ * The settings have plain setters so the cache can be declared as a @Bean decorated with @ConfigurationProperties,
+ * the same way as the ClientResources of each OAuth2 provider.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class ExpiringCache<K, V> {
+
+    private final String name;
+
+    private final ConcurrentMap<K, Entry<K, V>> entries = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<K, CompletableFuture<Entry<K, V>>> loading = new ConcurrentHashMap<>();
+
+    /**
+     * Entries in insertion order, used to find the eldest entry on eviction.
+     * Replaced entries stay in the queue until they are polled or the queue is compacted.
+     */
+    private final ConcurrentLinkedQueue<Entry<K, V>> order = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final ReentrantLock compactionLock = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+
+    private int maximumSize = 10_000;
+
+    private Duration timeToLive = Duration.ofMinutes(10);
+
+    private Duration negativeTimeToLive = Duration.ZERO;
+
+    private Duration refreshAfter = Duration.ZERO;
+
+    private Executor refreshExecutor = ForkJoinPool.commonPool();
+
+    private Class<? extends RuntimeException> negativelyCached;
+
+    private ToLongFunction<? super V> expiry;
+
+    private Clock clock = Clock.systemUTC();
+
+    public ExpiringCache(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the cached value for the key, loading it with the loader on a miss.
+     * Only one load per key runs at a time; concurrent callers for the same key share its outcome.
+     *
+     * @param key
+     * @param loader
+     * @return the cached or freshly loaded value, null if the loader returned null (which is not cached)
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        Entry<K, V> entry = this.entries.get(key);
+        long now = this.clock.millis();
+        if (entry != null && !entry.isExpired(now)) {
+            this.hits.increment();
+            if (isStale(entry, now)) {
+                refresh(entry, loader);
+            }
+            return entry.get();
+        }
+        this.misses.increment();
+        CompletableFuture<Entry<K, V>> own = new CompletableFuture<>();
+        CompletableFuture<Entry<K, V>> inFlight = this.loading.putIfAbsent(key, own);
+        if (inFlight != null) {
+            return await(inFlight).get();
+        }
+        try {
+            // another thread may have finished a load between our lookup and claiming the key
+            Entry<K, V> loaded = this.entries.get(key);
+            if (loaded == null || loaded.isExpired(this.clock.millis())) {
+                loaded = load(key, loader);
+                if (loaded != null) {
+                    store(loaded);
+                }
+            }
+            own.complete(loaded);
+            return loaded != null ? loaded.get() : null;
+        } catch (RuntimeException | Error ex) {
+            own.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            this.loading.remove(key, own);
+        }
+    }
+
+    /**
+     * @param key
+     * @return the cached value, or null when there is no live entry; a cached failure is rethrown
+     */
+    public V getIfPresent(K key) {
+        Entry<K, V> entry = this.entries.get(key);
+        if (entry == null || entry.isExpired(this.clock.millis())) {
+            this.misses.increment();
+            return null;
+        }
+        this.hits.increment();
+        return entry.get();
+    }
+
+    public void put(K key, V value) {
+        long now = this.clock.millis();
+        store(new Entry<>(key, value, null, now, expiresAt(value, now)));
+    }
+
+    public void invalidate(K key) {
+        this.entries.remove(key);
+    }
+
+    public void invalidateAll() {
+        this.entries.clear();
+    }
+
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * @return the name and current size of the cache; hits, misses, loads, loadFailures, evictions and refreshes since it was created;
+     * and averageLoadMillis, the mean time a loader took
+     */
+    public Map<String, Object> stats() {
+        long loadCount = this.loads.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("name", this.name);
+        stats.put("size", this.entries.size());
+        stats.put("hits", this.hits.sum());
+        stats.put("misses", this.misses.sum());
+        stats.put("loads", loadCount);
+        stats.put("loadFailures", this.loadFailures.sum());
+        stats.put("evictions", this.evictions.sum());
+        stats.put("refreshes", this.refreshes.sum());
+        stats.put("averageLoadMillis", loadCount == 0 ? 0.0 : this.loadNanos.sum() / (double) loadCount / TimeUnit.MILLISECONDS.toNanos(1));
+        return stats;
+    }
+
+    private Entry<K, V> load(K key, Function<? super K, ? extends V> loader) {
+        long start = System.nanoTime();
+        long now = this.clock.millis();
+        try {
+            V value = loader.apply(key);
+            return value != null ? new Entry<>(key, value, null, now, expiresAt(value, now)) : null;
+        } catch (RuntimeException ex) {
+            this.loadFailures.increment();
+            if (this.negativelyCached != null && this.negativelyCached.isInstance(ex) && !this.negativeTimeToLive.isZero()) {
+                return new Entry<>(key, null, ex, now, now + this.negativeTimeToLive.toMillis());
+            }
+            throw ex;
+        } finally {
+            this.loads.increment();
+            this.loadNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    private boolean isStale(Entry<K, V> entry, long now) {
+        return !this.refreshAfter.isZero() && entry.failure == null && now - entry.loadedAt >= this.refreshAfter.toMillis();
+    }
+
+    /**
+     * Reloads a stale entry on the refresh executor, unless a load for its key is already running.
+     * A failed refresh keeps the stale value until it expires; callers that miss meanwhile wait for the refresh like for any other load.
+     */
+    private void refresh(Entry<K, V> stale, Function<? super K, ? extends V> loader) {
+        K key = stale.key;
+        CompletableFuture<Entry<K, V>> own = new CompletableFuture<>();
+        if (this.loading.putIfAbsent(key, own) != null) {
+            return;
+        }
+        try {
+            this.refreshExecutor.execute(() -> {
+                try {
+                    Entry<K, V> loaded = load(key, loader);
+                    if (loaded != null) {
+                        this.refreshes.increment();
+                        store(loaded);
+                    }
+                    own.complete(loaded);
+                } catch (RuntimeException | Error ex) {
+                    own.completeExceptionally(ex);
+                } finally {
+                    this.loading.remove(key, own);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            // the executor is saturated: keep serving the stale value and try again on a later hit
+            this.loading.remove(key, own);
+            own.complete(stale);
+        }
+    }
+
+    private long expiresAt(V value, long now) {
+        long expiresAt = now + this.timeToLive.toMillis();
+        if (this.expiry != null) {
+            long valueExpiry = this.expiry.applyAsLong(value);
+            if (valueExpiry > 0) {
+                expiresAt = Math.min(expiresAt, valueExpiry);
+            }
+        }
+        return expiresAt;
+    }
+
+    private void store(Entry<K, V> entry) {
+        this.entries.put(entry.key, entry);
+        this.order.add(entry);
+        if (this.queued.incrementAndGet() > 2 * this.maximumSize) {
+            compactOrder();
+        }
+        while (this.entries.size() > this.maximumSize) {
+            Entry<K, V> eldest = this.order.poll();
+            if (eldest == null) {
+                break;
+            }
+            this.queued.decrementAndGet();
+            if (this.entries.remove(eldest.key, eldest)) {
+                this.evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Drops queue elements whose entry has since been replaced or invalidated, so the queue stays proportional to the cache size.
+     */
+    private void compactOrder() {
+        if (!this.compactionLock.tryLock()) {
+            return;
+        }
+        try {
+            for (int i = this.queued.get(); i > 0; i--) {
+                Entry<K, V> entry = this.order.poll();
+                if (entry == null) {
+                    break;
+                }
+                this.queued.decrementAndGet();
+                if (this.entries.get(entry.key) == entry) {
+                    this.order.add(entry);
+                    this.queued.incrementAndGet();
+                }
+            }
+        } finally {
+            this.compactionLock.unlock();
+        }
+    }
+
+    private static <K, V> Entry<K, V> await(CompletableFuture<Entry<K, V>> future) {
+        try {
+            Entry<K, V> entry = future.join();
+            if (entry == null) {
+                return new Entry<>(null, null, null, 0, 0);
+            }
+            return entry;
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            if (ex.getCause() instanceof Error) {
+                throw (Error) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(int maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    public Duration getTimeToLive() {
+        return timeToLive;
+    }
+
+    public void setTimeToLive(Duration timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    public Duration getRefreshAfter() {
+        return refreshAfter;
+    }
+
+    /**
+     * Age after which a hit triggers a background reload of the entry (stale-while-revalidate). Zero, the default, disables refreshing.
+     *
+     * @param refreshAfter
+     */
+    public void setRefreshAfter(Duration refreshAfter) {
+        this.refreshAfter = refreshAfter;
+    }
+
+    /**
+     * Where background refreshes run, the common fork-join pool by default.
+     *
+     * @param refreshExecutor
+     */
+    public void setRefreshExecutor(Executor refreshExecutor) {
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    public Duration getNegativeTimeToLive() {
+        return negativeTimeToLive;
+    }
+
+    /**
+     * How long a failure of the {@link #setNegativelyCached negatively cached} type is remembered. Zero disables negative caching.
+     *
+     * @param negativeTimeToLive
+     */
+    public void setNegativeTimeToLive(Duration negativeTimeToLive) {
+        this.negativeTimeToLive = negativeTimeToLive;
+    }
+
+    public void setNegativelyCached(Class<? extends RuntimeException> negativelyCached) {
+        this.negativelyCached = negativelyCached;
+    }
+
+    /**
+     * An optional absolute expiry (epoch millis, 0 for none) taken from the value itself, e.g. the expiration of a token.
+     * The entry expires at whichever comes first, this or the time-to-live.
+     *
+     * @param expiry
+     */
+    public void setExpiry(ToLongFunction<? super V> expiry) {
+        this.expiry = expiry;
+    }
+
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    private static final class Entry<K, V> {
+
+        final K key;
+        final V value;
+        final RuntimeException failure;
+        final long loadedAt;
+        final long expiresAt;
+
+        Entry(K key, V value, RuntimeException failure, long loadedAt, long expiresAt) {
+            this.key = key;
+            this.value = value;
+            this.failure = failure;
+            this.loadedAt = loadedAt;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return now >= this.expiresAt;
+        }
+
+        V get() {
+            if (this.failure != null) {
+                throw this.failure;
+            }
+            return this.value;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.springboot.spring_security.configuration;
+
+import com.springboot.spring_security.audit.AuthenticationAuditLog;
+import com.springboot.spring_security.resources.AuditProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * The audit trail of logins, configured under "audit". The WebSecurityConfiguration feeds it every authentication event.
+ */
+@Configuration
+public class AuditConfiguration {
+
+    @Bean
+    @ConfigurationProperties("audit")
+    public AuditProperties auditProperties() {
+        return new AuditProperties();
+    }
+
+    @Bean(destroyMethod = "close")
+    public AuthenticationAuditLog authenticationAuditLog(AuditProperties properties) throws IOException {
+        String file = StringUtils.hasText(properties.getFile())
+                ? properties.getFile() : Paths.get(System.getProperty("java.io.tmpdir"), "spring_security", "audit", "authentication.log").toString();
+        AuthenticationAuditLog auditLog = new AuthenticationAuditLog(Paths.get(file), properties.getBufferCapacity());
+        auditLog.setOverflowPolicy(properties.getOverflowPolicy());
+        auditLog.setBlockTimeout(properties.getBlockTimeout());
+        auditLog.setBatchSize(properties.getBatchSize());
+        auditLog.setFlushInterval(properties.getFlushInterval());
+        auditLog.setMaxFileSize(properties.getMaxFileSize());
+        auditLog.setMaxHistory(properties.getMaxHistory());
+        return auditLog;
+    }
+}
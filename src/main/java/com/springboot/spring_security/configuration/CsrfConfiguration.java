@@ -0,0 +1,48 @@
+package com.springboot.spring_security.configuration;
+
+import com.springboot.spring_security.csrf.HmacCsrfTokenRepository;
+import com.springboot.spring_security.resources.CsrfProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
+import org.springframework.security.web.csrf.CsrfTokenRepository;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Clock;
+
+/**
+ * The CsrfTokenRepository of the WebSecurityConfiguration, chosen by csrf.type. Either way the token is in the XSRF-TOKEN cookie,
+ * readable by the page's script, and is sent back as the X-XSRF-TOKEN header or the _csrf parameter.
+ */
+@Configuration
+public class CsrfConfiguration {
+
+    @Bean
+    @ConfigurationProperties("csrf")
+    public CsrfProperties csrfProperties() {
+        return new CsrfProperties();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "csrf", name = "type", havingValue = "hmac", matchIfMissing = true)
+    public CsrfTokenRepository hmacCsrfTokenRepository(CsrfProperties properties) {
+        byte[] secret;
+        if (StringUtils.hasText(properties.getSecret())) {
+            secret = properties.getSecret().getBytes(StandardCharsets.UTF_8);
+        } else {
+            secret = new byte[32];
+            new SecureRandom().nextBytes(secret);
+        }
+        return new HmacCsrfTokenRepository(secret, properties.getRotation(), Clock.systemUTC());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "csrf", name = "type", havingValue = "cookie")
+    public CsrfTokenRepository cookieCsrfTokenRepository() {
+        return CookieCsrfTokenRepository.withHttpOnlyFalse();
+    }
+}
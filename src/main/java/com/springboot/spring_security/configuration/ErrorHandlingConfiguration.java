@@ -0,0 +1,42 @@
+package com.springboot.spring_security.configuration;
+
+import com.springboot.spring_security.error.ErrorResponseFilter;
+import com.springboot.spring_security.resources.ErrorHandlingProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Error responses, configured under "error-handling". With error-handling.mode=direct (the default) the ErrorResponseFilter
+ * answers 401 and 404 itself; with forward the ServletCustomizer registers the container error pages it replaces.
+ * Either way the filter counts the error responses for /stats/errors and logs a sample of them.
+ */
+@Configuration
+public class ErrorHandlingConfiguration {
+
+    @Bean
+    @ConfigurationProperties("error-handling")
+    public ErrorHandlingProperties errorHandlingProperties() {
+        return new ErrorHandlingProperties();
+    }
+
+    @Bean
+    public ErrorResponseFilter errorResponseFilter(ErrorHandlingProperties properties) {
+        return new ErrorResponseFilter(properties.getMode() == ErrorHandlingProperties.Mode.DIRECT, properties.getLogSampleRate());
+    }
+
+    /**
+     * Just in front of the OAuth2ClientContextFilter and the springSecurityFilterChain (both at -100),
+     * so it also sees the errors of the paths the security filter chain ignores.
+     *
+     * @param filter
+     * @return
+     */
+    @Bean
+    public FilterRegistrationBean<ErrorResponseFilter> errorResponseFilterRegistration(ErrorResponseFilter filter) {
+        FilterRegistrationBean<ErrorResponseFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setOrder(-101);
+        return registration;
+    }
+}
@@ -0,0 +1,60 @@
+package com.springboot.spring_security.configuration;
+
+import com.springboot.spring_security.metrics.FilterMetrics;
+import com.springboot.spring_security.resources.FilterMetricsProperties;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.client.filter.OAuth2ClientContextFilter;
+import org.springframework.security.web.FilterChainProxy;
+
+import javax.servlet.Filter;
+
+/**
+ * Per-filter latency histograms, configured under "filter-metrics" and only on with filter-metrics.enabled=true.
+ * The filters of the springSecurityFilterChain (the chains of the WebSecurityConfiguration, the ResourceServerConfiguration
+ * and the authorization server) are wrapped once the proxy is built, and so is the OAuth2ClientContextFilter in front of it,
+ * whichever oauth2ClientFilterRegistration (ours or the one of the OAuth2 auto-configuration) ends up registering it.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "filter-metrics", name = "enabled", havingValue = "true")
+public class FilterMetricsConfiguration {
+
+    @Bean
+    @ConfigurationProperties("filter-metrics")
+    public FilterMetricsProperties filterMetricsProperties() {
+        return new FilterMetricsProperties();
+    }
+
+    @Bean(destroyMethod = "close")
+    public FilterMetrics filterMetrics(FilterMetricsProperties properties) {
+        return new FilterMetrics(properties.getLogInterval());
+    }
+
+    /**
+     * Static, like every BeanPostProcessor declared in a @Configuration; the FilterMetrics is only looked up when a filter to time shows up.
+     *
+     * @param filterMetrics
+     * @return
+     */
+    @Bean
+    public static BeanPostProcessor filterMetricsPostProcessor(ObjectProvider<FilterMetrics> filterMetrics) {
+        return new BeanPostProcessor() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof FilterChainProxy) {
+                    filterMetrics.getObject().instrument((FilterChainProxy) bean);
+                } else if (bean instanceof FilterRegistrationBean && ((FilterRegistrationBean<?>) bean).getFilter() instanceof OAuth2ClientContextFilter) {
+                    FilterRegistrationBean<Filter> registration = (FilterRegistrationBean<Filter>) bean;
+                    registration.setFilter(filterMetrics.getObject().instrument("servlet", registration.getFilter()));
+                }
+                return bean;
+            }
+        };
+    }
+}
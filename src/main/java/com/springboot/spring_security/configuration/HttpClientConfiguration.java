@@ -0,0 +1,21 @@
+package com.springboot.spring_security.configuration;
+
+import com.springboot.spring_security.http.PooledHttpTransport;
+import com.springboot.spring_security.resources.HttpClientProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+/**
+ * The pooled HTTP transport shared by every OAuth2RestTemplate.
+ * The ClientApplication imports this configuration as well, so both applications are configured the same way, under "http-client".
+ */
+@Configuration
+@Import(HttpClientPropertiesConfiguration.class)
+public class HttpClientConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public PooledHttpTransport pooledHttpTransport(HttpClientProperties httpClientProperties) {
+        return new PooledHttpTransport(httpClientProperties);
+    }
+}
@@ -0,0 +1,19 @@
+package com.springboot.spring_security.configuration;
+
+import com.springboot.spring_security.resources.HttpClientProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The "http-client" settings, shared by the pooled transport of the HttpClientConfiguration and the WebClient of the ReactiveHttpClientConfiguration.
+ */
+@Configuration
+public class HttpClientPropertiesConfiguration {
+
+    @Bean
+    @ConfigurationProperties("http-client")
+    public HttpClientProperties httpClientProperties() {
+        return new HttpClientProperties();
+    }
+}
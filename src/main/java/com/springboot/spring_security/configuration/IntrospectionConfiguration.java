@@ -0,0 +1,43 @@
+package com.springboot.spring_security.configuration;
+
+import com.springboot.spring_security.resources.IntrospectionProperties;
+import com.springboot.spring_security.revocation.RevocationIndex;
+import com.springboot.spring_security.token.TokenIntrospector;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.config.annotation.web.configuration.AuthorizationServerEndpointsConfiguration;
+
+import java.util.concurrent.Executor;
+
+/**
+ * The batch token introspection of the IntrospectionController, configured under "introspection".
+ */
+@Configuration
+public class IntrospectionConfiguration {
+
+    @Bean
+    @ConfigurationProperties("introspection")
+    public IntrospectionProperties introspectionProperties() {
+        return new IntrospectionProperties();
+    }
+
+    /**
+     * Reads the token store the authorization server's endpoints use, whichever token-store.type it is
+     * (with the default memory type it is not a bean of its own), and reports revoked tokens as inactive.
+     *
+     * @param endpoints
+     * @param applicationTaskExecutor
+     * @param properties
+     * @param revocationIndex
+     * @return
+     */
+    @Bean
+    public TokenIntrospector tokenIntrospector(AuthorizationServerEndpointsConfiguration endpoints, Executor applicationTaskExecutor, IntrospectionProperties properties,
+                                               ObjectProvider<RevocationIndex> revocationIndex) {
+        TokenIntrospector introspector = new TokenIntrospector(endpoints.getEndpointsConfigurer().getTokenStore(), applicationTaskExecutor, properties.getChunkSize());
+        introspector.setRevocationIndex(revocationIndex.getIfAvailable());
+        return introspector;
+    }
+}
@@ -0,0 +1,31 @@
+package com.springboot.spring_security.configuration;
+
+import com.springboot.spring_security.resources.LoginThrottleProperties;
+import com.springboot.spring_security.throttle.LoginAttemptLimiter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+
+/**
+ * Brute-force throttling of the login endpoints, configured under "login-throttle" and on unless login-throttle.enabled=false.
+ * The WebSecurityConfiguration puts the LoginThrottlingFilter in front of the security filter chain when there is a limiter.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "login-throttle", name = "enabled", matchIfMissing = true)
+public class LoginThrottleConfiguration {
+
+    @Bean
+    @ConfigurationProperties("login-throttle")
+    public LoginThrottleProperties loginThrottleProperties() {
+        return new LoginThrottleProperties();
+    }
+
+    @Bean
+    public LoginAttemptLimiter loginAttemptLimiter(LoginThrottleProperties properties) {
+        return new LoginAttemptLimiter(properties.getWindow(), properties.getMaxAttemptsPerIp(), properties.getMaxAttemptsPerUsername(),
+                properties.getSketchWidth(), properties.getSketchDepth(), Clock.systemUTC());
+    }
+}
@@ -1,9 +1,24 @@
 package com.springboot.spring_security.configuration;
 
+import com.springboot.spring_security.assets.HtmlLinkResourceTransformer;
+import com.springboot.spring_security.assets.InMemoryResourceTransformer;
+import com.springboot.spring_security.assets.StaticResourceCacheInterceptor;
+import com.springboot.spring_security.assets.WebJarVersionResourceResolver;
+import com.springboot.spring_security.resources.StaticResourcesProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.web.ResourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.ResourceChainRegistration;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.ViewControllerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.CssLinkResourceTransformer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
 
 /**
  * The web application is based on Spring MVC.
@@ -13,6 +28,15 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 @Configuration
 public class MvcConfiguration implements WebMvcConfigurer {
 
+    @Autowired
+    private ResourceProperties resourceProperties;
+
+    @Bean
+    @ConfigurationProperties("static-resources")
+    public StaticResourcesProperties staticResourcesProperties() {
+        return new StaticResourcesProperties();
+    }
+
     /**
      * Adds four view controllers.
      * Two of the view controllers reference the view whose name is "home" (defined in home.html),
@@ -28,4 +52,38 @@ public class MvcConfiguration implements WebMvcConfigurer {
         registry.addViewController("/hello").setViewName("hello"); //setViewName("hello")>>>>hello.html
         registry.addViewController("/login").setViewName("login"); //setViewName("login")>>>>login.html
     }
+
+    /**
+     * Serves the webjars and the static folder in place of Spring Boot's default mappings (spring.resources.add-mappings=false).
+     * Every resource is also available under a url with the MD5 of its content ("/webjars/jquery/jquery.min-&lt;md5&gt;.js"),
+     * to which the links of index.html and of the style sheets are rewritten, in its precompressed .br or .gz variant when the
+     * browser accepts it and the build made one, and, once resolved, from memory.
+     * Version-less webjar paths are resolved from the webjars' pom.properties rather than with a scan of the classpath.
+     *
+     * @param registry
+     */
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        chain(registry.addResourceHandler("/webjars/**").addResourceLocations("classpath:/META-INF/resources/webjars/").resourceChain(true))
+                .addResolver(new WebJarVersionResourceResolver());
+        chain(registry.addResourceHandler("/**").addResourceLocations(resourceProperties.getStaticLocations()).resourceChain(true));
+    }
+
+    /**
+     * The resolvers and transformers both handlers share, after the caching ones of resourceChain(true).
+     * The CssLinkResourceTransformer is added here rather than left to the registration, which would put it before the in-memory one.
+     */
+    private ResourceChainRegistration chain(ResourceChainRegistration chain) {
+        return chain
+                .addResolver(new EncodedResourceResolver())
+                .addResolver(new VersionResourceResolver().addContentVersionStrategy("/**"))
+                .addTransformer(new InMemoryResourceTransformer(staticResourcesProperties().getInMemoryMaxFileSize()))
+                .addTransformer(new CssLinkResourceTransformer())
+                .addTransformer(new HtmlLinkResourceTransformer());
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new StaticResourceCacheInterceptor(staticResourcesProperties().getCachePeriod()));
+    }
 }
@@ -0,0 +1,72 @@
+package com.springboot.spring_security.configuration;
+
+import com.springboot.spring_security.cache.ExpiringCache;
+import com.springboot.spring_security.resources.PasswordHashingProperties;
+import com.springboot.spring_security.user.OffloadedPasswordEncoder;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Password hashing for the form login, configured under "password-hashing".
+ * The WebSecurityConfiguration gives the PasswordEncoder bean to the DaoAuthenticationProvider of the userDetailsService().
+ * The authorization server keeps its own NoOpPasswordEncoder for client secrets.
+ */
+@Configuration
+public class PasswordHashingConfiguration {
+
+    @Bean
+    @ConfigurationProperties("password-hashing")
+    public PasswordHashingProperties passwordHashingProperties() {
+        return new PasswordHashingProperties();
+    }
+
+    /**
+     * Successful password checks, keyed by a salted digest, configured under "password-hashing.verified-cache".
+     *
+     * @return
+     */
+    @Bean
+    @ConfigurationProperties("password-hashing.verified-cache")
+    public ExpiringCache<String, Boolean> verifiedPasswordCache() {
+        return new ExpiringCache<>("verified-passwords");
+    }
+
+    /**
+     * Encodes new passwords as "{bcrypt}" with the configured cost and still reads the other ids of
+     * PasswordEncoderFactories that we have stored passwords in ("{noop}" and "{pbkdf2}").
+     *
+     * @param properties
+     * @param verifiedPasswordCache
+     * @return
+     */
+    @Bean(destroyMethod = "close")
+    public OffloadedPasswordEncoder passwordEncoder(PasswordHashingProperties properties, ExpiringCache<String, Boolean> verifiedPasswordCache) {
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", new BCryptPasswordEncoder(properties.getBcryptCost()));
+        encoders.put("noop", noOpPasswordEncoder());
+        encoders.put("pbkdf2", new Pbkdf2PasswordEncoder());
+        OffloadedPasswordEncoder encoder = new OffloadedPasswordEncoder(new DelegatingPasswordEncoder("bcrypt", encoders),
+                properties.getThreads(), properties.getQueueCapacity(), properties.getMaxWait());
+        encoder.setBcryptCost(properties.getBcryptCost());
+        encoder.setVerifiedCache(verifiedPasswordCache);
+        return encoder;
+    }
+
+    /**
+     * Deprecated only as a warning against using it; referenced by its full name, as Java 8 also warns on the import of a deprecated class.
+     *
+     * @return
+     */
+    @SuppressWarnings("deprecation")
+    private static PasswordEncoder noOpPasswordEncoder() {
+        return org.springframework.security.crypto.password.NoOpPasswordEncoder.getInstance();
+    }
+}
@@ -0,0 +1,45 @@
+package com.springboot.spring_security.configuration;
+
+import com.springboot.spring_security.resources.HttpClientProperties;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The non-blocking counterpart of the HttpClientConfiguration, for the reactive profile: a WebClient on reactor-netty,
+ * configured under "http-client" like the pooled transport. No thread waits for the answer to one of its calls.
+ * The ClientApplication imports this configuration as well.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Import(HttpClientPropertiesConfiguration.class)
+public class ReactiveHttpClientConfiguration {
+
+    /**
+     * A pool of max-connections-per-route connections per host, as netty pools per remote address;
+     * a call waits at most connection-request-timeout for one of them.
+     *
+     * @param builder
+     * @param properties
+     * @return
+     */
+    @Bean
+    public WebClient webClient(WebClient.Builder builder, HttpClientProperties properties) {
+        ConnectionProvider pool = ConnectionProvider.fixed("http-client", properties.getMaxConnectionsPerRoute(),
+                properties.getConnectionRequestTimeout().toMillis());
+        HttpClient httpClient = HttpClient.create(pool).tcpConfiguration(tcp -> tcp
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) properties.getConnectTimeout().toMillis())
+                .doOnConnected(connection -> connection.addHandlerLast(
+                        new ReadTimeoutHandler(properties.getReadTimeout().toMillis(), TimeUnit.MILLISECONDS))));
+        return builder.clientConnector(new ReactorClientHttpConnector(httpClient)).build();
+    }
+}
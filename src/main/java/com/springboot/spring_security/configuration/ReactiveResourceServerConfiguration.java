@@ -0,0 +1,93 @@
+package com.springboot.spring_security.configuration;
+
+import com.springboot.spring_security.token.IntrospectionReactiveAuthenticationManager;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.ReactiveClientRegistrationRepository;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.ServerAuthenticationEntryPoint;
+import org.springframework.security.web.server.authentication.AuthenticationWebFilter;
+import org.springframework.security.web.server.authentication.HttpStatusServerEntryPoint;
+import org.springframework.security.web.server.authentication.ServerAuthenticationEntryPointFailureHandler;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import org.springframework.security.web.server.savedrequest.NoOpServerRequestCache;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+/**
+ * The resource server of the reactive profile: /me and /user (the UserController) on WebFlux, for access tokens only.
+ * <p>
+ * The authorization server's endpoints are servlet-only, so in this profile the application is a resource server in front of an authorization server
+ * running the default profile, and asks its /introspect about every token, without blocking, with a client_credentials token of the
+ * "introspection" client registration (spring.security.oauth2.client.registration.introspection).
+ * Like the servlet resource server it keeps no session: every request carries its token.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@EnableWebFluxSecurity
+@Import(ReactiveHttpClientConfiguration.class)
+public class ReactiveResourceServerConfiguration {
+
+    /**
+     * Configured under "introspection", like the BatchingResourceServerTokenServices of the ClientApplication.
+     *
+     * @param webClient
+     * @param clientRegistrations
+     * @return
+     */
+    @Bean
+    @ConfigurationProperties("introspection")
+    public IntrospectionReactiveAuthenticationManager introspectionAuthenticationManager(WebClient webClient, ReactiveClientRegistrationRepository clientRegistrations) {
+        ClientRegistration client = clientRegistrations.findByRegistrationId("introspection").block();
+        if (client == null) {
+            throw new IllegalStateException("No client registration \"introspection\" to introspect the tokens with");
+        }
+        return new IntrospectionReactiveAuthenticationManager(webClient, client);
+    }
+
+    @Bean
+    public SecurityWebFilterChain resourceServerFilterChain(ServerHttpSecurity http, IntrospectionReactiveAuthenticationManager authenticationManager) {
+        ServerAuthenticationEntryPoint entryPoint = new HttpStatusServerEntryPoint(HttpStatus.UNAUTHORIZED);
+        AuthenticationWebFilter bearerTokens = new AuthenticationWebFilter(authenticationManager);
+        bearerTokens.setServerAuthenticationConverter(exchange -> Mono.justOrEmpty(accessToken(exchange.getRequest()))
+                .map(token -> new PreAuthenticatedAuthenticationToken(token, "")));
+        bearerTokens.setAuthenticationFailureHandler(new ServerAuthenticationEntryPointFailureHandler(entryPoint));
+        return http
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .requestCache().requestCache(NoOpServerRequestCache.getInstance())
+                .and()
+                .csrf().disable()
+                .logout().disable()
+                .exceptionHandling().authenticationEntryPoint(entryPoint)
+                .and()
+                .addFilterAt(bearerTokens, SecurityWebFiltersOrder.AUTHENTICATION)
+                .authorizeExchange().anyExchange().authenticated()
+                .and()
+                .build();
+    }
+
+    /**
+     * The token of an "Authorization: Bearer" header, or of the access_token query parameter, where the servlet resource server looks for it as well.
+     *
+     * @param request
+     * @return
+     */
+    private static String accessToken(ServerHttpRequest request) {
+        String authorization = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authorization != null && authorization.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            return authorization.substring(7).trim();
+        }
+        return request.getQueryParams().getFirst("access_token");
+    }
+}
@@ -0,0 +1,43 @@
+package com.springboot.spring_security.configuration;
+
+import com.springboot.spring_security.matcher.IndexedFilterChainProxy;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.security.web.FilterChainProxy;
+
+/**
+ * Compiles the request matchers of the springSecurityFilterChain (which chain a request goes through, and the access rules
+ * of authorizeRequests() in each chain) into RequestMatcherIndexes at startup; on unless request-matcher-index.enabled=false.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "request-matcher-index", name = "enabled", matchIfMissing = true)
+public class RequestMatcherIndexConfiguration {
+
+    @Bean
+    public static BeanPostProcessor requestMatcherIndexPostProcessor() {
+        return new IndexingPostProcessor();
+    }
+
+    /**
+     * Ordered, so it runs before the unordered post-processors, such as the one of the FilterMetricsConfiguration,
+     * and finds the FilterSecurityInterceptors before they are wrapped.
+     */
+    private static final class IndexingPostProcessor implements BeanPostProcessor, Ordered {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof FilterChainProxy && !(bean instanceof IndexedFilterChainProxy)) {
+                return new IndexedFilterChainProxy((FilterChainProxy) bean);
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return 0;
+        }
+    }
+}
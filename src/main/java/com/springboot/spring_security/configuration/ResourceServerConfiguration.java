@@ -1,18 +1,50 @@
 package com.springboot.spring_security.configuration;
 
+import com.springboot.spring_security.revocation.RevocationCheckingTokenServices;
+import com.springboot.spring_security.revocation.RevocationIndex;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.oauth2.config.annotation.web.configuration.AuthorizationServerEndpointsConfiguration;
 import org.springframework.security.oauth2.config.annotation.web.configuration.EnableResourceServer;
 import org.springframework.security.oauth2.config.annotation.web.configuration.ResourceServerConfigurerAdapter;
+import org.springframework.security.oauth2.config.annotation.web.configurers.ResourceServerSecurityConfigurer;
 
 @Configuration
 @EnableResourceServer
 public class ResourceServerConfiguration extends ResourceServerConfigurerAdapter {
+
+    @Autowired
+    AuthorizationServerEndpointsConfiguration endpoints;
+
+    @Autowired
+    ObjectProvider<RevocationIndex> revocationIndex;
+
+    /**
+     * With revocation on, every token is checked against the RevocationIndex before the token services of the authorization server
+     * (its token store, enhancer and client details) are asked about it.
+     *
+     * @param resources
+     * @throws Exception
+     */
+    @Override
+    public void configure(ResourceServerSecurityConfigurer resources) throws Exception {
+        RevocationIndex index = revocationIndex.getIfAvailable();
+        if (index != null) {
+            resources.tokenServices(new RevocationCheckingTokenServices(endpoints.getEndpointsConfigurer().getResourceServerTokenServices(), index));
+        }
+    }
+
     @Override
     public void configure(HttpSecurity http) throws Exception {
 //        super.configure(http);
+        //The batch introspection is for services holding a client token of their own (client_credentials), not for users
         http
-                .antMatcher("/me")
-                .authorizeRequests().anyRequest().authenticated();
+                .requestMatchers().antMatchers("/me", "/introspect", "/revoke")
+                .and()
+                .authorizeRequests()
+                .antMatchers("/introspect").access("#oauth2.isClient()")
+                .anyRequest().authenticated();
     }
 }
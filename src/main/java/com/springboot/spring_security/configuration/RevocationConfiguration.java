@@ -0,0 +1,36 @@
+package com.springboot.spring_security.configuration;
+
+import com.springboot.spring_security.resources.RevocationProperties;
+import com.springboot.spring_security.revocation.RevocationIndex;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Clock;
+
+/**
+ * Token revocation (POST /revoke), configured under "revocation" and on unless revocation.enabled=false.
+ * The ResourceServerConfiguration checks the RevocationIndex on every request when there is one.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "revocation", name = "enabled", matchIfMissing = true)
+public class RevocationConfiguration {
+
+    @Bean
+    @ConfigurationProperties("revocation")
+    public RevocationProperties revocationProperties() {
+        return new RevocationProperties();
+    }
+
+    @Bean(destroyMethod = "close")
+    public RevocationIndex revocationIndex(RevocationProperties properties) throws IOException {
+        String file = StringUtils.hasText(properties.getFile())
+                ? properties.getFile() : Paths.get(System.getProperty("java.io.tmpdir"), "spring_security", "revocations.log").toString();
+        return new RevocationIndex(Paths.get(file), properties.getExpectedRevocations(), properties.getFalsePositiveRate(),
+                properties.getRebuildInterval(), Clock.systemUTC());
+    }
+}
@@ -1,10 +1,15 @@
 package com.springboot.spring_security.configuration;
 
+import com.springboot.spring_security.cache.ExpiringCache;
+import com.springboot.spring_security.http.PooledHttpTransport;
+import com.springboot.spring_security.token.CachingResourceServerTokenServices;
 import org.apache.juli.logging.Log;
 import org.apache.juli.logging.LogFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.security.oauth2.resource.AuthoritiesExtractor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.web.server.ConfigurableWebServerFactory;
 import org.springframework.boot.web.server.ErrorPage;
 import org.springframework.boot.web.server.WebServerFactoryCustomizer;
@@ -15,6 +20,7 @@ import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.oauth2.client.OAuth2ClientContext;
 import org.springframework.security.oauth2.client.OAuth2RestOperations;
@@ -31,8 +37,11 @@ public class ServletCustomizer {
 
     /**
      * A mapping from an unauthenticated response (HTTP 401, a.k.a. UNAUTHORIZED) to the "/unauthenticated" endpoint
+     * <p>
+     * Only with error-handling.mode=forward; by default the ErrorResponseFilter answers both statuses without a forward.
      */
     @Bean
+    @ConditionalOnProperty(prefix = "error-handling", name = "mode", havingValue = "forward")
     public WebServerFactoryCustomizer<ConfigurableWebServerFactory> customizer() {
         return container -> {
             Debug.println("container", container + "");
@@ -41,10 +50,20 @@ public class ServletCustomizer {
         };
     }
 
+    /**
+     * The template sends its API calls and its token requests over the pooled transport instead of a new JDK connection per call.
+     *
+     * @param resource
+     * @param context
+     * @param transport
+     * @return
+     */
     @SuppressWarnings("SpringJavaInjectionPointsAutowiringInspection")
     @Bean
-    public static OAuth2RestTemplate oauth2RestTemplate(OAuth2ProtectedResourceDetails resource, OAuth2ClientContext context) {
-        return new OAuth2RestTemplate(resource, context);
+    public static OAuth2RestTemplate oauth2RestTemplate(OAuth2ProtectedResourceDetails resource, OAuth2ClientContext context, PooledHttpTransport transport) {
+        OAuth2RestTemplate template = new OAuth2RestTemplate(resource, context);
+        transport.customize(template);
+        return template;
     }
 
     /**
@@ -53,21 +72,51 @@ public class ServletCustomizer {
      * Fortunately, for such a simple use case, Spring Boot has provided an easy extension point:
      * if we declare a @Bean of type AuthoritiesExtractor it will be used to construct the authorities (typically "roles") of an authenticated user.
      * We can use that hook to assert the the user is in the correct orignization, and throw an exception if not.
+     * <p>
+     * The organizations lookup is a remote call, so its outcome (including the "Not in Spring Team" rejection) is cached per GitHub user id,
+     * and concurrent logins of the same user share a single lookup.
      *
      * @param oAuth2RestOperations
+     * @param authoritiesCache
      * @return
      * @Bean注释配合@EnableOAuth2Sso来实现自动构建
      */
     @Bean
-    public static AuthoritiesExtractor authoritiesExtractor(OAuth2RestOperations oAuth2RestOperations) {
-        return map -> {
+    public static AuthoritiesExtractor authoritiesExtractor(OAuth2RestOperations oAuth2RestOperations, ExpiringCache<Object, List<GrantedAuthority>> authoritiesCache) {
+        return map -> authoritiesCache.get(map.containsKey("id") ? map.get("id") : map.get("organizations_url"), key -> {
             String url = (String) map.get("organizations_url");
             List<Map<String, Object>> orgs = oAuth2RestOperations.getForObject(url, List.class);
             if (orgs.size() > 0 && orgs.stream().anyMatch(org -> "spring-projects".equals(org.get("login")))) {
                 return AuthorityUtils.commaSeparatedStringToAuthorityList("ROLE_USER");
             }
             throw new Custom401Exceprion("Not in Spring Team");
-        };
+        });
+    }
+
+    /**
+     * Authorities of GitHub users, keyed by the GitHub user id, configured under "github.authorities-cache".
+     * Rejections (Custom401Exceprion) are cached as well, for the shorter negative-time-to-live.
+     *
+     * @return
+     */
+    @Bean
+    @ConfigurationProperties("github.authorities-cache")
+    public ExpiringCache<Object, List<GrantedAuthority>> authoritiesCache() {
+        ExpiringCache<Object, List<GrantedAuthority>> cache = new ExpiringCache<>("authorities");
+        cache.setNegativelyCached(Custom401Exceprion.class);
+        return cache;
+    }
+
+    /**
+     * Authentications built from GitHub's user info endpoint, keyed by access token, configured under "github.user-info-cache".
+     * No refresh-after here: the authoritiesExtractor calls GitHub with the session-bound client context, which a background refresh does not have.
+     *
+     * @return
+     */
+    @Bean
+    @ConfigurationProperties("github.user-info-cache")
+    public ExpiringCache<String, CachingResourceServerTokenServices.CachedAuthentication> userInfoCache() {
+        return new ExpiringCache<>("github-user-info");
     }
 
     public static class Custom401Exceprion extends BadCredentialsException {
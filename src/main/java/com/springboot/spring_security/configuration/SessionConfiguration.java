@@ -0,0 +1,49 @@
+package com.springboot.spring_security.configuration;
+
+import com.springboot.spring_security.resources.SessionStoreProperties;
+import com.springboot.spring_security.session.OffHeapSessionRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.session.config.annotation.web.http.EnableSpringHttpSession;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * With session.store=off-heap, Spring Session's SessionRepositoryFilter replaces the container's HttpSession,
+ * and both the form-login and the GitHub SSO sessions are kept by the OffHeapSessionRepository.
+ * Spring Boot's own session auto-configuration backs off as soon as a SessionRepository bean exists.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "session", name = "store", havingValue = "off-heap")
+@EnableSpringHttpSession
+public class SessionConfiguration {
+
+    @Bean
+    @ConfigurationProperties("session.off-heap")
+    public SessionStoreProperties sessionStoreProperties() {
+        return new SessionStoreProperties();
+    }
+
+    /**
+     * Sessions time out after server.servlet.session.timeout, like the container sessions they replace.
+     *
+     * @param properties
+     * @param serverProperties
+     * @return
+     * @throws IOException
+     */
+    @Bean(destroyMethod = "close")
+    public OffHeapSessionRepository sessionRepository(SessionStoreProperties properties, ServerProperties serverProperties) throws IOException {
+        OffHeapSessionRepository repository = new OffHeapSessionRepository(properties.getStripes(), properties.getInitialCapacity(),
+                StringUtils.hasText(properties.getDirectory()) ? Paths.get(properties.getDirectory()) : null, properties.getExpiryResolution());
+        if (serverProperties.getServlet().getSession().getTimeout() != null) {
+            repository.setDefaultMaxInactiveInterval(serverProperties.getServlet().getSession().getTimeout());
+        }
+        return repository;
+    }
+}
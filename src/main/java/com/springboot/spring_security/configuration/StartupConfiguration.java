@@ -0,0 +1,35 @@
+package com.springboot.spring_security.configuration;
+
+import com.springboot.spring_security.resources.StartupProperties;
+import com.springboot.spring_security.startup.LazyInitializationPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Arrays;
+
+/**
+ * Startup settings, configured under "startup". The StartupTimingReporter reads them before there is a context.
+ */
+@Configuration
+public class StartupConfiguration {
+
+    @Bean
+    @ConfigurationProperties("startup")
+    public StartupProperties startupProperties() {
+        return new StartupProperties();
+    }
+
+    /**
+     * With startup.lazy-sso=true the beans only the GitHub login uses are created by the first /login/github
+     * (the WebSecurityConfiguration puts the SSO filter behind a LazyFilter).
+     *
+     * @return
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "startup", name = "lazy-sso", havingValue = "true")
+    public static LazyInitializationPostProcessor lazySsoPostProcessor() {
+        return new LazyInitializationPostProcessor(Arrays.asList("pooledHttpTransport", "oauth2RestTemplate", "authoritiesExtractor"));
+    }
+}
@@ -0,0 +1,86 @@
+package com.springboot.spring_security.configuration;
+
+import com.springboot.spring_security.cache.ExpiringCache;
+import com.springboot.spring_security.resources.TokenStoreProperties;
+import com.springboot.spring_security.revocation.RevocationIndex;
+import com.springboot.spring_security.token.CachingJwtTokenStore;
+import com.springboot.spring_security.token.LogStructuredTokenStore;
+import com.springboot.spring_security.token.SignedTokenConverter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Plugs a TokenStore into the authorization server.
+ * Spring Boot's OAuth2AuthorizationServerConfiguration picks up any TokenStore (and AccessTokenConverter) bean for its endpoints,
+ * and the resource server protecting /me reads tokens from the same store.
+ */
+@Configuration
+public class TokenStoreConfiguration {
+
+    @Bean
+    @ConfigurationProperties("token-store")
+    public TokenStoreProperties tokenStoreProperties() {
+        return new TokenStoreProperties();
+    }
+
+    /**
+     * Tokens minted for the acme client are appended to memory-mapped log segments, so they survive restarts
+     * and the heap only holds the index.
+     *
+     * @param properties
+     * @return
+     * @throws IOException
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "token-store", name = "type", havingValue = "log")
+    public LogStructuredTokenStore tokenStore(TokenStoreProperties properties) throws IOException {
+        return new LogStructuredTokenStore(Paths.get(properties.getDirectory()), properties.getSegmentSize(), properties.getCompactionInterval());
+    }
+
+    /**
+     * In signed mode the converter doubles as the token enhancer of the authorization server, turning every issued token into a signed JWT.
+     *
+     * @param properties
+     * @return
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "token-store", name = "type", havingValue = "signed")
+    public SignedTokenConverter accessTokenConverter(TokenStoreProperties properties) {
+        SignedTokenConverter converter = new SignedTokenConverter();
+        if (StringUtils.hasText(properties.getSigningKey())) {
+            converter.setSigningKey(properties.getSigningKey());
+        }
+        return converter;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "token-store", name = "type", havingValue = "signed")
+    @ConfigurationProperties("token-store.verified-cache")
+    public ExpiringCache<String, CachingJwtTokenStore.VerifiedToken> verifiedTokenCache() {
+        return new ExpiringCache<>("verified-tokens");
+    }
+
+    /**
+     * Signed tokens stay valid until they expire, so with revocation on the store revokes the refresh tokens it is asked to remove, and refuses them.
+     *
+     * @param accessTokenConverter
+     * @param verifiedTokenCache
+     * @param revocationIndex
+     * @return
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "token-store", name = "type", havingValue = "signed")
+    public CachingJwtTokenStore signedTokenStore(SignedTokenConverter accessTokenConverter, ExpiringCache<String, CachingJwtTokenStore.VerifiedToken> verifiedTokenCache,
+                                                 ObjectProvider<RevocationIndex> revocationIndex) {
+        CachingJwtTokenStore tokenStore = new CachingJwtTokenStore(accessTokenConverter, verifiedTokenCache);
+        tokenStore.setRevocationIndex(revocationIndex.getIfAvailable());
+        return tokenStore;
+    }
+}
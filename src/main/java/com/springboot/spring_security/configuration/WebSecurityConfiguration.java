@@ -1,26 +1,50 @@
 package com.springboot.spring_security.configuration;
 
-import com.springboot.spring_security.resources.ClientResources;
+import com.springboot.spring_security.audit.AuthenticationAuditLog;
+import com.springboot.spring_security.cache.ExpiringCache;
+import com.springboot.spring_security.http.PooledHttpTransport;
+import com.springboot.spring_security.resources.SsoProperties;
+import com.springboot.spring_security.resources.SsoProviderProperties;
+import com.springboot.spring_security.resources.StartupProperties;
+import com.springboot.spring_security.resources.StaticResourcesProperties;
+import com.springboot.spring_security.resources.UserStoreProperties;
+import com.springboot.spring_security.sso.CircuitBreaker;
+import com.springboot.spring_security.sso.SsoProvider;
+import com.springboot.spring_security.sso.SsoProviderRegistry;
+import com.springboot.spring_security.startup.LazyFilter;
+import com.springboot.spring_security.throttle.LoginAttemptLimiter;
+import com.springboot.spring_security.throttle.LoginThrottlingFilter;
+import com.springboot.spring_security.token.CachingResourceServerTokenServices;
+import com.springboot.spring_security.user.IndexedUserDetailsService;
+import com.springboot.spring_security.user.PasswordHashingSaturatedException;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.security.oauth2.resource.UserInfoTokenServices;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.ApplicationListener;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.authentication.event.AuthenticationSuccessEvent;
+import org.springframework.security.authentication.event.AbstractAuthenticationEvent;
 import org.springframework.security.authentication.jaas.AbstractJaasAuthenticationProvider;
+import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.builders.WebSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.client.OAuth2ClientContext;
 import org.springframework.security.oauth2.client.OAuth2RestTemplate;
 import org.springframework.security.oauth2.client.filter.OAuth2ClientAuthenticationProcessingFilter;
@@ -28,8 +52,14 @@ import org.springframework.security.oauth2.client.filter.OAuth2ClientContextFilt
 import org.springframework.security.oauth2.config.annotation.web.configuration.EnableAuthorizationServer;
 import org.springframework.security.oauth2.config.annotation.web.configuration.EnableOAuth2Client;
 import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+import org.springframework.security.web.authentication.AuthenticationFailureHandler;
+import org.springframework.security.web.authentication.DelegatingAuthenticationFailureHandler;
+import org.springframework.security.web.authentication.SimpleUrlAuthenticationFailureHandler;
 import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
-import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
+import org.springframework.security.web.context.SecurityContextPersistenceFilter;
+import org.springframework.security.web.csrf.CsrfTokenRepository;
+import org.springframework.security.web.util.matcher.AnyRequestMatcher;
+import org.springframework.util.StringUtils;
 
 import javax.security.auth.callback.CallbackHandler;
 import javax.security.auth.login.LoginContext;
@@ -39,6 +69,14 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * Here’s a security configuration that ensures that only authenticated users can see the secret greeting:
@@ -74,13 +112,40 @@ import java.io.IOException;
  * With that @EnableAuthorizationServer annotation in place Spring Boot will install all the necessary endpoints and set up the security for them, provided we supply a few details of an OAuth2 client we want to support:
  */
 @EnableAuthorizationServer
-public class WebSecurityConfiguration extends WebSecurityConfigurerAdapter implements ApplicationListener<AuthenticationSuccessEvent> {
+public class WebSecurityConfiguration extends WebSecurityConfigurerAdapter implements ApplicationListener<AbstractAuthenticationEvent> {
 
     //    inject an OAuth2ClientContext and use it to build an authentication filter （refs:ssoFilter） that we add to our security configuration:
     @Qualifier("oauth2ClientContext")
     @Autowired
     OAuth2ClientContext oauth2ClientContext;
 
+    @Autowired
+    ExpiringCache<Object, List<GrantedAuthority>> authoritiesCache;
+
+    @Autowired
+    ExpiringCache<String, CachingResourceServerTokenServices.CachedAuthentication> userInfoCache;
+
+    @Autowired
+    ObjectProvider<PooledHttpTransport> pooledHttpTransport;
+
+    @Autowired
+    AuthenticationAuditLog authenticationAuditLog;
+
+    @Autowired
+    ApplicationEventPublisher applicationEventPublisher;
+
+    @Autowired
+    ObjectProvider<LoginAttemptLimiter> loginAttemptLimiter;
+
+    @Autowired
+    CsrfTokenRepository csrfTokenRepository;
+
+    @Autowired
+    StaticResourcesProperties staticResourcesProperties;
+
+    @Autowired
+    StartupProperties startupProperties;
+
     /**
      * The configure(HttpSecurity) method defines which URL paths should be secured and which should not.
      * Specifically, the "/" and "/home" paths are configured to not require any authentication. All other paths must be authenticated.
@@ -121,6 +186,7 @@ public class WebSecurityConfiguration extends WebSecurityConfigurerAdapter imple
                 .and()
                 .formLogin()
                 .loginPage("/login")
+                .failureHandler(loginFailureHandler())
                 .permitAll()
 
                 //Spring Security has built in support for a /logout endpoint which will do the right thing for us (clear the session and invalidate the cookie).
@@ -135,26 +201,56 @@ public class WebSecurityConfiguration extends WebSecurityConfigurerAdapter imple
 // To teach Spring Security about this we need to add a filter that creates the cookie and also we need to tell the existing CRSF filter about the header name.
                 .and()
                 .csrf()
-                .csrfTokenRepository(CookieCsrfTokenRepository.withHttpOnlyFalse())
+                .csrfTokenRepository(csrfTokenRepository)
 
                 //Build an authentication filter that we add to our security configuration:
+                //(one registry of the login filters of every provider, each only called for its own login path)
                 .and()
-                .addFilterBefore(ssoFilter(), BasicAuthenticationFilter.class);
+                .addFilterBefore(ssoProviderRegistry(), BasicAuthenticationFilter.class);
+
+        //Throttle login attempts first thing, before the session is loaded and long before any password is hashed or a provider is called
+        LoginAttemptLimiter limiter = loginAttemptLimiter.getIfAvailable();
+        if (limiter != null) {
+            http.addFilterBefore(new LoginThrottlingFilter(limiter, ssoProviderRegistry().getRequestMatcher()), SecurityContextPersistenceFilter.class);
+        }
+    }
+
+    /**
+     * Static resources (webjars, scripts, style sheets, images and fonts) are public and the same for everyone,
+     * so they skip the security filter chain: no session lookup, security context or CSRF token for each of them.
+     * The index.html page still goes through it, as its response sets the XSRF-TOKEN cookie.
+     *
+     * @param web
+     */
+    @Override
+    public void configure(WebSecurity web) {
+        web.ignoring().antMatchers(staticResourcesProperties.getUnsecuredPaths().toArray(new String[0]));
     }
 
     /**
      * As for the userDetailsService() method,
      * it sets up an in-memory user store with a single user.
      * That user is given a username of "user", a password of "password", and a role of "USER".
+     * <p>
+     * When users.index-file is set, the local accounts come from that user index instead, which holds millions of them
+     * (the IndexedUserDetailsService is closed with the context, as it has a close() method).
      *
      * @return
      */
     @Override
     @Bean
     public UserDetailsService userDetailsService() {
-        UserDetails user = User.withDefaultPasswordEncoder()
-                .username("user")
-                .password("123")
+        UserStoreProperties users = userStoreProperties();
+        if (StringUtils.hasText(users.getIndexFile())) {
+            try {
+                return new IndexedUserDetailsService(Paths.get(users.getIndexFile()), users.getReloadInterval());
+            } catch (IOException ex) {
+                throw new IllegalStateException("Cannot load the user index " + users.getIndexFile(), ex);
+            }
+        }
+        //The password is "123", hashed at build time: User.withDefaultPasswordEncoder() ran bcrypt on every start
+        UserDetails user = User.withUsername("user")
+                .password("{bcrypt}$2a$10$zBd6zMYpJY1rST2BY8SULu9Me/QnwJuy4Av.cd98Px4OaGFMdsPC6")
                 .roles("USER")
                 .build();
         return new InMemoryUserDetailsManager(user);
@@ -163,20 +259,100 @@ public class WebSecurityConfiguration extends WebSecurityConfigurerAdapter imple
 
 
     /**
-     * To add an additional security filter to handle the "/login/github" requests coming from our new link.
+     * The form login checks passwords with the PasswordEncoder of the PasswordHashingConfiguration.
+     * When the user store can also store passwords (the InMemoryUserDetailsManager can, the read-only user index cannot),
+     * hashes the encoder reports as outdated are replaced on the user's next successful login.
+     *
+     * @param auth
+     * @param passwordEncoder
+     */
+    @Autowired
+    public void configureGlobal(AuthenticationManagerBuilder auth, PasswordEncoder passwordEncoder) {
+        UserDetailsService users = userDetailsService();
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+        provider.setUserDetailsService(users);
+        provider.setPasswordEncoder(passwordEncoder);
+        if (users instanceof UserDetailsPasswordService) {
+            provider.setUserDetailsPasswordService((UserDetailsPasswordService) users);
+        }
+        auth.authenticationProvider(provider);
+    }
+
+    /**
+     * A failed login goes back to "/login?error", like the default of formLogin(),
+     * but a login whose password could not be checked because the hashing pool is saturated gets 503 and a Retry-After instead.
      *
      * @return
      */
-    private Filter ssoFilter() {
-        OAuth2ClientAuthenticationProcessingFilter githubFilter = new OAuth2ClientAuthenticationProcessingFilter("/login/github");
-//        OAuth2RestTemplate githubTemplate = new OAuth2RestTemplate(github().getClient(), oauth2ClientContext);
-        OAuth2RestTemplate githubTemplate = ServletCustomizer.oauth2RestTemplate(github().getClient(), oauth2ClientContext);
-        githubFilter.setRestTemplate(githubTemplate);
-        UserInfoTokenServices tokenServices = new UserInfoTokenServices(github().getResource().getUserInfoUri(), github().getClient().getClientId());
-        tokenServices.setRestTemplate(githubTemplate);
-        tokenServices.setAuthoritiesExtractor(ServletCustomizer.authoritiesExtractor(githubTemplate));
-        githubFilter.setTokenServices(tokenServices);
-        return githubFilter;
+    private AuthenticationFailureHandler loginFailureHandler() {
+        LinkedHashMap<Class<? extends AuthenticationException>, AuthenticationFailureHandler> handlers = new LinkedHashMap<>();
+        handlers.put(PasswordHashingSaturatedException.class, (request, response, exception) -> {
+            response.setHeader("Retry-After", "1");
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, exception.getMessage());
+        });
+        return new DelegatingAuthenticationFailureHandler(handlers, new SimpleUrlAuthenticationFailureHandler("/login?error"));
+    }
+
+    /**
+     * The login filters of the providers under "sso.providers", each behind its own bulkhead and circuit breaker.
+     * With startup.lazy-sso=true the filter of a provider, and the pooled HTTP transport it calls the provider with, are created on its first login.
+     * It is not a servlet filter of its own (see ssoProviderRegistryRegistration()), only a filter of the security filter chain.
+     *
+     * @return
+     */
+    @Bean
+    public SsoProviderRegistry ssoProviderRegistry() {
+        List<SsoProvider> providers = new ArrayList<>();
+        for (Map.Entry<String, SsoProviderProperties> entry : ssoProperties().getProviders().entrySet()) {
+            String id = entry.getKey();
+            SsoProviderProperties provider = entry.getValue();
+            String path = StringUtils.hasText(provider.getPath()) ? provider.getPath() : "/login/" + id;
+            CircuitBreaker circuitBreaker = new CircuitBreaker(provider.getFailureThreshold(), provider.getOpenDuration(), Clock.systemUTC());
+            Supplier<Filter> filter = () -> ssoFilter(id, path, provider, circuitBreaker);
+            providers.add(new SsoProvider(id, path, startupProperties.isLazySso() ? new LazyFilter(AnyRequestMatcher.INSTANCE, filter) : filter.get(),
+                    circuitBreaker, provider.getMaxConcurrentLogins(), provider.getMaxWait()));
+        }
+        return new SsoProviderRegistry(providers);
+    }
+
+    @Bean
+    public FilterRegistrationBean<SsoProviderRegistry> ssoProviderRegistryRegistration(SsoProviderRegistry registry) {
+        FilterRegistrationBean<SsoProviderRegistry> registration = new FilterRegistrationBean<>(registry);
+        registration.setEnabled(false);
+        return registration;
+    }
+
+    /**
+     * To add an additional security filter to handle the "/login/{id}" requests coming from our new link.
+     * Every call it makes to the provider (token exchange, user info, organizations) has the provider's timeout and is reported to its circuit breaker.
+     *
+     * @param id
+     * @param path
+     * @param provider
+     * @param circuitBreaker
+     * @return
+     */
+    private Filter ssoFilter(String id, String path, SsoProviderProperties provider, CircuitBreaker circuitBreaker) {
+        OAuth2ClientAuthenticationProcessingFilter ssoFilter = new OAuth2ClientAuthenticationProcessingFilter(path);
+        OAuth2RestTemplate template = new OAuth2RestTemplate(provider.getClient(), oauth2ClientContext);
+        pooledHttpTransport.getObject().customize(template, provider.getTimeout(), Collections.singletonList(SsoProvider.interceptor(id, circuitBreaker)));
+        ssoFilter.setRestTemplate(template);
+        UserInfoTokenServices tokenServices = new UserInfoTokenServices(provider.getResource().getUserInfoUri(), provider.getClient().getClientId());
+        tokenServices.setRestTemplate(template);
+        if (provider.isOrganizationCheck()) {
+            tokenServices.setAuthoritiesExtractor(ServletCustomizer.authoritiesExtractor(template, authoritiesCache));
+        }
+        //Remember the user info per access token, so the same token is only sent to the user info endpoint (e.g. api.github.com/user) once
+        //(behind it, the user info and organizations calls the circuit refused are told apart from other failures, see the failure handler)
+        CachingResourceServerTokenServices cachingTokenServices = new CachingResourceServerTokenServices(
+                SsoProvider.tokenServices(id, circuitBreaker, tokenServices), userInfoCache);
+        cachingTokenServices.setClientContext(oauth2ClientContext);
+        ssoFilter.setTokenServices(cachingTokenServices);
+        //A login refused by the circuit breaker halfway gets 503 like the ones refused before they start; any other failure 401 as before
+        ssoFilter.setAuthenticationFailureHandler(SsoProvider.failureHandler(id, circuitBreaker, new SimpleUrlAuthenticationFailureHandler()));
+        //Publish the SSO logins and their failures as authentication events too, so they are audited like form logins
+        ssoFilter.setApplicationEventPublisher(applicationEventPublisher);
+        return ssoFilter;
     }
 
     /**
@@ -199,53 +375,32 @@ public class WebSecurityConfiguration extends WebSecurityConfigurerAdapter imple
 
     /**
      * Uses a new wrapper object ClientResources that consolidates the OAuth2ProtectedResourceDetails and the ResourceServerProperties that were declared as separate @Beans in the last version of the app:
+     * one ClientResources (an SsoProviderProperties) per provider, under "sso.providers".
      *
      * @return
      */
     @Bean
-    @ConfigurationProperties("github")
-    public ClientResources github() {
-        return new ClientResources();
+    @ConfigurationProperties("sso")
+    public SsoProperties ssoProperties() {
+        return new SsoProperties();
     }
 
-    /**
-     * ApplicationListener<AuthenticationSuccessEvent> 监听器：
-     * 用户登录验证成功后的回调事件
-     *
-     * @param event
-     */
-    @Override
-    public void onApplicationEvent(AuthenticationSuccessEvent event) {
-        System.out.println("登录成功：" + event);
+    @Bean
+    @ConfigurationProperties("users")
+    public UserStoreProperties userStoreProperties() {
+        return new UserStoreProperties();
     }
 
     /**
-     * Note that with both these "static" data objects (github() and githubResource()) we used a @Bean decorated as @ConfigurationProperties.
-     * That means that we can convert the application.yml to a slightly new format,
-     * where the prefix for configuration is github instead of security.oauth2:
-     * <p>
-     * Filter also needs to know about the client registration with Github：
-     *
-     * @return
-     */
-//    @Bean
-//    @ConfigurationProperties("github.client")
-//    public AuthorizationCodeResourceDetails github() {
-//        return new AuthorizationCodeResourceDetails();
-//    }
-
-    /**
-     * Note that with both these "static" data objects (github() and githubResource()) we used a @Bean decorated as @ConfigurationProperties.
-     * * That means that we can convert the application.yml to a slightly new format,
-     * * where the prefix for configuration is github instead of security.oauth2:
+     * ApplicationListener<AbstractAuthenticationEvent> 监听器：
+     * 用户登录验证成功或失败后的回调事件
      * <p>
-     * To complete the authentication it needs to know where the user info endpoint is in  Github：
+     * The event only goes into the ring buffer of the audit log; its background writer appends it to the audit file.
      *
-     * @return
+     * @param event
      */
-//    @Bean
-//    @ConfigurationProperties("github.resource")
-//    public ResourceServerProperties githubResource() {
-//        return new ResourceServerProperties();
-//    }
+    @Override
+    public void onApplicationEvent(AbstractAuthenticationEvent event) {
+        authenticationAuditLog.record(event);
+    }
 }
\ No newline at end of file
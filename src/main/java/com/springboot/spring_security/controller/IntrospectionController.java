@@ -0,0 +1,54 @@
+package com.springboot.spring_security.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.spring_security.resources.IntrospectionProperties;
+import com.springboot.spring_security.token.TokenIntrospector;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Batch token introspection for the services behind this authorization server: instead of one /me or /oauth/check_token call per token,
+ * they POST a JSON array of access tokens and get back a JSON array of their entries, in the same order.
+ * The ResourceServerConfiguration only lets clients in, with a token of their own (client_credentials grant).
+ */
+@RestController
+public class IntrospectionController {
+
+    @Autowired
+    TokenIntrospector tokenIntrospector;
+
+    @Autowired
+    IntrospectionProperties introspectionProperties;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    /**
+     * The entries are written once every one is looked up, so a failed lookup is answered with an error rather than a truncated array, see {@link TokenIntrospector}.
+     *
+     * @param tokens
+     * @param response
+     * @throws IOException
+     */
+    @PostMapping(path = "/introspect", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public void introspect(@RequestBody List<String> tokens, HttpServletResponse response) throws IOException {
+        if (tokens.size() > introspectionProperties.getMaxTokens()) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "At most " + introspectionProperties.getMaxTokens() + " tokens per request");
+        }
+        response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+        response.setHeader("Cache-Control", "no-store");
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            tokenIntrospector.introspect(tokens, json);
+        }
+    }
+}
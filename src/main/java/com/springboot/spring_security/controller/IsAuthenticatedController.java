@@ -1,23 +1,30 @@
 package com.springboot.spring_security.controller;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
-import sun.security.util.Debug;
 
 /**
  * @Controller (not a @ RestController) so it can handle the redirect.
+ * Only reached with error-handling.mode=forward; otherwise the ErrorResponseFilter sends the same redirect itself.
  */
 @Controller
 public class IsAuthenticatedController {
 
+    private static final Log logger = LogFactory.getLog(IsAuthenticatedController.class);
+
     /**
      * capture an authentication error and redirect to the home page with that flag set in query parameters.
+     * The ErrorResponseFilter counts these and logs a sample of them, so there is only a debug line here.
      *
      * @return
      */
     @RequestMapping("/unauthenticated")
     public String unauthenticated() {
-        Debug.println("container", "unauthenticated：redirect:/?error=true");
+        if (logger.isDebugEnabled()) {
+            logger.debug("unauthenticated：redirect:/?error=true");
+        }
         return "redirect:/?error=true";
     }
 }
@@ -0,0 +1,48 @@
+package com.springboot.spring_security.controller;
+
+import com.springboot.spring_security.startup.StartupTimings;
+import com.springboot.spring_security.token.IntrospectionReactiveAuthenticationManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The runtime counters of the reactive profile, where the StatsController and most of what it reports on are not there.
+ * Like every endpoint of the reactive resource server, these require an access token.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveStatsController {
+
+    @Autowired
+    IntrospectionReactiveAuthenticationManager introspectionAuthenticationManager;
+
+    @Autowired
+    ObjectProvider<StartupTimings> startupTimings;
+
+    /**
+     * Tokens sent to the authorization server's /introspect, and how many requests shared the call of another one.
+     *
+     * @return
+     */
+    @RequestMapping("/stats/introspection")
+    public Map<String, Object> introspection() {
+        return introspectionAuthenticationManager.stats();
+    }
+
+    /**
+     * How long each startup phase took, and the slowest beans.
+     *
+     * @return
+     */
+    @RequestMapping("/stats/startup")
+    public Map<String, Object> startup() {
+        StartupTimings timings = startupTimings.getIfAvailable();
+        return timings != null ? timings.stats() : Collections.emptyMap();
+    }
+}
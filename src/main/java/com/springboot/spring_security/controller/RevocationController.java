@@ -0,0 +1,75 @@
+package com.springboot.spring_security.controller;
+
+import com.springboot.spring_security.resources.RevocationProperties;
+import com.springboot.spring_security.revocation.RevocationIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.config.annotation.web.configuration.AuthorizationServerEndpointsConfiguration;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.TokenStore;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * RFC 7009 style token revocation: POST /revoke with a "token" parameter. A user may revoke their own tokens (e.g. on logout),
+ * a client (client_credentials token) any token issued to it; a token that is unknown or already expired is simply ignored.
+ * <p>
+ * The token is removed from the token store and put in the RevocationIndex until it expires, so it is rejected even where
+ * the token store cannot forget it, as with signed tokens.
+ */
+@RestController
+@ConditionalOnProperty(prefix = "revocation", name = "enabled", matchIfMissing = true)
+public class RevocationController {
+
+    @Autowired
+    RevocationIndex revocationIndex;
+
+    @Autowired
+    RevocationProperties revocationProperties;
+
+    @Autowired
+    AuthorizationServerEndpointsConfiguration endpoints;
+
+    /**
+     * @param token
+     * @param caller the authentication of the bearer token of the request
+     */
+    @PostMapping("/revoke")
+    public void revoke(@RequestParam("token") String token, OAuth2Authentication caller) {
+        TokenStore tokenStore = endpoints.getEndpointsConfigurer().getTokenStore();
+        OAuth2AccessToken accessToken;
+        OAuth2Authentication authentication;
+        try {
+            accessToken = tokenStore.readAccessToken(token);
+            authentication = accessToken != null ? tokenStore.readAuthentication(accessToken) : null;
+        } catch (InvalidTokenException ex) {
+            // not a token of ours
+            return;
+        }
+        if (authentication == null) {
+            return;
+        }
+        if (!mayRevoke(caller, authentication)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Not allowed to revoke this token");
+        }
+        long expiresAt = accessToken.getExpiration() != null
+                ? accessToken.getExpiration().getTime() : System.currentTimeMillis() + revocationProperties.getDefaultTimeToLive().toMillis();
+        revocationIndex.revoke(token, expiresAt);
+        tokenStore.removeAccessToken(accessToken);
+        if (accessToken.getRefreshToken() != null) {
+            tokenStore.removeRefreshToken(accessToken.getRefreshToken());
+        }
+    }
+
+    private static boolean mayRevoke(OAuth2Authentication caller, OAuth2Authentication authentication) {
+        if (!caller.getOAuth2Request().getClientId().equals(authentication.getOAuth2Request().getClientId())) {
+            return false;
+        }
+        return caller.isClientOnly() || !authentication.isClientOnly() && caller.getName().equals(authentication.getName());
+    }
+}
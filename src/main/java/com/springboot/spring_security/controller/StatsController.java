@@ -0,0 +1,194 @@
+package com.springboot.spring_security.controller;
+
+import com.springboot.spring_security.audit.AuthenticationAuditLog;
+import com.springboot.spring_security.cache.ExpiringCache;
+import com.springboot.spring_security.error.ErrorResponseFilter;
+import com.springboot.spring_security.http.PooledHttpTransport;
+import com.springboot.spring_security.metrics.FilterMetrics;
+import com.springboot.spring_security.revocation.RevocationIndex;
+import com.springboot.spring_security.session.OffHeapSessionRepository;
+import com.springboot.spring_security.sso.SsoProviderRegistry;
+import com.springboot.spring_security.startup.StartupTimings;
+import com.springboot.spring_security.throttle.LoginAttemptLimiter;
+import com.springboot.spring_security.user.IndexedUserDetailsService;
+import com.springboot.spring_security.user.OffloadedPasswordEncoder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exposes the runtime counters of our caches and pipelines as JSON.
+ * Like every endpoint that is not explicitly permitted, these require an authenticated user.
+ */
+@RestController
+public class StatsController {
+
+    @Autowired
+    ExpiringCache<Object, List<GrantedAuthority>> authoritiesCache;
+
+    @Autowired
+    ObjectProvider<PooledHttpTransport> pooledHttpTransport;
+
+    @Autowired
+    ObjectProvider<OffHeapSessionRepository> sessionRepository;
+
+    @Autowired
+    UserDetailsService userDetailsService;
+
+    @Autowired
+    OffloadedPasswordEncoder passwordEncoder;
+
+    @Autowired
+    AuthenticationAuditLog authenticationAuditLog;
+
+    @Autowired
+    ObjectProvider<LoginAttemptLimiter> loginAttemptLimiter;
+
+    @Autowired
+    ObjectProvider<FilterMetrics> filterMetrics;
+
+    @Autowired
+    ErrorResponseFilter errorResponseFilter;
+
+    @Autowired
+    ObjectProvider<RevocationIndex> revocationIndex;
+
+    @Autowired
+    ObjectProvider<StartupTimings> startupTimings;
+
+    @Autowired
+    SsoProviderRegistry ssoProviderRegistry;
+
+    /**
+     * Logins of each SSO provider, those refused by its bulkhead or its circuit breaker, and the state of the circuit.
+     *
+     * @return
+     */
+    @RequestMapping("/stats/sso")
+    public Map<String, Object> sso() {
+        return ssoProviderRegistry.stats();
+    }
+
+    /**
+     * Hits, misses and load latency of the GitHub organizations lookup done by the authoritiesExtractor.
+     *
+     * @return
+     */
+    @RequestMapping("/stats/authorities")
+    public Map<String, Object> authorities() {
+        return authoritiesCache.stats();
+    }
+
+    /**
+     * Leased and pending connections of the pooled HTTP transport, and how long requests waited to lease one.
+     *
+     * @return
+     */
+    @RequestMapping("/stats/http-client")
+    public Map<String, Object> httpClient() {
+        return pooledHttpTransport.getObject().stats();
+    }
+
+    /**
+     * Sessions and off-heap bytes of the OffHeapSessionRepository; empty unless session.store=off-heap.
+     *
+     * @return
+     */
+    @RequestMapping("/stats/sessions")
+    public Map<String, Object> sessions() {
+        OffHeapSessionRepository repository = sessionRepository.getIfAvailable();
+        return repository != null ? repository.stats() : Collections.emptyMap();
+    }
+
+    /**
+     * Users, index size and lookups of the IndexedUserDetailsService; empty unless users.index-file is set.
+     *
+     * @return
+     */
+    @RequestMapping("/stats/users")
+    public Map<String, Object> users() {
+        return userDetailsService instanceof IndexedUserDetailsService
+                ? ((IndexedUserDetailsService) userDetailsService).stats() : Collections.emptyMap();
+    }
+
+    /**
+     * Hash latency, queue depth and rejections of the password hashing pool, and hits of its cache of verified passwords.
+     *
+     * @return
+     */
+    @RequestMapping("/stats/password-hashing")
+    public Map<String, Object> passwordHashing() {
+        return passwordEncoder.stats();
+    }
+
+    /**
+     * Emitted, dropped and written records of the authentication audit log.
+     *
+     * @return
+     */
+    @RequestMapping("/stats/audit")
+    public Map<String, Object> audit() {
+        return authenticationAuditLog.stats();
+    }
+
+    /**
+     * Allowed and throttled login attempts; empty when login-throttle.enabled=false.
+     *
+     * @return
+     */
+    @RequestMapping("/stats/login-throttle")
+    public Map<String, Object> loginThrottle() {
+        LoginAttemptLimiter limiter = loginAttemptLimiter.getIfAvailable();
+        return limiter != null ? limiter.stats() : Collections.emptyMap();
+    }
+
+    /**
+     * Own-time percentiles of every servlet filter, per security filter chain; empty unless filter-metrics.enabled=true.
+     *
+     * @return
+     */
+    @RequestMapping("/stats/filters")
+    public Map<String, Object> filters() {
+        FilterMetrics metrics = filterMetrics.getIfAvailable();
+        return metrics != null ? metrics.stats() : Collections.emptyMap();
+    }
+
+    /**
+     * Error responses by status, and how many of them the ErrorResponseFilter answered without a container error page.
+     *
+     * @return
+     */
+    @RequestMapping("/stats/errors")
+    public Map<String, Object> errors() {
+        return errorResponseFilter.stats();
+    }
+
+    /**
+     * Revoked tokens, Bloom filter hits and false-positive rate, and the memory of the RevocationIndex; empty when revocation.enabled=false.
+     *
+     * @return
+     */
+    @RequestMapping("/stats/revocation")
+    public Map<String, Object> revocation() {
+        RevocationIndex index = revocationIndex.getIfAvailable();
+        return index != null ? index.stats() : Collections.emptyMap();
+    }
+
+    /**
+     * How long the startup phases took and the slowest beans; empty when startup.timing-report=false.
+     *
+     * @return
+     */
+    @RequestMapping("/stats/startup")
+    public Map<String, Object> startup() {
+        StartupTimings timings = startupTimings.getIfAvailable();
+        return timings != null ? timings.stats() : Collections.emptyMap();
+    }
+}
@@ -0,0 +1,298 @@
+package com.springboot.spring_security.csrf;
+
+import org.springframework.security.web.csrf.CsrfToken;
+import org.springframework.security.web.csrf.CsrfTokenRepository;
+import org.springframework.security.web.csrf.DefaultCsrfToken;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * CSRF tokens that are computed rather than stored: a token is a per-browser nonce, the rotation window it was issued in
+ * and an HMAC of both and of the session it belongs to. Like the CookieCsrfTokenRepository it replaces,
+ * the token travels in the XSRF-TOKEN cookie, which the page's script reads and sends back as the X-XSRF-TOKEN header
+ * (or forms as the _csrf parameter), and the CsrfFilter compares the two.
+ * <p>
+ * Loading a token checks its MAC in constant time, for the current session and the current or previous window, and no token
+ * is kept on the server. The session is represented by a random key in one of its attributes, created with its first token,
+ * so it survives the change of the session id at login; a token issued without a session is bound to none.
+ * Within a window the token of a browser and session is always the same, so it is not generated, nor written in a Set-Cookie,
+ * again on every request. The first request of a new window is given the token of that window in a Set-Cookie, so the token
+ * of an active browser never expires; one left unused for a whole window does.
+ * <p>
+ * At login the CsrfAuthenticationStrategy replaces the token with one of a new nonce, bound to the session the login keeps.
+ */
+public class HmacCsrfTokenRepository implements CsrfTokenRepository {
+
+    static final String COOKIE_NAME = "XSRF-TOKEN";
+
+    static final String HEADER_NAME = "X-XSRF-TOKEN";
+
+    static final String PARAMETER_NAME = "_csrf";
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final int NONCE_LENGTH = 16;
+
+    private static final int MAC_LENGTH = 16;
+
+    private static final int TOKEN_LENGTH = NONCE_LENGTH + Long.BYTES + MAC_LENGTH;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    static final String SESSION_KEY_ATTRIBUTE = HmacCsrfTokenRepository.class.getName() + ".SESSION_KEY";
+
+    /**
+     * Where the CsrfFilter leaves the response, for the LazyCsrfTokenRepository; the reissue of a token in {@link #loadToken} writes its cookie there.
+     */
+    private static final String RESPONSE_ATTRIBUTE = HttpServletResponse.class.getName();
+
+    /**
+     * One per thread, so the first visits of many browsers at once do not queue on the lock of a shared SecureRandom.
+     */
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(SecureRandom::new);
+
+    private final ThreadLocal<Mac> mac;
+
+    private final long rotationMillis;
+
+    private final Clock clock;
+
+    /**
+     * @param secret   HMAC key; every instance checking the same tokens needs the same one
+     * @param rotation how long a token is handed out before the next one is
+     * @param clock
+     */
+    public HmacCsrfTokenRepository(byte[] secret, Duration rotation, Clock clock) {
+        if (rotation.toMillis() <= 0) {
+            throw new IllegalArgumentException("The rotation must be positive: " + rotation);
+        }
+        SecretKeySpec key = new SecretKeySpec(secret, ALGORITHM);
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac instance = Mac.getInstance(ALGORITHM);
+                instance.init(key);
+                return instance;
+            } catch (GeneralSecurityException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        // fail at startup rather than on the first request
+        this.mac.get();
+        this.rotationMillis = rotation.toMillis();
+        this.clock = clock;
+    }
+
+    /**
+     * The CsrfFilter asks for a token when the request has none that {@link #loadToken} accepts, and the CsrfAuthenticationStrategy
+     * to replace the accepted one at login. The replacement gets a new nonce and is bound to the session, which is created for it
+     * when the login has none yet, as the login is about to create it.
+     *
+     * @param request
+     * @return a token of the request's session for the current window
+     */
+    @Override
+    public CsrfToken generateToken(HttpServletRequest request) {
+        byte[] cookie = decode(cookieValue(request));
+        long window = window();
+        boolean replacing = cookie != null && isValid(cookie, sessionKey(request), window);
+        byte[] nonce = new byte[NONCE_LENGTH];
+        if (cookie != null && !replacing) {
+            // an expired token: the browser keeps its nonce
+            System.arraycopy(cookie, 0, nonce, 0, NONCE_LENGTH);
+        } else {
+            RANDOM.get().nextBytes(nonce);
+        }
+        return issue(nonce, window, issueSessionKey(request, replacing));
+    }
+
+    /**
+     * Sets the cookie, unless the request already has it with the same value; a null token clears it.
+     *
+     * @param token
+     * @param request
+     * @param response
+     */
+    @Override
+    public void saveToken(CsrfToken token, HttpServletRequest request, HttpServletResponse response) {
+        String value = token == null ? "" : token.getToken();
+        if (token != null && value.equals(cookieValue(request))) {
+            return;
+        }
+        Cookie cookie = new Cookie(COOKIE_NAME, value);
+        cookie.setSecure(request.isSecure());
+        cookie.setPath(StringUtils.hasLength(request.getContextPath()) ? request.getContextPath() : "/");
+        cookie.setMaxAge(token == null ? 0 : -1);
+        cookie.setHttpOnly(false);
+        response.addCookie(cookie);
+    }
+
+    /**
+     * A token of the previous window is reissued for the current one: the new cookie is set on the response the CsrfFilter left in the request,
+     * and the new token is returned, so the page rendered for the request has it too. A request may still send back an earlier token
+     * of the same browser and session, from a page rendered before the cookie was reissued; then that token is returned, for the CsrfFilter to compare.
+     *
+     * @param request
+     * @return the token of the request's cookie if it was issued for the request's session in the current or the previous window, otherwise null
+     */
+    @Override
+    public CsrfToken loadToken(HttpServletRequest request) {
+        String value = cookieValue(request);
+        byte[] token = decode(value);
+        String sessionKey = sessionKey(request);
+        long window = window();
+        if (token == null || !isValid(token, sessionKey, window)) {
+            return null;
+        }
+        CsrfToken loaded = token(value);
+        HttpServletResponse response = (HttpServletResponse) request.getAttribute(RESPONSE_ATTRIBUTE);
+        if (issued(token) != window && response != null) {
+            loaded = issue(Arrays.copyOf(token, NONCE_LENGTH), window, sessionKey);
+            saveToken(loaded, request, response);
+        }
+        String sent = request.getHeader(HEADER_NAME);
+        if (sent == null) {
+            sent = request.getParameter(PARAMETER_NAME);
+        }
+        if (sent != null && !sent.equals(loaded.getToken())) {
+            byte[] earlier = decode(sent);
+            if (earlier != null && sameNonce(earlier, token) && isValid(earlier, sessionKey, window)) {
+                return token(sent);
+            }
+        }
+        return loaded;
+    }
+
+    private long window() {
+        return clock.millis() / rotationMillis;
+    }
+
+    private CsrfToken issue(byte[] nonce, long window, String sessionKey) {
+        ByteBuffer token = ByteBuffer.allocate(TOKEN_LENGTH);
+        token.put(nonce).putLong(window);
+        token.put(sign(token.array(), sessionKey), 0, MAC_LENGTH);
+        return token(ENCODER.encodeToString(token.array()));
+    }
+
+    /**
+     * @param token      a decoded token
+     * @param sessionKey the key of the session it must be bound to
+     * @param window     the current window
+     * @return whether it was issued for the session in the current or the previous window
+     */
+    private boolean isValid(byte[] token, String sessionKey, long window) {
+        long issued = issued(token);
+        if (issued != window && issued != window - 1) {
+            return false;
+        }
+        byte[] expected = sign(token, sessionKey);
+        // constant time: every byte is compared, whichever differs
+        int difference = 0;
+        for (int i = 0; i < MAC_LENGTH; i++) {
+            difference |= expected[i] ^ token[NONCE_LENGTH + Long.BYTES + i];
+        }
+        return difference == 0;
+    }
+
+    private static boolean sameNonce(byte[] token, byte[] other) {
+        int difference = 0;
+        for (int i = 0; i < NONCE_LENGTH; i++) {
+            difference |= token[i] ^ other[i];
+        }
+        return difference == 0;
+    }
+
+    private static long issued(byte[] token) {
+        return ByteBuffer.wrap(token, NONCE_LENGTH, Long.BYTES).getLong();
+    }
+
+    /**
+     * @param token      nonce and window, followed by the MAC or room for it
+     * @param sessionKey the session's key, empty without one
+     * @return the HMAC of the nonce, the window and the session's key
+     */
+    private byte[] sign(byte[] token, String sessionKey) {
+        Mac instance = mac.get();
+        instance.update(token, 0, NONCE_LENGTH + Long.BYTES);
+        return instance.doFinal(sessionKey.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * The key the tokens of the request's session are bound to. It is a session attribute rather than the session id,
+     * so it survives the change of the id at login, and is migrated with the other attributes when a new session replaces the old one.
+     *
+     * @param request
+     * @return the key, empty without a session or before the session's first token
+     */
+    private static String sessionKey(HttpServletRequest request) {
+        HttpSession session = request.getSession(false);
+        String key = session == null ? null : (String) session.getAttribute(SESSION_KEY_ATTRIBUTE);
+        return key == null ? "" : key;
+    }
+
+    /**
+     * @param request
+     * @param createSession whether to create the session when there is none
+     * @return the key of the request's session, created with its first token, empty without a session
+     */
+    private static String issueSessionKey(HttpServletRequest request, boolean createSession) {
+        HttpSession session = request.getSession(createSession);
+        if (session == null) {
+            return "";
+        }
+        String key = (String) session.getAttribute(SESSION_KEY_ATTRIBUTE);
+        if (key == null) {
+            byte[] bytes = new byte[NONCE_LENGTH];
+            RANDOM.get().nextBytes(bytes);
+            key = ENCODER.encodeToString(bytes);
+            session.setAttribute(SESSION_KEY_ATTRIBUTE, key);
+        }
+        return key;
+    }
+
+    private static String cookieValue(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (COOKIE_NAME.equals(cookie.getName())) {
+                    return cookie.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param value
+     * @return the bytes of a token, null if the value cannot be one
+     */
+    private static byte[] decode(String value) {
+        if (value == null || value.length() != (TOKEN_LENGTH * 4 + 2) / 3) {
+            return null;
+        }
+        try {
+            return DECODER.decode(value);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    private static CsrfToken token(String value) {
+        return new DefaultCsrfToken(HEADER_NAME, PARAMETER_NAME, value);
+    }
+}
@@ -0,0 +1,171 @@
+package com.springboot.spring_security.error;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the error responses (status 400 and above) by status and logs a sample of them.
+ * <p>
+ * When direct, it also answers the sendError(401) of a failed GitHub login and the sendError(404) of a path nothing serves itself,
+ * instead of letting the container forward them to an error page: a 401 gets the redirect to "/?error=true" the "/unauthenticated"
+ * endpoint would have sent, a 404 a small fixed page built once, and neither goes through the filters or a view a second time.
+ * Other errors (403, 429, 503, exceptions) still go to the container's error pages.
+ */
+public class ErrorResponseFilter extends OncePerRequestFilter {
+
+    private static final Log logger = LogFactory.getLog(ErrorResponseFilter.class);
+
+    private final boolean direct;
+
+    private final int logSampleRate;
+
+    private final ConcurrentMap<Integer, LongAdder> errors = new ConcurrentHashMap<>();
+
+    private final LongAdder written = new LongAdder();
+
+    private volatile Responses responses = new Responses("");
+
+    /**
+     * @param direct        whether 401 and 404 are answered here rather than by the container's error pages
+     * @param logSampleRate one error in this many, on average, is logged; 0 logs none
+     */
+    public ErrorResponseFilter(boolean direct, int logSampleRate) {
+        this.direct = direct;
+        this.logSampleRate = logSampleRate;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        ErrorResponse wrapper = new ErrorResponse(request, response);
+        int status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        try {
+            filterChain.doFilter(request, wrapper);
+            status = wrapper.error != 0 ? wrapper.error : response.getStatus();
+        } finally {
+            if (status >= 400) {
+                record(status, request);
+            }
+        }
+    }
+
+    private void record(int status, HttpServletRequest request) {
+        errors.computeIfAbsent(status, key -> new LongAdder()).increment();
+        if (logSampleRate > 0 && logger.isInfoEnabled() && ThreadLocalRandom.current().nextInt(logSampleRate) == 0) {
+            logger.info(status + " " + request.getMethod() + " " + request.getRequestURI()
+                    + (logSampleRate > 1 ? " (1 in " + logSampleRate + " errors logged)" : ""));
+        }
+    }
+
+    /**
+     * @return the mode ("direct" or "forward"), the error responses counted by status, and how many 401 and 404 responses
+     * this filter wrote itself instead of forwarding
+     */
+    public Map<String, Object> stats() {
+        Map<String, Long> byStatus = new TreeMap<>();
+        errors.forEach((status, count) -> byStatus.put(String.valueOf(status), count.sum()));
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mode", direct ? "direct" : "forward");
+        stats.put("errors", byStatus);
+        stats.put("written", written.sum());
+        return stats;
+    }
+
+    private Responses responses(HttpServletRequest request) {
+        Responses current = responses;
+        if (!current.contextPath.equals(request.getContextPath())) {
+            current = new Responses(request.getContextPath());
+            responses = current;
+        }
+        return current;
+    }
+
+    /**
+     * The redirect and the page of one context path, built once.
+     */
+    private static final class Responses {
+
+        private final String contextPath;
+
+        private final String unauthenticated;
+
+        private final byte[] notFound;
+
+        Responses(String contextPath) {
+            this.contextPath = contextPath;
+            this.unauthenticated = contextPath + "/?error=true";
+            this.notFound = ("<!DOCTYPE html>\n<html><head><meta charset=\"UTF-8\"><title>Not Found</title></head>"
+                    + "<body><h1>Not Found</h1><p><a href=\"" + contextPath + "/home\">Home</a></p></body></html>\n")
+                    .getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Remembers the status of sendError and, when direct, answers 401 and 404 itself.
+     */
+    private final class ErrorResponse extends HttpServletResponseWrapper {
+
+        private final HttpServletRequest request;
+
+        private int error;
+
+        ErrorResponse(HttpServletRequest request, HttpServletResponse response) {
+            super(response);
+            this.request = request;
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            if (!write(sc)) {
+                super.sendError(sc);
+            }
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            if (!write(sc)) {
+                super.sendError(sc, msg);
+            }
+        }
+
+        private boolean write(int sc) throws IOException {
+            error = sc;
+            if (!direct || isCommitted() || (sc != SC_UNAUTHORIZED && sc != SC_NOT_FOUND)) {
+                return false;
+            }
+            Responses responses = responses(request);
+            resetBuffer();
+            if (sc == SC_UNAUTHORIZED) {
+                sendRedirect(responses.unauthenticated);
+            } else {
+                setStatus(sc);
+                setContentType("text/html;charset=UTF-8");
+                setContentLength(responses.notFound.length);
+                try {
+                    getOutputStream().write(responses.notFound);
+                } catch (IllegalStateException ex) {
+                    // the writer is already in use
+                    getWriter().write(new String(responses.notFound, StandardCharsets.UTF_8));
+                }
+                flushBuffer();
+            }
+            written.increment();
+            return true;
+        }
+    }
+}
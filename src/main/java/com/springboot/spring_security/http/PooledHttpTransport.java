@@ -0,0 +1,269 @@
+package com.springboot.spring_security.http;
+
+import com.springboot.spring_security.resources.HttpClientProperties;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.LayeredConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.UserInfoRestTemplateCustomizer;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.security.oauth2.client.OAuth2RestTemplate;
+import org.springframework.security.oauth2.client.token.AccessTokenProvider;
+import org.springframework.security.oauth2.client.token.AccessTokenProviderChain;
+import org.springframework.security.oauth2.client.token.OAuth2AccessTokenSupport;
+import org.springframework.security.oauth2.client.token.RequestEnhancer;
+import org.springframework.security.oauth2.client.token.grant.client.ClientCredentialsAccessTokenProvider;
+import org.springframework.security.oauth2.client.token.grant.code.AuthorizationCodeAccessTokenProvider;
+import org.springframework.security.oauth2.client.token.grant.implicit.ImplicitAccessTokenProvider;
+import org.springframework.security.oauth2.client.token.grant.password.ResourceOwnerPasswordAccessTokenProvider;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A pooled, keep-alive HTTP client (Apache HttpClient) shared by every OAuth2RestTemplate,
+ * so token exchanges, user info and organizations calls reuse open connections instead of paying a TCP and TLS handshake each time.
+ * <p>
+ * An OAuth2RestTemplate makes two kinds of calls: the API calls themselves, and the token requests made by its AccessTokenProvider,
+ * which has a request factory of its own. {@link #customize(OAuth2RestTemplate)} points both at the pool.
+ * As a UserInfoRestTemplateCustomizer it is also applied by Spring Boot to the rest template that @EnableOAuth2Sso creates.
+ * <p>
+ * The TLS socket factory, whose default SSLContext loads the trust store, is created on the first https connection rather than with the pool,
+ * which takes about half a second off the startup (and the ClientApplication, talking plain http to the authorization server, never needs it).
+ */
+public class PooledHttpTransport implements UserInfoRestTemplateCustomizer, Closeable {
+
+    private final InstrumentedConnectionManager connectionManager;
+
+    private final CloseableHttpClient httpClient;
+
+    private final ClientHttpRequestFactory requestFactory;
+
+    public PooledHttpTransport(HttpClientProperties properties) {
+        this.connectionManager = new InstrumentedConnectionManager();
+        this.connectionManager.setMaxTotal(properties.getMaxConnections());
+        this.connectionManager.setDefaultMaxPerRoute(properties.getMaxConnectionsPerRoute());
+        this.connectionManager.setValidateAfterInactivity(1000);
+        long keepAlive = properties.getKeepAlive().toMillis();
+        // honour the server's Keep-Alive timeout when it sends one, otherwise keep idle connections for the configured time
+        ConnectionKeepAliveStrategy keepAliveStrategy = (response, context) -> {
+            long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return serverKeepAlive > 0 ? Math.min(serverKeepAlive, keepAlive) : keepAlive;
+        };
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(this.connectionManager)
+                .setKeepAliveStrategy(keepAliveStrategy)
+                .evictExpiredConnections()
+                .evictIdleConnections(keepAlive, TimeUnit.MILLISECONDS)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout((int) properties.getConnectTimeout().toMillis())
+                        .setSocketTimeout((int) properties.getReadTimeout().toMillis())
+                        .setConnectionRequestTimeout((int) properties.getConnectionRequestTimeout().toMillis())
+                        .build())
+                .build();
+        this.requestFactory = new HttpComponentsClientHttpRequestFactory(this.httpClient);
+    }
+
+    /**
+     * Routes both the API calls and the token requests of the template through the pool.
+     *
+     * @param template
+     */
+    @Override
+    public void customize(OAuth2RestTemplate template) {
+        template.setRequestFactory(this.requestFactory);
+        template.setAccessTokenProvider(accessTokenProvider());
+    }
+
+    /**
+     * Like {@link #customize(OAuth2RestTemplate)}, but the calls of this template get a connect and read timeout of their own,
+     * and go through the given interceptors, token requests included.
+     *
+     * @param template
+     * @param timeout
+     * @param interceptors
+     */
+    public void customize(OAuth2RestTemplate template, Duration timeout, List<ClientHttpRequestInterceptor> interceptors) {
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(this.httpClient);
+        requestFactory.setConnectTimeout((int) timeout.toMillis());
+        requestFactory.setReadTimeout((int) timeout.toMillis());
+        template.setRequestFactory(requestFactory);
+        template.setInterceptors(interceptors);
+        template.setAccessTokenProvider(accessTokenProvider(requestFactory, interceptors));
+    }
+
+    /**
+     * Token requests over the pool, with its default timeouts.
+     *
+     * @return
+     */
+    public AccessTokenProvider accessTokenProvider() {
+        return accessTokenProvider(this.requestFactory, Collections.emptyList());
+    }
+
+    /**
+     * The same providers as the default chain of OAuth2RestTemplate, each with the given request factory.
+     * Token requests ask for JSON, like the provider Spring Boot sets up for @EnableOAuth2Sso, which this chain replaces.
+     *
+     * @param requestFactory
+     * @param interceptors
+     * @return
+     */
+    private static AccessTokenProvider accessTokenProvider(ClientHttpRequestFactory requestFactory, List<ClientHttpRequestInterceptor> interceptors) {
+        RequestEnhancer acceptJson = (request, resource, form, headers) -> headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+        AuthorizationCodeAccessTokenProvider authorizationCode = new AuthorizationCodeAccessTokenProvider();
+        ImplicitAccessTokenProvider implicit = new ImplicitAccessTokenProvider();
+        ResourceOwnerPasswordAccessTokenProvider password = new ResourceOwnerPasswordAccessTokenProvider();
+        ClientCredentialsAccessTokenProvider clientCredentials = new ClientCredentialsAccessTokenProvider();
+        authorizationCode.setTokenRequestEnhancer(acceptJson);
+        implicit.setTokenRequestEnhancer(acceptJson);
+        password.setTokenRequestEnhancer(acceptJson);
+        clientCredentials.setTokenRequestEnhancer(acceptJson);
+        for (OAuth2AccessTokenSupport provider : Arrays.<OAuth2AccessTokenSupport>asList(authorizationCode, implicit, password, clientCredentials)) {
+            provider.setRequestFactory(requestFactory);
+            provider.setInterceptors(interceptors);
+        }
+        return new AccessTokenProviderChain(Arrays.<AccessTokenProvider>asList(authorizationCode, implicit, password, clientCredentials));
+    }
+
+    public ClientHttpRequestFactory getRequestFactory() {
+        return requestFactory;
+    }
+
+    /**
+     * @return the pool right now (leased, pending, available and max connections), and over all leases so far:
+     * their number, how many timed out, and the average and longest wait for a connection in milliseconds
+     */
+    public Map<String, Object> stats() {
+        PoolStats pool = this.connectionManager.getTotalStats();
+        long leases = this.connectionManager.leases.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("leased", pool.getLeased());
+        stats.put("pending", pool.getPending());
+        stats.put("available", pool.getAvailable());
+        stats.put("max", pool.getMax());
+        stats.put("leases", leases);
+        stats.put("leaseTimeouts", this.connectionManager.leaseTimeouts.sum());
+        stats.put("averageLeaseMillis", leases == 0 ? 0.0 : this.connectionManager.leaseNanos.sum() / (double) leases / TimeUnit.MILLISECONDS.toNanos(1));
+        stats.put("maxLeaseMillis", this.connectionManager.maxLeaseNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1));
+        return stats;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.httpClient.close();
+    }
+
+    /**
+     * Measures the time-to-lease of every connection request.
+     */
+    private static class InstrumentedConnectionManager extends PoolingHttpClientConnectionManager {
+
+        private final LongAdder leases = new LongAdder();
+        private final LongAdder leaseTimeouts = new LongAdder();
+        private final LongAdder leaseNanos = new LongAdder();
+        private final AtomicLong maxLeaseNanos = new AtomicLong();
+
+        InstrumentedConnectionManager() {
+            super(RegistryBuilder.<ConnectionSocketFactory>create()
+                    .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                    .register("https", new LazySslConnectionSocketFactory())
+                    .build());
+        }
+
+        @Override
+        public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+            ConnectionRequest request = super.requestConnection(route, state);
+            return new ConnectionRequest() {
+
+                @Override
+                public HttpClientConnection get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                    long start = System.nanoTime();
+                    try {
+                        HttpClientConnection connection = request.get(timeout, unit);
+                        leases.increment();
+                        return connection;
+                    } catch (ConnectionPoolTimeoutException ex) {
+                        leaseTimeouts.increment();
+                        throw ex;
+                    } finally {
+                        long elapsed = System.nanoTime() - start;
+                        leaseNanos.add(elapsed);
+                        maxLeaseNanos.accumulateAndGet(elapsed, Math::max);
+                    }
+                }
+
+                @Override
+                public boolean cancel() {
+                    return request.cancel();
+                }
+            };
+        }
+    }
+
+    /**
+     * HttpClient's default TLS socket factory, created when the first https connection is opened.
+     */
+    private static class LazySslConnectionSocketFactory implements LayeredConnectionSocketFactory {
+
+        private volatile LayeredConnectionSocketFactory delegate;
+
+        private LayeredConnectionSocketFactory delegate() {
+            LayeredConnectionSocketFactory factory = delegate;
+            if (factory == null) {
+                synchronized (this) {
+                    factory = delegate;
+                    if (factory == null) {
+                        delegate = factory = SSLConnectionSocketFactory.getSocketFactory();
+                    }
+                }
+            }
+            return factory;
+        }
+
+        @Override
+        public Socket createSocket(HttpContext context) throws IOException {
+            return delegate().createSocket(context);
+        }
+
+        @Override
+        public Socket connectSocket(int connectTimeout, Socket socket, HttpHost host, InetSocketAddress remoteAddress, InetSocketAddress localAddress,
+                                    HttpContext context) throws IOException {
+            return delegate().connectSocket(connectTimeout, socket, host, remoteAddress, localAddress, context);
+        }
+
+        @Override
+        public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context) throws IOException {
+            return delegate().createLayeredSocket(socket, target, port, context);
+        }
+    }
+}
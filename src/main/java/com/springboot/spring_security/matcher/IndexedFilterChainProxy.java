@@ -0,0 +1,98 @@
+package com.springboot.spring_security.matcher;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.security.web.DefaultSecurityFilterChain;
+import org.springframework.security.web.FilterChainProxy;
+import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.FilterSecurityInterceptor;
+import org.springframework.security.web.firewall.HttpFirewall;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+import javax.servlet.Filter;
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The springSecurityFilterChain with its chain selection and its access decisions looked up in RequestMatcherIndexes:
+ * <ul>
+ * <li>the chains (the authorization server's /oauth/token endpoints, the resource server's "/me", then "/**") are selected
+ * by one lookup of all their matchers, instead of asking each chain's matcher in turn</li>
+ * <li>the access rules of every chain's FilterSecurityInterceptor are swapped for an IndexedFilterInvocationSecurityMetadataSource</li>
+ * </ul>
+ * The request path is split once for both. Everything else (the filters, the firewall) is taken over from the proxy it indexes.
+ */
+public class IndexedFilterChainProxy extends FilterChainProxy {
+
+    private static final Log logger = LogFactory.getLog(IndexedFilterChainProxy.class);
+
+    private static final String CHAIN_ATTRIBUTE = IndexedFilterChainProxy.class.getName() + ".CHAIN";
+
+    /**
+     * @param filterChainProxy the proxy built by the WebSecurity; its FilterSecurityInterceptors are indexed in place
+     */
+    public IndexedFilterChainProxy(FilterChainProxy filterChainProxy) {
+        super(index(filterChainProxy.getFilterChains()));
+        setFirewall((HttpFirewall) new DirectFieldAccessor(filterChainProxy).getPropertyValue("firewall"));
+    }
+
+    private static List<SecurityFilterChain> index(List<SecurityFilterChain> chains) {
+        List<RequestMatcher> matchers = new ArrayList<>();
+        for (SecurityFilterChain chain : chains) {
+            matchers.add(chain instanceof DefaultSecurityFilterChain ? ((DefaultSecurityFilterChain) chain).getRequestMatcher() : chain::matches);
+            for (Filter filter : chain.getFilters()) {
+                if (filter instanceof FilterSecurityInterceptor) {
+                    FilterSecurityInterceptor interceptor = (FilterSecurityInterceptor) filter;
+                    interceptor.setSecurityMetadataSource(IndexedFilterInvocationSecurityMetadataSource.index(interceptor.getSecurityMetadataSource()));
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Indexed the access rules of " + chain + ": " + interceptor.getSecurityMetadataSource());
+                    }
+                }
+            }
+        }
+        RequestMatcherIndex index = new RequestMatcherIndex(matchers);
+        List<SecurityFilterChain> indexed = new ArrayList<>();
+        for (int position = 0; position < chains.size(); position++) {
+            indexed.add(new DefaultSecurityFilterChain(new ChainMatcher(index, position, matchers.get(position)), chains.get(position).getFilters()));
+        }
+        logger.info("Indexed " + chains.size() + " security filter chains: " + index);
+        return indexed;
+    }
+
+    /**
+     * Matches the requests for which the index selects its chain. The FilterChainProxy asks the chains in order, so the first
+     * chain's matcher looks the request up and keeps the answer on the request for the chains after it.
+     */
+    private static final class ChainMatcher implements RequestMatcher {
+
+        private final RequestMatcherIndex index;
+
+        private final int position;
+
+        private final RequestMatcher matcher;
+
+        ChainMatcher(RequestMatcherIndex index, int position, RequestMatcher matcher) {
+            this.index = index;
+            this.position = position;
+            this.matcher = matcher;
+        }
+
+        @Override
+        public boolean matches(HttpServletRequest request) {
+            Object selected = position == 0 ? null : request.getAttribute(CHAIN_ATTRIBUTE);
+            if (selected == null) {
+                selected = index.indexOf(request);
+                request.setAttribute(CHAIN_ATTRIBUTE, selected);
+            }
+            return (Integer) selected == position;
+        }
+
+        @Override
+        public String toString() {
+            // the chain's own matcher, e.g. "Ant [pattern='/me']", which is what the FilterMetrics name the chain after
+            return String.valueOf(matcher);
+        }
+    }
+}
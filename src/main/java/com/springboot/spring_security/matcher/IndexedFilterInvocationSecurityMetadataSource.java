@@ -0,0 +1,76 @@
+package com.springboot.spring_security.matcher;
+
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.security.access.ConfigAttribute;
+import org.springframework.security.web.FilterInvocation;
+import org.springframework.security.web.access.intercept.DefaultFilterInvocationSecurityMetadataSource;
+import org.springframework.security.web.access.intercept.FilterInvocationSecurityMetadataSource;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The access rules of a FilterSecurityInterceptor (what authorizeRequests() configured: permitAll() for "/", "/login**", ...,
+ * authenticated() for anyRequest()) looked up in a RequestMatcherIndex rather than tried one after the other.
+ * The first rule whose matcher matches wins, as in the DefaultFilterInvocationSecurityMetadataSource it replaces.
+ */
+public class IndexedFilterInvocationSecurityMetadataSource implements FilterInvocationSecurityMetadataSource {
+
+    private final RequestMatcherIndex index;
+
+    private final List<Collection<ConfigAttribute>> attributes;
+
+    /**
+     * @param requestMap matchers and their config attributes, in the order they are to be tried
+     */
+    public IndexedFilterInvocationSecurityMetadataSource(Map<RequestMatcher, Collection<ConfigAttribute>> requestMap) {
+        this.index = new RequestMatcherIndex(new ArrayList<>(requestMap.keySet()));
+        this.attributes = new ArrayList<>(requestMap.values());
+    }
+
+    /**
+     * @param source a FilterSecurityInterceptor's metadata source, e.g. the ExpressionBasedFilterInvocationSecurityMetadataSource of authorizeRequests()
+     * @return the source with its rules indexed, or the source itself if it is not a DefaultFilterInvocationSecurityMetadataSource
+     */
+    @SuppressWarnings("unchecked")
+    public static FilterInvocationSecurityMetadataSource index(FilterInvocationSecurityMetadataSource source) {
+        if (!(source instanceof DefaultFilterInvocationSecurityMetadataSource)) {
+            return source;
+        }
+        // the rules are only kept in a private field, in the order they were configured
+        return new IndexedFilterInvocationSecurityMetadataSource(
+                (Map<RequestMatcher, Collection<ConfigAttribute>>) new DirectFieldAccessor(source).getPropertyValue("requestMap"));
+    }
+
+    public RequestMatcherIndex getIndex() {
+        return index;
+    }
+
+    @Override
+    public Collection<ConfigAttribute> getAttributes(Object object) {
+        int position = index.indexOf(((FilterInvocation) object).getRequest());
+        return position < 0 ? null : attributes.get(position);
+    }
+
+    @Override
+    public Collection<ConfigAttribute> getAllConfigAttributes() {
+        Set<ConfigAttribute> all = new HashSet<>();
+        attributes.forEach(all::addAll);
+        return all;
+    }
+
+    @Override
+    public boolean supports(Class<?> clazz) {
+        return FilterInvocation.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public String toString() {
+        return "IndexedFilterInvocationSecurityMetadataSource " + index;
+    }
+}
@@ -0,0 +1,429 @@
+package com.springboot.spring_security.matcher;
+
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.AnyRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.util.StringUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An ordered list of request matchers, e.g. the antMatchers of authorizeRequests() or the matchers of the security filter chains,
+ * compiled into a trie of path segments, so finding the first matcher a request matches is one walk down the trie
+ * instead of Ant path matching against every pattern in turn.
+ * <p>
+ * The trie has a child per literal segment ("webjars"), per segment pattern ("error**", "*.css", "{id}") and one for "**",
+ * and keeps the position of the matchers whose patterns end at a node. The walk only goes down the branches that can still
+ * beat the first match found so far, and answers exactly what the matchers would: a pattern matches the same paths,
+ * trailing slashes included, as its AntPathRequestMatcher.
+ * <p>
+ * Case-sensitive AntPathRequestMatchers, anyRequest() and OrRequestMatchers of these are indexed. Every other matcher
+ * (regular expressions, case-insensitive patterns, custom matchers) is kept out of the trie and asked in order,
+ * but only while it comes before the best match of the trie, so it keeps its place in the list.
+ */
+public class RequestMatcherIndex {
+
+    private static final String PATH_ATTRIBUTE = RequestMatcherIndex.class.getName() + ".PATH";
+
+    private static final int NONE = Integer.MAX_VALUE;
+
+    /**
+     * A segment pattern of AntPathMatcher: ?, * or a {variable}, optionally with its own regular expression.
+     */
+    private static final Pattern GLOB = Pattern.compile("\\?|\\*|\\{([^/{}:]+)(?::([^/{}]+))?\\}");
+
+    private final List<RequestMatcher> matchers;
+
+    private final Node root = new Node();
+
+    /**
+     * Positions of the matchers not in the trie, ascending.
+     */
+    private final int[] unindexed;
+
+    /**
+     * @param matchers in the order they are to be asked; the index answers with the position of the first one that matches
+     */
+    public RequestMatcherIndex(List<? extends RequestMatcher> matchers) {
+        this.matchers = Collections.unmodifiableList(new ArrayList<>(matchers));
+        List<Integer> unindexed = new ArrayList<>();
+        for (int position = 0; position < this.matchers.size(); position++) {
+            List<AntPathRequestMatcher> patterns = new ArrayList<>();
+            if (collectPatterns(this.matchers.get(position), patterns)) {
+                for (AntPathRequestMatcher pattern : patterns) {
+                    add(position, pattern);
+                }
+            } else {
+                unindexed.add(position);
+            }
+        }
+        this.unindexed = unindexed.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * @return the matchers, in order
+     */
+    public List<RequestMatcher> getMatchers() {
+        return matchers;
+    }
+
+    /**
+     * @return how many of the matchers are asked in order rather than looked up in the trie
+     */
+    public int getUnindexedCount() {
+        return unindexed.length;
+    }
+
+    /**
+     * @param request
+     * @return the position of the first matcher that matches the request, -1 if none does
+     */
+    public int indexOf(HttpServletRequest request) {
+        RequestPath path = RequestPath.of(request);
+        if (path.tokens == null) {
+            // not a path the trie was built for ("", "a", "/a//b"): ask every matcher, as the list would
+            for (int position = 0; position < matchers.size(); position++) {
+                if (matchers.get(position).matches(request)) {
+                    return position;
+                }
+            }
+            return -1;
+        }
+        boolean anyMethod = !StringUtils.hasText(request.getMethod());
+        HttpMethod method = anyMethod ? null : HttpMethod.resolve(request.getMethod());
+        int best = find(root, path, 0, method, anyMethod, NONE);
+        for (int position : unindexed) {
+            if (position >= best) {
+                break;
+            }
+            if (matchers.get(position).matches(request)) {
+                return position;
+            }
+        }
+        return best == NONE ? -1 : best;
+    }
+
+    /**
+     * @param request
+     * @return the first matcher that matches the request, null if none does
+     */
+    public RequestMatcher match(HttpServletRequest request) {
+        int position = indexOf(request);
+        return position < 0 ? null : matchers.get(position);
+    }
+
+    private int find(Node node, RequestPath path, int segment, HttpMethod method, boolean anyMethod, int best) {
+        if (node.first >= best) {
+            return best;
+        }
+        String[] tokens = path.tokens;
+        if (segment == tokens.length) {
+            for (Terminal terminal : node.terminals) {
+                if (terminal.position < best && terminal.allows(method, anyMethod)
+                        && (terminal.doubleWildcard || terminal.trailingSlash == path.trailingSlash)) {
+                    best = terminal.position;
+                }
+            }
+            if (path.trailingSlash) {
+                // AntPathMatcher's "/a/*" also matches "/a/": a path ending in a slash where only a last "*" segment is left
+                for (GlobChild child : node.globs) {
+                    for (Terminal terminal : child.node.terminals) {
+                        if (terminal.position < best && terminal.lastSegmentWildcard && !terminal.doubleWildcard && terminal.allows(method, anyMethod)) {
+                            best = terminal.position;
+                        }
+                    }
+                }
+            }
+        }
+        if (node.doubleWildcard != null) {
+            for (int rest = segment; rest <= tokens.length; rest++) {
+                best = find(node.doubleWildcard, path, rest, method, anyMethod, best);
+            }
+        }
+        if (segment < tokens.length) {
+            Node literal = node.literals.get(tokens[segment]);
+            if (literal != null) {
+                best = find(literal, path, segment + 1, method, anyMethod, best);
+            }
+            String token = tokens[segment];
+            for (int length : node.globPrefixLengths) {
+                if (length > token.length()) {
+                    break;
+                }
+                List<GlobChild> candidates = node.globsByPrefix.get(token.substring(0, length));
+                if (candidates == null) {
+                    continue;
+                }
+                for (GlobChild child : candidates) {
+                    if (child.node.first < best && child.pattern.matcher(token).matches()) {
+                        best = find(child.node, path, segment + 1, method, anyMethod, best);
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private void add(int position, AntPathRequestMatcher matcher) {
+        DirectFieldAccessor fields = new DirectFieldAccessor(matcher);
+        String pattern = matcher.getPattern();
+        String[] tokens = StringUtils.tokenizeToStringArray(pattern, "/", false, true);
+        boolean doubleWildcard = false;
+        Node node = root;
+        node.first = Math.min(node.first, position);
+        for (String token : tokens) {
+            if (token.equals("**")) {
+                doubleWildcard = true;
+                if (node.doubleWildcard == null) {
+                    node.doubleWildcard = new Node();
+                }
+                node = node.doubleWildcard;
+            } else if (isLiteral(token)) {
+                node = node.literals.computeIfAbsent(token, key -> new Node());
+            } else {
+                node = node.glob(token);
+            }
+            node.first = Math.min(node.first, position);
+        }
+        node.terminals.add(new Terminal(position, (HttpMethod) fields.getPropertyValue("httpMethod"),
+                pattern.endsWith("/"), tokens.length > 0 && tokens[tokens.length - 1].equals("*"), doubleWildcard));
+    }
+
+    /**
+     * @param matcher
+     * @param patterns the Ant patterns the matcher is made of
+     * @return whether the matcher is nothing but patterns the trie can answer for
+     */
+    private static boolean collectPatterns(RequestMatcher matcher, List<AntPathRequestMatcher> patterns) {
+        if (matcher instanceof AnyRequestMatcher) {
+            patterns.add(new AntPathRequestMatcher("/**"));
+            return true;
+        }
+        if (matcher instanceof AntPathRequestMatcher) {
+            DirectFieldAccessor fields = new DirectFieldAccessor(matcher);
+            String pattern = ((AntPathRequestMatcher) matcher).getPattern();
+            if (!Boolean.TRUE.equals(fields.getPropertyValue("caseSensitive")) || fields.getPropertyValue("urlPathHelper") != null
+                    || !pattern.startsWith("/") || !isCompilable(pattern)) {
+                return false;
+            }
+            patterns.add((AntPathRequestMatcher) matcher);
+            return true;
+        }
+        if (matcher instanceof OrRequestMatcher) {
+            @SuppressWarnings("unchecked")
+            List<RequestMatcher> alternatives = (List<RequestMatcher>) new DirectFieldAccessor(matcher).getPropertyValue("requestMatchers");
+            for (RequestMatcher alternative : alternatives) {
+                if (!collectPatterns(alternative, patterns)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param pattern
+     * @return whether every segment of the pattern is a literal, "**" or a segment pattern GLOB can translate
+     */
+    private static boolean isCompilable(String pattern) {
+        for (String token : StringUtils.tokenizeToStringArray(pattern, "/", false, true)) {
+            if (!token.equals("**") && !isLiteral(token) && compile(token) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLiteral(String token) {
+        return literalLength(token) == token.length();
+    }
+
+    /**
+     * @param token
+     * @return the length of the token's start before its first ?, * or {
+     */
+    private static int literalLength(String token) {
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c == '*' || c == '?' || c == '{') {
+                return i;
+            }
+        }
+        return token.length();
+    }
+
+    /**
+     * The regular expression AntPathMatcher matches a path segment against: ? is one character, * any characters
+     * and {name:regex} the regular expression.
+     *
+     * @param token
+     * @return null if the segment has braces that are not a variable
+     */
+    private static Pattern compile(String token) {
+        StringBuilder regex = new StringBuilder();
+        Matcher glob = GLOB.matcher(token);
+        int end = 0;
+        while (glob.find()) {
+            regex.append(quote(token.substring(end, glob.start())));
+            String match = glob.group();
+            if (match.equals("?")) {
+                regex.append('.');
+            } else if (match.equals("*")) {
+                regex.append(".*");
+            } else {
+                regex.append('(').append(glob.group(2) != null ? glob.group(2) : ".*").append(')');
+            }
+            end = glob.end();
+        }
+        String rest = token.substring(end);
+        if (rest.indexOf('{') >= 0 || rest.indexOf('}') >= 0) {
+            return null;
+        }
+        regex.append(quote(rest));
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    private static String quote(String literal) {
+        return literal.isEmpty() ? "" : Pattern.quote(literal);
+    }
+
+    private static final class Node {
+
+        private final Map<String, Node> literals = new HashMap<>();
+
+        private final List<GlobChild> globs = new ArrayList<>();
+
+        /**
+         * The segment patterns by their literal start ("report" of "report**"), so a path segment is only matched
+         * against the patterns whose start it has, rather than against every pattern of the node.
+         */
+        private final Map<String, List<GlobChild>> globsByPrefix = new HashMap<>();
+
+        /**
+         * The lengths of the keys of globsByPrefix, ascending.
+         */
+        private int[] globPrefixLengths = new int[0];
+
+        private final List<Terminal> terminals = new ArrayList<>();
+
+        private Node doubleWildcard;
+
+        /**
+         * The first position of any pattern through this node, to skip branches that cannot beat a match already found.
+         */
+        private int first = NONE;
+
+        Node glob(String token) {
+            for (GlobChild child : globs) {
+                if (child.token.equals(token)) {
+                    return child.node;
+                }
+            }
+            GlobChild child = new GlobChild(token, compile(token), new Node());
+            globs.add(child);
+            String prefix = token.substring(0, literalLength(token));
+            globsByPrefix.computeIfAbsent(prefix, key -> new ArrayList<>()).add(child);
+            globPrefixLengths = globsByPrefix.keySet().stream().mapToInt(String::length).distinct().sorted().toArray();
+            return child.node;
+        }
+    }
+
+    private static final class GlobChild {
+
+        private final String token;
+
+        private final Pattern pattern;
+
+        private final Node node;
+
+        GlobChild(String token, Pattern pattern, Node node) {
+            this.token = token;
+            this.pattern = pattern;
+            this.node = node;
+        }
+    }
+
+    /**
+     * A pattern ending at a node.
+     */
+    private static final class Terminal {
+
+        private final int position;
+
+        private final HttpMethod method;
+
+        private final boolean trailingSlash;
+
+        private final boolean lastSegmentWildcard;
+
+        /**
+         * Whether the pattern has a "**" segment, which makes AntPathMatcher ignore a trailing slash.
+         */
+        private final boolean doubleWildcard;
+
+        Terminal(int position, HttpMethod method, boolean trailingSlash, boolean lastSegmentWildcard, boolean doubleWildcard) {
+            this.position = position;
+            this.method = method;
+            this.trailingSlash = trailingSlash;
+            this.lastSegmentWildcard = lastSegmentWildcard;
+            this.doubleWildcard = doubleWildcard;
+        }
+
+        boolean allows(HttpMethod requested, boolean anyMethod) {
+            return method == null || anyMethod || method == requested;
+        }
+    }
+
+    /**
+     * The path AntPathRequestMatcher matches (servlet path and path info) split into segments, kept on the request,
+     * so the chain selection and the access decision of a request split it once.
+     */
+    private static final class RequestPath {
+
+        private final String path;
+
+        /**
+         * null for a path that does not start with a slash or has an empty segment.
+         */
+        private final String[] tokens;
+
+        private final boolean trailingSlash;
+
+        private RequestPath(String path) {
+            this.path = path;
+            this.trailingSlash = path.endsWith("/");
+            this.tokens = path.startsWith("/") && !path.contains("//") ? StringUtils.tokenizeToStringArray(path, "/", false, true) : null;
+        }
+
+        static RequestPath of(HttpServletRequest request) {
+            String path = request.getServletPath() != null ? request.getServletPath() : "";
+            String pathInfo = request.getPathInfo();
+            if (pathInfo != null) {
+                path = StringUtils.hasLength(path) ? path + pathInfo : pathInfo;
+            }
+            Object cached = request.getAttribute(PATH_ATTRIBUTE);
+            if (cached instanceof RequestPath && ((RequestPath) cached).path.equals(path)) {
+                return (RequestPath) cached;
+            }
+            RequestPath requestPath = new RequestPath(path);
+            request.setAttribute(PATH_ATTRIBUTE, requestPath);
+            return requestPath;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RequestMatcherIndex [matchers=" + matchers.size() + ", unindexed=" + unindexed.length + "]";
+    }
+}
@@ -0,0 +1,245 @@
+package com.springboot.spring_security.metrics;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.security.web.DefaultSecurityFilterChain;
+import org.springframework.security.web.FilterChainProxy;
+import org.springframework.security.web.SecurityFilterChain;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency histograms of the servlet filters of every request, one per filter, to tell where the time of a slow login goes.
+ * <p>
+ * What is recorded is the filter's own time: the time from entering the filter until it returns, less the time spent further
+ * down the chain. A thread-local timer keeps the start and the downstream time of each filter the request is in,
+ * so the hot path is two System.nanoTime() calls and one counter increment per filter, without allocating anything
+ * but the small chain wrapper handed to the filter.
+ * <p>
+ * The filters of the security filter chains are wrapped by {@link #instrument(FilterChainProxy)}, and servlet container filters,
+ * such as the OAuth2ClientContextFilter, by {@link #instrument(String, Filter)}.
+ */
+public class FilterMetrics implements Closeable {
+
+    private static final Log logger = LogFactory.getLog(FilterMetrics.class);
+
+    private static final ThreadLocal<Timer> TIMER = ThreadLocal.withInitial(Timer::new);
+
+    /**
+     * Chain name to filter name to histogram, in the order the filters were instrumented.
+     */
+    private final Map<String, Map<String, LatencyHistogram>> histograms = new LinkedHashMap<>();
+
+    private final Map<LatencyHistogram, LatencyHistogram.Snapshot> logged = new ConcurrentHashMap<>();
+
+    private final int stripes;
+
+    private final ScheduledExecutorService reporter;
+
+    /**
+     * @param logInterval how often to log the filter latencies of the last interval; zero disables the log line
+     */
+    public FilterMetrics(Duration logInterval) {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        this.stripes = Integer.highestOneBit(Math.min(Math.max(cpus, 1), 16) * 2 - 1);
+        if (logInterval.isZero()) {
+            this.reporter = null;
+        } else {
+            this.reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "filter-metrics-reporter");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = logInterval.toMillis();
+            this.reporter.scheduleWithFixedDelay(this::logInterval, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Replaces every filter of the proxy's security filter chains with a timed wrapper, in place, so the proxy keeps its firewall
+     * and everything else it was built with. The chains are named after their request matcher, e.g. "Ant [pattern='/me']".
+     *
+     * @param filterChainProxy
+     */
+    public void instrument(FilterChainProxy filterChainProxy) {
+        for (SecurityFilterChain chain : filterChainProxy.getFilterChains()) {
+            String name = chain instanceof DefaultSecurityFilterChain
+                    ? String.valueOf(((DefaultSecurityFilterChain) chain).getRequestMatcher()) : chain.toString();
+            List<Filter> filters = chain.getFilters();
+            for (int i = 0; i < filters.size(); i++) {
+                filters.set(i, instrument(name, filters.get(i)));
+            }
+        }
+    }
+
+    /**
+     * @param chain  name of the chain the filter is in
+     * @param filter
+     * @return the filter, timed
+     */
+    public synchronized Filter instrument(String chain, Filter filter) {
+        if (filter instanceof TimedFilter) {
+            return filter;
+        }
+        Map<String, LatencyHistogram> filters = histograms.computeIfAbsent(chain, key -> new LinkedHashMap<>());
+        String name = filter.getClass().getSimpleName();
+        for (int i = 2; filters.containsKey(name); i++) {
+            name = filter.getClass().getSimpleName() + "#" + i;
+        }
+        LatencyHistogram histogram = new LatencyHistogram(stripes);
+        filters.put(name, histogram);
+        return new TimedFilter(filter, histogram);
+    }
+
+    /**
+     * @return per chain, per filter: the requests it saw since the start, and the mean, median, 99th and 99.9th percentile
+     * and maximum of its own time in microseconds
+     */
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        histograms.forEach((chain, filters) -> {
+            Map<String, Object> chainStats = new LinkedHashMap<>();
+            filters.forEach((filter, histogram) -> {
+                LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+                Map<String, Object> filterStats = new LinkedHashMap<>();
+                filterStats.put("count", snapshot.getCount());
+                filterStats.put("meanMicros", micros(snapshot.mean()));
+                filterStats.put("p50Micros", micros(snapshot.percentile(0.5)));
+                filterStats.put("p99Micros", micros(snapshot.percentile(0.99)));
+                filterStats.put("p999Micros", micros(snapshot.percentile(0.999)));
+                filterStats.put("maxMicros", micros(snapshot.max()));
+                chainStats.put(filter, filterStats);
+            });
+            stats.put(chain, chainStats);
+        });
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+        }
+    }
+
+    /**
+     * One line with the p50 and p99 own time of every filter that ran in the last interval, the slowest p99 first.
+     */
+    synchronized void logInterval() {
+        StringBuilder line = new StringBuilder();
+        Map<String, LatencyHistogram.Snapshot> interval = new LinkedHashMap<>();
+        histograms.forEach((chain, filters) -> filters.forEach((filter, histogram) -> {
+            LatencyHistogram.Snapshot now = histogram.snapshot();
+            LatencyHistogram.Snapshot previous = logged.put(histogram, now);
+            LatencyHistogram.Snapshot delta = previous == null ? now : now.minus(previous);
+            if (delta.getCount() > 0) {
+                interval.put(chain + " " + filter, delta);
+            }
+        }));
+        if (interval.isEmpty() || !logger.isInfoEnabled()) {
+            return;
+        }
+        interval.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().percentile(0.99), a.getValue().percentile(0.99)))
+                .forEach(entry -> line.append(line.length() == 0 ? "" : ", ").append(entry.getKey())
+                        .append(String.format(" n=%d p50=%.1fus p99=%.1fus", entry.getValue().getCount(),
+                                micros(entry.getValue().percentile(0.5)), micros(entry.getValue().percentile(0.99)))));
+        logger.info("Filter own time: " + line);
+    }
+
+    private static double micros(long nanos) {
+        return Math.round(nanos / 100.0) / 10.0;
+    }
+
+    /**
+     * The filters a request thread is in, innermost last: when each was entered and how long it has spent further down the chain.
+     */
+    private static final class Timer {
+
+        private long[] started = new long[32];
+
+        private long[] downstream = new long[32];
+
+        private int depth;
+
+        int enter() {
+            if (depth == started.length) {
+                started = Arrays.copyOf(started, depth * 2);
+                downstream = Arrays.copyOf(downstream, depth * 2);
+            }
+            started[depth] = System.nanoTime();
+            downstream[depth] = 0;
+            return depth++;
+        }
+
+        long exit(int level) {
+            long own = System.nanoTime() - started[level] - downstream[level];
+            depth = level;
+            return own;
+        }
+    }
+
+    /**
+     * Times the wrapped filter; the chain it gets stops the filter's clock while the rest of the chain runs.
+     */
+    private static final class TimedFilter implements Filter {
+
+        private final Filter delegate;
+
+        private final LatencyHistogram histogram;
+
+        TimedFilter(Filter delegate, LatencyHistogram histogram) {
+            this.delegate = delegate;
+            this.histogram = histogram;
+        }
+
+        @Override
+        public void init(FilterConfig filterConfig) throws ServletException {
+            delegate.init(filterConfig);
+        }
+
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+            Timer timer = TIMER.get();
+            int level = timer.enter();
+            try {
+                delegate.doFilter(request, response, (downstreamRequest, downstreamResponse) -> {
+                    long start = System.nanoTime();
+                    try {
+                        chain.doFilter(downstreamRequest, downstreamResponse);
+                    } finally {
+                        timer.downstream[level] += System.nanoTime() - start;
+                    }
+                });
+            } finally {
+                histogram.record(timer.exit(level));
+            }
+        }
+
+        @Override
+        public void destroy() {
+            delegate.destroy();
+        }
+
+        @Override
+        public String toString() {
+            return delegate.toString();
+        }
+    }
+}
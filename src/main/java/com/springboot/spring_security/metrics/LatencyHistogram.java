@@ -0,0 +1,153 @@
+package com.springboot.spring_security.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size, HDR-style histogram of nanosecond latencies: values below 16ns are counted exactly, larger ones in
+ * 16 linear sub-buckets per power of two, so every recorded value is known to within 1/16 (6%), up to about 18 minutes.
+ * <p>
+ * Recording is a single atomic increment without allocation. The counters are striped by thread,
+ * so request threads recording the same filter at the same time rarely touch the same cache line.
+ */
+class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int MAX_EXPONENT = 40;
+
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray[] stripes;
+
+    private final int stripeMask;
+
+    /**
+     * @param stripes counter stripes, a power of two, e.g. the number of CPUs
+     */
+    LatencyHistogram(int stripes) {
+        this.stripes = new AtomicLongArray[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new AtomicLongArray(BUCKETS);
+        }
+        this.stripeMask = stripes - 1;
+    }
+
+    void record(long nanos) {
+        stripes[(int) Thread.currentThread().getId() & stripeMask].incrementAndGet(bucket(nanos));
+    }
+
+    /**
+     * @return the counts recorded so far, summed over the stripes
+     */
+    Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] += stripe.get(i);
+            }
+        }
+        return new Snapshot(counts);
+    }
+
+    static int bucket(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) Math.max(nanos, 0);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @param bucket
+     * @return the smallest value counted in the bucket
+     */
+    static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    /**
+     * Counts of a histogram at one point in time; subtract an earlier snapshot to get the counts of an interval.
+     */
+    static final class Snapshot {
+
+        private final long[] counts;
+
+        private final long count;
+
+        Snapshot(long[] counts) {
+            this.counts = counts;
+            long sum = 0;
+            for (long bucketCount : counts) {
+                sum += bucketCount;
+            }
+            this.count = sum;
+        }
+
+        Snapshot minus(Snapshot earlier) {
+            long[] difference = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                difference[i] = counts[i] - earlier.counts[i];
+            }
+            return new Snapshot(difference);
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        /**
+         * @param percentile from 0 to 1
+         * @return the value at the percentile in nanoseconds, the middle of its bucket; 0 when nothing was recorded
+         */
+        long percentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile * count));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return middle(i);
+                }
+            }
+            return middle(BUCKETS - 1);
+        }
+
+        long mean() {
+            if (count == 0) {
+                return 0;
+            }
+            double sum = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                sum += counts[i] * (double) middle(i);
+            }
+            return (long) (sum / count);
+        }
+
+        long max() {
+            for (int i = BUCKETS - 1; i >= 0; i--) {
+                if (counts[i] > 0) {
+                    return middle(i);
+                }
+            }
+            return 0;
+        }
+
+        private static long middle(int bucket) {
+            long lower = lowerBound(bucket);
+            long upper = bucket + 1 < BUCKETS ? lowerBound(bucket + 1) : lower;
+            return lower + (upper - lower) / 2;
+        }
+    }
+}
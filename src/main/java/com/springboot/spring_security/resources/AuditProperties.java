@@ -0,0 +1,112 @@
+package com.springboot.spring_security.resources;
+
+import com.springboot.spring_security.audit.AuthenticationAuditLog;
+
+import java.time.Duration;
+
+/**
+ * Settings of the AuthenticationAuditLog, bound from the "audit" prefix.
+ */
+public class AuditProperties {
+
+    /**
+     * The JSON-lines audit file; rotated files are kept next to it.
+     */
+    private String file;
+
+    /**
+     * Records the ring buffer between the login threads and the writer holds, a power of two.
+     */
+    private int bufferCapacity = 8192;
+
+    /**
+     * What a login does when the ring buffer is full: DROP the record, or BLOCK for at most the block-timeout and then drop it.
+     */
+    private AuthenticationAuditLog.OverflowPolicy overflowPolicy = AuthenticationAuditLog.OverflowPolicy.DROP;
+
+    private Duration blockTimeout = Duration.ofMillis(10);
+
+    /**
+     * Most records written with one channel write.
+     */
+    private int batchSize = 512;
+
+    /**
+     * How long the writer sleeps when the buffer is empty, i.e. how late a record reaches the file at most.
+     */
+    private Duration flushInterval = Duration.ofMillis(200);
+
+    /**
+     * Size in bytes at which the file is rotated.
+     */
+    private long maxFileSize = 64 * 1024 * 1024;
+
+    /**
+     * Rotated files to keep.
+     */
+    private int maxHistory = 10;
+
+    public String getFile() {
+        return file;
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    public int getBufferCapacity() {
+        return bufferCapacity;
+    }
+
+    public void setBufferCapacity(int bufferCapacity) {
+        this.bufferCapacity = bufferCapacity;
+    }
+
+    public AuthenticationAuditLog.OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(AuthenticationAuditLog.OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public Duration getBlockTimeout() {
+        return blockTimeout;
+    }
+
+    public void setBlockTimeout(Duration blockTimeout) {
+        this.blockTimeout = blockTimeout;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    public void setFlushInterval(Duration flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public long getMaxFileSize() {
+        return maxFileSize;
+    }
+
+    public void setMaxFileSize(long maxFileSize) {
+        this.maxFileSize = maxFileSize;
+    }
+
+    public int getMaxHistory() {
+        return maxHistory;
+    }
+
+    public void setMaxHistory(int maxHistory) {
+        this.maxHistory = maxHistory;
+    }
+}
@@ -0,0 +1,58 @@
+package com.springboot.spring_security.resources;
+
+import java.time.Duration;
+
+/**
+ * Settings of the CSRF token repository of the WebSecurityConfiguration, bound from the "csrf" prefix.
+ */
+public class CsrfProperties {
+
+    public enum Type {
+        /**
+         * Spring Security's CookieCsrfTokenRepository: a random token whenever the cookie is missing.
+         */
+        COOKIE,
+        /**
+         * The HmacCsrfTokenRepository: tokens bound to the session and computed from a secret, nothing stored.
+         */
+        HMAC
+    }
+
+    private Type type = Type.HMAC;
+
+    /**
+     * HMAC key of the tokens in hmac mode. When empty a random key is generated at startup,
+     * so tokens do not survive a restart and cannot be checked by another instance.
+     */
+    private String secret;
+
+    /**
+     * How long the same token is handed out in hmac mode. The first request of a browser in the next period is given the next token;
+     * a token left unused is accepted for one to two of these.
+     */
+    private Duration rotation = Duration.ofHours(1);
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public String getSecret() {
+        return secret;
+    }
+
+    public void setSecret(String secret) {
+        this.secret = secret;
+    }
+
+    public Duration getRotation() {
+        return rotation;
+    }
+
+    public void setRotation(Duration rotation) {
+        this.rotation = rotation;
+    }
+}
@@ -0,0 +1,41 @@
+package com.springboot.spring_security.resources;
+
+/**
+ * Settings of the ErrorResponseFilter and of the container error pages, bound from the "error-handling" prefix.
+ */
+public class ErrorHandlingProperties {
+
+    public enum Mode {
+        /**
+         * 401 and 404 are answered by the ErrorResponseFilter itself, with a redirect to "/?error=true" and a small fixed page.
+         */
+        DIRECT,
+        /**
+         * The container forwards 401 to "/unauthenticated" and 404 to "/home", a second dispatch through the filters and a template render.
+         */
+        FORWARD
+    }
+
+    private Mode mode = Mode.DIRECT;
+
+    /**
+     * One error response in this many, on average, is logged; 1 logs every one of them, 0 none.
+     */
+    private int logSampleRate = 100;
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public int getLogSampleRate() {
+        return logSampleRate;
+    }
+
+    public void setLogSampleRate(int logSampleRate) {
+        this.logSampleRate = logSampleRate;
+    }
+}
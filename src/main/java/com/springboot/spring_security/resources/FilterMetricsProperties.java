@@ -0,0 +1,35 @@
+package com.springboot.spring_security.resources;
+
+import java.time.Duration;
+
+/**
+ * Settings of the FilterMetrics, bound from the "filter-metrics" prefix.
+ */
+public class FilterMetricsProperties {
+
+    /**
+     * Time every filter of the security filter chains, and the OAuth2ClientContextFilter. Off by default.
+     */
+    private boolean enabled;
+
+    /**
+     * How often to log the filter latencies of the last interval; zero only keeps them for /stats/filters.
+     */
+    private Duration logInterval = Duration.ofMinutes(1);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getLogInterval() {
+        return logInterval;
+    }
+
+    public void setLogInterval(Duration logInterval) {
+        this.logInterval = logInterval;
+    }
+}
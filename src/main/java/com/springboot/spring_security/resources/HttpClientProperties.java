@@ -0,0 +1,81 @@
+package com.springboot.spring_security.resources;
+
+import java.time.Duration;
+
+/**
+ * Settings of the pooled HTTP transport used by every OAuth2RestTemplate, bound from the "http-client" prefix.
+ */
+public class HttpClientProperties {
+
+    /**
+     * Connections kept open across all hosts.
+     */
+    private int maxConnections = 200;
+
+    /**
+     * Connections kept open to a single host (route), e.g. api.github.com or the authorization server.
+     */
+    private int maxConnectionsPerRoute = 20;
+
+    /**
+     * How long an idle connection is kept open when the server does not send a Keep-Alive timeout itself.
+     */
+    private Duration keepAlive = Duration.ofSeconds(30);
+
+    private Duration connectTimeout = Duration.ofSeconds(5);
+
+    private Duration readTimeout = Duration.ofSeconds(10);
+
+    /**
+     * How long a request waits for a connection from the pool when all of them are leased.
+     */
+    private Duration connectionRequestTimeout = Duration.ofSeconds(2);
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    public Duration getKeepAlive() {
+        return keepAlive;
+    }
+
+    public void setKeepAlive(Duration keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public Duration getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(Duration readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    public Duration getConnectionRequestTimeout() {
+        return connectionRequestTimeout;
+    }
+
+    public void setConnectionRequestTimeout(Duration connectionRequestTimeout) {
+        this.connectionRequestTimeout = connectionRequestTimeout;
+    }
+}
@@ -0,0 +1,33 @@
+package com.springboot.spring_security.resources;
+
+/**
+ * Settings of the batch token introspection endpoint (/introspect), bound from the "introspection" prefix.
+ */
+public class IntrospectionProperties {
+
+    /**
+     * Tokens one request may ask about; larger requests get 413.
+     */
+    private int maxTokens = 1000;
+
+    /**
+     * Tokens looked up by one task; the chunks of a request are looked up in parallel on the application task executor.
+     */
+    private int chunkSize = 64;
+
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+
+    public void setMaxTokens(int maxTokens) {
+        this.maxTokens = maxTokens;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+}
@@ -0,0 +1,74 @@
+package com.springboot.spring_security.resources;
+
+import java.time.Duration;
+
+/**
+ * Settings of the LoginAttemptLimiter, bound from the "login-throttle" prefix.
+ */
+public class LoginThrottleProperties {
+
+    /**
+     * The sliding window the attempts are counted in; also the Retry-After of a rejected attempt.
+     */
+    private Duration window = Duration.ofMinutes(1);
+
+    /**
+     * Login attempts one client IP may make within the window.
+     */
+    private int maxAttemptsPerIp = 60;
+
+    /**
+     * Form-login attempts on one username, from any IP, within the window.
+     */
+    private int maxAttemptsPerUsername = 10;
+
+    /**
+     * Counters per sketch row, a power of two. Each of the two sketches takes 2 x width x depth x 4 bytes.
+     */
+    private int sketchWidth = 65536;
+
+    /**
+     * Sketch rows; each key is counted in one counter per row.
+     */
+    private int sketchDepth = 4;
+
+    public Duration getWindow() {
+        return window;
+    }
+
+    public void setWindow(Duration window) {
+        this.window = window;
+    }
+
+    public int getMaxAttemptsPerIp() {
+        return maxAttemptsPerIp;
+    }
+
+    public void setMaxAttemptsPerIp(int maxAttemptsPerIp) {
+        this.maxAttemptsPerIp = maxAttemptsPerIp;
+    }
+
+    public int getMaxAttemptsPerUsername() {
+        return maxAttemptsPerUsername;
+    }
+
+    public void setMaxAttemptsPerUsername(int maxAttemptsPerUsername) {
+        this.maxAttemptsPerUsername = maxAttemptsPerUsername;
+    }
+
+    public int getSketchWidth() {
+        return sketchWidth;
+    }
+
+    public void setSketchWidth(int sketchWidth) {
+        this.sketchWidth = sketchWidth;
+    }
+
+    public int getSketchDepth() {
+        return sketchDepth;
+    }
+
+    public void setSketchDepth(int sketchDepth) {
+        this.sketchDepth = sketchDepth;
+    }
+}
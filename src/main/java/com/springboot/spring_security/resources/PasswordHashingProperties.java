@@ -0,0 +1,61 @@
+package com.springboot.spring_security.resources;
+
+import java.time.Duration;
+
+/**
+ * Settings of the OffloadedPasswordEncoder, bound from the "password-hashing" prefix.
+ */
+public class PasswordHashingProperties {
+
+    /**
+     * Threads hashing passwords; by default one per processor, so a burst of logins cannot take more than the CPUs.
+     */
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Password checks that may wait for a hashing thread; further logins are rejected with 503 at once.
+     */
+    private int queueCapacity = 64;
+
+    /**
+     * Longest time a login, and its request thread, waits for its password check before it is rejected with 503.
+     */
+    private Duration maxWait = Duration.ofSeconds(2);
+
+    /**
+     * Log2 of the bcrypt rounds of new hashes. Passwords hashed with fewer rounds are re-hashed on the user's next login.
+     */
+    private int bcryptCost = 10;
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public Duration getMaxWait() {
+        return maxWait;
+    }
+
+    public void setMaxWait(Duration maxWait) {
+        this.maxWait = maxWait;
+    }
+
+    public int getBcryptCost() {
+        return bcryptCost;
+    }
+
+    public void setBcryptCost(int bcryptCost) {
+        this.bcryptCost = bcryptCost;
+    }
+}
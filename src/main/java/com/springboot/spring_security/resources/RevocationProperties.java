@@ -0,0 +1,74 @@
+package com.springboot.spring_security.resources;
+
+import java.time.Duration;
+
+/**
+ * Settings of the RevocationIndex, bound from the "revocation" prefix.
+ */
+public class RevocationProperties {
+
+    /**
+     * The append-only revocation log.
+     */
+    private String file;
+
+    /**
+     * Unexpired revocations the Bloom filter is sized for; it is rebuilt larger when more are revoked.
+     */
+    private int expectedRevocations = 100000;
+
+    /**
+     * Wanted false-positive rate of the Bloom filter, i.e. how many of the tokens that were not revoked still need the exact lookup.
+     */
+    private double falsePositiveRate = 0.01;
+
+    /**
+     * How often the expired revocations are dropped and the Bloom filter and the log are rebuilt without them.
+     */
+    private Duration rebuildInterval = Duration.ofMinutes(10);
+
+    /**
+     * How long a token without an expiry stays revoked.
+     */
+    private Duration defaultTimeToLive = Duration.ofHours(12);
+
+    public String getFile() {
+        return file;
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    public int getExpectedRevocations() {
+        return expectedRevocations;
+    }
+
+    public void setExpectedRevocations(int expectedRevocations) {
+        this.expectedRevocations = expectedRevocations;
+    }
+
+    public double getFalsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    public void setFalsePositiveRate(double falsePositiveRate) {
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    public Duration getRebuildInterval() {
+        return rebuildInterval;
+    }
+
+    public void setRebuildInterval(Duration rebuildInterval) {
+        this.rebuildInterval = rebuildInterval;
+    }
+
+    public Duration getDefaultTimeToLive() {
+        return defaultTimeToLive;
+    }
+
+    public void setDefaultTimeToLive(Duration defaultTimeToLive) {
+        this.defaultTimeToLive = defaultTimeToLive;
+    }
+}
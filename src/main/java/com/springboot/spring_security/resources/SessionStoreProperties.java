@@ -0,0 +1,62 @@
+package com.springboot.spring_security.resources;
+
+import java.time.Duration;
+
+/**
+ * Settings of the OffHeapSessionRepository, bound from the "session.off-heap" prefix.
+ * The repository is only used with session.store=off-heap; otherwise sessions stay in Tomcat's heap-based session map.
+ */
+public class SessionStoreProperties {
+
+    /**
+     * Number of lock stripes, a power of two.
+     */
+    private int stripes = 16;
+
+    /**
+     * Off-heap bytes reserved up front for all stripes together; a stripe doubles its arena when it runs full.
+     */
+    private int initialCapacity = 64 * 1024 * 1024;
+
+    /**
+     * Directory of the memory-mapped session files. When empty, sessions live in direct memory and are lost on restart.
+     */
+    private String directory;
+
+    /**
+     * Tick of the expiry timer wheels: how late, at most, an expired session is removed from memory.
+     */
+    private Duration expiryResolution = Duration.ofSeconds(1);
+
+    public int getStripes() {
+        return stripes;
+    }
+
+    public void setStripes(int stripes) {
+        this.stripes = stripes;
+    }
+
+    public int getInitialCapacity() {
+        return initialCapacity;
+    }
+
+    public void setInitialCapacity(int initialCapacity) {
+        this.initialCapacity = initialCapacity;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public Duration getExpiryResolution() {
+        return expiryResolution;
+    }
+
+    public void setExpiryResolution(Duration expiryResolution) {
+        this.expiryResolution = expiryResolution;
+    }
+}
@@ -0,0 +1,20 @@
+package com.springboot.spring_security.resources;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The OAuth2 providers users can sign in with, bound from "sso.providers.{id}"; the SsoProviderRegistry gets a login filter for each.
+ */
+public class SsoProperties {
+
+    private Map<String, SsoProviderProperties> providers = new LinkedHashMap<>();
+
+    public Map<String, SsoProviderProperties> getProviders() {
+        return providers;
+    }
+
+    public void setProviders(Map<String, SsoProviderProperties> providers) {
+        this.providers = providers;
+    }
+}
@@ -0,0 +1,102 @@
+package com.springboot.spring_security.resources;
+
+import java.time.Duration;
+
+/**
+ * One OAuth2 provider of the single sign on, bound from "sso.providers.{id}": its client registration and user info endpoint
+ * (the ClientResources), and the limits that keep a slow or failing provider from tying up the logins of the others.
+ */
+public class SsoProviderProperties extends ClientResources {
+
+    /**
+     * The login path of the provider; "/login/{id}" when not set.
+     */
+    private String path;
+
+    /**
+     * Connect and read timeout of each call to the provider (token exchange, user info, organizations).
+     */
+    private Duration timeout = Duration.ofSeconds(10);
+
+    /**
+     * Logins with the provider in progress at the same time; further ones wait up to max-wait, then get 503.
+     */
+    private int maxConcurrentLogins = 50;
+
+    /**
+     * How long a login waits for one of the max-concurrent-logins; 0 answers 503 at once.
+     */
+    private Duration maxWait = Duration.ZERO;
+
+    /**
+     * Failed calls in a row (a timeout, an I/O error or a 5xx) after which the circuit of the provider opens:
+     * its logins get 503 at once, without calling it.
+     */
+    private int failureThreshold = 5;
+
+    /**
+     * How long the circuit stays open before a single call is let through to find out whether the provider is back.
+     */
+    private Duration openDuration = Duration.ofSeconds(30);
+
+    /**
+     * Only let in members of the spring-projects GitHub organization (see the authoritiesExtractor); for GitHub only.
+     */
+    private boolean organizationCheck = false;
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    public int getMaxConcurrentLogins() {
+        return maxConcurrentLogins;
+    }
+
+    public void setMaxConcurrentLogins(int maxConcurrentLogins) {
+        this.maxConcurrentLogins = maxConcurrentLogins;
+    }
+
+    public Duration getMaxWait() {
+        return maxWait;
+    }
+
+    public void setMaxWait(Duration maxWait) {
+        this.maxWait = maxWait;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+
+    public Duration getOpenDuration() {
+        return openDuration;
+    }
+
+    public void setOpenDuration(Duration openDuration) {
+        this.openDuration = openDuration;
+    }
+
+    public boolean isOrganizationCheck() {
+        return organizationCheck;
+    }
+
+    public void setOrganizationCheck(boolean organizationCheck) {
+        this.organizationCheck = organizationCheck;
+    }
+}
@@ -0,0 +1,34 @@
+package com.springboot.spring_security.resources;
+
+/**
+ * Startup settings, bound from the "startup" prefix; the fast-startup profile turns on what trades first-request latency for a faster start.
+ */
+public class StartupProperties {
+
+    /**
+     * Log the startup phases and the slowest beans once the application is ready (see StartupTimingReporter).
+     */
+    private boolean timingReport = true;
+
+    /**
+     * Create the login of each SSO provider (its filter, its rest templates and the pooled HTTP transport) on its first login, e.g. /login/github,
+     * instead of at startup.
+     */
+    private boolean lazySso = false;
+
+    public boolean isTimingReport() {
+        return timingReport;
+    }
+
+    public void setTimingReport(boolean timingReport) {
+        this.timingReport = timingReport;
+    }
+
+    public boolean isLazySso() {
+        return lazySso;
+    }
+
+    public void setLazySso(boolean lazySso) {
+        this.lazySso = lazySso;
+    }
+}
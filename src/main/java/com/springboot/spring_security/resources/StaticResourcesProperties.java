@@ -0,0 +1,54 @@
+package com.springboot.spring_security.resources;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Settings of the static resource pipeline of the MvcConfiguration, bound from the "static-resources" prefix.
+ */
+public class StaticResourcesProperties {
+
+    /**
+     * How long browsers and proxies may keep a resource requested by its content-versioned url.
+     */
+    private Duration cachePeriod = Duration.ofDays(365);
+
+    /**
+     * Resources up to this size, in bytes, are kept in memory once resolved; larger ones are read on every request.
+     */
+    private long inMemoryMaxFileSize = 1024 * 1024;
+
+    /**
+     * Paths that bypass the security filter chain altogether: no session, security context, CSRF token or security headers.
+     * Only the locations the resources are served from, never file extensions: with suffix pattern matching,
+     * "/oauth/check_token.js" is handled as "/oauth/check_token".
+     */
+    private List<String> unsecuredPaths = new ArrayList<>(Arrays.asList(
+            "/webjars/**", "/css/**", "/js/**", "/images/**", "/fonts/**", "/favicon.ico"));
+
+    public Duration getCachePeriod() {
+        return cachePeriod;
+    }
+
+    public void setCachePeriod(Duration cachePeriod) {
+        this.cachePeriod = cachePeriod;
+    }
+
+    public long getInMemoryMaxFileSize() {
+        return inMemoryMaxFileSize;
+    }
+
+    public void setInMemoryMaxFileSize(long inMemoryMaxFileSize) {
+        this.inMemoryMaxFileSize = inMemoryMaxFileSize;
+    }
+
+    public List<String> getUnsecuredPaths() {
+        return unsecuredPaths;
+    }
+
+    public void setUnsecuredPaths(List<String> unsecuredPaths) {
+        this.unsecuredPaths = unsecuredPaths;
+    }
+}
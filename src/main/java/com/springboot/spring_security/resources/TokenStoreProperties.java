@@ -0,0 +1,79 @@
+package com.springboot.spring_security.resources;
+
+import java.time.Duration;
+
+/**
+ * Settings of the token store behind @EnableAuthorizationServer, bound from the "token-store" prefix.
+ * With the default type (memory) Spring OAuth2 keeps its InMemoryTokenStore, which loses every token on restart.
+ */
+public class TokenStoreProperties {
+
+    public enum Type {
+        /**
+         * Spring OAuth2's default in-memory store.
+         */
+        MEMORY,
+        /**
+         * The append-only, memory-mapped LogStructuredTokenStore.
+         */
+        LOG,
+        /**
+         * Self-contained signed (JWT) tokens: nothing is stored, the resource server only checks the signature.
+         */
+        SIGNED
+    }
+
+    private Type type = Type.MEMORY;
+
+    private String directory = System.getProperty("java.io.tmpdir") + "/spring_security/tokens";
+
+    private int segmentSize = 16 * 1024 * 1024;
+
+    private Duration compactionInterval = Duration.ofMinutes(5);
+
+    /**
+     * HMAC key used to sign tokens in signed mode. When empty a random key is generated at startup,
+     * so tokens do not survive a restart and cannot be checked by another instance.
+     */
+    private String signingKey;
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    public void setSegmentSize(int segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public String getSigningKey() {
+        return signingKey;
+    }
+
+    public void setSigningKey(String signingKey) {
+        this.signingKey = signingKey;
+    }
+
+    public Duration getCompactionInterval() {
+        return compactionInterval;
+    }
+
+    public void setCompactionInterval(Duration compactionInterval) {
+        this.compactionInterval = compactionInterval;
+    }
+}
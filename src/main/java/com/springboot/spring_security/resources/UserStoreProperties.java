@@ -0,0 +1,36 @@
+package com.springboot.spring_security.resources;
+
+import java.time.Duration;
+
+/**
+ * Settings of the local user store, bound from the "users" prefix.
+ * With an index file the accounts come from the IndexedUserDetailsService; without one there is the single in-memory "user".
+ */
+public class UserStoreProperties {
+
+    /**
+     * User index file written by the UserIndexWriter.
+     */
+    private String indexFile;
+
+    /**
+     * How often to check the index file for changes and reload it; zero disables the check.
+     */
+    private Duration reloadInterval = Duration.ofSeconds(30);
+
+    public String getIndexFile() {
+        return indexFile;
+    }
+
+    public void setIndexFile(String indexFile) {
+        this.indexFile = indexFile;
+    }
+
+    public Duration getReloadInterval() {
+        return reloadInterval;
+    }
+
+    public void setReloadInterval(Duration reloadInterval) {
+        this.reloadInterval = reloadInterval;
+    }
+}
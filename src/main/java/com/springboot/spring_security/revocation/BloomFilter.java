@@ -0,0 +1,90 @@
+package com.springboot.spring_security.revocation;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size Bloom filter over 128-bit keys given as two longs.
+ * <p>
+ * The bit positions are derived from the two halves by double hashing (h1 + i * h2, with h2 made odd), so no further hashing is done per probe.
+ * Bits are only ever set, with a CAS per word, and read with plain volatile reads: a key added before a lookup starts is always found.
+ */
+final class BloomFilter {
+
+    private final AtomicLongArray words;
+
+    private final long bits;
+
+    private final int hashFunctions;
+
+    private final int capacity;
+
+    /**
+     * @param capacity          keys the filter is sized for
+     * @param falsePositiveRate wanted false-positive rate at that many keys
+     */
+    BloomFilter(int capacity, double falsePositiveRate) {
+        if (capacity <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid capacity " + capacity + " or false-positive rate " + falsePositiveRate);
+        }
+        long optimalBits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.words = new AtomicLongArray((int) Math.max(1, (optimalBits + 63) >>> 6));
+        this.bits = (long) words.length() << 6;
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bits / capacity * Math.log(2)));
+        this.capacity = capacity;
+    }
+
+    void add(long h1, long h2) {
+        long combined = h1;
+        long step = h2 | 1;
+        for (int i = 0; i < hashFunctions; i++, combined += step) {
+            long bit = (combined & Long.MAX_VALUE) % bits;
+            int index = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long word;
+            while (((word = words.get(index)) & mask) == 0 && !words.compareAndSet(index, word, word | mask)) {
+                // another bit of the word was set meanwhile
+            }
+        }
+    }
+
+    boolean mightContain(long h1, long h2) {
+        long combined = h1;
+        long step = h2 | 1;
+        for (int i = 0; i < hashFunctions; i++, combined += step) {
+            long bit = (combined & Long.MAX_VALUE) % bits;
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The false-positive rate to expect with the bits set now: the chance that all the probed bits of an absent key are set.
+     *
+     * @return
+     */
+    double expectedFalsePositiveRate() {
+        long set = 0;
+        for (int i = 0; i < words.length(); i++) {
+            set += Long.bitCount(words.get(i));
+        }
+        return Math.pow((double) set / bits, hashFunctions);
+    }
+
+    long bits() {
+        return bits;
+    }
+
+    int hashFunctions() {
+        return hashFunctions;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    long sizeInBytes() {
+        return (long) words.length() * Long.BYTES;
+    }
+}
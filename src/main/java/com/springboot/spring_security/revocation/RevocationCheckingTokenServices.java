@@ -0,0 +1,36 @@
+package com.springboot.spring_security.revocation;
+
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+
+/**
+ * The token services of the resource server, rejecting the tokens of the RevocationIndex before the delegate looks at them.
+ * This is what makes signed tokens revocable: the delegate checks their signature and expiry only.
+ */
+public class RevocationCheckingTokenServices implements ResourceServerTokenServices {
+
+    private final ResourceServerTokenServices delegate;
+
+    private final RevocationIndex revocationIndex;
+
+    public RevocationCheckingTokenServices(ResourceServerTokenServices delegate, RevocationIndex revocationIndex) {
+        this.delegate = delegate;
+        this.revocationIndex = revocationIndex;
+    }
+
+    @Override
+    public OAuth2Authentication loadAuthentication(String accessToken) throws AuthenticationException, InvalidTokenException {
+        if (revocationIndex.isRevoked(accessToken)) {
+            throw new InvalidTokenException("Token was revoked: " + accessToken);
+        }
+        return delegate.loadAuthentication(accessToken);
+    }
+
+    @Override
+    public OAuth2AccessToken readAccessToken(String accessToken) {
+        return revocationIndex.isRevoked(accessToken) ? null : delegate.readAccessToken(accessToken);
+    }
+}
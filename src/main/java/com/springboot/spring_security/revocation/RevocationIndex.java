@@ -0,0 +1,350 @@
+package com.springboot.spring_security.revocation;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The revoked access tokens, checked on every request of the resource server.
+ * <p>
+ * A token is known by a 128-bit hash of its value, never by the value itself. Revocations are appended to a log file
+ * (hash and expiry, fixed-size records), put in the exact set of revoked hashes and added to a Bloom filter.
+ * A check asks the Bloom filter first, so the usual answer, "not revoked", costs the hash and a few bit probes;
+ * only when the filter answers "maybe" is the exact set looked at.
+ * <p>
+ * A revoked token only has to stay revoked until it expires. The filter is rebuilt periodically (and as soon as it holds more
+ * revocations than it was sized for) from the entries that have not expired yet, and the log is rewritten with them,
+ * so neither grows with revocations that no longer matter. Bits cannot be removed from a Bloom filter, hence the rebuild.
+ * <p>
+ * Checks are lock-free; revocations and rebuilds are serialized by a lock.
+ */
+public class RevocationIndex implements Closeable {
+
+    private static final Log logger = LogFactory.getLog(RevocationIndex.class);
+
+    /**
+     * hash (16) + expiresAt (8)
+     */
+    private static final int RECORD_SIZE = 24;
+
+    /**
+     * Rough heap size of one entry of the exact set: the key, the boxed expiry, the map node and its table slot.
+     */
+    private static final int ENTRY_OVERHEAD = 88;
+
+    private static final long SEED_1 = 0x5851F42D4C957F2DL;
+
+    private static final long SEED_2 = 0x14057B7EF767814FL;
+
+    private final Path file;
+
+    private final int expectedRevocations;
+
+    private final double falsePositiveRate;
+
+    private final Clock clock;
+
+    private final Map<TokenHash, Long> revoked = new ConcurrentHashMap<>();
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private final ScheduledExecutorService rebuilder;
+
+    private final LongAdder checks = new LongAdder();
+
+    private final LongAdder bloomHits = new LongAdder();
+
+    private final LongAdder revokedHits = new LongAdder();
+
+    private final LongAdder revocations = new LongAdder();
+
+    private final LongAdder rebuilds = new LongAdder();
+
+    private volatile BloomFilter filter;
+
+    private volatile Duration lastRebuild = Duration.ZERO;
+
+    private FileChannel log;
+
+    /**
+     * @param file                the revocation log; created if missing
+     * @param expectedRevocations unexpired revocations the Bloom filter is sized for at least
+     * @param falsePositiveRate   wanted false-positive rate of the Bloom filter at that size
+     * @param rebuildInterval     how often expired revocations are dropped, zero to only rebuild when the filter fills up
+     * @param clock
+     */
+    public RevocationIndex(Path file, int expectedRevocations, double falsePositiveRate, Duration rebuildInterval, Clock clock) throws IOException {
+        this.file = file;
+        this.expectedRevocations = expectedRevocations;
+        this.falsePositiveRate = falsePositiveRate;
+        this.clock = clock;
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        load();
+        rebuild();
+        if (rebuildInterval.isZero()) {
+            this.rebuilder = null;
+        } else {
+            this.rebuilder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "revocation-index-rebuilder");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long millis = rebuildInterval.toMillis();
+            this.rebuilder.scheduleWithFixedDelay(this::rebuildQuietly, millis, millis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Revokes the token until it expires; the record is on disk when this returns.
+     *
+     * @param tokenValue
+     * @param expiresAt  epoch millis after which the token is invalid anyway
+     */
+    public void revoke(String tokenValue, long expiresAt) {
+        if (expiresAt <= clock.millis()) {
+            return;
+        }
+        TokenHash hash = TokenHash.of(tokenValue);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE).putLong(hash.h1).putLong(hash.h2).putLong(expiresAt);
+        record.flip();
+        writeLock.lock();
+        try {
+            while (record.hasRemaining()) {
+                log.write(record);
+            }
+            log.force(false);
+            // the exact set before the filter: whoever sees the bits finds the entry
+            revoked.merge(hash, expiresAt, Math::max);
+            filter.add(hash.h1, hash.h2);
+            revocations.increment();
+            if (revoked.size() > filter.capacity()) {
+                rebuild();
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not append to the revocation log " + file, ex);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @param tokenValue
+     * @return whether the token has been revoked (and has not expired since, as far as the last rebuild knows)
+     */
+    public boolean isRevoked(String tokenValue) {
+        checks.increment();
+        long h1 = TokenHash.hash(tokenValue, SEED_1);
+        long h2 = TokenHash.hash(tokenValue, SEED_2);
+        if (!filter.mightContain(h1, h2)) {
+            return false;
+        }
+        bloomHits.increment();
+        if (revoked.containsKey(new TokenHash(h1, h2))) {
+            revokedHits.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Drops the expired revocations, builds a Bloom filter of the others, sized for twice as many or the expected revocations,
+     * whichever is more, and rewrites the log with them.
+     */
+    public void rebuild() {
+        writeLock.lock();
+        try {
+            long start = System.nanoTime();
+            long now = clock.millis();
+            revoked.values().removeIf(expiresAt -> expiresAt <= now);
+            BloomFilter rebuilt = new BloomFilter(Math.max(expectedRevocations, revoked.size() * 2), falsePositiveRate);
+            revoked.keySet().forEach(hash -> rebuilt.add(hash.h1, hash.h2));
+            rewriteLog();
+            filter = rebuilt;
+            rebuilds.increment();
+            lastRebuild = Duration.ofNanos(System.nanoTime() - start);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not rewrite the revocation log " + file, ex);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (RuntimeException ex) {
+            logger.warn("Revocation index rebuild failed", ex);
+        }
+    }
+
+    /**
+     * Reads the unexpired records of the log; a torn record at the end, from a crash in the middle of an append, is ignored.
+     *
+     * @throws IOException
+     */
+    private void load() throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        long now = clock.millis();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * 1024);
+            while (channel.read(buffer) > 0 || buffer.position() >= RECORD_SIZE) {
+                buffer.flip();
+                while (buffer.remaining() >= RECORD_SIZE) {
+                    TokenHash hash = new TokenHash(buffer.getLong(), buffer.getLong());
+                    long expiresAt = buffer.getLong();
+                    if (expiresAt > now) {
+                        revoked.merge(hash, expiresAt, Math::max);
+                    }
+                }
+                buffer.compact();
+            }
+        }
+    }
+
+    private void rewriteLog() throws IOException {
+        Path rewritten = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(rewritten, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * 1024);
+            for (Map.Entry<TokenHash, Long> entry : revoked.entrySet()) {
+                if (buffer.remaining() < RECORD_SIZE) {
+                    write(channel, buffer);
+                }
+                buffer.putLong(entry.getKey().h1).putLong(entry.getKey().h2).putLong(entry.getValue());
+            }
+            write(channel, buffer);
+            channel.force(true);
+        }
+        if (log != null) {
+            log.close();
+        }
+        Files.move(rewritten, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * @return the revoked tokens held now and the revocations since startup; the checks, how many the Bloom filter let through
+     * (bloomHits) and how many of those were revoked, so the falsePositives and their rate next to the expected one;
+     * the capacity, bits and hash functions of the filter; the bytes of the filter, the exact set and the log (-1 if unreadable);
+     * and the rebuilds with how long the last one took
+     */
+    public Map<String, Object> stats() {
+        BloomFilter filter = this.filter;
+        long checks = this.checks.sum();
+        long bloomHits = this.bloomHits.sum();
+        long revokedHits = this.revokedHits.sum();
+        long negatives = checks - revokedHits;
+        int entries = revoked.size();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("revoked", entries);
+        stats.put("revocations", revocations.sum());
+        stats.put("checks", checks);
+        stats.put("bloomHits", bloomHits);
+        stats.put("revokedHits", revokedHits);
+        stats.put("falsePositives", bloomHits - revokedHits);
+        stats.put("falsePositiveRate", negatives == 0 ? 0.0 : (double) (bloomHits - revokedHits) / negatives);
+        stats.put("expectedFalsePositiveRate", filter.expectedFalsePositiveRate());
+        stats.put("bloomCapacity", filter.capacity());
+        stats.put("bloomBits", filter.bits());
+        stats.put("bloomHashFunctions", filter.hashFunctions());
+        stats.put("bloomBytes", filter.sizeInBytes());
+        stats.put("exactSetBytes", (long) entries * ENTRY_OVERHEAD);
+        try {
+            stats.put("logBytes", Files.size(file));
+        } catch (IOException ex) {
+            stats.put("logBytes", -1L);
+        }
+        stats.put("rebuilds", rebuilds.sum());
+        stats.put("lastRebuild", lastRebuild.toString());
+        return stats;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (rebuilder != null) {
+            rebuilder.shutdownNow();
+        }
+        writeLock.lock();
+        try {
+            log.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Two independent 64-bit hashes of a token value: the key of the exact set and the input of the Bloom filter's double hashing.
+     * They need not be cryptographic: a collision only makes a token look revoked, it can never make a revoked token pass.
+     */
+    private static final class TokenHash {
+
+        private final long h1;
+
+        private final long h2;
+
+        TokenHash(long h1, long h2) {
+            this.h1 = h1;
+            this.h2 = h2;
+        }
+
+        static TokenHash of(String value) {
+            return new TokenHash(hash(value, SEED_1), hash(value, SEED_2));
+        }
+
+        static long hash(String value, long seed) {
+            long h = seed ^ value.length() * 0x9E3779B97F4A7C15L;
+            for (int i = 0; i < value.length(); i++) {
+                h = Long.rotateLeft(h ^ value.charAt(i) * 0xC2B2AE3D27D4EB4FL, 31) * 0x9E3779B97F4A7C15L;
+            }
+            h ^= h >>> 33;
+            h *= 0xFF51AFD7ED558CCDL;
+            h ^= h >>> 33;
+            h *= 0xC4CEB9FE1A85EC53L;
+            return h ^ h >>> 33;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof TokenHash)) {
+                return false;
+            }
+            TokenHash hash = (TokenHash) other;
+            return h1 == hash.h1 && h2 == hash.h2;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (h1 ^ h1 >>> 32);
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package com.springboot.spring_security.session;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.core.serializer.support.DeserializingConverter;
+import org.springframework.core.serializer.support.SerializingConverter;
+import org.springframework.session.MapSession;
+import org.springframework.session.Session;
+import org.springframework.session.SessionRepository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A Spring Session SessionRepository that keeps the serialized session attributes outside the Java heap,
+ * so hundreds of thousands of form-login and SSO sessions do not have to be traced and copied by the garbage collector.
+ * <p>
+ * Sessions are spread over lock stripes by id. Each stripe holds its sessions in a direct buffer, or in a memory-mapped file
+ * when a directory is given, in which case the sessions survive a restart. Loading a session deserializes its attributes;
+ * saving a session whose attributes did not change only updates its access time in place.
+ * <p>
+ * Expiry is driven by a timer wheel per stripe, advanced by a background thread, so expiring sessions does not scan the whole store.
+ * Expired sessions are also never returned by {@link #findById}, even before the wheel has reached them.
+ */
+public class OffHeapSessionRepository implements SessionRepository<OffHeapSessionRepository.OffHeapSession>, Closeable {
+
+    private static final Log logger = LogFactory.getLog(OffHeapSessionRepository.class);
+
+    private static final int WHEEL_SIZE = 4096;
+
+    private final SessionStripe[] stripes;
+
+    private final SerializingConverter serializer = new SerializingConverter();
+
+    private final DeserializingConverter deserializer;
+
+    private final ScheduledExecutorService expirer;
+
+    private final LongAdder expired = new LongAdder();
+
+    private Duration defaultMaxInactiveInterval = Duration.ofSeconds(MapSession.DEFAULT_MAX_INACTIVE_INTERVAL_SECONDS);
+
+    private Clock clock = Clock.systemUTC();
+
+    /**
+     * @param stripeCount      number of lock stripes, a power of two
+     * @param initialCapacity  initial off-heap bytes of all stripes together; stripes grow when full
+     * @param directory        where to persist the sessions, or null to keep them in direct memory only
+     * @param expiryResolution tick of the timer wheels, and how often expired sessions are removed; zero disables the background expiry
+     * @throws IOException if the session files cannot be opened
+     */
+    public OffHeapSessionRepository(int stripeCount, int initialCapacity, Path directory, Duration expiryResolution) throws IOException {
+        if (Integer.bitCount(stripeCount) != 1) {
+            throw new IllegalArgumentException("The number of stripes must be a power of two");
+        }
+        this.deserializer = new DeserializingConverter(getClass().getClassLoader());
+        this.stripes = new SessionStripe[stripeCount];
+        long tick = expiryResolution.isZero() ? 1000 : expiryResolution.toMillis();
+        long now = this.clock.millis();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        for (int i = 0; i < stripeCount; i++) {
+            TimerWheel wheel = new TimerWheel(tick, WHEEL_SIZE);
+            this.stripes[i] = directory != null
+                    ? SessionStripe.mapped(directory.resolve(String.format("sessions-%02d.dat", i)), stripeCount, initialCapacity / stripeCount, wheel, now)
+                    : SessionStripe.inMemory(initialCapacity / stripeCount, wheel);
+        }
+        if (directory != null) {
+            logger.info("Loaded " + getSessionCount() + " sessions from " + directory);
+        }
+        if (expiryResolution.isZero()) {
+            this.expirer = null;
+        } else {
+            this.expirer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "off-heap-session-expirer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.expirer.scheduleWithFixedDelay(this::cleanUpExpiredSessionsQuietly, tick, tick, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public OffHeapSession createSession() {
+        MapSession session = new MapSession();
+        Instant now = this.clock.instant();
+        session.setCreationTime(now);
+        session.setLastAccessedTime(now);
+        session.setMaxInactiveInterval(this.defaultMaxInactiveInterval);
+        return new OffHeapSession(session, null);
+    }
+
+    @Override
+    public void save(OffHeapSession session) {
+        String id = session.getId();
+        if (session.originalId != null && !session.originalId.equals(id)) {
+            deleteById(session.originalId);
+            session.originalId = null;
+        }
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(idBytes);
+        long lastAccessedTime = session.getLastAccessedTime().toEpochMilli();
+        int maxInactiveSeconds = (int) session.getMaxInactiveInterval().getSeconds();
+        SessionStripe stripe = stripe(hash);
+        if (session.originalId != null && !session.changed) {
+            stripe.lock.lock();
+            try {
+                if (stripe.touch(idBytes, hash, lastAccessedTime, maxInactiveSeconds, this.clock.millis())) {
+                    return;
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        // serialize outside of the lock
+        byte[] payload = this.serializer.convert(attributes(session));
+        stripe.lock.lock();
+        try {
+            stripe.write(idBytes, hash, session.getCreationTime().toEpochMilli(), lastAccessedTime, maxInactiveSeconds, payload, this.clock.millis());
+        } finally {
+            stripe.lock.unlock();
+        }
+        session.originalId = id;
+        session.changed = false;
+    }
+
+    @Override
+    public OffHeapSession findById(String id) {
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(idBytes);
+        SessionStripe stripe = stripe(hash);
+        SessionStripe.StoredSession stored;
+        stripe.lock.lock();
+        try {
+            stored = stripe.read(idBytes, hash, this.clock.millis());
+        } finally {
+            stripe.lock.unlock();
+        }
+        if (stored == null) {
+            return null;
+        }
+        MapSession session = new MapSession(id);
+        session.setCreationTime(Instant.ofEpochMilli(stored.creationTime));
+        session.setLastAccessedTime(Instant.ofEpochMilli(stored.lastAccessedTime));
+        session.setMaxInactiveInterval(Duration.ofSeconds(stored.maxInactiveSeconds));
+        @SuppressWarnings("unchecked")
+        Map<String, Object> attributes = (Map<String, Object>) this.deserializer.convert(stored.payload);
+        attributes.forEach(session::setAttribute);
+        return new OffHeapSession(session, id);
+    }
+
+    @Override
+    public void deleteById(String id) {
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(idBytes);
+        SessionStripe stripe = stripe(hash);
+        stripe.lock.lock();
+        try {
+            stripe.delete(idBytes, hash);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the sessions that came due on the timer wheels since the last call. Runs on the background thread,
+     * but can be called directly, e.g. when the background expiry is disabled.
+     *
+     * @return the number of sessions removed
+     */
+    public int cleanUpExpiredSessions() {
+        long now = this.clock.millis();
+        int count = 0;
+        for (SessionStripe stripe : this.stripes) {
+            stripe.lock.lock();
+            try {
+                count += stripe.expire(now);
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        this.expired.add(count);
+        return count;
+    }
+
+    public int getSessionCount() {
+        int count = 0;
+        for (SessionStripe stripe : this.stripes) {
+            stripe.lock.lock();
+            try {
+                count += stripe.getSessionCount();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the live sessions and the stripes they are spread over; off-heap, the bytes of their records (payloadBytes),
+     * the bytes written including stale records not compacted yet (usedBytes) and the size of the arenas (capacityBytes); and the sessions expired so far
+     */
+    public Map<String, Object> stats() {
+        int sessions = 0;
+        long payloadBytes = 0;
+        long usedBytes = 0;
+        long capacity = 0;
+        for (SessionStripe stripe : this.stripes) {
+            stripe.lock.lock();
+            try {
+                sessions += stripe.getSessionCount();
+                payloadBytes += stripe.getPayloadBytes();
+                usedBytes += stripe.getUsedBytes();
+                capacity += stripe.getCapacity();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sessions", sessions);
+        stats.put("stripes", this.stripes.length);
+        stats.put("payloadBytes", payloadBytes);
+        stats.put("usedBytes", usedBytes);
+        stats.put("capacityBytes", capacity);
+        stats.put("expired", this.expired.sum());
+        return stats;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.expirer != null) {
+            this.expirer.shutdownNow();
+        }
+        for (SessionStripe stripe : this.stripes) {
+            stripe.lock.lock();
+            try {
+                stripe.close();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    public void setDefaultMaxInactiveInterval(Duration defaultMaxInactiveInterval) {
+        this.defaultMaxInactiveInterval = defaultMaxInactiveInterval;
+    }
+
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    private void cleanUpExpiredSessionsQuietly() {
+        try {
+            cleanUpExpiredSessions();
+        } catch (RuntimeException ex) {
+            logger.warn("Session expiry failed", ex);
+        }
+    }
+
+    private SessionStripe stripe(int hash) {
+        // the index inside a stripe uses the low bits of the hash, so pick the stripe by the high bits
+        return this.stripes[(hash >>> 16) & (this.stripes.length - 1)];
+    }
+
+    /**
+     * FNV-1a of the id bytes.
+     */
+    private static int hash(byte[] id) {
+        int hash = 0x811C9DC5;
+        for (byte b : id) {
+            hash ^= b & 0xFF;
+            hash *= 0x01000193;
+        }
+        return hash;
+    }
+
+    private static HashMap<String, Object> attributes(Session session) {
+        HashMap<String, Object> attributes = new HashMap<>();
+        for (String name : session.getAttributeNames()) {
+            attributes.put(name, session.getAttribute(name));
+        }
+        return attributes;
+    }
+
+    /**
+     * A session loaded from (or about to be stored in) the repository. It remembers whether its attributes changed,
+     * so saving an unchanged session does not serialize it again, and the id it was stored under, so a changed id replaces the old entry.
+     */
+    public static final class OffHeapSession implements Session {
+
+        private final MapSession delegate;
+
+        private String originalId;
+
+        private boolean changed;
+
+        OffHeapSession(MapSession delegate, String originalId) {
+            this.delegate = delegate;
+            this.originalId = originalId;
+        }
+
+        @Override
+        public String getId() {
+            return delegate.getId();
+        }
+
+        @Override
+        public String changeSessionId() {
+            return delegate.changeSessionId();
+        }
+
+        @Override
+        public <T> T getAttribute(String attributeName) {
+            return delegate.getAttribute(attributeName);
+        }
+
+        @Override
+        public Set<String> getAttributeNames() {
+            return delegate.getAttributeNames();
+        }
+
+        @Override
+        public void setAttribute(String attributeName, Object attributeValue) {
+            delegate.setAttribute(attributeName, attributeValue);
+            changed = true;
+        }
+
+        @Override
+        public void removeAttribute(String attributeName) {
+            delegate.removeAttribute(attributeName);
+            changed = true;
+        }
+
+        @Override
+        public Instant getCreationTime() {
+            return delegate.getCreationTime();
+        }
+
+        @Override
+        public void setLastAccessedTime(Instant lastAccessedTime) {
+            delegate.setLastAccessedTime(lastAccessedTime);
+        }
+
+        @Override
+        public Instant getLastAccessedTime() {
+            return delegate.getLastAccessedTime();
+        }
+
+        @Override
+        public void setMaxInactiveInterval(Duration interval) {
+            delegate.setMaxInactiveInterval(interval);
+        }
+
+        @Override
+        public Duration getMaxInactiveInterval() {
+            return delegate.getMaxInactiveInterval();
+        }
+
+        @Override
+        public boolean isExpired() {
+            return delegate.isExpired();
+        }
+    }
+}
@@ -0,0 +1,472 @@
+package com.springboot.spring_security.session;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One lock stripe of the OffHeapSessionRepository: an arena of session blocks outside the Java heap,
+ * an off-heap open-addressing index from session id to block, and a timer wheel for expiry.
+ * <p>
+ * The arena is a direct buffer, or a memory-mapped file when the sessions should survive a restart.
+ * It starts with a small file header, followed by blocks whose sizes are powers of two:
+ * <pre>
+ * [int size][int generation][byte state][3 unused][long creationTime][long lastAccessedTime][int maxInactiveSeconds]
+ * [int hash][short idLength][int payloadLength][id][payload]
+ * </pre>
+ * Freed blocks go to a free list per size, linked through the creationTime field, and are reused before the arena grows.
+ * The generation of a block changes whenever it is freed, so stale timer wheel entries pointing at a reused block are recognized and dropped.
+ * <p>
+ * Only the free list heads and the timer wheel's primitive arrays live on the heap; all methods run under the stripe lock.
+ */
+class SessionStripe {
+
+    private static final int MAGIC = 0x53455353;
+
+    private static final int FILE_HEADER = 16;
+    private static final int FILE_STRIPES = 4;
+    private static final int FILE_TOP = 8;
+
+    private static final int SIZE = 0;
+    private static final int GENERATION = 4;
+    private static final int STATE = 8;
+    private static final int NEXT_FREE = 12;
+    private static final int CREATION_TIME = 12;
+    private static final int LAST_ACCESSED_TIME = 20;
+    private static final int MAX_INACTIVE = 28;
+    private static final int HASH = 32;
+    private static final int ID_LENGTH = 36;
+    private static final int PAYLOAD_LENGTH = 38;
+    private static final int ID = 42;
+
+    private static final byte FREE = 0;
+    private static final byte LIVE = 1;
+
+    private static final int MIN_BLOCK_SHIFT = 7;
+
+    private static final int EMPTY = 0;
+    private static final int TOMBSTONE = -1;
+
+    final ReentrantLock lock = new ReentrantLock();
+
+    private final FileChannel channel;
+
+    private final TimerWheel wheel;
+
+    private ByteBuffer arena;
+
+    private int top;
+
+    /**
+     * Head of the free list of each block size (128 << index), 0 when empty.
+     */
+    private final int[] freeHeads = new int[31 - MIN_BLOCK_SHIFT];
+
+    /**
+     * Slots of [int block offset + 1 (0 empty, -1 removed)][int hash].
+     */
+    private ByteBuffer index;
+
+    private int slots;
+
+    private int sessions;
+
+    private int tombstones;
+
+    private long payloadBytes;
+
+    private SessionStripe(FileChannel channel, ByteBuffer arena, TimerWheel wheel) {
+        this.channel = channel;
+        this.arena = arena;
+        this.wheel = wheel;
+        this.index = ByteBuffer.allocateDirect(1024 * 8);
+        this.slots = 1024;
+    }
+
+    static SessionStripe inMemory(int capacity, TimerWheel wheel) {
+        SessionStripe stripe = new SessionStripe(null, ByteBuffer.allocateDirect(Math.max(capacity, FILE_HEADER + 1024)), wheel);
+        stripe.format(0);
+        return stripe;
+    }
+
+    /**
+     * Maps the stripe file, creating it if needed, and rebuilds the index, free lists and timer wheel from its blocks.
+     * Sessions that expired while the application was down are freed right away.
+     */
+    static SessionStripe mapped(Path file, int stripeCount, int capacity, TimerWheel wheel, long now) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = Math.max(channel.size(), Math.max(capacity, FILE_HEADER + 1024));
+        SessionStripe stripe = new SessionStripe(channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size), wheel);
+        if (stripe.arena.getInt(0) == MAGIC && stripe.arena.getInt(FILE_STRIPES) == stripeCount) {
+            stripe.recover(now);
+        } else {
+            stripe.format(stripeCount);
+        }
+        return stripe;
+    }
+
+    private void format(int stripeCount) {
+        arena.putInt(0, MAGIC);
+        arena.putInt(FILE_STRIPES, stripeCount);
+        setTop(FILE_HEADER);
+    }
+
+    private void recover(long now) {
+        top = arena.getInt(FILE_TOP);
+        for (int offset = FILE_HEADER; offset < top; offset += arena.getInt(offset + SIZE)) {
+            if (arena.get(offset + STATE) != LIVE) {
+                pushFree(offset);
+                continue;
+            }
+            int hash = arena.getInt(offset + HASH);
+            int existing = findSlot(offset, hash);
+            if (existing >= 0) {
+                // a crash between writing a session's new block and freeing its old one: keep the newer copy
+                int other = index.getInt(existing * 8) - 1;
+                if (arena.getLong(other + LAST_ACCESSED_TIME) >= arena.getLong(offset + LAST_ACCESSED_TIME)) {
+                    release(offset);
+                    continue;
+                }
+                index.putInt(existing * 8, offset + 1);
+                payloadBytes -= arena.getInt(other + PAYLOAD_LENGTH);
+                release(other);
+                sessions--;
+            } else {
+                insertSlot(offset, hash);
+            }
+            sessions++;
+            payloadBytes += arena.getInt(offset + PAYLOAD_LENGTH);
+            if (deadline(offset) <= now) {
+                remove(offset);
+            } else {
+                schedule(offset, now);
+            }
+        }
+    }
+
+    /**
+     * @return the stored session, or null if there is none or it has expired (in which case it is removed)
+     */
+    StoredSession read(byte[] id, int hash, long now) {
+        int slot = findSlot(id, hash);
+        if (slot < 0) {
+            return null;
+        }
+        int offset = index.getInt(slot * 8) - 1;
+        if (deadline(offset) <= now) {
+            remove(offset);
+            return null;
+        }
+        byte[] payload = new byte[arena.getInt(offset + PAYLOAD_LENGTH)];
+        ByteBuffer view = arena.duplicate();
+        view.position(offset + ID + id.length);
+        view.get(payload);
+        return new StoredSession(arena.getLong(offset + CREATION_TIME), arena.getLong(offset + LAST_ACCESSED_TIME), arena.getInt(offset + MAX_INACTIVE), payload);
+    }
+
+    /**
+     * Updates the access time and timeout of a stored session in place, without rewriting its attributes.
+     *
+     * @return false if the session is not stored here
+     */
+    boolean touch(byte[] id, int hash, long lastAccessedTime, int maxInactiveSeconds, long now) {
+        int slot = findSlot(id, hash);
+        if (slot < 0) {
+            return false;
+        }
+        int offset = index.getInt(slot * 8) - 1;
+        long previousDeadline = deadline(offset);
+        arena.putLong(offset + LAST_ACCESSED_TIME, lastAccessedTime);
+        arena.putInt(offset + MAX_INACTIVE, maxInactiveSeconds);
+        // a later deadline is picked up lazily when the wheel reaches the old one; an earlier one needs its own entry
+        if (deadline(offset) < previousDeadline) {
+            schedule(offset, now);
+        }
+        return true;
+    }
+
+    /**
+     * Stores a session, replacing the stored copy if there is one. The new block is complete before the old one is freed.
+     */
+    void write(byte[] id, int hash, long creationTime, long lastAccessedTime, int maxInactiveSeconds, byte[] payload, long now) {
+        int offset = allocate(ID + id.length + payload.length);
+        arena.putLong(offset + CREATION_TIME, creationTime);
+        arena.putLong(offset + LAST_ACCESSED_TIME, lastAccessedTime);
+        arena.putInt(offset + MAX_INACTIVE, maxInactiveSeconds);
+        arena.putInt(offset + HASH, hash);
+        arena.putShort(offset + ID_LENGTH, (short) id.length);
+        arena.putInt(offset + PAYLOAD_LENGTH, payload.length);
+        ByteBuffer view = arena.duplicate();
+        view.position(offset + ID);
+        view.put(id);
+        view.put(payload);
+        arena.put(offset + STATE, LIVE);
+
+        int slot = findSlot(id, hash);
+        if (slot >= 0) {
+            int previous = index.getInt(slot * 8) - 1;
+            index.putInt(slot * 8, offset + 1);
+            payloadBytes -= arena.getInt(previous + PAYLOAD_LENGTH);
+            release(previous);
+        } else {
+            insertSlot(offset, hash);
+            sessions++;
+        }
+        payloadBytes += payload.length;
+        schedule(offset, now);
+    }
+
+    void delete(byte[] id, int hash) {
+        int slot = findSlot(id, hash);
+        if (slot >= 0) {
+            remove(index.getInt(slot * 8) - 1);
+        }
+    }
+
+    /**
+     * Removes the sessions whose deadline has passed, visiting only the timer wheel slots that came due.
+     *
+     * @return the number of expired sessions
+     */
+    int expire(long now) {
+        int[] expired = new int[1];
+        wheel.advance(now, entry -> {
+            int offset = (int) (entry >>> 32);
+            if (arena.get(offset + STATE) != LIVE || arena.getInt(offset + GENERATION) != (int) entry || arena.getInt(offset + MAX_INACTIVE) < 0) {
+                return;
+            }
+            long deadline = deadline(offset);
+            if (deadline <= now) {
+                remove(offset);
+                expired[0]++;
+            } else {
+                wheel.schedule(entry, deadline, now);
+            }
+        });
+        return expired[0];
+    }
+
+    int getSessionCount() {
+        return sessions;
+    }
+
+    long getPayloadBytes() {
+        return payloadBytes;
+    }
+
+    long getUsedBytes() {
+        return top;
+    }
+
+    long getCapacity() {
+        return arena.capacity();
+    }
+
+    void force() {
+        if (channel != null) {
+            ((MappedByteBuffer) arena).force();
+        }
+    }
+
+    void close() throws IOException {
+        force();
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private long deadline(int offset) {
+        int maxInactive = arena.getInt(offset + MAX_INACTIVE);
+        return maxInactive < 0 ? Long.MAX_VALUE : arena.getLong(offset + LAST_ACCESSED_TIME) + maxInactive * 1000L;
+    }
+
+    private void schedule(int offset, long now) {
+        if (arena.getInt(offset + MAX_INACTIVE) >= 0) {
+            wheel.schedule(((long) offset << 32) | (arena.getInt(offset + GENERATION) & 0xFFFFFFFFL), deadline(offset), now);
+        }
+    }
+
+    private void remove(int offset) {
+        int slot = findSlot(offset, arena.getInt(offset + HASH));
+        if (slot >= 0) {
+            index.putInt(slot * 8, TOMBSTONE);
+            tombstones++;
+        }
+        sessions--;
+        payloadBytes -= arena.getInt(offset + PAYLOAD_LENGTH);
+        release(offset);
+    }
+
+    private int allocate(int length) {
+        int sizeClass = sizeClass(length);
+        int offset = freeHeads[sizeClass];
+        if (offset != 0) {
+            freeHeads[sizeClass] = arena.getInt(offset + NEXT_FREE);
+            return offset;
+        }
+        int size = 1 << (sizeClass + MIN_BLOCK_SHIFT);
+        offset = top;
+        ensureCapacity((long) offset + size);
+        arena.putInt(offset + SIZE, size);
+        arena.putInt(offset + GENERATION, 0);
+        arena.put(offset + STATE, FREE);
+        setTop(offset + size);
+        return offset;
+    }
+
+    private void release(int offset) {
+        arena.put(offset + STATE, FREE);
+        arena.putInt(offset + GENERATION, arena.getInt(offset + GENERATION) + 1);
+        pushFree(offset);
+    }
+
+    private void pushFree(int offset) {
+        int sizeClass = Integer.numberOfTrailingZeros(arena.getInt(offset + SIZE)) - MIN_BLOCK_SHIFT;
+        arena.putInt(offset + NEXT_FREE, freeHeads[sizeClass]);
+        freeHeads[sizeClass] = offset;
+    }
+
+    private static int sizeClass(int length) {
+        int size = Math.max(length, 1 << MIN_BLOCK_SHIFT);
+        int shift = 32 - Integer.numberOfLeadingZeros(size - 1);
+        return shift - MIN_BLOCK_SHIFT;
+    }
+
+    private void setTop(int top) {
+        this.top = top;
+        arena.putInt(FILE_TOP, top);
+    }
+
+    /**
+     * Doubles the arena until the requested size fits; a mapped arena grows its file.
+     */
+    private void ensureCapacity(long required) {
+        if (required <= arena.capacity()) {
+            return;
+        }
+        if (required > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Session stripe is full");
+        }
+        long capacity = arena.capacity();
+        while (capacity < required) {
+            capacity = Math.min(capacity * 2, Integer.MAX_VALUE - 8);
+        }
+        if (channel != null) {
+            try {
+                arena = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            } catch (IOException ex) {
+                throw new IllegalStateException("Could not grow the session file", ex);
+            }
+        } else {
+            ByteBuffer grown = ByteBuffer.allocateDirect((int) capacity);
+            ByteBuffer used = arena.duplicate();
+            used.position(0).limit(top);
+            grown.put(used);
+            grown.clear();
+            arena = grown;
+        }
+    }
+
+    private int findSlot(byte[] id, int hash) {
+        int mask = slots - 1;
+        for (int i = hash & mask, probes = 0; probes < slots; i = (i + 1) & mask, probes++) {
+            int ref = index.getInt(i * 8);
+            if (ref == EMPTY) {
+                return -1;
+            }
+            if (ref != TOMBSTONE && index.getInt(i * 8 + 4) == hash && idEquals(ref - 1, id)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the slot holding the session with the same id as the block at the given offset.
+     */
+    private int findSlot(int offset, int hash) {
+        byte[] id = new byte[arena.getShort(offset + ID_LENGTH)];
+        ByteBuffer view = arena.duplicate();
+        view.position(offset + ID);
+        view.get(id);
+        return findSlot(id, hash);
+    }
+
+    private boolean idEquals(int offset, byte[] id) {
+        if (arena.getShort(offset + ID_LENGTH) != id.length) {
+            return false;
+        }
+        for (int i = 0; i < id.length; i++) {
+            if (arena.get(offset + ID + i) != id[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void insertSlot(int offset, int hash) {
+        if ((sessions + tombstones + 1) * 4L > slots * 3L) {
+            rehash();
+        }
+        int mask = slots - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            int ref = index.getInt(i * 8);
+            if (ref == EMPTY || ref == TOMBSTONE) {
+                if (ref == TOMBSTONE) {
+                    tombstones--;
+                }
+                index.putInt(i * 8, offset + 1);
+                index.putInt(i * 8 + 4, hash);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the index without tombstones, at a size that keeps it at most half full.
+     */
+    private void rehash() {
+        int size = 1024;
+        while ((sessions + 1) * 2L > size) {
+            size *= 2;
+        }
+        ByteBuffer old = index;
+        int oldSlots = slots;
+        index = ByteBuffer.allocateDirect(size * 8);
+        slots = size;
+        tombstones = 0;
+        int mask = size - 1;
+        for (int i = 0; i < oldSlots; i++) {
+            int ref = old.getInt(i * 8);
+            if (ref == EMPTY || ref == TOMBSTONE) {
+                continue;
+            }
+            int hash = old.getInt(i * 8 + 4);
+            int j = hash & mask;
+            while (index.getInt(j * 8) != EMPTY) {
+                j = (j + 1) & mask;
+            }
+            index.putInt(j * 8, ref);
+            index.putInt(j * 8 + 4, hash);
+        }
+    }
+
+    static final class StoredSession {
+
+        final long creationTime;
+        final long lastAccessedTime;
+        final int maxInactiveSeconds;
+        final byte[] payload;
+
+        StoredSession(long creationTime, long lastAccessedTime, int maxInactiveSeconds, byte[] payload) {
+            this.creationTime = creationTime;
+            this.lastAccessedTime = lastAccessedTime;
+            this.maxInactiveSeconds = maxInactiveSeconds;
+            this.payload = payload;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.springboot.spring_security.session;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * A hashed timer wheel of primitive long entries.
+ * <p>
+ * An entry is scheduled into the slot of its deadline tick, and {@link #advance} hands out only the entries of the slots whose tick has passed,
+ * so expiring sessions costs work proportional to the sessions that are due rather than a scan of all of them.
+ * Deadlines further away than one revolution share a slot with earlier ones; the consumer simply schedules such an entry again.
+ * Not thread-safe: each stripe of the session repository owns one and uses it under the stripe lock.
+ */
+class TimerWheel {
+
+    private final long tickMillis;
+
+    private final long[][] slots;
+
+    private final int[] counts;
+
+    private final int mask;
+
+    private long[] due = new long[64];
+
+    /**
+     * The last tick that has been advanced over, -1 until the wheel is first used.
+     */
+    private long currentTick = -1;
+
+    /**
+     * @param tickMillis resolution of the deadlines
+     * @param size       number of slots, a power of two
+     */
+    TimerWheel(long tickMillis, int size) {
+        this.tickMillis = tickMillis;
+        this.slots = new long[size][];
+        this.counts = new int[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * @param entry
+     * @param deadline epoch millis
+     * @param now      current time in epoch millis
+     */
+    void schedule(long entry, long deadline, long now) {
+        start(now);
+        long tick = Math.max(deadline / this.tickMillis, this.currentTick + 1);
+        int slot = (int) (tick & this.mask);
+        long[] entries = this.slots[slot];
+        if (entries == null) {
+            entries = this.slots[slot] = new long[8];
+        } else if (this.counts[slot] == entries.length) {
+            entries = this.slots[slot] = Arrays.copyOf(entries, entries.length * 2);
+        }
+        entries[this.counts[slot]++] = entry;
+    }
+
+    /**
+     * Moves the wheel up to now and passes every entry of the slots it went over to the consumer,
+     * which may schedule entries again. Each slot is visited at most once per call, however late the call is.
+     *
+     * @param now
+     * @param consumer
+     */
+    void advance(long now, LongConsumer consumer) {
+        start(now);
+        long target = now / this.tickMillis;
+        long steps = Math.min(target - this.currentTick, this.slots.length);
+        for (long tick = this.currentTick + 1; steps > 0; tick++, steps--) {
+            int slot = (int) (tick & this.mask);
+            int count = this.counts[slot];
+            if (count == 0) {
+                continue;
+            }
+            // detach the slot first: the consumer may schedule entries back into it
+            if (this.due.length < count) {
+                this.due = new long[Integer.highestOneBit(count) << 1];
+            }
+            System.arraycopy(this.slots[slot], 0, this.due, 0, count);
+            this.counts[slot] = 0;
+            if (this.slots[slot].length > 1024 && count < this.slots[slot].length / 4) {
+                this.slots[slot] = new long[this.slots[slot].length / 2];
+            }
+            this.currentTick = tick;
+            for (int i = 0; i < count; i++) {
+                consumer.accept(this.due[i]);
+            }
+        }
+        this.currentTick = Math.max(this.currentTick, target);
+    }
+
+    private void start(long now) {
+        if (this.currentTick < 0) {
+            this.currentTick = now / this.tickMillis;
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (int count : this.counts) {
+            size += count;
+        }
+        return size;
+    }
+}
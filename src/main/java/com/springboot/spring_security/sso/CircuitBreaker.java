@@ -0,0 +1,160 @@
+package com.springboot.spring_security.sso;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stops calling a remote service that keeps failing, so its callers fail at once instead of each waiting for a timeout.
+ * <p>
+ * Closed, every call goes through; after failureThreshold failures in a row the circuit opens and calls are refused for the openDuration.
+ * Then it is half open: a single call goes through as a probe, and its outcome closes the circuit again or opens it for another openDuration.
+ * Only the probe closes the circuit: a call that started before the circuit opened and succeeds late does not.
+ * The state is a few atomics, so asking costs nothing next to the call.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    public enum Permission {
+        REFUSED, GRANTED, PROBE;
+
+        public boolean isGranted() {
+            return this != REFUSED;
+        }
+    }
+
+    private final int failureThreshold;
+
+    private final long openMillis;
+
+    private final Clock clock;
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    /**
+     * Until when the circuit is open; 0 while closed.
+     */
+    private final AtomicLong openUntil = new AtomicLong();
+
+    private final AtomicBoolean probing = new AtomicBoolean();
+
+    private final LongAdder successes = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private final LongAdder refused = new LongAdder();
+
+    private final LongAdder opened = new LongAdder();
+
+    /**
+     * @param failureThreshold failures in a row that open the circuit
+     * @param openDuration     how long it stays open before a probe
+     * @param clock
+     */
+    public CircuitBreaker(int failureThreshold, Duration openDuration, Clock clock) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openDuration.toMillis();
+        this.clock = clock;
+    }
+
+    public State getState() {
+        long until = openUntil.get();
+        if (until == 0) {
+            return State.CLOSED;
+        }
+        return clock.millis() < until ? State.OPEN : State.HALF_OPEN;
+    }
+
+    /**
+     * Whether work that will call the service is worth starting: false only while the circuit is open, without taking a permission.
+     *
+     * @return
+     */
+    public boolean isAvailable() {
+        return getState() != State.OPEN;
+    }
+
+    /**
+     * How long the circuit stays open, or zero.
+     *
+     * @return
+     */
+    public Duration getRemainingOpenDuration() {
+        long until = openUntil.get();
+        return Duration.ofMillis(until == 0 ? 0 : Math.max(0, until - clock.millis()));
+    }
+
+    /**
+     * Asks to make a call; when granted, its outcome must be reported with {@link #onSuccess(Permission)} or {@link #onFailure(Permission)}.
+     *
+     * @return REFUSED while the circuit is open, and while half open for every call but the probe
+     */
+    public Permission tryAcquirePermission() {
+        State state = getState();
+        if (state == State.CLOSED) {
+            return Permission.GRANTED;
+        }
+        if (state == State.HALF_OPEN && probing.compareAndSet(false, true)) {
+            return Permission.PROBE;
+        }
+        refused.increment();
+        return Permission.REFUSED;
+    }
+
+    /**
+     * @param permission the permission of the call
+     */
+    public void onSuccess(Permission permission) {
+        successes.increment();
+        if (permission == Permission.PROBE) {
+            consecutiveFailures.set(0);
+            openUntil.set(0);
+            probing.set(false);
+        } else if (openUntil.get() == 0) {
+            consecutiveFailures.set(0);
+        }
+    }
+
+    /**
+     * @param permission the permission of the call
+     */
+    public void onFailure(Permission permission) {
+        failures.increment();
+        if (permission == Permission.PROBE) {
+            open();
+            probing.set(false);
+        } else if (openUntil.get() != 0) {
+            // a call that started before the circuit opened: open from now on, leaving a probe in flight alone
+            open();
+        } else if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            open();
+        }
+    }
+
+    private void open() {
+        openUntil.set(clock.millis() + openMillis);
+        consecutiveFailures.set(0);
+        opened.increment();
+    }
+
+    /**
+     * @return the state (CLOSED, OPEN or HALF_OPEN), the calls that succeeded, failed and were refused, and how often the circuit opened
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("state", getState().name());
+        stats.put("successes", successes.sum());
+        stats.put("failures", failures.sum());
+        stats.put("refused", refused.sum());
+        stats.put("opened", opened.sum());
+        return stats;
+    }
+}
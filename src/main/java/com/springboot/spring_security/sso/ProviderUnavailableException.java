@@ -0,0 +1,13 @@
+package com.springboot.spring_security.sso;
+
+import java.io.IOException;
+
+/**
+ * A call to an OAuth2 provider refused by its circuit breaker. An IOException, so the rest templates report it like any other failed call.
+ */
+public class ProviderUnavailableException extends IOException {
+
+    public ProviderUnavailableException(String provider) {
+        super("The " + provider + " login is unavailable");
+    }
+}
@@ -0,0 +1,228 @@
+package com.springboot.spring_security.sso;
+
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+import org.springframework.security.web.authentication.AuthenticationFailureHandler;
+
+import javax.servlet.Filter;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One OAuth2 provider of the SsoProviderRegistry: its login filter, and what isolates it from the other providers:
+ * <ul>
+ * <li>a bulkhead, so a slow provider holds at most maxConcurrentLogins request threads</li>
+ * <li>a circuit breaker, fed by the {@link #interceptor(String, CircuitBreaker)} on every call to the provider, so a provider that is down is not called at all</li>
+ * </ul>
+ * The timeout of each call is set on the request factory of the provider's rest templates.
+ */
+public class SsoProvider {
+
+    private final String id;
+
+    private final String path;
+
+    private final Filter filter;
+
+    private final CircuitBreaker circuitBreaker;
+
+    private final int maxConcurrentLogins;
+
+    private final Semaphore bulkhead;
+
+    private final long maxWaitNanos;
+
+    private final LongAdder logins = new LongAdder();
+
+    private final LongAdder busy = new LongAdder();
+
+    private final LongAdder unavailable = new LongAdder();
+
+    /**
+     * @param id                  e.g. "github"
+     * @param path                the login path, e.g. "/login/github"
+     * @param filter              the login filter, e.g. an OAuth2ClientAuthenticationProcessingFilter
+     * @param circuitBreaker
+     * @param maxConcurrentLogins logins in progress at the same time
+     * @param maxWait             how long a login waits for one of them
+     */
+    public SsoProvider(String id, String path, Filter filter, CircuitBreaker circuitBreaker, int maxConcurrentLogins, Duration maxWait) {
+        this.id = id;
+        this.path = path;
+        this.filter = filter;
+        this.circuitBreaker = circuitBreaker;
+        this.maxConcurrentLogins = maxConcurrentLogins;
+        this.bulkhead = new Semaphore(maxConcurrentLogins);
+        this.maxWaitNanos = maxWait.toNanos();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public Filter getFilter() {
+        return filter;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Takes one of the concurrent logins; {@link #release()} gives it back.
+     *
+     * @return false if none was free within the max wait
+     * @throws InterruptedException
+     */
+    boolean tryAcquire() throws InterruptedException {
+        if (maxWaitNanos > 0 ? bulkhead.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS) : bulkhead.tryAcquire()) {
+            logins.increment();
+            return true;
+        }
+        busy.increment();
+        return false;
+    }
+
+    void release() {
+        bulkhead.release();
+    }
+
+    void refuse() {
+        unavailable.increment();
+    }
+
+    /**
+     * Reports every call to a provider to its circuit breaker: an I/O error (including a timeout) or a 5xx is a failure, any other answer a success.
+     * While the circuit refuses calls it throws a ProviderUnavailableException instead of calling.
+     *
+     * @param id             the provider
+     * @param circuitBreaker its circuit breaker
+     * @return for the rest templates and the access token provider of the provider
+     */
+    public static ClientHttpRequestInterceptor interceptor(String id, CircuitBreaker circuitBreaker) {
+        return (request, body, execution) -> {
+            CircuitBreaker.Permission permission = circuitBreaker.tryAcquirePermission();
+            if (!permission.isGranted()) {
+                throw new ProviderUnavailableException(id);
+            }
+            // reported in finally, whatever ends the call: a probe never reported would leave the circuit half open, refusing every call
+            boolean failed = true;
+            try {
+                ClientHttpResponse response = execution.execute(request, body);
+                failed = response.getStatusCode().is5xxServerError();
+                return response;
+            } finally {
+                if (failed) {
+                    circuitBreaker.onFailure(permission);
+                } else {
+                    circuitBreaker.onSuccess(permission);
+                }
+            }
+        };
+    }
+
+    /**
+     * Lets the {@link #failureHandler(String, CircuitBreaker, AuthenticationFailureHandler)} tell the user info and organizations calls
+     * the circuit refused from other failures: the UserInfoTokenServices turns a failed user info call into an InvalidTokenException
+     * without its cause, and a failed organizations call (in the AuthoritiesExtractor) escapes as a ResourceAccessException,
+     * which the login filter does not handle at all. Either becomes an InvalidTokenException caused by a ProviderUnavailableException
+     * when the circuit refused the call, or is open or half open after it.
+     *
+     * @param id             the provider
+     * @param circuitBreaker its circuit breaker
+     * @param tokenServices  e.g. a UserInfoTokenServices
+     * @return for the login filter of the provider
+     */
+    public static ResourceServerTokenServices tokenServices(String id, CircuitBreaker circuitBreaker, ResourceServerTokenServices tokenServices) {
+        return new ResourceServerTokenServices() {
+
+            @Override
+            public OAuth2Authentication loadAuthentication(String accessToken) throws AuthenticationException, InvalidTokenException {
+                if (!circuitBreaker.isAvailable()) {
+                    throw unavailable(id, null);
+                }
+                try {
+                    return tokenServices.loadAuthentication(accessToken);
+                } catch (RuntimeException ex) {
+                    if (causedByUnavailability(ex)
+                            || ex instanceof InvalidTokenException && circuitBreaker.getState() != CircuitBreaker.State.CLOSED) {
+                        throw unavailable(id, ex);
+                    }
+                    throw ex;
+                }
+            }
+
+            @Override
+            public OAuth2AccessToken readAccessToken(String accessToken) {
+                return tokenServices.readAccessToken(accessToken);
+            }
+        };
+    }
+
+    private static InvalidTokenException unavailable(String id, RuntimeException failure) {
+        ProviderUnavailableException unavailable = new ProviderUnavailableException(id);
+        InvalidTokenException ex = new InvalidTokenException(unavailable.getMessage(), unavailable);
+        if (failure != null) {
+            ex.addSuppressed(failure);
+        }
+        return ex;
+    }
+
+    /**
+     * A login that failed because the circuit refused one of its calls gets 503, like the logins refused before they started;
+     * every other failure goes to the given handler. The failures of the user info and organizations calls are only recognised
+     * behind the {@link #tokenServices(String, CircuitBreaker, ResourceServerTokenServices)}.
+     *
+     * @param id             the provider
+     * @param circuitBreaker its circuit breaker
+     * @param failureHandler
+     * @return for the login filter of the provider
+     */
+    public static AuthenticationFailureHandler failureHandler(String id, CircuitBreaker circuitBreaker, AuthenticationFailureHandler failureHandler) {
+        return (request, response, exception) -> {
+            if (causedByUnavailability(exception)) {
+                SsoProviderRegistry.unavailable(response, id, circuitBreaker);
+            } else {
+                failureHandler.onAuthenticationFailure(request, response, exception);
+            }
+        };
+    }
+
+    private static boolean causedByUnavailability(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ProviderUnavailableException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Logins let through, refused because all concurrent logins were taken or because the circuit was open, and the circuit breaker.
+     *
+     * @return
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("path", path);
+        stats.put("logins", logins.sum());
+        stats.put("inProgress", maxConcurrentLogins - bulkhead.availablePermits());
+        stats.put("busy", busy.sum());
+        stats.put("unavailable", unavailable.sum());
+        stats.put("circuit", circuitBreaker.stats());
+        return stats;
+    }
+}
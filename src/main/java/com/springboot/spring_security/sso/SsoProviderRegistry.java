@@ -0,0 +1,107 @@
+package com.springboot.spring_security.sso;
+
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The single sign on with every configured OAuth2 provider, as one filter: a request is handed to the login filter of the provider
+ * whose login path it is on, found with a single hash lookup however many providers there are, and every other request passes untouched.
+ * <p>
+ * The providers are isolated from each other. A login is refused with 503 and a Retry-After, without calling the provider, when its circuit is open,
+ * or when its maxConcurrentLogins are all in progress, so a provider that is down or slow fails fast and cannot take the request threads of the others.
+ */
+public class SsoProviderRegistry extends OncePerRequestFilter {
+
+    private final Map<String, SsoProvider> providersByPath = new HashMap<>();
+
+    private final Map<String, SsoProvider> providersById = new LinkedHashMap<>();
+
+    public SsoProviderRegistry(Collection<SsoProvider> providers) {
+        for (SsoProvider provider : providers) {
+            if (providersByPath.put(provider.getPath(), provider) != null) {
+                throw new IllegalArgumentException("More than one SSO provider on " + provider.getPath());
+            }
+            providersById.put(provider.getId(), provider);
+        }
+    }
+
+    public SsoProvider getProvider(String id) {
+        return providersById.get(id);
+    }
+
+    /**
+     * Matches the login paths of the providers, e.g. for the LoginThrottlingFilter.
+     *
+     * @return
+     */
+    public RequestMatcher getRequestMatcher() {
+        return request -> providersByPath.containsKey(path(request));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        SsoProvider provider = providersByPath.get(path(request));
+        if (provider == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (!provider.getCircuitBreaker().isAvailable()) {
+            provider.refuse();
+            unavailable(response, provider.getId(), provider.getCircuitBreaker());
+            return;
+        }
+        try {
+            if (!provider.tryAcquire()) {
+                response.setHeader("Retry-After", "1");
+                response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Too many " + provider.getId() + " logins in progress");
+                return;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+        try {
+            provider.getFilter().doFilter(request, response, filterChain);
+        } finally {
+            provider.release();
+        }
+    }
+
+    static void unavailable(HttpServletResponse response, String id, CircuitBreaker circuitBreaker) throws IOException {
+        response.setHeader("Retry-After", String.valueOf(circuitBreaker.getRemainingOpenDuration().getSeconds() + 1));
+        response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "The " + id + " login is unavailable");
+    }
+
+    /**
+     * The path within the application, as the AntPathRequestMatcher of the login filters sees it.
+     *
+     * @param request
+     * @return
+     */
+    private static String path(HttpServletRequest request) {
+        String pathInfo = request.getPathInfo();
+        return pathInfo == null ? request.getServletPath() : request.getServletPath() + pathInfo;
+    }
+
+    /**
+     * The logins, refusals and circuit of each provider, by id.
+     *
+     * @return
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        providersById.forEach((id, provider) -> stats.put(id, provider.stats()));
+        return stats;
+    }
+}
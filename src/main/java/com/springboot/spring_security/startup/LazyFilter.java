@@ -0,0 +1,52 @@
+package com.springboot.spring_security.startup;
+
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.function.Supplier;
+
+/**
+ * Stands in for a filter that only acts on some requests and is expensive to create: the filter is created on the first request
+ * it acts on, and every other request passes untouched until then.
+ */
+public class LazyFilter extends OncePerRequestFilter {
+
+    private final RequestMatcher requestMatcher;
+
+    private final Supplier<Filter> filterFactory;
+
+    private volatile Filter delegate;
+
+    /**
+     * @param requestMatcher the requests the filter acts on
+     * @param filterFactory  creates the filter
+     */
+    public LazyFilter(RequestMatcher requestMatcher, Supplier<Filter> filterFactory) {
+        this.requestMatcher = requestMatcher;
+        this.filterFactory = filterFactory;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        Filter filter = delegate;
+        if (filter == null) {
+            if (!requestMatcher.matches(request)) {
+                filterChain.doFilter(request, response);
+                return;
+            }
+            synchronized (this) {
+                filter = delegate;
+                if (filter == null) {
+                    delegate = filter = filterFactory.get();
+                }
+            }
+        }
+        filter.doFilter(request, response, filterChain);
+    }
+}
@@ -0,0 +1,30 @@
+package com.springboot.spring_security.startup;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+
+import java.util.Collection;
+
+/**
+ * Marks the given beans lazy, so they are created when first asked for rather than at startup, as if they were declared with @Lazy.
+ * Beans that do not exist are skipped. The beans that depend on them have to ask for them late too (an ObjectProvider),
+ * or they are created with those.
+ */
+public class LazyInitializationPostProcessor implements BeanFactoryPostProcessor {
+
+    private final Collection<String> beanNames;
+
+    public LazyInitializationPostProcessor(Collection<String> beanNames) {
+        this.beanNames = beanNames;
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+        for (String beanName : beanNames) {
+            if (beanFactory.containsBeanDefinition(beanName)) {
+                beanFactory.getBeanDefinition(beanName).setLazyInit(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.springboot.spring_security.startup;
+
+import com.springboot.spring_security.resources.StartupProperties;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.SpringApplicationRunListener;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+
+/**
+ * Reports how long the phases of the startup took, for both applications (it is registered in META-INF/spring.factories):
+ * <ul>
+ * <li>jvm: from the start of the JVM to SpringApplication.run(), i.e. JVM startup, class loading and main()</li>
+ * <li>environment: the property sources and profiles</li>
+ * <li>context: creating the application context and running its initializers</li>
+ * <li>definitions: registering the primary sources</li>
+ * <li>refresh: component scan, auto-configuration, creating the singletons and starting the web server</li>
+ * <li>runners: the ApplicationRunners and CommandLineRunners</li>
+ * </ul>
+ * The timings and the slowest beans are logged in one line once the application is ready, and registered as the "startupTimings" bean.
+ * Off with startup.timing-report=false.
+ */
+public class StartupTimingReporter implements SpringApplicationRunListener, Ordered {
+
+    private static final Log logger = LogFactory.getLog(StartupTimingReporter.class);
+
+    private StartupTimings timings;
+
+    private long last;
+
+    public StartupTimingReporter(SpringApplication application, String[] args) {
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+
+    @Override
+    public void starting() {
+        last = ManagementFactory.getRuntimeMXBean().getStartTime();
+        timings = new StartupTimings(10);
+        phase("jvm");
+    }
+
+    @Override
+    public void environmentPrepared(ConfigurableEnvironment environment) {
+        StartupProperties properties = Binder.get(environment).bind("startup", StartupProperties.class).orElseGet(StartupProperties::new);
+        if (!properties.isTimingReport()) {
+            timings = null;
+            return;
+        }
+        phase("environment");
+    }
+
+    @Override
+    public void contextPrepared(ConfigurableApplicationContext context) {
+        if (timings != null) {
+            phase("context");
+            context.getBeanFactory().addBeanPostProcessor(timings.beanPostProcessor());
+        }
+    }
+
+    @Override
+    public void contextLoaded(ConfigurableApplicationContext context) {
+        if (timings != null) {
+            phase("definitions");
+            context.getBeanFactory().registerSingleton("startupTimings", timings);
+        }
+    }
+
+    @Override
+    public void started(ConfigurableApplicationContext context) {
+        if (timings != null) {
+            phase("refresh");
+        }
+    }
+
+    @Override
+    public void running(ConfigurableApplicationContext context) {
+        if (timings != null) {
+            phase("runners");
+            logger.info("Startup " + timings);
+        }
+    }
+
+    @Override
+    public void failed(ConfigurableApplicationContext context, Throwable exception) {
+        timings = null;
+    }
+
+    private void phase(String name) {
+        long now = System.currentTimeMillis();
+        timings.phase(name, Duration.ofMillis(now - last));
+        last = now;
+    }
+}
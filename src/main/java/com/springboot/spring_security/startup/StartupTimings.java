@@ -0,0 +1,147 @@
+package com.springboot.spring_security.startup;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * How long each phase of the startup took, and which beans took longest to create.
+ * <p>
+ * Its {@link #beanPostProcessor()} times every bean created after it was added to the bean factory, from before its instantiation
+ * to after its initialization. Beans created while another one is being created (its dependencies) are subtracted from that one,
+ * so each bean is charged its own time only.
+ */
+public class StartupTimings {
+
+    private final int slowestBeans;
+
+    private final Map<String, Duration> phases = new LinkedHashMap<>();
+
+    private final Map<String, Long> beanNanos = new LinkedHashMap<>();
+
+    private final ThreadLocal<Deque<Creation>> creations = ThreadLocal.withInitial(ArrayDeque::new);
+
+    /**
+     * @param slowestBeans how many of the slowest beans to report
+     */
+    public StartupTimings(int slowestBeans) {
+        this.slowestBeans = slowestBeans;
+    }
+
+    synchronized void phase(String name, Duration duration) {
+        phases.put(name, duration);
+    }
+
+    /**
+     * The post processor to add to the bean factory.
+     *
+     * @return
+     */
+    public InstantiationAwareBeanPostProcessor beanPostProcessor() {
+        return new BeanTimer();
+    }
+
+    /**
+     * The phases in the order they ran, and the slowest beans with their own creation time.
+     *
+     * @return
+     */
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Duration total = Duration.ZERO;
+        for (Map.Entry<String, Duration> phase : phases.entrySet()) {
+            stats.put(phase.getKey(), phase.getValue().toMillis());
+            total = total.plus(phase.getValue());
+        }
+        stats.put("total", total.toMillis());
+        stats.put("beans", beanNanos.size());
+        Map<String, Long> slowest = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> bean : slowest()) {
+            slowest.put(bean.getKey(), bean.getValue() / 1_000_000);
+        }
+        stats.put("slowestBeans", slowest);
+        return stats;
+    }
+
+    /**
+     * One line, for the log: "total 4210 ms: jvm 650 ms, environment 310 ms, ...; slowest of 412 beans: a 120 ms, b 85 ms, ...".
+     *
+     * @return
+     */
+    @Override
+    public synchronized String toString() {
+        StringBuilder line = new StringBuilder();
+        Duration total = phases.values().stream().reduce(Duration.ZERO, Duration::plus);
+        line.append("total ").append(total.toMillis()).append(" ms:");
+        String separator = " ";
+        for (Map.Entry<String, Duration> phase : phases.entrySet()) {
+            line.append(separator).append(phase.getKey()).append(' ').append(phase.getValue().toMillis()).append(" ms");
+            separator = ", ";
+        }
+        line.append("; slowest of ").append(beanNanos.size()).append(" beans:");
+        separator = " ";
+        for (Map.Entry<String, Long> bean : slowest()) {
+            line.append(separator).append(bean.getKey()).append(' ').append(bean.getValue() / 1_000_000).append(" ms");
+            separator = ", ";
+        }
+        return line.toString();
+    }
+
+    private List<Map.Entry<String, Long>> slowest() {
+        List<Map.Entry<String, Long>> beans = new ArrayList<>(beanNanos.entrySet());
+        beans.sort(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()));
+        return beans.subList(0, Math.min(slowestBeans, beans.size()));
+    }
+
+    private final class BeanTimer implements InstantiationAwareBeanPostProcessor {
+
+        @Override
+        public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) throws BeansException {
+            creations.get().push(new Creation(beanName, System.nanoTime()));
+            return null;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+            Deque<Creation> stack = creations.get();
+            // the objects of factory beans are post-processed without being instantiated here: only beans being created count
+            if (stack.stream().anyMatch(creation -> creation.beanName.equals(beanName))) {
+                // beans whose creation failed leave their entry behind
+                while (!stack.peek().beanName.equals(beanName)) {
+                    stack.pop();
+                }
+                Creation creation = stack.pop();
+                long total = System.nanoTime() - creation.start;
+                if (!stack.isEmpty()) {
+                    stack.peek().dependencies += total;
+                }
+                synchronized (StartupTimings.this) {
+                    beanNanos.merge(beanName, total - creation.dependencies, Long::sum);
+                }
+            }
+            return bean;
+        }
+    }
+
+    private static final class Creation {
+
+        private final String beanName;
+
+        private final long start;
+
+        private long dependencies;
+
+        Creation(String beanName, long start) {
+            this.beanName = beanName;
+            this.start = start;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.springboot.spring_security.throttle;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits login attempts per client IP and per username over a sliding window.
+ * Both are counted in fixed-size sketches, so an attacker cycling through millions of addresses or usernames
+ * costs no more memory than a single one; the price is that at very high key counts an innocent key may be overestimated.
+ * Rejected attempts count as attempts as well: a client that keeps hammering stays blocked.
+ */
+public class LoginAttemptLimiter {
+
+    public enum Decision {
+        ALLOWED, IP_LIMITED, USERNAME_LIMITED
+    }
+
+    private final SlidingWindowSketch attemptsByIp;
+
+    private final SlidingWindowSketch attemptsByUsername;
+
+    private final int maxAttemptsPerIp;
+
+    private final int maxAttemptsPerUsername;
+
+    private final Duration window;
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder ipLimited = new LongAdder();
+    private final LongAdder usernameLimited = new LongAdder();
+
+    /**
+     * @param window                 the sliding window
+     * @param maxAttemptsPerIp       attempts a client IP may make within the window
+     * @param maxAttemptsPerUsername attempts on one username, from any IP, within the window
+     * @param sketchWidth            counters per sketch row, a power of two; more counters mean fewer overestimates
+     * @param sketchDepth            sketch rows
+     * @param clock
+     */
+    public LoginAttemptLimiter(Duration window, int maxAttemptsPerIp, int maxAttemptsPerUsername, int sketchWidth, int sketchDepth, Clock clock) {
+        this.window = window;
+        this.maxAttemptsPerIp = maxAttemptsPerIp;
+        this.maxAttemptsPerUsername = maxAttemptsPerUsername;
+        this.attemptsByIp = new SlidingWindowSketch(sketchWidth, sketchDepth, window, clock);
+        this.attemptsByUsername = new SlidingWindowSketch(sketchWidth, sketchDepth, window, clock);
+    }
+
+    /**
+     * Counts a login attempt and decides whether it may go on.
+     *
+     * @param remoteAddress the client IP
+     * @param username      the username tried, or null when the login does not name one (e.g. the GitHub login)
+     * @return
+     */
+    public Decision tryAttempt(String remoteAddress, String username) {
+        if (attemptsByIp.increment(remoteAddress) > maxAttemptsPerIp) {
+            ipLimited.increment();
+            return Decision.IP_LIMITED;
+        }
+        if (username != null && attemptsByUsername.increment(username.toLowerCase(Locale.ROOT)) > maxAttemptsPerUsername) {
+            usernameLimited.increment();
+            return Decision.USERNAME_LIMITED;
+        }
+        allowed.increment();
+        return Decision.ALLOWED;
+    }
+
+    public Duration getWindow() {
+        return window;
+    }
+
+    /**
+     * @return the window and the attempts allowed per IP and per username in it; the attempts allowed, and rejected for their IP
+     * or for their username, since the start; and the bytes of the two sketches, fixed whatever the number of IPs and usernames
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("window", window.toString());
+        stats.put("maxAttemptsPerIp", maxAttemptsPerIp);
+        stats.put("maxAttemptsPerUsername", maxAttemptsPerUsername);
+        stats.put("allowed", allowed.sum());
+        stats.put("ipLimited", ipLimited.sum());
+        stats.put("usernameLimited", usernameLimited.sum());
+        stats.put("memoryBytes", attemptsByIp.getMemoryBytes() + attemptsByUsername.getMemoryBytes());
+        return stats;
+    }
+}
@@ -0,0 +1,61 @@
+package com.springboot.spring_security.throttle;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Answers login attempts over the limits of the {@link LoginAttemptLimiter} with 429 Too Many Requests,
+ * before the request reaches the password hashing of the form login or the provider round-trips of the SSO logins.
+ * Form logins (POST /login) are limited per IP and per username, SSO logins (e.g. /login/github) per IP.
+ * Every other request passes untouched.
+ */
+public class LoginThrottlingFilter extends OncePerRequestFilter {
+
+    private final LoginAttemptLimiter limiter;
+
+    private final RequestMatcher formLogin = new AntPathRequestMatcher("/login", HttpMethod.POST.name());
+
+    private final RequestMatcher loginAttempts;
+
+    private String usernameParameter = "username";
+
+    public LoginThrottlingFilter(LoginAttemptLimiter limiter) {
+        this(limiter, new AntPathRequestMatcher("/login/github"));
+    }
+
+    /**
+     * @param limiter
+     * @param ssoLogins the login paths of the SSO providers, e.g. the request matcher of the SsoProviderRegistry
+     */
+    public LoginThrottlingFilter(LoginAttemptLimiter limiter, RequestMatcher ssoLogins) {
+        this.limiter = limiter;
+        this.loginAttempts = new OrRequestMatcher(formLogin, ssoLogins);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        if (loginAttempts.matches(request)) {
+            String username = formLogin.matches(request) ? request.getParameter(usernameParameter) : null;
+            LoginAttemptLimiter.Decision decision = limiter.tryAttempt(request.getRemoteAddr(), username);
+            if (decision != LoginAttemptLimiter.Decision.ALLOWED) {
+                response.setHeader("Retry-After", String.valueOf(limiter.getWindow().getSeconds()));
+                response.sendError(429, "Too many login attempts");
+                return;
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    public void setUsernameParameter(String usernameParameter) {
+        this.usernameParameter = usernameParameter;
+    }
+}
@@ -0,0 +1,158 @@
+package com.springboot.spring_security.throttle;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Approximate per-key event counts over a sliding window, in a fixed amount of memory however many keys there are.
+ * <p>
+ * The counts of the current and of the previous window are kept in two count-min sketches: depth rows of width counters,
+ * each key hashed to one counter per row. A key's count is the smallest of its counters, which can only overestimate,
+ * and with conservative update only the counters below the new count are raised. The sliding count weighs the previous window
+ * by the part of it still inside the sliding window, like a sliding-window rate limiter does with exact counters.
+ * <p>
+ * The hashes are seeded randomly per instance, so nobody can pick keys that collide with someone else's on purpose.
+ */
+final class SlidingWindowSketch {
+
+    private final int width;
+
+    private final int depth;
+
+    private final long windowMillis;
+
+    private final long seed = ThreadLocalRandom.current().nextLong();
+
+    private final Clock clock;
+
+    private volatile Window window;
+
+    /**
+     * @param width  counters per row, a power of two
+     * @param depth  rows
+     * @param window length of the window
+     * @param clock
+     */
+    SlidingWindowSketch(int width, int depth, Duration window, Clock clock) {
+        if (Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("The width must be a power of two");
+        }
+        this.width = width;
+        this.depth = depth;
+        this.windowMillis = window.toMillis();
+        this.clock = clock;
+        long now = clock.millis();
+        this.window = new Window(now - now % windowMillis, new AtomicIntegerArray(width * depth), null);
+    }
+
+    /**
+     * Counts one event of the key.
+     *
+     * @param key
+     * @return the estimated count of the key in the sliding window, this event included
+     */
+    int increment(String key) {
+        return count(key, true);
+    }
+
+    /**
+     * @param key
+     * @return the estimated count of the key in the sliding window
+     */
+    int estimate(String key) {
+        return count(key, false);
+    }
+
+    long getMemoryBytes() {
+        return 2L * width * depth * Integer.BYTES;
+    }
+
+    private int count(String key, boolean increment) {
+        long now = clock.millis();
+        Window current = current(now);
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        int mask = width - 1;
+
+        int currentCount = Integer.MAX_VALUE;
+        int previousCount = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int index = row * width + ((h1 + row * h2) & mask);
+            currentCount = Math.min(currentCount, current.counts.get(index));
+            if (current.previous != null) {
+                previousCount = Math.min(previousCount, current.previous.get(index));
+            }
+        }
+        if (increment) {
+            int updated = currentCount + 1;
+            for (int row = 0; row < depth; row++) {
+                int index = row * width + ((h1 + row * h2) & mask);
+                if (current.counts.get(index) < updated) {
+                    current.counts.accumulateAndGet(index, updated, Math::max);
+                }
+            }
+            currentCount = updated;
+        }
+        if (current.previous == null) {
+            return currentCount;
+        }
+        double previousWeight = 1.0 - (now - current.start) / (double) windowMillis;
+        return currentCount + (int) (previousCount * previousWeight);
+    }
+
+    private Window current(long now) {
+        Window current = window;
+        while (now >= current.start + windowMillis) {
+            long start = now - now % windowMillis;
+            // the previous window only counts if it is the one right before the new one
+            Window next = new Window(start, new AtomicIntegerArray(width * depth), start == current.start + windowMillis ? current.counts : null);
+            synchronized (this) {
+                if (window == current) {
+                    window = next;
+                }
+                current = window;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 64-bit hash of the key's characters, mixed with the seed (the finalizer of MurmurHash3 after every character).
+     */
+    private long hash(String key) {
+        long hash = seed;
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        for (byte b : bytes) {
+            hash = mix(hash ^ (b & 0xFF));
+        }
+        return mix(hash ^ bytes.length);
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static final class Window {
+
+        private final long start;
+
+        private final AtomicIntegerArray counts;
+
+        private final AtomicIntegerArray previous;
+
+        Window(long start, AtomicIntegerArray counts, AtomicIntegerArray previous) {
+            this.start = start;
+            this.counts = counts;
+            this.previous = previous;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.springboot.spring_security.token;
+
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+import org.springframework.web.client.RestOperations;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Authenticates access tokens through the batch introspection endpoint of the authorization server (/introspect)
+ * rather than with one user info call per token.
+ * <p>
+ * The tokens asked for within a short window, by any number of threads, are sent together: the first token of a batch starts the window,
+ * and the batch goes out when the window ends or it reaches the maximum size, whichever comes first.
+ * Threads asking for a token that is already in the pending batch wait for the same entry.
+ * The calls are made on the executor, so a slow authorization server holds up its callers but not the next batches.
+ * An unknown or expired token is an InvalidTokenException, a failed or late call an AuthenticationServiceException.
+ */
+public class BatchingResourceServerTokenServices implements ResourceServerTokenServices, AutoCloseable {
+
+    private static final ParameterizedTypeReference<List<Map<String, Object>>> ENTRIES = new ParameterizedTypeReference<List<Map<String, Object>>>() {
+    };
+
+    private final RestOperations restTemplate;
+
+    private final Executor executor;
+
+    private final ScheduledExecutorService timer;
+
+    private final LongAdder tokens = new LongAdder();
+
+    private final LongAdder batches = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private String uri;
+
+    private Duration window = Duration.ofMillis(2);
+
+    private int maxBatchSize = 100;
+
+    private Duration timeout = Duration.ofSeconds(5);
+
+    private Map<String, CompletableFuture<Map<String, Object>>> pending = new LinkedHashMap<>();
+
+    /**
+     * @param restTemplate calls the endpoint with a client token of its own
+     * @param executor     makes the calls
+     */
+    public BatchingResourceServerTokenServices(RestOperations restTemplate, Executor executor) {
+        this.restTemplate = restTemplate;
+        this.executor = executor;
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "introspection-batch-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        this.timer = timer;
+    }
+
+    @Override
+    public OAuth2Authentication loadAuthentication(String accessToken) throws AuthenticationException, InvalidTokenException {
+        Map<String, Object> entry = introspect(accessToken);
+        if (entry == null || !Boolean.TRUE.equals(entry.get("active"))) {
+            throw new InvalidTokenException(accessToken);
+        }
+        return authentication(entry);
+    }
+
+    /**
+     * @param accessToken
+     * @return the token with the expiry and the scope of its introspection entry, or null if it is unknown or expired
+     * @throws AuthenticationServiceException if the call failed or was late
+     */
+    @Override
+    public OAuth2AccessToken readAccessToken(String accessToken) {
+        Map<String, Object> entry = introspect(accessToken);
+        if (entry == null || !Boolean.TRUE.equals(entry.get("active"))) {
+            return null;
+        }
+        return accessToken(accessToken, entry);
+    }
+
+    private Map<String, Object> introspect(String accessToken) {
+        try {
+            return enqueue(accessToken).get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new AuthenticationServiceException("Interrupted while introspecting the token", ex);
+        } catch (TimeoutException ex) {
+            throw new AuthenticationServiceException("No introspection of the token within " + timeout, ex);
+        } catch (ExecutionException ex) {
+            throw new AuthenticationServiceException("Could not introspect the token", ex.getCause());
+        }
+    }
+
+    private CompletableFuture<Map<String, Object>> enqueue(String accessToken) {
+        Map<String, CompletableFuture<Map<String, Object>>> full = null;
+        CompletableFuture<Map<String, Object>> entry;
+        synchronized (this) {
+            entry = pending.get(accessToken);
+            if (entry == null) {
+                entry = new CompletableFuture<>();
+                pending.put(accessToken, entry);
+                if (pending.size() >= maxBatchSize) {
+                    full = pending;
+                    pending = new LinkedHashMap<>();
+                } else if (pending.size() == 1) {
+                    Map<String, CompletableFuture<Map<String, Object>>> batch = pending;
+                    timer.schedule(() -> flush(batch), window.toNanos(), TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+        if (full != null) {
+            send(full);
+        }
+        return entry;
+    }
+
+    /**
+     * Sends the batch the timer was started for, unless it has filled up and gone already.
+     *
+     * @param batch
+     */
+    private void flush(Map<String, CompletableFuture<Map<String, Object>>> batch) {
+        synchronized (this) {
+            if (pending != batch) {
+                return;
+            }
+            pending = new LinkedHashMap<>();
+        }
+        send(batch);
+    }
+
+    private void send(Map<String, CompletableFuture<Map<String, Object>>> batch) {
+        try {
+            executor.execute(() -> call(batch));
+        } catch (RuntimeException ex) {
+            failures.increment();
+            batch.values().forEach(entry -> entry.completeExceptionally(ex));
+        }
+    }
+
+    private void call(Map<String, CompletableFuture<Map<String, Object>>> batch) {
+        batches.increment();
+        tokens.add(batch.size());
+        try {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            List<Map<String, Object>> entries = restTemplate.exchange(uri, HttpMethod.POST,
+                    new HttpEntity<>(new ArrayList<>(batch.keySet()), headers), ENTRIES).getBody();
+            if (entries == null || entries.size() != batch.size()) {
+                throw new IllegalStateException("Expected " + batch.size() + " introspection entries, got " + (entries == null ? 0 : entries.size()));
+            }
+            int i = 0;
+            for (CompletableFuture<Map<String, Object>> entry : batch.values()) {
+                entry.complete(entries.get(i++));
+            }
+        } catch (RuntimeException ex) {
+            failures.increment();
+            batch.values().forEach(entry -> entry.completeExceptionally(ex));
+        }
+    }
+
+    /**
+     * The authentication of the token of an active introspection entry; the IntrospectionReactiveAuthenticationManager builds its own the same way.
+     *
+     * @param entry
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    static OAuth2Authentication authentication(Map<String, Object> entry) {
+        Collection<String> names = entry.containsKey("authorities") ? (Collection<String>) entry.get("authorities") : Collections.emptyList();
+        List<GrantedAuthority> authorities = AuthorityUtils.createAuthorityList(names.toArray(new String[0]));
+        OAuth2Request request = new OAuth2Request(null, (String) entry.get("client_id"), authorities, true, scope(entry),
+                null, null, null, null);
+        String username = (String) entry.get("username");
+        return new OAuth2Authentication(request, username == null ? null : new UsernamePasswordAuthenticationToken(username, "N/A", authorities));
+    }
+
+    /**
+     * The access token of an active introspection entry.
+     *
+     * @param value
+     * @param entry
+     * @return
+     */
+    static OAuth2AccessToken accessToken(String value, Map<String, Object> entry) {
+        DefaultOAuth2AccessToken token = new DefaultOAuth2AccessToken(value);
+        Object exp = entry.get("exp");
+        if (exp instanceof Number) {
+            token.setExpiration(new Date(((Number) exp).longValue() * 1000));
+        }
+        token.setScope(scope(entry));
+        return token;
+    }
+
+    private static Set<String> scope(Map<String, Object> entry) {
+        String scope = (String) entry.get("scope");
+        return scope == null || scope.isEmpty() ? Collections.emptySet() : new LinkedHashSet<>(Arrays.asList(scope.split(" ")));
+    }
+
+    /**
+     * @return the window and the maximum batch size; the batches and the tokens sent so far, and so the averageBatchSize;
+     * and the failures, batches whose call failed or could not be made
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long batches = this.batches.sum();
+        long tokens = this.tokens.sum();
+        stats.put("window", window.toString());
+        stats.put("maxBatchSize", maxBatchSize);
+        stats.put("batches", batches);
+        stats.put("tokens", tokens);
+        stats.put("averageBatchSize", batches == 0 ? 0.0 : (double) tokens / batches);
+        stats.put("failures", failures.sum());
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+    }
+
+    /**
+     * The batch introspection endpoint, e.g. "http://localhost:8080/introspect".
+     *
+     * @param uri
+     */
+    public void setUri(String uri) {
+        this.uri = uri;
+    }
+
+    /**
+     * How long the first token of a batch waits for others to join it.
+     *
+     * @param window
+     */
+    public void setWindow(Duration window) {
+        this.window = window;
+    }
+
+    /**
+     * Tokens after which a batch goes out without waiting for the end of its window.
+     *
+     * @param maxBatchSize
+     */
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * How long a caller waits for the entry of its token.
+     *
+     * @param timeout
+     */
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+}
@@ -0,0 +1,122 @@
+package com.springboot.spring_security.token;
+
+import com.springboot.spring_security.cache.ExpiringCache;
+import com.springboot.spring_security.revocation.RevocationIndex;
+import org.springframework.security.oauth2.common.ExpiringOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
+
+import java.util.Map;
+
+/**
+ * A JwtTokenStore that remembers tokens it has already verified.
+ * <p>
+ * Signed tokens carry their own claims, so checking one is a CPU-only signature check plus a claim parse, with no store lookup.
+ * The resource server protecting /me reads each token twice per request (the access token, then its authentication);
+ * with the verified-token cache both reads, and every later request with the same token, skip the check entirely.
+ * Cache entries never outlive the token's own expiry.
+ * <p>
+ * Signed tokens cannot be forgotten, so with a RevocationIndex removing one revokes it instead: removing a refresh token revokes its jti,
+ * and removing an access token the jti of the refresh token of its grant (the "rti" claim of the SignedTokenConverter).
+ * A refresh token whose jti is revoked is read as unknown, so the refresh grant refuses it, and the refresh tokens issued before it with it.
+ */
+public class CachingJwtTokenStore extends JwtTokenStore {
+
+    private final SignedTokenConverter converter;
+
+    private final ExpiringCache<String, VerifiedToken> verifiedTokens;
+
+    private RevocationIndex revocationIndex;
+
+    public CachingJwtTokenStore(SignedTokenConverter converter, ExpiringCache<String, VerifiedToken> verifiedTokens) {
+        super(converter);
+        this.converter = converter;
+        this.verifiedTokens = verifiedTokens;
+        this.verifiedTokens.setExpiry(verified -> verified.accessToken.getExpiration() != null ? verified.accessToken.getExpiration().getTime() : 0);
+    }
+
+    /**
+     * @param revocationIndex
+     */
+    public void setRevocationIndex(RevocationIndex revocationIndex) {
+        this.revocationIndex = revocationIndex;
+    }
+
+    @Override
+    public OAuth2AccessToken readAccessToken(String tokenValue) {
+        return verifiedTokens.get(tokenValue, this::verify).accessToken;
+    }
+
+    @Override
+    public OAuth2Authentication readAuthentication(String token) {
+        return verifiedTokens.get(token, this::verify).authentication;
+    }
+
+    @Override
+    public void removeAccessToken(OAuth2AccessToken token) {
+        Object refreshTokenId = token.getAdditionalInformation().get(SignedTokenConverter.REFRESH_TOKEN_ID);
+        if (revocationIndex != null && refreshTokenId != null) {
+            Object expiration = token.getAdditionalInformation().get(SignedTokenConverter.REFRESH_TOKEN_EXPIRATION);
+            revocationIndex.revoke(refreshTokenId.toString(), expiration instanceof Number ? ((Number) expiration).longValue() * 1000 : Long.MAX_VALUE);
+        }
+        super.removeAccessToken(token);
+    }
+
+    @Override
+    public OAuth2RefreshToken readRefreshToken(String tokenValue) {
+        if (revocationIndex != null && revocationIndex.isRevoked(refreshTokenId(tokenValue))) {
+            return null;
+        }
+        return super.readRefreshToken(tokenValue);
+    }
+
+    /**
+     * Not through {@link #readAuthentication(String)}, which only takes access tokens.
+     *
+     * @param token
+     * @return
+     */
+    @Override
+    public OAuth2Authentication readAuthenticationForRefreshToken(OAuth2RefreshToken token) {
+        return converter.extractAuthentication(converter.verify(token.getValue()));
+    }
+
+    @Override
+    public void removeRefreshToken(OAuth2RefreshToken token) {
+        if (revocationIndex != null) {
+            revocationIndex.revoke(refreshTokenId(token.getValue()), token instanceof ExpiringOAuth2RefreshToken && ((ExpiringOAuth2RefreshToken) token).getExpiration() != null
+                    ? ((ExpiringOAuth2RefreshToken) token).getExpiration().getTime() : Long.MAX_VALUE);
+        }
+        super.removeRefreshToken(token);
+    }
+
+    private String refreshTokenId(String tokenValue) {
+        Object jti = converter.verify(tokenValue).get(JwtAccessTokenConverter.TOKEN_ID);
+        return jti != null ? jti.toString() : tokenValue;
+    }
+
+    private VerifiedToken verify(String tokenValue) {
+        Map<String, Object> claims = converter.verify(tokenValue);
+        OAuth2AccessToken accessToken = converter.extractAccessToken(tokenValue, claims);
+        if (converter.isRefreshToken(accessToken)) {
+            throw new InvalidTokenException("Encoded token is a refresh token");
+        }
+        return new VerifiedToken(accessToken, converter.extractAuthentication(claims));
+    }
+
+    public static final class VerifiedToken {
+
+        private final OAuth2AccessToken accessToken;
+
+        private final OAuth2Authentication authentication;
+
+        VerifiedToken(OAuth2AccessToken accessToken, OAuth2Authentication authentication) {
+            this.accessToken = accessToken;
+            this.authentication = authentication;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.springboot.spring_security.token;
+
+import com.springboot.spring_security.cache.ExpiringCache;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.client.OAuth2ClientContext;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+
+/**
+ * Caches the authentication built for each access token by another ResourceServerTokenServices,
+ * typically a UserInfoTokenServices that calls the remote user info endpoint (/me, or api.github.com/user) for every token.
+ * <p>
+ * The cache is bounded by its size and time-to-live, and an entry never outlives its token:
+ * when an OAuth2ClientContext is set, the expiration of the token it holds (the one just obtained by the SSO filter) is used as the entry's expiry.
+ * With a refresh-after configured on the cache, repeat lookups are served from the cache while the user info is reloaded in the background.
+ */
+public class CachingResourceServerTokenServices implements ResourceServerTokenServices {
+
+    private final ResourceServerTokenServices delegate;
+
+    private final ExpiringCache<String, CachedAuthentication> authentications;
+
+    private OAuth2ClientContext clientContext;
+
+    public CachingResourceServerTokenServices(ResourceServerTokenServices delegate, ExpiringCache<String, CachedAuthentication> authentications) {
+        this.delegate = delegate;
+        this.authentications = authentications;
+        this.authentications.setExpiry(cached -> cached.expiresAt);
+    }
+
+    @Override
+    public OAuth2Authentication loadAuthentication(String accessToken) throws AuthenticationException, InvalidTokenException {
+        // read the expiry here, on the request thread: a background refresh has no request (or session) to read it from
+        long expiresAt = tokenExpiry(accessToken);
+        return authentications.get(accessToken, token -> new CachedAuthentication(delegate.loadAuthentication(token), expiresAt)).authentication;
+    }
+
+    @Override
+    public OAuth2AccessToken readAccessToken(String accessToken) {
+        return delegate.readAccessToken(accessToken);
+    }
+
+    /**
+     * Forgets the authentication of a token, e.g. after it has been revoked.
+     *
+     * @param accessToken
+     */
+    public void evict(String accessToken) {
+        authentications.invalidate(accessToken);
+    }
+
+    private long tokenExpiry(String accessToken) {
+        if (clientContext == null) {
+            return 0;
+        }
+        try {
+            OAuth2AccessToken token = clientContext.getAccessToken();
+            if (token != null && accessToken.equals(token.getValue()) && token.getExpiration() != null) {
+                return token.getExpiration().getTime();
+            }
+        } catch (RuntimeException ex) {
+            // a scoped client context outside of a request: fall back to the time-to-live
+        }
+        return 0;
+    }
+
+    /**
+     * The OAuth2ClientContext holding the token being authenticated, used to bound cache entries by the token's expiration.
+     *
+     * @param clientContext
+     */
+    public void setClientContext(OAuth2ClientContext clientContext) {
+        this.clientContext = clientContext;
+    }
+
+    public static final class CachedAuthentication {
+
+        private final OAuth2Authentication authentication;
+
+        private final long expiresAt;
+
+        CachedAuthentication(OAuth2Authentication authentication, long expiresAt) {
+            this.authentication = authentication;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
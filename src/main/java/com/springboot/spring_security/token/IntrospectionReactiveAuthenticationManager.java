@@ -0,0 +1,172 @@
+package com.springboot.spring_security.token;
+
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.client.endpoint.OAuth2ClientCredentialsGrantRequest;
+import org.springframework.security.oauth2.client.endpoint.ReactiveOAuth2AccessTokenResponseClient;
+import org.springframework.security.oauth2.client.endpoint.WebClientReactiveClientCredentialsTokenResponseClient;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AccessTokenResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Authenticates access tokens through the batch introspection endpoint of the authorization server (/introspect) without blocking:
+ * the counterpart of the BatchingResourceServerTokenServices for the reactive profile.
+ * <p>
+ * The calls are made with a WebClient, so no thread waits while the authorization server answers, and there is no window to batch tokens in:
+ * each token is sent on its own, and requests carrying the same token at the same time share its call.
+ * The calls carry a client_credentials token of the given client registration, obtained when first needed and renewed shortly before it expires.
+ * An unknown or expired token is a BadCredentialsException, a failed or late call an AuthenticationServiceException.
+ */
+public class IntrospectionReactiveAuthenticationManager implements ReactiveAuthenticationManager {
+
+    private static final ParameterizedTypeReference<List<Map<String, Object>>> ENTRIES = new ParameterizedTypeReference<List<Map<String, Object>>>() {
+    };
+
+    /**
+     * The client token is renewed this long before it expires, so it does not expire on its way to the authorization server.
+     */
+    private static final Duration CLIENT_TOKEN_RENEWAL = Duration.ofSeconds(30);
+
+    private final WebClient webClient;
+
+    private final Mono<String> clientToken;
+
+    private final Map<String, Mono<Map<String, Object>>> calls = new ConcurrentHashMap<>();
+
+    private final LongAdder tokens = new LongAdder();
+
+    private final LongAdder shared = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private String uri;
+
+    private Duration timeout = Duration.ofSeconds(5);
+
+    /**
+     * @param webClient calls the introspection endpoint
+     * @param client    a client_credentials registration of this application at the authorization server
+     */
+    public IntrospectionReactiveAuthenticationManager(WebClient webClient, ClientRegistration client) {
+        this(webClient, client, new WebClientReactiveClientCredentialsTokenResponseClient());
+    }
+
+    /**
+     * @param webClient           calls the introspection endpoint
+     * @param client              a client_credentials registration of this application at the authorization server
+     * @param tokenResponseClient obtains the client's tokens
+     */
+    public IntrospectionReactiveAuthenticationManager(WebClient webClient, ClientRegistration client,
+                                                      ReactiveOAuth2AccessTokenResponseClient<OAuth2ClientCredentialsGrantRequest> tokenResponseClient) {
+        this.webClient = webClient;
+        this.clientToken = Mono.defer(() -> tokenResponseClient.getTokenResponse(new OAuth2ClientCredentialsGrantRequest(client)).timeout(timeout))
+                .map(OAuth2AccessTokenResponse::getAccessToken)
+                .cache(IntrospectionReactiveAuthenticationManager::timeToRenewal, error -> Duration.ZERO, () -> Duration.ZERO)
+                .map(OAuth2AccessToken::getTokenValue);
+    }
+
+    /**
+     * @param authentication holds the access token as its principal, e.g. a PreAuthenticatedAuthenticationToken
+     * @return the OAuth2Authentication of an active token
+     */
+    @Override
+    public Mono<Authentication> authenticate(Authentication authentication) {
+        return Mono.defer(() -> introspect(String.valueOf(authentication.getPrincipal()))).flatMap(entry -> Boolean.TRUE.equals(entry.get("active"))
+                ? Mono.just(BatchingResourceServerTokenServices.authentication(entry))
+                : Mono.error(new BadCredentialsException("Invalid access token")));
+    }
+
+    private Mono<Map<String, Object>> introspect(String accessToken) {
+        Mono<Map<String, Object>> call = calls.get(accessToken);
+        if (call != null) {
+            shared.increment();
+            return call;
+        }
+        return calls.computeIfAbsent(accessToken, this::call);
+    }
+
+    /**
+     * The call for a token, made once for all its subscribers and forgotten once answered, before the answer reaches them.
+     *
+     * @param accessToken
+     * @return
+     */
+    private Mono<Map<String, Object>> call(String accessToken) {
+        tokens.increment();
+        return clientToken
+                .flatMap(clientToken -> webClient.post()
+                        .uri(uri)
+                        .headers(headers -> headers.setBearerAuth(clientToken))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .syncBody(Collections.singletonList(accessToken))
+                        .retrieve()
+                        .bodyToMono(ENTRIES))
+                .timeout(timeout)
+                .map(entries -> {
+                    if (entries.size() != 1) {
+                        throw new IllegalStateException("Expected 1 introspection entry, got " + entries.size());
+                    }
+                    return entries.get(0);
+                })
+                .onErrorMap(ex -> !(ex instanceof AuthenticationException), ex -> {
+                    failures.increment();
+                    return new AuthenticationServiceException("Could not introspect the token", ex);
+                })
+                // on the answer itself: doOnTerminate would wait for the completion, which the cache signals after handing out the answer
+                .doOnSuccessOrError((entry, ex) -> calls.remove(accessToken))
+                .cache();
+    }
+
+    private static Duration timeToRenewal(OAuth2AccessToken token) {
+        Duration left = Duration.between(Instant.now(), token.getExpiresAt()).minus(CLIENT_TOKEN_RENEWAL);
+        return left.isNegative() ? Duration.ZERO : left;
+    }
+
+    /**
+     * @return the tokens sent to the endpoint, the lookups that waited on the call already made for the same token (shared),
+     * the calls in flight now and the calls that failed or timed out
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("tokens", tokens.sum());
+        stats.put("shared", shared.sum());
+        stats.put("inFlight", calls.size());
+        stats.put("failures", failures.sum());
+        return stats;
+    }
+
+    /**
+     * The batch introspection endpoint, e.g. "http://localhost:8080/introspect".
+     *
+     * @param uri
+     */
+    public void setUri(String uri) {
+        this.uri = uri;
+    }
+
+    /**
+     * How long a call, or the client token request before it, may take.
+     *
+     * @param timeout
+     */
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+}
@@ -0,0 +1,566 @@
+package com.springboot.spring_security.token;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.security.oauth2.common.ExpiringOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.common.util.SerializationUtils;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.AuthenticationKeyGenerator;
+import org.springframework.security.oauth2.provider.token.DefaultAuthenticationKeyGenerator;
+import org.springframework.security.oauth2.provider.token.TokenStore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A TokenStore that survives restarts: every change is appended to a log of memory-mapped segment files,
+ * and an in-memory hash index points at the records.
+ * <p>
+ * Only the index (token values, client ids and user names) lives on the heap; the serialized tokens and authentications stay in the mapped files,
+ * so lookups by access token value, by refresh token and by client/user are all a hash lookup plus one deserialization.
+ * At startup the index is rebuilt by scanning the record headers only, without deserializing any token.
+ * <p>
+ * A background compactor copies the live, unexpired records of sealed segments forward into the active segment and deletes the old files,
+ * oldest segment first, so removed and expired tokens do not accumulate on disk.
+ */
+public class LogStructuredTokenStore implements TokenStore, Closeable {
+
+    private static final Log logger = LogFactory.getLog(LogStructuredTokenStore.class);
+
+    private static final byte ACCESS = 1;
+    private static final byte REFRESH = 2;
+    private static final byte REMOVE_ACCESS = 3;
+    private static final byte REMOVE_REFRESH = 4;
+
+    /**
+     * type (1) + expiresAt (8) + token length (4) + authentication length (4)
+     */
+    private static final int FIXED_HEADER = 17;
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private final ConcurrentSkipListMap<Integer, TokenLogSegment> segments = new ConcurrentSkipListMap<>();
+
+    /**
+     * Guards appends and every index mutation; reads are lock-free.
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private final Map<String, AccessEntry> accessTokens = new ConcurrentHashMap<>();
+    private final Map<String, RecordAddress> refreshTokens = new ConcurrentHashMap<>();
+    private final Map<String, String> authenticationToAccessToken = new ConcurrentHashMap<>();
+    private final Map<String, String> refreshTokenToAccessToken = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> clientIdToAccessTokens = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> approvalKeyToAccessTokens = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService compactor;
+
+    private AuthenticationKeyGenerator authenticationKeyGenerator = new DefaultAuthenticationKeyGenerator();
+
+    private TokenLogSegment active;
+
+    /**
+     * @param directory          where the segment files live; created if missing
+     * @param segmentSize        size of each mapped segment file in bytes
+     * @param compactionInterval how often sealed segments are compacted, zero to disable background compaction
+     */
+    public LogStructuredTokenStore(Path directory, int segmentSize, Duration compactionInterval) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+        load();
+        if (compactionInterval.isZero()) {
+            this.compactor = null;
+        } else {
+            this.compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "token-log-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long millis = compactionInterval.toMillis();
+            this.compactor.scheduleWithFixedDelay(this::compactQuietly, millis, millis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void setAuthenticationKeyGenerator(AuthenticationKeyGenerator authenticationKeyGenerator) {
+        this.authenticationKeyGenerator = authenticationKeyGenerator;
+    }
+
+    @Override
+    public OAuth2AccessToken getAccessToken(OAuth2Authentication authentication) {
+        String key = authenticationKeyGenerator.extractKey(authentication);
+        String tokenValue = authenticationToAccessToken.get(key);
+        // one read of the entry: a concurrent removeAccessToken may drop it at any time
+        AccessEntry entry = tokenValue != null ? accessTokens.get(tokenValue) : null;
+        if (entry == null) {
+            return null;
+        }
+        OAuth2AccessToken accessToken = token(entry.address);
+        if (!key.equals(entry.authenticationKey)) {
+            storeAccessToken(accessToken, authentication);
+        }
+        return accessToken;
+    }
+
+    @Override
+    public OAuth2Authentication readAuthentication(OAuth2AccessToken token) {
+        return readAuthentication(token.getValue());
+    }
+
+    @Override
+    public OAuth2Authentication readAuthentication(String token) {
+        AccessEntry entry = accessTokens.get(token);
+        return entry != null ? authentication(entry.address) : null;
+    }
+
+    @Override
+    public void storeAccessToken(OAuth2AccessToken token, OAuth2Authentication authentication) {
+        String refreshToken = token.getRefreshToken() != null ? token.getRefreshToken().getValue() : null;
+        long expiresAt = token.getExpiration() != null ? token.getExpiration().getTime() : 0;
+        String userName = authentication.isClientOnly() ? null : authentication.getUserAuthentication().getName();
+        AccessEntry entry = new AccessEntry(null, authenticationKeyGenerator.extractKey(authentication),
+                authentication.getOAuth2Request().getClientId(), userName, refreshToken, expiresAt);
+        byte[] body = encode(ACCESS, expiresAt, SerializationUtils.serialize(token), SerializationUtils.serialize(authentication),
+                token.getValue(), entry.authenticationKey, entry.clientId, entry.userName, entry.refreshToken);
+        writeLock.lock();
+        try {
+            putAccess(token.getValue(), entry.at(append(body)));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public OAuth2AccessToken readAccessToken(String tokenValue) {
+        AccessEntry entry = accessTokens.get(tokenValue);
+        return entry != null ? token(entry.address) : null;
+    }
+
+    @Override
+    public void removeAccessToken(OAuth2AccessToken token) {
+        removeAccessToken(token.getValue());
+    }
+
+    public void removeAccessToken(String tokenValue) {
+        writeLock.lock();
+        try {
+            if (accessTokens.containsKey(tokenValue)) {
+                append(encode(REMOVE_ACCESS, 0, new byte[0], new byte[0], tokenValue, null, null, null, null));
+                removeAccess(tokenValue);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void storeRefreshToken(OAuth2RefreshToken refreshToken, OAuth2Authentication authentication) {
+        long expiresAt = refreshToken instanceof ExpiringOAuth2RefreshToken && ((ExpiringOAuth2RefreshToken) refreshToken).getExpiration() != null
+                ? ((ExpiringOAuth2RefreshToken) refreshToken).getExpiration().getTime() : 0;
+        byte[] body = encode(REFRESH, expiresAt, SerializationUtils.serialize(refreshToken), SerializationUtils.serialize(authentication),
+                refreshToken.getValue(), null, null, null, null);
+        writeLock.lock();
+        try {
+            refreshTokens.put(refreshToken.getValue(), append(body));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public OAuth2RefreshToken readRefreshToken(String tokenValue) {
+        RecordAddress address = refreshTokens.get(tokenValue);
+        return address != null ? token(address) : null;
+    }
+
+    @Override
+    public OAuth2Authentication readAuthenticationForRefreshToken(OAuth2RefreshToken token) {
+        RecordAddress address = refreshTokens.get(token.getValue());
+        return address != null ? authentication(address) : null;
+    }
+
+    @Override
+    public void removeRefreshToken(OAuth2RefreshToken token) {
+        writeLock.lock();
+        try {
+            if (refreshTokens.containsKey(token.getValue())) {
+                append(encode(REMOVE_REFRESH, 0, new byte[0], new byte[0], token.getValue(), null, null, null, null));
+                refreshTokens.remove(token.getValue());
+            }
+            refreshTokenToAccessToken.remove(token.getValue());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void removeAccessTokenUsingRefreshToken(OAuth2RefreshToken refreshToken) {
+        String accessToken = refreshTokenToAccessToken.remove(refreshToken.getValue());
+        if (accessToken != null) {
+            removeAccessToken(accessToken);
+        }
+    }
+
+    @Override
+    public Collection<OAuth2AccessToken> findTokensByClientIdAndUserName(String clientId, String userName) {
+        return readAccessTokens(approvalKeyToAccessTokens.get(approvalKey(clientId, userName)));
+    }
+
+    @Override
+    public Collection<OAuth2AccessToken> findTokensByClientId(String clientId) {
+        return readAccessTokens(clientIdToAccessTokens.get(clientId));
+    }
+
+    public int getAccessTokenCount() {
+        return accessTokens.size();
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Copies the live records of every sealed segment into the active segment and deletes the sealed files, oldest first.
+     * Expired tokens are dropped on the way.
+     */
+    public void compact() {
+        for (Integer id : new ArrayList<>(segments.keySet())) {
+            writeLock.lock();
+            try {
+                TokenLogSegment segment = segments.get(id);
+                if (segment == null || segment == active) {
+                    return;
+                }
+                long now = System.currentTimeMillis();
+                segment.scan((position, body) -> copyForward(segment, position, body, now));
+                active.force();
+                if (!segment.delete()) {
+                    // keep the order guarantee: never delete a newer segment while an older one is still on disk
+                    logger.warn("Could not delete compacted token log segment " + id);
+                    return;
+                }
+                segments.remove(id);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (compactor != null) {
+            compactor.shutdownNow();
+        }
+        writeLock.lock();
+        try {
+            if (active != null) {
+                active.force();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (RuntimeException ex) {
+            logger.warn("Token log compaction failed", ex);
+        }
+    }
+
+    private void copyForward(TokenLogSegment segment, int position, ByteBuffer body, long now) {
+        byte type = body.get(0);
+        long expiresAt = body.getLong(1);
+        boolean expired = expiresAt != 0 && expiresAt <= now;
+        String key = readString(body, stringsOffset(body));
+        if (type == ACCESS) {
+            AccessEntry entry = accessTokens.get(key);
+            if (entry != null && entry.address.is(segment, position)) {
+                if (expired) {
+                    removeAccess(key);
+                } else {
+                    accessTokens.put(key, entry.at(append(copy(body))));
+                }
+            }
+        } else if (type == REFRESH) {
+            RecordAddress address = refreshTokens.get(key);
+            if (address != null && address.is(segment, position)) {
+                if (expired) {
+                    refreshTokens.remove(key);
+                    refreshTokenToAccessToken.remove(key);
+                } else {
+                    refreshTokens.put(key, append(copy(body)));
+                }
+            }
+        }
+        // removal records only cancel records of this or older segments, which are gone once this segment is deleted
+    }
+
+    private void load() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "tokens-*.log")) {
+            stream.forEach(files::add);
+        }
+        files.sort(null);
+        long now = System.currentTimeMillis();
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            int id = Integer.parseInt(name.substring("tokens-".length(), name.length() - ".log".length()));
+            TokenLogSegment segment = TokenLogSegment.open(file, id, segmentSize);
+            segments.put(id, segment);
+            segment.scan((position, body) -> replay(segment, position, body, now));
+        }
+        active = segments.isEmpty() ? newSegment(1) : segments.lastEntry().getValue();
+        logger.info("Loaded " + accessTokens.size() + " access tokens and " + refreshTokens.size() + " refresh tokens from " + segments.size() + " token log segments in " + directory);
+    }
+
+    private void replay(TokenLogSegment segment, int position, ByteBuffer body, long now) {
+        byte type = body.get(0);
+        long expiresAt = body.getLong(1);
+        int offset = stringsOffset(body);
+        String key = readString(body, offset);
+        switch (type) {
+            case ACCESS:
+                if (expiresAt != 0 && expiresAt <= now) {
+                    removeAccess(key);
+                    break;
+                }
+                offset += stringLength(body, offset);
+                String authenticationKey = readString(body, offset);
+                offset += stringLength(body, offset);
+                String clientId = readString(body, offset);
+                offset += stringLength(body, offset);
+                String userName = readString(body, offset);
+                offset += stringLength(body, offset);
+                String refreshToken = readString(body, offset);
+                putAccess(key, new AccessEntry(new RecordAddress(segment, position), authenticationKey, clientId, userName, refreshToken, expiresAt));
+                break;
+            case REFRESH:
+                if (expiresAt == 0 || expiresAt > now) {
+                    refreshTokens.put(key, new RecordAddress(segment, position));
+                }
+                break;
+            case REMOVE_ACCESS:
+                removeAccess(key);
+                break;
+            case REMOVE_REFRESH:
+                refreshTokens.remove(key);
+                refreshTokenToAccessToken.remove(key);
+                break;
+            default:
+                throw new IllegalStateException("Unknown token log record type " + type + " in segment " + segment.getId());
+        }
+    }
+
+    private void putAccess(String tokenValue, AccessEntry entry) {
+        AccessEntry previous = accessTokens.put(tokenValue, entry);
+        if (previous != null) {
+            unindex(tokenValue, previous);
+        }
+        authenticationToAccessToken.put(entry.authenticationKey, tokenValue);
+        clientIdToAccessTokens.computeIfAbsent(entry.clientId, key -> ConcurrentHashMap.newKeySet()).add(tokenValue);
+        if (entry.userName != null) {
+            approvalKeyToAccessTokens.computeIfAbsent(approvalKey(entry.clientId, entry.userName), key -> ConcurrentHashMap.newKeySet()).add(tokenValue);
+        }
+        if (entry.refreshToken != null) {
+            refreshTokenToAccessToken.put(entry.refreshToken, tokenValue);
+        }
+    }
+
+    private void removeAccess(String tokenValue) {
+        AccessEntry removed = accessTokens.remove(tokenValue);
+        if (removed != null) {
+            unindex(tokenValue, removed);
+        }
+    }
+
+    private void unindex(String tokenValue, AccessEntry entry) {
+        authenticationToAccessToken.remove(entry.authenticationKey, tokenValue);
+        removeFromSet(clientIdToAccessTokens, entry.clientId, tokenValue);
+        if (entry.userName != null) {
+            removeFromSet(approvalKeyToAccessTokens, approvalKey(entry.clientId, entry.userName), tokenValue);
+        }
+    }
+
+    private static void removeFromSet(Map<String, Set<String>> index, String key, String tokenValue) {
+        index.computeIfPresent(key, (k, values) -> {
+            values.remove(tokenValue);
+            return values.isEmpty() ? null : values;
+        });
+    }
+
+    private Collection<OAuth2AccessToken> readAccessTokens(Set<String> tokenValues) {
+        if (tokenValues == null) {
+            return Collections.emptySet();
+        }
+        List<OAuth2AccessToken> tokens = new ArrayList<>(tokenValues.size());
+        for (String tokenValue : tokenValues) {
+            OAuth2AccessToken token = readAccessToken(tokenValue);
+            if (token != null) {
+                tokens.add(token);
+            }
+        }
+        return Collections.unmodifiableCollection(tokens);
+    }
+
+    private RecordAddress append(byte[] body) {
+        if (!active.hasRoom(body.length)) {
+            if (body.length + 8 > segmentSize) {
+                throw new IllegalArgumentException("Token record of " + body.length + " bytes does not fit in a token log segment of " + segmentSize + " bytes");
+            }
+            active.force();
+            active = newSegment(active.getId() + 1);
+        }
+        return new RecordAddress(active, active.append(body));
+    }
+
+    private TokenLogSegment newSegment(int id) {
+        try {
+            TokenLogSegment segment = TokenLogSegment.open(directory.resolve(String.format("tokens-%08d.log", id)), id, segmentSize);
+            segments.put(id, segment);
+            return segment;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static String approvalKey(String clientId, String userName) {
+        return clientId + (userName == null ? "" : ":" + userName);
+    }
+
+    private static <T> T token(RecordAddress address) {
+        ByteBuffer body = address.body();
+        byte[] bytes = new byte[body.getInt(9)];
+        body.position(FIXED_HEADER);
+        body.get(bytes);
+        return SerializationUtils.deserialize(bytes);
+    }
+
+    private static OAuth2Authentication authentication(RecordAddress address) {
+        ByteBuffer body = address.body();
+        byte[] bytes = new byte[body.getInt(13)];
+        body.position(FIXED_HEADER + body.getInt(9));
+        body.get(bytes);
+        return SerializationUtils.deserialize(bytes);
+    }
+
+    /**
+     * Record body layout: type, expiresAt, token length, authentication length, token bytes, authentication bytes,
+     * then the index fields as length-prefixed UTF-8 strings (length -1 for null).
+     * The body holds no positions, so compaction can copy it verbatim.
+     */
+    private static byte[] encode(byte type, long expiresAt, byte[] token, byte[] authentication, String... strings) {
+        byte[][] encoded = new byte[strings.length][];
+        int length = FIXED_HEADER + token.length + authentication.length;
+        for (int i = 0; i < strings.length; i++) {
+            encoded[i] = strings[i] != null ? strings[i].getBytes(StandardCharsets.UTF_8) : null;
+            length += 4 + (encoded[i] != null ? encoded[i].length : 0);
+        }
+        ByteBuffer body = ByteBuffer.allocate(length);
+        body.put(type).putLong(expiresAt).putInt(token.length).putInt(authentication.length).put(token).put(authentication);
+        for (byte[] string : encoded) {
+            body.putInt(string != null ? string.length : -1);
+            if (string != null) {
+                body.put(string);
+            }
+        }
+        return body.array();
+    }
+
+    private static byte[] copy(ByteBuffer body) {
+        byte[] bytes = new byte[body.limit()];
+        ByteBuffer view = body.duplicate();
+        view.position(0);
+        view.get(bytes);
+        return bytes;
+    }
+
+    private static int stringsOffset(ByteBuffer body) {
+        return FIXED_HEADER + body.getInt(9) + body.getInt(13);
+    }
+
+    private static int stringLength(ByteBuffer body, int offset) {
+        return 4 + Math.max(body.getInt(offset), 0);
+    }
+
+    private static String readString(ByteBuffer body, int offset) {
+        int length = body.getInt(offset);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer view = body.duplicate();
+        view.position(offset + 4);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Where a record lives. Holding the segment itself (not its id) keeps reads valid while compaction deletes the file.
+     */
+    private static final class RecordAddress {
+
+        final TokenLogSegment segment;
+        final int position;
+
+        RecordAddress(TokenLogSegment segment, int position) {
+            this.segment = segment;
+            this.position = position;
+        }
+
+        boolean is(TokenLogSegment segment, int position) {
+            return this.segment == segment && this.position == position;
+        }
+
+        ByteBuffer body() {
+            return segment.body(position);
+        }
+    }
+
+    private static final class AccessEntry {
+
+        final RecordAddress address;
+        final String authenticationKey;
+        final String clientId;
+        final String userName;
+        final String refreshToken;
+        final long expiresAt;
+
+        AccessEntry(RecordAddress address, String authenticationKey, String clientId, String userName, String refreshToken, long expiresAt) {
+            this.address = address;
+            this.authenticationKey = authenticationKey;
+            this.clientId = clientId;
+            this.userName = userName;
+            this.refreshToken = refreshToken;
+            this.expiresAt = expiresAt;
+        }
+
+        AccessEntry at(RecordAddress address) {
+            return new AccessEntry(address, authenticationKey, clientId, userName, refreshToken, expiresAt);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.springboot.spring_security.token;
+
+import org.springframework.security.jwt.JwtHelper;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.ExpiringOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.common.util.JsonParserFactory;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The JwtAccessTokenConverter used in signed-token mode.
+ * It opens up signature verification, so the CachingJwtTokenStore can verify a token once and extract both the access token and the authentication from the same claims.
+ * <p>
+ * An access token with a refresh token also names it: the "rti" claim is the jti of the refresh token, which every refresh token of the grant keeps
+ * (a refresh grant re-signs the refresh token, with a new "ati" but the same jti), and "rexp" its expiry in seconds, if it has one.
+ * That is how revoking a signed access token can revoke the refresh token of its grant.
+ */
+public class SignedTokenConverter extends JwtAccessTokenConverter {
+
+    public static final String REFRESH_TOKEN_ID = "rti";
+
+    public static final String REFRESH_TOKEN_EXPIRATION = "rexp";
+
+    /**
+     * Checks the signature and the claims of a signed token.
+     *
+     * @param token
+     * @return the verified claims
+     * @throws org.springframework.security.oauth2.common.exceptions.InvalidTokenException if the token is not valid
+     */
+    public Map<String, Object> verify(String token) {
+        return decode(token);
+    }
+
+    @Override
+    public OAuth2AccessToken enhance(OAuth2AccessToken accessToken, OAuth2Authentication authentication) {
+        OAuth2RefreshToken refreshToken = accessToken.getRefreshToken();
+        if (refreshToken == null) {
+            return super.enhance(accessToken, authentication);
+        }
+        Map<String, Object> info = new LinkedHashMap<>(accessToken.getAdditionalInformation());
+        info.put(REFRESH_TOKEN_ID, refreshTokenId(refreshToken));
+        if (refreshToken instanceof ExpiringOAuth2RefreshToken && ((ExpiringOAuth2RefreshToken) refreshToken).getExpiration() != null) {
+            info.put(REFRESH_TOKEN_EXPIRATION, ((ExpiringOAuth2RefreshToken) refreshToken).getExpiration().getTime() / 1000);
+        }
+        DefaultOAuth2AccessToken naming = new DefaultOAuth2AccessToken(accessToken);
+        naming.setAdditionalInformation(info);
+        return super.enhance(naming, authentication);
+    }
+
+    /**
+     * The jti the refresh token will have once enhanced: its own if it is signed already, else its value, as in JwtAccessTokenConverter.enhance.
+     *
+     * @param refreshToken
+     * @return
+     */
+    private static String refreshTokenId(OAuth2RefreshToken refreshToken) {
+        try {
+            Object jti = JsonParserFactory.create().parseMap(JwtHelper.decode(refreshToken.getValue()).getClaims()).get(TOKEN_ID);
+            if (jti != null) {
+                return jti.toString();
+            }
+        } catch (IllegalArgumentException ex) {
+            // not a JWT (yet)
+        }
+        return refreshToken.getValue();
+    }
+}
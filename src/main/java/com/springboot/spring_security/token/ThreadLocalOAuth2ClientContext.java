@@ -0,0 +1,43 @@
+package com.springboot.spring_security.token;
+
+import org.springframework.security.oauth2.client.DefaultOAuth2ClientContext;
+import org.springframework.security.oauth2.client.OAuth2ClientContext;
+import org.springframework.security.oauth2.client.token.AccessTokenRequest;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+
+/**
+ * An OAuth2ClientContext of which every thread sees its own copy.
+ * <p>
+ * UserInfoTokenServices puts the token it checks into the context of its rest template right before calling the user info endpoint,
+ * on the same thread. With this context one (pooled) rest template can be shared by concurrent lookups, including background refreshes
+ * that have no request or session to hold a session-scoped context.
+ */
+public class ThreadLocalOAuth2ClientContext implements OAuth2ClientContext {
+
+    private final ThreadLocal<OAuth2ClientContext> context = ThreadLocal.withInitial(DefaultOAuth2ClientContext::new);
+
+    @Override
+    public OAuth2AccessToken getAccessToken() {
+        return context.get().getAccessToken();
+    }
+
+    @Override
+    public void setAccessToken(OAuth2AccessToken accessToken) {
+        context.get().setAccessToken(accessToken);
+    }
+
+    @Override
+    public AccessTokenRequest getAccessTokenRequest() {
+        return context.get().getAccessTokenRequest();
+    }
+
+    @Override
+    public void setPreservedState(String stateKey, Object preservedState) {
+        context.get().setPreservedState(stateKey, preservedState);
+    }
+
+    @Override
+    public Object removePreservedState(String stateKey) {
+        return context.get().removePreservedState(stateKey);
+    }
+}
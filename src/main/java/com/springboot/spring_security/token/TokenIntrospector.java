@@ -0,0 +1,155 @@
+package com.springboot.spring_security.token;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.springboot.spring_security.revocation.RevocationIndex;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.TokenStore;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Looks up many access tokens at once in the token store of the authorization server and writes, in the order of the tokens,
+ * one RFC 7662 style entry for each: {"active":false} for an unknown, expired or malformed token, otherwise
+ * {"active":true,"username":..,"client_id":..,"scope":"read write","authorities":[..],"exp":..}.
+ * <p>
+ * The tokens are cut into chunks; the first is looked up on the calling thread while the others are looked up on the executor.
+ * Nothing is written before every chunk is done: once the first byte is out the response is committed with a 200,
+ * and a failing lookup would leave the caller with a truncated array instead of an error.
+ */
+public class TokenIntrospector {
+
+    private final TokenStore tokenStore;
+
+    private final Executor executor;
+
+    private final int chunkSize;
+
+    private RevocationIndex revocationIndex;
+
+    /**
+     * @param tokenStore
+     * @param executor   runs the lookups of every chunk but the first
+     * @param chunkSize  tokens looked up by one task
+     */
+    public TokenIntrospector(TokenStore tokenStore, Executor executor, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("The chunk size must be positive: " + chunkSize);
+        }
+        this.tokenStore = tokenStore;
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Tokens of the index are inactive, whether or not the token store still has them.
+     *
+     * @param revocationIndex
+     */
+    public void setRevocationIndex(RevocationIndex revocationIndex) {
+        this.revocationIndex = revocationIndex;
+    }
+
+    /**
+     * Writes the JSON array of the entries of the tokens.
+     *
+     * @param tokens
+     * @param json
+     * @throws IOException
+     * @throws RuntimeException the failure of a lookup, before anything is written
+     */
+    public void introspect(List<String> tokens, JsonGenerator json) throws IOException {
+        List<CompletableFuture<Introspection[]>> chunks = new ArrayList<>();
+        for (int from = chunkSize; from < tokens.size(); from += chunkSize) {
+            List<String> chunk = tokens.subList(from, Math.min(from + chunkSize, tokens.size()));
+            try {
+                chunks.add(CompletableFuture.supplyAsync(() -> lookup(chunk), executor));
+            } catch (RejectedExecutionException ex) {
+                // the executor is saturated: this request does its own lookups
+                chunks.add(CompletableFuture.completedFuture(lookup(chunk)));
+            }
+        }
+        Introspection[] first = lookup(tokens.subList(0, Math.min(chunkSize, tokens.size())));
+        List<Introspection[]> others = new ArrayList<>(chunks.size());
+        for (CompletableFuture<Introspection[]> chunk : chunks) {
+            try {
+                others.add(chunk.join());
+            } catch (CompletionException ex) {
+                throw ex.getCause() instanceof RuntimeException ? (RuntimeException) ex.getCause() : ex;
+            }
+        }
+        json.writeStartArray();
+        write(first, json);
+        for (Introspection[] chunk : others) {
+            write(chunk, json);
+        }
+        json.writeEndArray();
+        json.flush();
+    }
+
+    private Introspection[] lookup(List<String> tokens) {
+        Introspection[] introspections = new Introspection[tokens.size()];
+        for (int i = 0; i < introspections.length; i++) {
+            if (revocationIndex != null && revocationIndex.isRevoked(tokens.get(i))) {
+                continue;
+            }
+            OAuth2AccessToken token;
+            OAuth2Authentication authentication;
+            try {
+                token = tokenStore.readAccessToken(tokens.get(i));
+                authentication = token != null && !token.isExpired() ? tokenStore.readAuthentication(token) : null;
+            } catch (InvalidTokenException ex) {
+                // not a token of ours, e.g. a malformed or a refresh JWT for the signed store
+                continue;
+            }
+            if (authentication != null) {
+                introspections[i] = new Introspection(token, authentication);
+            }
+        }
+        return introspections;
+    }
+
+    private static void write(Introspection[] introspections, JsonGenerator json) throws IOException {
+        for (Introspection introspection : introspections) {
+            json.writeStartObject();
+            json.writeBooleanField("active", introspection != null);
+            if (introspection != null) {
+                OAuth2Authentication authentication = introspection.authentication;
+                if (!authentication.isClientOnly()) {
+                    json.writeStringField("username", authentication.getName());
+                }
+                json.writeStringField("client_id", authentication.getOAuth2Request().getClientId());
+                json.writeStringField("scope", String.join(" ", introspection.token.getScope()));
+                json.writeArrayFieldStart("authorities");
+                for (GrantedAuthority authority : authentication.getAuthorities()) {
+                    json.writeString(authority.getAuthority());
+                }
+                json.writeEndArray();
+                if (introspection.token.getExpiration() != null) {
+                    json.writeNumberField("exp", introspection.token.getExpiration().getTime() / 1000);
+                }
+            }
+            json.writeEndObject();
+        }
+    }
+
+    private static final class Introspection {
+
+        private final OAuth2AccessToken token;
+
+        private final OAuth2Authentication authentication;
+
+        Introspection(OAuth2AccessToken token, OAuth2Authentication authentication) {
+            this.token = token;
+            this.authentication = authentication;
+        }
+    }
+}
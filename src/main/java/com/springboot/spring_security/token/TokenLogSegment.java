@@ -0,0 +1,118 @@
+package com.springboot.spring_security.token;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * One fixed-size, memory-mapped file of the token log.
+ * <p>
+ * Records are appended as [int length][body]. The length is written after the body,
+ * so a record torn by a crash still reads as length 0, which marks the end of the segment.
+ * Appends are serialized by the owning store; reads work on duplicates of the mapped buffer and need no locking.
+ */
+class TokenLogSegment {
+
+    private final int id;
+
+    private final Path path;
+
+    private final MappedByteBuffer buffer;
+
+    private int writePosition;
+
+    private TokenLogSegment(int id, Path path, MappedByteBuffer buffer) {
+        this.id = id;
+        this.path = path;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Maps the segment file, creating it with the given capacity if it does not exist yet,
+     * and positions the writer after the last complete record.
+     */
+    static TokenLogSegment open(Path path, int id, int capacity) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            int size = (int) Math.max(channel.size(), capacity);
+            TokenLogSegment segment = new TokenLogSegment(id, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            segment.writePosition = segment.scan(null);
+            return segment;
+        }
+    }
+
+    int getId() {
+        return id;
+    }
+
+    boolean hasRoom(int bodyLength) {
+        return writePosition + 4 + bodyLength + 4 <= buffer.capacity();
+    }
+
+    /**
+     * @return the position of the record body, used as its address in the index
+     */
+    int append(byte[] body) {
+        ByteBuffer view = buffer.duplicate();
+        int position = writePosition;
+        view.position(position + 4);
+        view.put(body);
+        view.putInt(position, body.length);
+        writePosition = position + 4 + body.length;
+        return position + 4;
+    }
+
+    /**
+     * @return a read-only view of the record body at the given position
+     */
+    ByteBuffer body(int position) {
+        ByteBuffer view = buffer.asReadOnlyBuffer();
+        int length = view.getInt(position - 4);
+        view.position(position).limit(position + length);
+        return view.slice();
+    }
+
+    /**
+     * Visits every complete record in append order.
+     *
+     * @return the position just after the last complete record
+     */
+    int scan(RecordVisitor visitor) {
+        int position = 0;
+        int capacity = buffer.capacity();
+        while (position + 4 <= capacity) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + 4 + length > capacity) {
+                break;
+            }
+            if (visitor != null) {
+                visitor.visit(position + 4, body(position + 4));
+            }
+            position += 4 + length;
+        }
+        return position;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    /**
+     * Deletes the file. Readers still holding a body view keep a valid mapping until it is garbage collected.
+     */
+    boolean delete() {
+        try {
+            return Files.deleteIfExists(path);
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    interface RecordVisitor {
+
+        void visit(int position, ByteBuffer body);
+    }
+}
@@ -0,0 +1,126 @@
+package com.springboot.spring_security.user;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A UserDetailsService for millions of local accounts, reading them from a user index file written by the {@link UserIndexWriter}.
+ * <p>
+ * The index is memory-mapped, so the accounts take no heap and a lookup is a hash and one or two probes into the mapping.
+ * Reloading opens the new file completely before swapping it in with a single volatile write: lookups never wait for a reload,
+ * and a lookup that started on the old index finishes on it.
+ */
+public class IndexedUserDetailsService implements UserDetailsService, Closeable {
+
+    private static final Log logger = LogFactory.getLog(IndexedUserDetailsService.class);
+
+    private final Path file;
+
+    private final ScheduledExecutorService watcher;
+
+    private final LongAdder lookups = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private volatile UserIndex index;
+
+    private volatile FileTime loadedModifiedTime;
+
+    private volatile int reloads;
+
+    /**
+     * @param file           the user index file
+     * @param reloadInterval how often to check the file for changes and reload it; zero disables the check
+     * @throws IOException if the file is not a user index
+     */
+    public IndexedUserDetailsService(Path file, Duration reloadInterval) throws IOException {
+        this.file = file;
+        reload();
+        if (reloadInterval.isZero()) {
+            this.watcher = null;
+        } else {
+            this.watcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "user-index-watcher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = reloadInterval.toMillis();
+            this.watcher.scheduleWithFixedDelay(this::reloadIfModified, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        lookups.increment();
+        IndexedUser user = index.find(username);
+        if (user == null) {
+            misses.increment();
+            throw new UsernameNotFoundException(username);
+        }
+        return user;
+    }
+
+    /**
+     * Opens the index file again and swaps it in. Called by the watcher when the file changed, or directly after writing a new index.
+     *
+     * @throws IOException if the file is not a user index; the current index stays in use
+     */
+    public synchronized void reload() throws IOException {
+        FileTime modifiedTime = Files.getLastModifiedTime(file);
+        UserIndex loaded = UserIndex.open(file);
+        this.index = loaded;
+        this.loadedModifiedTime = modifiedTime;
+        this.reloads++;
+        logger.info("Loaded " + loaded.getUserCount() + " users from " + file);
+    }
+
+    /**
+     * @return the users and distinct authority sets of the loaded index and its size in bytes, how many times an index was loaded
+     * and the modification time of the file it was loaded from, and the lookups and the misses among them
+     */
+    public Map<String, Object> stats() {
+        UserIndex current = index;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("users", current.getUserCount());
+        stats.put("authoritySets", current.getAuthoritySetCount());
+        stats.put("indexBytes", current.getSizeBytes());
+        stats.put("loads", reloads);
+        stats.put("loadedModifiedTime", loadedModifiedTime.toString());
+        stats.put("lookups", lookups.sum());
+        stats.put("misses", misses.sum());
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        if (watcher != null) {
+            watcher.shutdownNow();
+        }
+    }
+
+    private void reloadIfModified() {
+        try {
+            if (!Files.getLastModifiedTime(file).equals(loadedModifiedTime)) {
+                reload();
+            }
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("Reloading the user index from " + file + " failed, keeping the current one", ex);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.springboot.spring_security.user;
+
+import com.springboot.spring_security.cache.ExpiringCache;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A PasswordEncoder that bounds how many passwords are hashed at once: the hashes run on a small pool of its own,
+ * so a burst of logins (e.g. credential stuffing) takes no more CPUs than the pool has threads from every other request.
+ * <p>
+ * It does not free the request thread, which waits for its hash. The wait is bounded instead: the pool has a bounded queue,
+ * and when a burst fills it, or a check waits longer than max-wait, the check fails at once with a {@link PasswordHashingSaturatedException},
+ * answered with 503, so a login holds its request thread for at most max-wait.
+ * PasswordHashingBenchmark measures the effect on the other requests.
+ * <p>
+ * Successful checks can be remembered for a short time in a cache keyed by a salted SHA-256 digest of the password and its hash,
+ * so repeated logins of the same user (e.g. HTTP Basic clients) are not hashed every time. The salt is random per process,
+ * and only successes are cached, so the cache holds nothing that helps guessing a password.
+ * <p>
+ * Passwords stored as bcrypt with fewer rounds than the configured cost are reported by {@link #upgradeEncoding},
+ * and the DaoAuthenticationProvider re-hashes them on login through the UserDetailsPasswordService.
+ */
+public class OffloadedPasswordEncoder implements PasswordEncoder, Closeable {
+
+    private static final String BCRYPT = "{bcrypt}";
+
+    private final PasswordEncoder delegate;
+
+    private final ThreadPoolExecutor executor;
+
+    private final int queueCapacity;
+
+    private final long maxWaitNanos;
+
+    private final byte[] salt = new byte[32];
+
+    private final LongAdder hashes = new LongAdder();
+    private final LongAdder hashNanos = new LongAdder();
+    private final LongAccumulator maxHashNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAccumulator maxQueued = new LongAccumulator(Math::max, 0);
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+
+    private ExpiringCache<String, Boolean> verifiedCache;
+
+    private int bcryptCost;
+
+    /**
+     * @param delegate      the encoder doing the hashing, e.g. a DelegatingPasswordEncoder
+     * @param threads       hashing threads
+     * @param queueCapacity password checks that may wait for a thread
+     * @param maxWait       longest time a caller waits for its check, queueing included
+     */
+    public OffloadedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, Duration maxWait) {
+        this.delegate = delegate;
+        this.queueCapacity = queueCapacity;
+        this.maxWaitNanos = maxWait.toNanos();
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "password-hashing-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        new SecureRandom().nextBytes(this.salt);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return hash(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        String key = verifiedCache != null && rawPassword != null && encodedPassword != null ? digest(rawPassword, encodedPassword) : null;
+        if (key != null && verifiedCache.getIfPresent(key) != null) {
+            cacheHits.increment();
+            return true;
+        }
+        boolean matches = hash(() -> delegate.matches(rawPassword, encodedPassword));
+        if (matches && key != null) {
+            verifiedCache.put(key, Boolean.TRUE);
+        }
+        return matches;
+    }
+
+    /**
+     * True for hashes the delegate would not produce any more, and for bcrypt hashes with fewer rounds than the configured cost.
+     * Upgrades are postponed while checks are queueing for the pool, so re-hashing never makes a login wait or fail.
+     *
+     * @param encodedPassword
+     * @return
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        boolean outdated = delegate.upgradeEncoding(encodedPassword) || bcryptCost(encodedPassword) < bcryptCost;
+        return outdated && executor.getQueue().isEmpty();
+    }
+
+    /**
+     * @return the hashing threads and how many are busy; the checks queued now, the most queued so far and the queue capacity;
+     * the hashes computed with their average and longest time and the average wait for a thread, in milliseconds;
+     * and the checks rejected because the queue was full, those that waited longer than the max-wait, and those answered from the cache
+     */
+    public Map<String, Object> stats() {
+        long hashCount = hashes.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("threads", executor.getMaximumPoolSize());
+        stats.put("active", executor.getActiveCount());
+        stats.put("queued", executor.getQueue().size());
+        stats.put("maxQueued", maxQueued.get());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("hashes", hashCount);
+        stats.put("averageHashMillis", hashCount == 0 ? 0.0 : hashNanos.sum() / (double) hashCount / TimeUnit.MILLISECONDS.toNanos(1));
+        stats.put("maxHashMillis", maxHashNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1));
+        stats.put("averageWaitMillis", hashCount == 0 ? 0.0 : waitNanos.sum() / (double) hashCount / TimeUnit.MILLISECONDS.toNanos(1));
+        stats.put("rejected", rejected.sum());
+        stats.put("timeouts", timeouts.sum());
+        stats.put("cacheHits", cacheHits.sum());
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @param verifiedCache cache of successful checks; its time-to-live is how long a changed password may still be accepted
+     *                      in its old form, so keep it short
+     */
+    public void setVerifiedCache(ExpiringCache<String, Boolean> verifiedCache) {
+        this.verifiedCache = verifiedCache;
+    }
+
+    /**
+     * @param bcryptCost the log2 rounds of the delegate's bcrypt encoder; bcrypt hashes with fewer rounds are upgraded on login
+     */
+    public void setBcryptCost(int bcryptCost) {
+        this.bcryptCost = bcryptCost;
+    }
+
+    private <T> T hash(Supplier<T> task) {
+        long submitted = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long start = System.nanoTime();
+                waitNanos.add(start - submitted);
+                try {
+                    return task.get();
+                } finally {
+                    long took = System.nanoTime() - start;
+                    hashes.increment();
+                    hashNanos.add(took);
+                    maxHashNanos.accumulate(took);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            rejected.increment();
+            throw new PasswordHashingSaturatedException("The password hashing queue is full");
+        }
+        maxQueued.accumulate(executor.getQueue().size());
+        try {
+            return future.get(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ex) {
+            // a queued check is dropped; a running hash cannot be interrupted and finishes unobserved
+            future.cancel(false);
+            timeouts.increment();
+            throw new PasswordHashingSaturatedException("The password check took longer than " + Duration.ofNanos(maxWaitNanos));
+        } catch (InterruptedException ex) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingSaturatedException("Interrupted while waiting for the password check");
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private String digest(CharSequence rawPassword, String encodedPassword) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(salt);
+            digest.update(encodedPassword.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(rawPassword.toString().getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest.digest());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * The cost of a "{bcrypt}$2a$10$..." hash, or Integer.MAX_VALUE for anything else, which is then never upgraded for its cost.
+     */
+    private static int bcryptCost(String encodedPassword) {
+        if (encodedPassword == null || !encodedPassword.startsWith(BCRYPT + "$2") || encodedPassword.length() < BCRYPT.length() + 7) {
+            return Integer.MAX_VALUE;
+        }
+        int dollar = encodedPassword.indexOf('$', BCRYPT.length() + 1);
+        try {
+            return Integer.parseInt(encodedPassword.substring(dollar + 1, dollar + 3));
+        } catch (RuntimeException ex) {
+            return Integer.MAX_VALUE;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.springboot.spring_security.user;
+
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+
+/**
+ * Thrown when a password cannot be checked because the password hashing pool is saturated.
+ * It says nothing about the credentials: the login form answers it with 503 Service Unavailable rather than a failed login.
+ * Being an InternalAuthenticationServiceException, the ProviderManager rethrows it at once instead of trying other providers.
+ */
+public class PasswordHashingSaturatedException extends InternalAuthenticationServiceException {
+
+    public PasswordHashingSaturatedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,148 @@
+package com.springboot.spring_security.user;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A user index file mapped read-only into memory. Lookups only read the mapping, so any number of threads can use an index at once;
+ * the mapping is released when the index is no longer referenced.
+ */
+final class UserIndex {
+
+    private final MappedByteBuffer buffer;
+
+    private final int userCount;
+
+    private final int mask;
+
+    private final int slotsOffset;
+
+    private final List<GrantedAuthority>[] authoritySets;
+
+    private UserIndex(MappedByteBuffer buffer, int userCount, int slotCount, int slotsOffset, List<GrantedAuthority>[] authoritySets) {
+        this.buffer = buffer;
+        this.userCount = userCount;
+        this.mask = slotCount - 1;
+        this.slotsOffset = slotsOffset;
+        this.authoritySets = authoritySets;
+    }
+
+    static UserIndex open(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < UserIndexFormat.HEADER || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Not a user index: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.getInt(0) != UserIndexFormat.MAGIC || buffer.getInt(4) != UserIndexFormat.VERSION
+                || buffer.getLong(UserIndexFormat.LENGTH) != buffer.capacity()) {
+            throw new IOException("Not a user index, or an incomplete one: " + file);
+        }
+        int slotCount = buffer.getInt(UserIndexFormat.SLOT_COUNT);
+        int slotsOffset = (int) buffer.getLong(UserIndexFormat.SLOTS_OFFSET);
+        List<GrantedAuthority>[] authoritySets = readAuthoritySets(buffer, (int) buffer.getLong(UserIndexFormat.AUTHORITIES_OFFSET));
+        return new UserIndex(buffer, buffer.getInt(UserIndexFormat.USER_COUNT), slotCount, slotsOffset, authoritySets);
+    }
+
+    /**
+     * @param username the username, in any case
+     * @return the user, or null if the index has no such user
+     */
+    IndexedUser find(String username) {
+        byte[] key = UserIndexFormat.key(username);
+        int hash = UserIndexFormat.hash(key);
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int position = slotsOffset + slot * UserIndexFormat.SLOT;
+            int record = buffer.getInt(position + 4);
+            if (record == 0) {
+                return null;
+            }
+            if (buffer.getInt(position) == hash) {
+                int offset = UserIndexFormat.HEADER + (record - 1) * 8;
+                if (matches(offset, key)) {
+                    return read(offset, key.length);
+                }
+            }
+        }
+    }
+
+    int getUserCount() {
+        return userCount;
+    }
+
+    int getAuthoritySetCount() {
+        return authoritySets.length;
+    }
+
+    long getSizeBytes() {
+        return buffer.capacity();
+    }
+
+    private boolean matches(int offset, byte[] key) {
+        if (buffer.getShort(offset + UserIndexFormat.USERNAME_LENGTH) != key.length) {
+            return false;
+        }
+        int start = offset + UserIndexFormat.RECORD_HEADER;
+        for (int i = 0; i < key.length; i++) {
+            if (buffer.get(start + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private IndexedUser read(int offset, int usernameLength) {
+        int flags = buffer.get(offset + UserIndexFormat.FLAGS);
+        int passwordLength = buffer.getShort(offset + UserIndexFormat.PASSWORD_LENGTH);
+        List<GrantedAuthority> authorities = authoritySets[buffer.getInt(offset + UserIndexFormat.AUTHORITY_SET)];
+        byte[] bytes = new byte[usernameLength + passwordLength];
+        ByteBuffer source = buffer.duplicate();
+        source.position(offset + UserIndexFormat.RECORD_HEADER);
+        source.get(bytes);
+        return new IndexedUser(
+                new String(bytes, 0, usernameLength, StandardCharsets.UTF_8),
+                new String(bytes, usernameLength, passwordLength, StandardCharsets.UTF_8),
+                authorities,
+                (flags & UserIndexFormat.ENABLED) != 0,
+                (flags & UserIndexFormat.ACCOUNT_NON_EXPIRED) != 0,
+                (flags & UserIndexFormat.ACCOUNT_NON_LOCKED) != 0,
+                (flags & UserIndexFormat.CREDENTIALS_NON_EXPIRED) != 0);
+    }
+
+    /**
+     * Every distinct authority becomes one GrantedAuthority instance, and every authority set one unmodifiable list,
+     * shared by all the users that have it.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static List<GrantedAuthority>[] readAuthoritySets(MappedByteBuffer buffer, int offset) {
+        ByteBuffer source = buffer.duplicate();
+        source.position(offset);
+        Map<String, GrantedAuthority> interned = new HashMap<>();
+        List<GrantedAuthority>[] sets = new List[source.getInt()];
+        for (int i = 0; i < sets.length; i++) {
+            int size = source.getShort();
+            List<GrantedAuthority> set = new ArrayList<>(size);
+            for (int j = 0; j < size; j++) {
+                byte[] bytes = new byte[source.getShort()];
+                source.get(bytes);
+                set.add(interned.computeIfAbsent(new String(bytes, StandardCharsets.UTF_8), SimpleGrantedAuthority::new));
+            }
+            sets[i] = Collections.unmodifiableList(set);
+        }
+        return sets;
+    }
+}
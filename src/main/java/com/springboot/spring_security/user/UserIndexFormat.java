@@ -0,0 +1,66 @@
+package com.springboot.spring_security.user;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Layout of a user index file, shared by the UserIndexWriter and the UserIndex reading it:
+ * <pre>
+ * header      [int magic][int version][int userCount][int slotCount][long recordsOffset][long authoritiesOffset][long slotsOffset][long length], padded to 64 bytes
+ * records     [byte flags][byte unused][short usernameLength][short passwordLength][short unused][int authoritySet][username][password], each padded to 8 bytes
+ * authorities [int setCount] then per set [short size] then per authority [short length][authority]
+ * slots       [int hash][int record], record = (offset from recordsOffset) / 8 + 1, 0 for an empty slot
+ * </pre>
+ * Usernames are stored lower case, like the InMemoryUserDetailsManager does, and hashed with FNV-1a into an open-addressing table
+ * that is at most half full, so a lookup probes one or two slots on average.
+ */
+final class UserIndexFormat {
+
+    static final int MAGIC = 0x55534958;
+    static final int VERSION = 1;
+    static final int HEADER = 64;
+
+    static final int USER_COUNT = 8;
+    static final int SLOT_COUNT = 12;
+    static final int RECORDS_OFFSET = 16;
+    static final int AUTHORITIES_OFFSET = 24;
+    static final int SLOTS_OFFSET = 32;
+    static final int LENGTH = 40;
+
+    static final int RECORD_HEADER = 12;
+    static final int FLAGS = 0;
+    static final int USERNAME_LENGTH = 2;
+    static final int PASSWORD_LENGTH = 4;
+    static final int AUTHORITY_SET = 8;
+
+    static final int ENABLED = 1;
+    static final int ACCOUNT_NON_EXPIRED = 2;
+    static final int ACCOUNT_NON_LOCKED = 4;
+    static final int CREDENTIALS_NON_EXPIRED = 8;
+
+    static final int SLOT = 8;
+
+    private UserIndexFormat() {
+    }
+
+    static byte[] key(String username) {
+        return username.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8);
+    }
+
+    static int hash(byte[] key) {
+        int hash = 0x811C9DC5;
+        for (byte b : key) {
+            hash ^= b & 0xFF;
+            hash *= 0x01000193;
+        }
+        return hash;
+    }
+
+    static int slotCount(int users) {
+        int slots = 16;
+        while (slots < users * 2L) {
+            slots <<= 1;
+        }
+        return slots;
+    }
+}
@@ -0,0 +1,203 @@
+package com.springboot.spring_security.user;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Bulk-writes a user index file for the {@link IndexedUserDetailsService}, e.g. from an export of the account database.
+ * <p>
+ * The users are streamed to disk as they are read, so only the username hashes are kept in memory while writing.
+ * Users with the same authorities share one authority set in the file, and one list of GrantedAuthority instances once loaded.
+ * The index is written next to the target and then moved over it, so a running service can reload it at any time.
+ */
+public final class UserIndexWriter {
+
+    private UserIndexWriter() {
+    }
+
+    /**
+     * @param file  the index file to create or replace
+     * @param users the users; their passwords must already be encoded
+     * @return the number of users written
+     * @throws IOException if the file cannot be written
+     */
+    public static int write(Path file, Iterable<? extends UserDetails> users) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            int count = writeIndex(temp, users);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return count;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static int writeIndex(Path file, Iterable<? extends UserDetails> users) throws IOException {
+        Map<List<String>, Integer> authoritySets = new HashMap<>();
+        List<List<String>> authoritySetList = new ArrayList<>();
+        int[] hashes = new int[1024];
+        int[] records = new int[1024];
+        int count = 0;
+        long position = UserIndexFormat.HEADER;
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024))) {
+            out.write(new byte[UserIndexFormat.HEADER]);
+            for (UserDetails user : users) {
+                byte[] username = UserIndexFormat.key(user.getUsername());
+                byte[] password = user.getPassword() == null ? new byte[0] : user.getPassword().getBytes(StandardCharsets.UTF_8);
+                if (username.length > Short.MAX_VALUE || password.length > Short.MAX_VALUE) {
+                    throw new IllegalArgumentException("Username or password too long: " + user.getUsername());
+                }
+                List<String> authorities = new ArrayList<>(new TreeSet<>(authorityNames(user)));
+                Integer authoritySet = authoritySets.get(authorities);
+                if (authoritySet == null) {
+                    authoritySet = authoritySetList.size();
+                    authoritySets.put(authorities, authoritySet);
+                    authoritySetList.add(authorities);
+                }
+
+                if (count == hashes.length) {
+                    hashes = Arrays.copyOf(hashes, count * 2);
+                    records = Arrays.copyOf(records, count * 2);
+                }
+                hashes[count] = UserIndexFormat.hash(username);
+                records[count] = (int) ((position - UserIndexFormat.HEADER) / 8) + 1;
+                count++;
+
+                out.writeByte(flags(user));
+                out.writeByte(0);
+                out.writeShort(username.length);
+                out.writeShort(password.length);
+                out.writeShort(0);
+                out.writeInt(authoritySet);
+                out.write(username);
+                out.write(password);
+                int length = UserIndexFormat.RECORD_HEADER + username.length + password.length;
+                int padded = (length + 7) & ~7;
+                out.write(new byte[padded - length]);
+                position += padded;
+                if (position > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("A user index is limited to 2 GB of records");
+                }
+            }
+
+            long authoritiesOffset = position;
+            out.writeInt(authoritySetList.size());
+            position += 4;
+            for (List<String> authorities : authoritySetList) {
+                out.writeShort(authorities.size());
+                position += 2;
+                for (String authority : authorities) {
+                    byte[] bytes = authority.getBytes(StandardCharsets.UTF_8);
+                    out.writeShort(bytes.length);
+                    out.write(bytes);
+                    position += 2 + bytes.length;
+                }
+            }
+            position = (position + 7) & ~7;
+            while (out.size() < position) {
+                out.writeByte(0);
+            }
+            out.flush();
+            writeSlotsAndHeader(file, hashes, records, count, authoritiesOffset, position);
+        }
+        return count;
+    }
+
+    private static void writeSlotsAndHeader(Path file, int[] hashes, int[] records, int count, long authoritiesOffset, long slotsOffset) throws IOException {
+        int slotCount = UserIndexFormat.slotCount(count);
+        long length = slotsOffset + (long) slotCount * UserIndexFormat.SLOT;
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A user index is limited to 2 GB");
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            int mask = slotCount - 1;
+            for (int i = 0; i < count; i++) {
+                int slot = hashes[i] & mask;
+                while (true) {
+                    int position = (int) slotsOffset + slot * UserIndexFormat.SLOT;
+                    int existing = buffer.getInt(position + 4);
+                    if (existing == 0) {
+                        buffer.putInt(position, hashes[i]);
+                        buffer.putInt(position + 4, records[i]);
+                        break;
+                    }
+                    if (buffer.getInt(position) == hashes[i] && sameUsername(buffer, existing, records[i])) {
+                        throw new IllegalArgumentException("Duplicate username: " + new String(username(buffer, records[i]), StandardCharsets.UTF_8));
+                    }
+                    slot = (slot + 1) & mask;
+                }
+            }
+            buffer.putInt(0, UserIndexFormat.MAGIC);
+            buffer.putInt(4, UserIndexFormat.VERSION);
+            buffer.putInt(UserIndexFormat.USER_COUNT, count);
+            buffer.putInt(UserIndexFormat.SLOT_COUNT, slotCount);
+            buffer.putLong(UserIndexFormat.RECORDS_OFFSET, UserIndexFormat.HEADER);
+            buffer.putLong(UserIndexFormat.AUTHORITIES_OFFSET, authoritiesOffset);
+            buffer.putLong(UserIndexFormat.SLOTS_OFFSET, slotsOffset);
+            buffer.putLong(UserIndexFormat.LENGTH, length);
+            buffer.force();
+        }
+    }
+
+    private static boolean sameUsername(ByteBuffer buffer, int record, int other) {
+        return ByteBuffer.wrap(username(buffer, record)).equals(ByteBuffer.wrap(username(buffer, other)));
+    }
+
+    private static byte[] username(ByteBuffer buffer, int record) {
+        int position = UserIndexFormat.HEADER + (record - 1) * 8;
+        byte[] username = new byte[buffer.getShort(position + UserIndexFormat.USERNAME_LENGTH)];
+        ByteBuffer source = buffer.duplicate();
+        source.position(position + UserIndexFormat.RECORD_HEADER);
+        source.get(username);
+        return username;
+    }
+
+    private static List<String> authorityNames(UserDetails user) {
+        List<String> names = new ArrayList<>();
+        if (user.getAuthorities() != null) {
+            for (GrantedAuthority authority : user.getAuthorities()) {
+                names.add(authority.getAuthority());
+            }
+        }
+        return names;
+    }
+
+    private static int flags(UserDetails user) {
+        int flags = 0;
+        if (user.isEnabled()) {
+            flags |= UserIndexFormat.ENABLED;
+        }
+        if (user.isAccountNonExpired()) {
+            flags |= UserIndexFormat.ACCOUNT_NON_EXPIRED;
+        }
+        if (user.isAccountNonLocked()) {
+            flags |= UserIndexFormat.ACCOUNT_NON_LOCKED;
+        }
+        if (user.isCredentialsNonExpired()) {
+            flags |= UserIndexFormat.CREDENTIALS_NON_EXPIRED;
+        }
+        return flags;
+    }
+}
@@ -1,16 +1,55 @@
 package com.springboot.spring_security_client;
 
+import com.springboot.spring_security.cache.ExpiringCache;
+import com.springboot.spring_security.configuration.HttpClientConfiguration;
+import com.springboot.spring_security.configuration.ReactiveHttpClientConfiguration;
+import com.springboot.spring_security.http.PooledHttpTransport;
+import com.springboot.spring_security.resources.HttpClientProperties;
+import com.springboot.spring_security.token.BatchingResourceServerTokenServices;
+import com.springboot.spring_security.token.CachingResourceServerTokenServices;
+import com.springboot.spring_security.token.ThreadLocalOAuth2ClientContext;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.boot.autoconfigure.security.oauth2.client.EnableOAuth2Sso;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.ResourceServerProperties;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.UserInfoTokenServices;
 import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.oauth2.client.DefaultOAuth2ClientContext;
+import org.springframework.security.oauth2.client.OAuth2ClientContext;
+import org.springframework.security.oauth2.client.OAuth2RestTemplate;
+import org.springframework.security.oauth2.client.authentication.OAuth2LoginReactiveAuthenticationManager;
+import org.springframework.security.oauth2.client.endpoint.WebClientReactiveAuthorizationCodeTokenResponseClient;
+import org.springframework.security.oauth2.client.resource.BaseOAuth2ProtectedResourceDetails;
+import org.springframework.security.oauth2.client.resource.OAuth2ProtectedResourceDetails;
 import org.springframework.security.oauth2.client.filter.OAuth2ClientContextFilter;
+import org.springframework.security.oauth2.client.token.grant.client.ClientCredentialsResourceDetails;
+import org.springframework.security.oauth2.client.userinfo.DefaultReactiveOAuth2UserService;
+import org.springframework.security.oauth2.client.web.server.WebSessionServerOAuth2AuthorizedClientRepository;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+import org.springframework.security.web.server.SecurityWebFilterChain;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.session.DefaultWebSessionManager;
+import org.springframework.web.server.session.InMemoryWebSessionStore;
+import org.springframework.web.server.session.WebSessionManager;
 
 import java.security.Principal;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 
 /**
@@ -26,7 +65,6 @@ import java.security.Principal;
  */
 @EnableAutoConfiguration
 @Configuration
-@EnableOAuth2Sso
 @RestController
 public class ClientApplication {
 
@@ -35,6 +73,191 @@ public class ClientApplication {
         return "Hello " + user.getName();
     }
 
+    /**
+     * The single sign on of the servlet stack, the default.
+     */
+    @Configuration
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    @EnableOAuth2Sso
+    @RestController
+    @Import(HttpClientConfiguration.class)
+    static class ServletSsoConfiguration {
+
+        @Autowired
+        PooledHttpTransport pooledHttpTransport;
+
+        @Autowired
+        ObjectProvider<BatchingResourceServerTokenServices> introspectionTokenServices;
+
+        @RequestMapping("/stats/http-client")
+        public Map<String, Object> httpClient() {
+            return pooledHttpTransport.stats();
+        }
+
+        /**
+         * Batches and tokens sent to the authorization server's /introspect; empty unless introspection.uri is set.
+         *
+         * @return
+         */
+        @RequestMapping("/stats/introspection")
+        public Map<String, Object> introspection() {
+            BatchingResourceServerTokenServices tokenServices = introspectionTokenServices.getIfAvailable();
+            return tokenServices != null ? tokenServices.stats() : Collections.emptyMap();
+        }
+    }
+
+    /**
+     * The single sign on of the reactive profile (spring.main.web-application-type=reactive), with Spring Security's oauth2Login on WebFlux:
+     * the token exchange and the user info call of a login are made with a WebClient, so no thread waits for the authorization server
+     * while a user signs in. The client is the "acme" registration (spring.security.oauth2.client.registration.acme).
+     * <p>
+     * WebFlux has no context path, so "/" is at the root here, and the authorization server sends the users back to /login/oauth2/code/acme.
+     */
+    @Configuration
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    @EnableWebFluxSecurity
+    @Import(ReactiveHttpClientConfiguration.class)
+    static class ReactiveSsoConfiguration {
+
+        /**
+         * The code is exchanged by Spring's own WebClient, which has no timeouts of its own: the call gets the read-timeout of the others.
+         *
+         * @param webClient
+         * @param httpClientProperties
+         * @return
+         */
+        @Bean
+        public ReactiveAuthenticationManager ssoAuthenticationManager(WebClient webClient, HttpClientProperties httpClientProperties) {
+            WebClientReactiveAuthorizationCodeTokenResponseClient tokenResponseClient = new WebClientReactiveAuthorizationCodeTokenResponseClient();
+            DefaultReactiveOAuth2UserService userService = new DefaultReactiveOAuth2UserService();
+            userService.setWebClient(webClient);
+            return new OAuth2LoginReactiveAuthenticationManager(
+                    request -> tokenResponseClient.getTokenResponse(request).timeout(httpClientProperties.getReadTimeout()), userService);
+        }
+
+        /**
+         * The authorized client is kept in the user's session, as the servlet stack does, rather than in a map of every user that ever signed in.
+         *
+         * @param http
+         * @param ssoAuthenticationManager
+         * @return
+         */
+        @Bean
+        public SecurityWebFilterChain ssoFilterChain(ServerHttpSecurity http, ReactiveAuthenticationManager ssoAuthenticationManager) {
+            return http
+                    .authorizeExchange().anyExchange().authenticated()
+                    .and()
+                    .oauth2Login()
+                    .authenticationManager(ssoAuthenticationManager)
+                    .authorizedClientRepository(new WebSessionServerOAuth2AuthorizedClientRepository())
+                    .and()
+                    .build();
+        }
+
+        /**
+         * The sessions, configured under "web-session"; the store of WebFlux holds 10000 of them unless told otherwise.
+         *
+         * @return
+         */
+        @Bean
+        @ConfigurationProperties("web-session")
+        public InMemoryWebSessionStore webSessionStore() {
+            return new InMemoryWebSessionStore();
+        }
+
+        @Bean
+        public WebSessionManager webSessionManager(InMemoryWebSessionStore webSessionStore) {
+            DefaultWebSessionManager webSessionManager = new DefaultWebSessionManager();
+            webSessionManager.setSessionStore(webSessionStore);
+            return webSessionManager;
+        }
+    }
+
+    /**
+     * A nested configuration, so its beans are registered before the auto-configuration imported by @EnableAutoConfiguration,
+     * whose @ConditionalOnMissingBean(ResourceServerTokenServices.class) would otherwise not see them.
+     */
+    @Configuration
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    static class UserInfoCacheConfiguration {
+
+        /**
+         * Replaces the UserInfoTokenServices that @EnableOAuth2Sso would create with one that caches the authentication per access token,
+         * so the authorization server's /me is called once per token instead of on every authentication.
+         * <p>
+         * The UserInfoTokenServices gets a pooled rest template with a thread-local client context rather than the session-scoped one,
+         * which lets the cache refresh entries in the background, away from the user's request and session.
+         * <p>
+         * When introspection.uri is set, the tokens are looked up in batches through the authorization server's /introspect instead.
+         * Primary, as the batching token services are a ResourceServerTokenServices bean too.
+         *
+         * @param sso
+         * @param userInfoCache
+         * @param oauth2ClientContext
+         * @param transport
+         * @param introspectionTokenServices
+         * @return
+         */
+        @Bean
+        @Primary
+        public ResourceServerTokenServices cachingUserInfoTokenServices(ResourceServerProperties sso, ExpiringCache<String, CachingResourceServerTokenServices.CachedAuthentication> userInfoCache,
+                                                                       OAuth2ClientContext oauth2ClientContext, PooledHttpTransport transport,
+                                                                       ObjectProvider<BatchingResourceServerTokenServices> introspectionTokenServices) {
+            ResourceServerTokenServices delegate = introspectionTokenServices.getIfAvailable();
+            if (delegate == null) {
+                BaseOAuth2ProtectedResourceDetails resource = new BaseOAuth2ProtectedResourceDetails();
+                resource.setClientId(sso.getClientId());
+                OAuth2RestTemplate userInfoTemplate = new OAuth2RestTemplate(resource, new ThreadLocalOAuth2ClientContext());
+                transport.customize(userInfoTemplate);
+                UserInfoTokenServices userInfoTokenServices = new UserInfoTokenServices(sso.getUserInfoUri(), sso.getClientId());
+                userInfoTokenServices.setTokenType(sso.getTokenType());
+                userInfoTokenServices.setRestTemplate(userInfoTemplate);
+                delegate = userInfoTokenServices;
+            }
+            CachingResourceServerTokenServices tokenServices = new CachingResourceServerTokenServices(delegate, userInfoCache);
+            tokenServices.setClientContext(oauth2ClientContext);
+            return tokenServices;
+        }
+
+        /**
+         * Looks tokens up through the authorization server's batch introspection, configured under "introspection" and only there
+         * when introspection.uri is set. Its calls carry a client_credentials token of this client, obtained and renewed by the
+         * rest template; the user's own token would not be let in.
+         *
+         * @param client
+         * @param transport
+         * @param applicationTaskExecutor
+         * @return
+         */
+        @Bean(destroyMethod = "close")
+        @ConditionalOnProperty(prefix = "introspection", name = "uri")
+        @ConfigurationProperties("introspection")
+        public BatchingResourceServerTokenServices introspectionTokenServices(OAuth2ProtectedResourceDetails client, PooledHttpTransport transport, Executor applicationTaskExecutor) {
+            ClientCredentialsResourceDetails resource = new ClientCredentialsResourceDetails();
+            resource.setClientId(client.getClientId());
+            resource.setClientSecret(client.getClientSecret());
+            resource.setAccessTokenUri(client.getAccessTokenUri());
+            resource.setClientAuthenticationScheme(client.getClientAuthenticationScheme());
+            OAuth2RestTemplate introspectionTemplate = new OAuth2RestTemplate(resource, new DefaultOAuth2ClientContext());
+            transport.customize(introspectionTemplate);
+            return new BatchingResourceServerTokenServices(introspectionTemplate, applicationTaskExecutor);
+        }
+
+        /**
+         * Configured under "user-info-cache"; with a refresh-after, stale entries are reloaded on the application task executor.
+         *
+         * @param applicationTaskExecutor
+         * @return
+         */
+        @Bean
+        @ConfigurationProperties("user-info-cache")
+        public ExpiringCache<String, CachingResourceServerTokenServices.CachedAuthentication> userInfoCache(Executor applicationTaskExecutor) {
+            ExpiringCache<String, CachingResourceServerTokenServices.CachedAuthentication> cache = new ExpiringCache<>("user-info");
+            cache.setRefreshExecutor(applicationTaskExecutor);
+            return cache;
+        }
+    }
+
     public static void main(String[] args) {
         new SpringApplicationBuilder(ClientApplication.class)
                 .properties("spring.config.name=client").run(args);
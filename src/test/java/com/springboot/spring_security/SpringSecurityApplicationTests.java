@@ -2,15 +2,51 @@ package com.springboot.spring_security;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest
+@AutoConfigureMockMvc
 public class SpringSecurityApplicationTests {
 
+    @Autowired
+    private MockMvc mvc;
+
     @Test
     public void contextLoads() {
     }
 
+    @Test
+    public void staticResourcesSkipTheSecurityFilterChain() throws Exception {
+        MockHttpServletResponse response = mvc.perform(get("/webjars/jquery/jquery.min.js")).andReturn().getResponse();
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getCookie("XSRF-TOKEN")).isNull();
+        assertThat(response.getHeader("X-Frame-Options")).isNull();
+    }
+
+    /**
+     * The endpoints with suffix pattern matching (the FrameworkEndpointHandlerMapping of the OAuth2 endpoints has it) answer
+     * "/oauth/check_token.js" as "/oauth/check_token", so no file extension may take a path out of the security filter chain.
+     */
+    @Test
+    public void protectedPathsWithAStaticResourceSuffixAreStillSecured() throws Exception {
+        for (String path : new String[]{"/oauth/check_token", "/oauth/check_token.js", "/oauth/check_token.css", "/oauth/check_token.ico"}) {
+            MockHttpServletResponse response = mvc.perform(post(path).param("token", "any")).andReturn().getResponse();
+
+            assertThat(response.getStatus()).as(path).isNotEqualTo(400);
+            assertThat(response.getContentAsString()).as(path).doesNotContain("invalid_token");
+            assertThat(response.getHeader("X-Frame-Options")).as(path).isEqualTo("DENY");
+        }
+        assertThat(mvc.perform(get("/user.js")).andReturn().getResponse().getRedirectedUrl()).endsWith("/login");
+    }
 }
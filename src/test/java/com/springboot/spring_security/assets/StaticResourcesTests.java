@@ -0,0 +1,112 @@
+package com.springboot.spring_security.assets;
+
+import com.springboot.spring_security.configuration.MvcConfiguration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.boot.autoconfigure.web.ResourceProperties;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+public class StaticResourcesTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private AnnotationConfigWebApplicationContext context;
+
+    private MockMvc mvc;
+
+    @Before
+    public void start() throws IOException {
+        write("app.css", "body { background: url(\"logo.png\"); }");
+        write("logo.png", "png");
+        write("app.js", "console.log('app');");
+        try (OutputStream out = new GZIPOutputStream(new FileOutputStream(new File(folder.getRoot(), "app.js.gz")))) {
+            out.write("compressed".getBytes(StandardCharsets.UTF_8));
+        }
+        ResourceProperties resources = new ResourceProperties();
+        resources.setStaticLocations(new String[]{folder.getRoot().toURI().toString(), "classpath:/static/"});
+        context = new AnnotationConfigWebApplicationContext();
+        context.setServletContext(new MockServletContext());
+        context.register(EnableWebMvcConfiguration.class, MvcConfiguration.class);
+        context.addBeanFactoryPostProcessor(beanFactory -> beanFactory.registerSingleton("resourceProperties", resources));
+        context.refresh();
+        mvc = MockMvcBuilders.webAppContextSetup(context).build();
+    }
+
+    @After
+    public void stop() {
+        context.close();
+    }
+
+    @Test
+    public void indexLinksToVersionedWebjarsAndIsRevalidated() throws Exception {
+        MvcResult index = mvc.perform(get("/index.html")).andReturn();
+
+        assertThat(index.getResponse().getStatus()).isEqualTo(200);
+        assertThat(index.getResponse().getHeader("Cache-Control")).isEqualTo("no-cache");
+        String html = index.getResponse().getContentAsString();
+        Matcher jquery = Pattern.compile("src=\"(/webjars/jquery/2\\.1\\.1/jquery\\.min-[0-9a-f]{32}\\.js)\"").matcher(html);
+        assertThat(jquery.find()).isTrue();
+        assertThat(html).contains("href=\"/login/github\"").contains("<base href=\"/\"/>");
+
+        MvcResult versioned = mvc.perform(get(jquery.group(1))).andReturn();
+        assertThat(versioned.getResponse().getStatus()).isEqualTo(200);
+        assertThat(versioned.getResponse().getContentType()).contains("javascript");
+        assertThat(versioned.getResponse().getHeader("Cache-Control")).isEqualTo("max-age=31536000, public, immutable");
+        assertThat(versioned.getResponse().getContentAsString()).contains("jQuery");
+    }
+
+    @Test
+    public void styleSheetLinksAreVersioned() throws Exception {
+        String css = mvc.perform(get("/app.css")).andReturn().getResponse().getContentAsString();
+
+        assertThat(css).matches("body \\{ background: url\\(\"/logo-[0-9a-f]{32}\\.png\"\\); \\}");
+    }
+
+    @Test
+    public void precompressedVariantIsServedWhenAccepted() throws Exception {
+        MvcResult plain = mvc.perform(get("/app.js")).andReturn();
+        MvcResult gzip = mvc.perform(get("/app.js").header("Accept-Encoding", "gzip, deflate")).andReturn();
+
+        assertThat(plain.getResponse().getContentAsString()).isEqualTo("console.log('app');");
+        assertThat(plain.getResponse().getHeader("Content-Encoding")).isNull();
+        assertThat(gzip.getResponse().getHeader("Content-Encoding")).isEqualTo("gzip");
+        assertThat(gzip.getResponse().getHeader("Vary")).isEqualTo("Accept-Encoding");
+        assertThat(gzip.getResponse().getContentAsByteArray()).startsWith((byte) 0x1f, (byte) 0x8b);
+    }
+
+    @Test
+    public void unknownResourcesAreNotFound() throws Exception {
+        assertThat(mvc.perform(get("/webjars/x")).andReturn().getResponse().getStatus()).isEqualTo(404);
+        assertThat(mvc.perform(get("/app-0123456789abcdef0123456789abcdef.js")).andReturn().getResponse().getStatus()).isEqualTo(404);
+    }
+
+    private void write(String name, String content) throws IOException {
+        Files.write(new File(folder.getRoot(), name).toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @EnableWebMvc
+    static class EnableWebMvcConfiguration {
+    }
+}
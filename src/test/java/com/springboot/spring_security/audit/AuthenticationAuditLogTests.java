@@ -0,0 +1,151 @@
+package com.springboot.spring_security.audit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.event.AuthenticationFailureBadCredentialsEvent;
+import org.springframework.security.authentication.event.AuthenticationSuccessEvent;
+import org.springframework.security.authentication.event.InteractiveAuthenticationSuccessEvent;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+import org.springframework.security.web.authentication.session.SessionFixationProtectionEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AuthenticationAuditLogTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void successesAndFailuresAreWrittenAsJsonLines() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("authentication.log");
+        AuthenticationAuditLog auditLog = new AuthenticationAuditLog(file, 64);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr("10.0.0.1");
+
+        UsernamePasswordAuthenticationToken success = new UsernamePasswordAuthenticationToken("user", null, AuthorityUtils.createAuthorityList("ROLE_USER"));
+        success.setDetails(new WebAuthenticationDetails(request));
+        auditLog.record(new AuthenticationSuccessEvent(success));
+        auditLog.record(new InteractiveAuthenticationSuccessEvent(success, getClass()));
+        auditLog.record(new SessionFixationProtectionEvent(success, "old-session", "new-session"));
+        UsernamePasswordAuthenticationToken attempt = new UsernamePasswordAuthenticationToken("eve \"the\" attacker", "guess");
+        auditLog.record(new AuthenticationFailureBadCredentialsEvent(attempt, new BadCredentialsException("Bad credentials")));
+        auditLog.close();
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertThat(lines).hasSize(2);
+        assertThat(lines.get(0)).startsWith("{\"time\":\"").contains("\"event\":\"success\",\"principal\":\"user\",\"remoteAddress\":\"10.0.0.1\"")
+                .endsWith("\"type\":\"UsernamePasswordAuthenticationToken\"}");
+        assertThat(lines.get(1)).contains("\"event\":\"failure\",\"principal\":\"eve \\\"the\\\" attacker\"")
+                .endsWith("\"error\":\"BadCredentialsException\"}");
+        assertThat(auditLog.stats()).containsEntry("emitted", 2L).containsEntry("written", 2L).containsEntry("dropped", 0L);
+    }
+
+    @Test
+    public void theFileIsRotatedAndOldFilesAreRemoved() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("authentication.log");
+        AuthenticationAuditLog auditLog = new AuthenticationAuditLog(file, 1024);
+        auditLog.setMaxFileSize(1024);
+        auditLog.setMaxHistory(2);
+        auditLog.setFlushInterval(Duration.ofMillis(1));
+        for (int i = 0; i < 100; i++) {
+            auditLog.record(new AuthenticationSuccessEvent(new UsernamePasswordAuthenticationToken("user-" + i, null)));
+            Thread.sleep(1);
+        }
+        auditLog.close();
+
+        try (Stream<Path> files = Files.list(folder.getRoot().toPath())) {
+            List<Path> all = files.collect(Collectors.toList());
+            assertThat(all).hasSize(3);
+            for (Path each : all) {
+                assertThat(Files.size(each)).isLessThanOrEqualTo(1024);
+            }
+        }
+        assertThat((Long) auditLog.stats().get("rotations")).isGreaterThan(2L);
+        assertThat(Files.readAllLines(file, StandardCharsets.UTF_8)).last().asString().contains("\"principal\":\"user-99\"");
+    }
+
+    /**
+     * Records of 40 KB fill the 64 KB batch buffer partway, so each next one does not fit what is left of it,
+     * and with a 50 KB maximum file size the file is rotated between them.
+     */
+    @Test
+    public void aRecordLargerThanWhatIsLeftOfTheBatchIsNeverSplitAcrossFiles() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("authentication.log");
+        AuthenticationAuditLog auditLog = new AuthenticationAuditLog(file, 64);
+        auditLog.setMaxFileSize(50 * 1024);
+        auditLog.setFlushInterval(Duration.ofMinutes(1));
+        char[] name = new char[40 * 1024];
+        for (int i = 0; i < 4; i++) {
+            Arrays.fill(name, (char) ('a' + i));
+            auditLog.record(new AuthenticationSuccessEvent(new UsernamePasswordAuthenticationToken(new String(name), null)));
+        }
+        auditLog.close();
+
+        List<String> lines = new ArrayList<>();
+        try (Stream<Path> files = Files.list(folder.getRoot().toPath())) {
+            for (Path each : files.sorted().collect(Collectors.toList())) {
+                lines.addAll(Files.readAllLines(each, StandardCharsets.UTF_8));
+            }
+        }
+        assertThat(lines).hasSize(4);
+        for (String line : lines) {
+            assertThat(line).startsWith("{\"time\":\"").endsWith("\"type\":\"UsernamePasswordAuthenticationToken\"}");
+        }
+        assertThat((Long) auditLog.stats().get("rotations")).isGreaterThanOrEqualTo(3L);
+        assertThat(auditLog.stats()).containsEntry("written", 4L);
+    }
+
+    @Test
+    public void theRingBufferHandsEveryElementToTheConsumerOnce() throws Exception {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(128);
+        Set<Integer> seen = ConcurrentHashMap.newKeySet();
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            int base = p * 20_000;
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    while (!buffer.offer(base + i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            producer.start();
+            producers.add(producer);
+        }
+        int taken = 0;
+        while (taken < 80_000) {
+            int drained = buffer.drain(seen::add, 64);
+            if (drained == 0) {
+                Thread.yield();
+            }
+            taken += drained;
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        assertThat(seen).hasSize(80_000);
+        assertThat(buffer.size()).isEqualTo(0);
+        for (int i = 0; i < 128; i++) {
+            assertThat(buffer.offer(i)).isTrue();
+        }
+        assertThat(buffer.offer(128)).isFalse();
+    }
+}
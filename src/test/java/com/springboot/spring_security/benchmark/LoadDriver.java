@@ -0,0 +1,364 @@
+package com.springboot.spring_security.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs a scenario, e.g. a login flow of several requests, over and over from a number of concurrent virtual users,
+ * and reports the latency percentiles and throughput of each step of it.
+ * <p>
+ * Each run of the scenario is a fresh browser: it has its own cookies (kept per host and port, as the applications
+ * of a flow all run on localhost) and follows no redirects by itself, so every hop of a flow is a step of its own.
+ * A step answering with another status than expected, or failing, is counted as an error of that step and ends the run of the scenario.
+ */
+public class LoadDriver {
+
+    private final int concurrency;
+
+    private final Map<String, Step> steps = new LinkedHashMap<>();
+
+    private volatile boolean recording;
+
+    /**
+     * @param concurrency virtual users running the scenario at the same time
+     */
+    public LoadDriver(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Runs the scenario for the warm-up (not recorded) and then for the measurement.
+     *
+     * @param scenario
+     * @param warmup
+     * @param measurement
+     * @return the report of the measurement
+     * @throws Exception if a virtual user fails other than in a step
+     */
+    public Report run(Scenario scenario, Duration warmup, Duration measurement) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            long start = System.nanoTime();
+            long measureFrom = start + warmup.toNanos();
+            long deadline = measureFrom + measurement.toNanos();
+            List<Future<?>> users = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                users.add(executor.submit(() -> {
+                    while (System.nanoTime() - deadline < 0) {
+                        if (!recording && System.nanoTime() - measureFrom >= 0) {
+                            recording = true;
+                        }
+                        try {
+                            scenario.run(new Browser());
+                        } catch (StepFailedException ex) {
+                            // counted by its step, the next run starts over
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> user : users) {
+                user.get(warmup.plusSeconds(60).plus(measurement).toMillis(), TimeUnit.MILLISECONDS);
+            }
+            recording = false;
+            return new Report(new ArrayList<>(steps.values()), measurement);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private synchronized Step step(String name) {
+        return steps.computeIfAbsent(name, Step::new);
+    }
+
+    /**
+     * One run of a flow by one virtual user.
+     */
+    public interface Scenario {
+
+        void run(Browser browser) throws Exception;
+    }
+
+    /**
+     * The answer to a step: status, redirect location and body.
+     */
+    public static final class Response {
+
+        private final int status;
+
+        private final String location;
+
+        private final String body;
+
+        Response(int status, String location, String body) {
+            this.status = status;
+            this.location = location;
+            this.body = body;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        /**
+         * @return the Location header of a redirect as an absolute url, null otherwise
+         */
+        public String getLocation() {
+            return location;
+        }
+
+        public String getBody() {
+            return body;
+        }
+    }
+
+    /**
+     * A step answered with an unexpected status, or did not answer.
+     */
+    public static class StepFailedException extends RuntimeException {
+
+        public StepFailedException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    /**
+     * A browser with its own cookies, for one run of the scenario.
+     */
+    public final class Browser {
+
+        private final Map<String, Map<String, String>> cookies = new HashMap<>();
+
+        /**
+         * @param step   name of the step in the report
+         * @param url
+         * @param status the expected status, or statuses
+         * @return the response
+         * @throws StepFailedException if the answer has another status, or there is none
+         */
+        public Response get(String step, String url, int... status) {
+            return request(step, "GET", url, null, status);
+        }
+
+        /**
+         * @param step   name of the step in the report
+         * @param url
+         * @param form   form parameters, sent url-encoded
+         * @param status the expected status, or statuses
+         * @return the response
+         * @throws StepFailedException if the answer has another status, or there is none
+         */
+        public Response post(String step, String url, Map<String, String> form, int... status) {
+            return request(step, "POST", url, form, status);
+        }
+
+        /**
+         * @param url
+         * @param name
+         * @return the value of the cookie the host and port of the url set, null if it has not set it
+         */
+        public String cookie(String url, String name) {
+            try {
+                return cookies.getOrDefault(authority(new URL(url)), new HashMap<>()).get(name);
+            } catch (IOException ex) {
+                throw new IllegalArgumentException(ex);
+            }
+        }
+
+        private Response request(String name, String method, String url, Map<String, String> form, int[] expected) {
+            Step step = step(name);
+            long start = System.nanoTime();
+            Response response;
+            try {
+                response = send(method, new URL(url), form);
+            } catch (IOException ex) {
+                step.failed(recording, ex.toString());
+                throw new StepFailedException(name + ": " + ex, ex);
+            }
+            long took = System.nanoTime() - start;
+            int status = response.getStatus();
+            if (Arrays.stream(expected).noneMatch(candidate -> candidate == status)) {
+                String error = status + " " + (response.getLocation() != null ? response.getLocation() : response.getBody());
+                step.failed(recording, error);
+                throw new StepFailedException(name + ": " + error, null);
+            }
+            step.record(recording, took);
+            return response;
+        }
+
+        private Response send(String method, URL url, Map<String, String> form) throws IOException {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setInstanceFollowRedirects(false);
+            connection.setRequestMethod(method);
+            Map<String, String> own = cookies.computeIfAbsent(authority(url), key -> new LinkedHashMap<>());
+            if (!own.isEmpty()) {
+                StringBuilder header = new StringBuilder();
+                own.forEach((cookie, value) -> header.append(header.length() == 0 ? "" : "; ").append(cookie).append('=').append(value));
+                connection.setRequestProperty("Cookie", header.toString());
+            }
+            if (form != null) {
+                StringBuilder body = new StringBuilder();
+                for (Map.Entry<String, String> parameter : form.entrySet()) {
+                    body.append(body.length() == 0 ? "" : "&").append(URLEncoder.encode(parameter.getKey(), "UTF-8"))
+                            .append('=').append(URLEncoder.encode(parameter.getValue(), "UTF-8"));
+                }
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(body.toString().getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            int status = connection.getResponseCode();
+            List<String> setCookies = connection.getHeaderFields().get("Set-Cookie");
+            if (setCookies != null) {
+                for (String setCookie : setCookies) {
+                    String pair = setCookie.split(";", 2)[0];
+                    int equals = pair.indexOf('=');
+                    if (equals > 0) {
+                        own.put(pair.substring(0, equals).trim(), pair.substring(equals + 1).trim());
+                    }
+                }
+            }
+            String body;
+            try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                // read to the end, so the connection goes back to the keep-alive cache
+                body = in == null ? "" : new String(readAll(in), StandardCharsets.UTF_8);
+            }
+            String location = connection.getHeaderField("Location");
+            return new Response(status, location == null ? null : new URL(url, location).toString(), body);
+        }
+    }
+
+    /**
+     * Latency percentiles, throughput and errors per step.
+     */
+    public static final class Report {
+
+        private final List<Step> steps;
+
+        private final Duration measurement;
+
+        Report(List<Step> steps, Duration measurement) {
+            this.steps = steps;
+            this.measurement = measurement;
+        }
+
+        /**
+         * @param step
+         * @return count, errors, throughputPerSecond, p50Millis, p99Millis and p999Millis of the step
+         */
+        public Map<String, Object> get(String step) {
+            for (Step candidate : steps) {
+                if (candidate.name.equals(step)) {
+                    return candidate.summary(measurement);
+                }
+            }
+            throw new IllegalArgumentException("No step " + step);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder report = new StringBuilder(String.format("%-28s %9s %7s %10s %10s %10s %10s%n",
+                    "step", "count", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms"));
+            for (Step step : steps) {
+                Map<String, Object> summary = step.summary(measurement);
+                report.append(String.format("%-28s %9d %7d %10.1f %10.2f %10.2f %10.2f%n", step.name,
+                        summary.get("count"), summary.get("errors"), summary.get("throughputPerSecond"),
+                        summary.get("p50Millis"), summary.get("p99Millis"), summary.get("p999Millis")));
+            }
+            for (Step step : steps) {
+                if (step.lastError != null) {
+                    report.append(String.format("last error of %s: %.200s%n", step.name, step.lastError));
+                }
+            }
+            return report.toString();
+        }
+    }
+
+    private static final class Step {
+
+        private final String name;
+
+        private final LongAdder errors = new LongAdder();
+
+        private volatile String lastError;
+
+        private long[] latencies = new long[1024];
+
+        private int count;
+
+        Step(String name) {
+            this.name = name;
+        }
+
+        synchronized void record(boolean recording, long nanos) {
+            if (!recording) {
+                return;
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+        }
+
+        void failed(boolean recording, String error) {
+            lastError = error;
+            if (recording) {
+                errors.increment();
+            }
+        }
+
+        synchronized Map<String, Object> summary(Duration measurement) {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("count", count);
+            summary.put("errors", errors.sum());
+            summary.put("throughputPerSecond", count * 1_000.0 / measurement.toMillis());
+            summary.put("p50Millis", percentile(sorted, 0.5));
+            summary.put("p99Millis", percentile(sorted, 0.99));
+            summary.put("p999Millis", percentile(sorted, 0.999));
+            return summary;
+        }
+
+        private static double percentile(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0.0;
+            }
+            int index = (int) Math.ceil(percentile * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+
+    private static String authority(URL url) {
+        return url.getHost() + ":" + url.getPort();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
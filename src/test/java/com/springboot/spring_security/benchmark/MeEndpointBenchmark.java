@@ -0,0 +1,125 @@
+package com.springboot.spring_security.benchmark;
+
+import com.springboot.spring_security.SpringSecurityApplication;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.AuthorizationServerTokenServices;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Requests per second on /me with opaque tokens (resolved against the log-structured token store) and with signed tokens.
+ * <p>
+ * Skipped unless run with -Dbenchmark=true, e.g. {@code ./gradlew test --tests '*MeEndpointBenchmark' -Dbenchmark=true}.
+ */
+public class MeEndpointBenchmark {
+
+    private static final int THREADS = 16;
+
+    private static final long WARMUP_MILLIS = 5_000;
+
+    private static final long MEASURE_MILLIS = 15_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void enabled() {
+        Assume.assumeTrue(Boolean.getBoolean("benchmark"));
+    }
+
+    @Test
+    public void opaqueVersusSignedTokens() throws Exception {
+        double opaque = requestsPerSecond("--token-store.type=log", "--token-store.directory=" + folder.newFolder("tokens"));
+        double signed = requestsPerSecond("--token-store.type=signed", "--token-store.signing-key=benchmark");
+        System.out.printf("/me opaque (log store): %.0f req/s%n", opaque);
+        System.out.printf("/me signed:             %.0f req/s%n", signed);
+    }
+
+    private double requestsPerSecond(String... args) throws Exception {
+        String[] all = new String[args.length + 1];
+        all[0] = "--server.port=0";
+        System.arraycopy(args, 0, all, 1, args.length);
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SpringSecurityApplication.class).run(all)) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            URL me = new URL("http://localhost:" + port + "/me");
+            String token = context.getBean(AuthorizationServerTokenServices.class).createAccessToken(authentication()).getValue();
+            assertThat(call(me, token)).isEqualTo(200);
+
+            run(me, token, WARMUP_MILLIS);
+            long requests = run(me, token, MEASURE_MILLIS);
+            return requests * 1000.0 / MEASURE_MILLIS;
+        }
+    }
+
+    private static long run(URL me, String token, long millis) throws Exception {
+        LongAdder requests = new LongAdder();
+        long deadline = System.currentTimeMillis() + millis;
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                workers.add(executor.submit(() -> {
+                    while (System.currentTimeMillis() < deadline) {
+                        if (call(me, token) != 200) {
+                            throw new IllegalStateException("/me was rejected");
+                        }
+                        requests.increment();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get(millis + 30_000, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return requests.sum();
+    }
+
+    private static int call(URL me, String token) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) me.openConnection();
+        connection.setRequestProperty("Authorization", "Bearer " + token);
+        int status = connection.getResponseCode();
+        try (InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            if (body != null) {
+                byte[] buffer = new byte[1024];
+                while (body.read(buffer) != -1) {
+                    // drain, so the connection goes back to the keep-alive cache
+                }
+            }
+        }
+        return status;
+    }
+
+    private static OAuth2Authentication authentication() {
+        OAuth2Request request = new OAuth2Request(Collections.emptyMap(), "acme", AuthorityUtils.NO_AUTHORITIES, true,
+                Collections.singleton("read"), Collections.emptySet(), null, Collections.emptySet(), Collections.emptyMap());
+        return new OAuth2Authentication(request,
+                new UsernamePasswordAuthenticationToken("user", null, AuthorityUtils.createAuthorityList("ROLE_USER")));
+    }
+}
@@ -0,0 +1,140 @@
+package com.springboot.spring_security.benchmark;
+
+import com.springboot.spring_security.SpringSecurityApplication;
+import com.springboot.spring_security_client.ClientApplication;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Latency percentiles and throughput of every step of the two login flows, end to end over HTTP:
+ * <ul>
+ * <li>/login/github, against the StubOAuthProvider standing in for GitHub</li>
+ * <li>the ClientApplication's single sign on: a form login on this application as authorization server,
+ * then the client → /oauth/authorize and its approval → the client's token exchange and its batched /introspect call</li>
+ * </ul>
+ * The login throttling is switched off, as the load comes from a single address.
+ * <p>
+ * Skipped unless run with -Dbenchmark=true, e.g. {@code ./gradlew test --tests '*OAuthFlowLoadBenchmark' -Dbenchmark=true -Dload.concurrency=32}.
+ * Settings: load.concurrency (8), load.warmup-seconds (10), load.seconds (30), load.stub-latency-millis (50, GitHub's answer time)
+ * and load.stub-error-rate (0, the share of GitHub calls answered with a 500).
+ */
+public class OAuthFlowLoadBenchmark {
+
+    private static final int CONCURRENCY = Integer.getInteger("load.concurrency", 8);
+
+    private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("load.warmup-seconds", 10));
+
+    private static final Duration MEASUREMENT = Duration.ofSeconds(Long.getLong("load.seconds", 30));
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private StubOAuthProvider github;
+
+    private ConfigurableApplicationContext server;
+
+    private ConfigurableApplicationContext client;
+
+    private String serverUrl;
+
+    private String clientUrl;
+
+    @Before
+    public void start() throws Exception {
+        Assume.assumeTrue(Boolean.getBoolean("benchmark"));
+        github = new StubOAuthProvider(CONCURRENCY * 2);
+        github.setLatency(Duration.ofMillis(Long.getLong("load.stub-latency-millis", 50)));
+        github.setErrorRate(Double.parseDouble(System.getProperty("load.stub-error-rate", "0")));
+
+        server = new SpringApplicationBuilder(SpringSecurityApplication.class).run(concat(github.githubArgs(),
+                "--server.port=0",
+                "--login-throttle.enabled=false",
+                "--token-store.directory=" + folder.newFolder("tokens"),
+                "--audit.file=" + folder.getRoot().toPath().resolve("audit/authentication.log")));
+        serverUrl = "http://localhost:" + ((WebServerApplicationContext) server).getWebServer().getPort();
+
+        client = new SpringApplicationBuilder(ClientApplication.class).properties("spring.config.name=client").run(
+                "--server.port=0",
+                "--security.oauth2.client.access-token-uri=" + serverUrl + "/oauth/token",
+                "--security.oauth2.client.user-authorization-uri=" + serverUrl + "/oauth/authorize",
+                "--security.oauth2.resource.user-info-uri=" + serverUrl + "/me",
+                "--introspection.uri=" + serverUrl + "/introspect");
+        clientUrl = "http://localhost:" + ((WebServerApplicationContext) client).getWebServer().getPort() + "/client";
+    }
+
+    @After
+    public void stop() {
+        if (client != null) {
+            client.close();
+        }
+        if (server != null) {
+            server.close();
+        }
+        if (github != null) {
+            github.close();
+        }
+    }
+
+    @Test
+    public void githubLogin() throws Exception {
+        LoadDriver.Report report = new LoadDriver(CONCURRENCY).run(browser -> {
+            LoadDriver.Response redirect = browser.get("GET /login/github", serverUrl + "/login/github", 302);
+            LoadDriver.Response authorize = browser.get("github authorize", redirect.getLocation(), 302);
+            browser.get("GET /login/github?code", authorize.getLocation(), 302);
+            browser.get("GET /user", serverUrl + "/user", 200);
+        }, WARMUP, MEASUREMENT);
+
+        System.out.printf("/login/github with %d users, GitHub stub %s%n%s", CONCURRENCY, github.stats(), report);
+        assertThat((Integer) report.get("GET /user").get("count")).isPositive();
+    }
+
+    @Test
+    public void clientSingleSignOn() throws Exception {
+        LoadDriver.Report report = new LoadDriver(CONCURRENCY).run(browser -> {
+            browser.get("server GET /login", serverUrl + "/login", 200);
+            Map<String, String> form = new LinkedHashMap<>();
+            form.put("username", "user");
+            form.put("password", "123");
+            form.put("_csrf", browser.cookie(serverUrl, "XSRF-TOKEN"));
+            browser.post("server POST /login", serverUrl + "/login", form, 302);
+            LoadDriver.Response home = browser.get("client GET /", clientUrl + "/", 302);
+            LoadDriver.Response login = browser.get("client GET /login", home.getLocation(), 302);
+            // the approval page comes only once; while the user has a token for the client, the authorization is approved at once
+            LoadDriver.Response authorize = browser.get("server GET /oauth/authorize", login.getLocation(), 200, 302);
+            if (authorize.getStatus() == 200) {
+                Map<String, String> approval = new LinkedHashMap<>();
+                approval.put("user_oauth_approval", "true");
+                approval.put("scope.read", "true");
+                approval.put("scope.write", "true");
+                approval.put("_csrf", browser.cookie(serverUrl, "XSRF-TOKEN"));
+                authorize = browser.post("server POST /oauth/authorize", serverUrl + "/oauth/authorize", approval, 302);
+            }
+            // the client exchanges the code at /oauth/token and calls /me before it redirects
+            LoadDriver.Response callback = browser.get("client GET /login?code", authorize.getLocation(), 302);
+            browser.get("client GET / (signed in)", callback.getLocation(), 200);
+        }, WARMUP, MEASUREMENT);
+
+        System.out.printf("client single sign on with %d users%n%s", CONCURRENCY, report);
+        assertThat((Integer) report.get("client GET / (signed in)").get("count")).isPositive();
+    }
+
+    private static String[] concat(String[] first, String... second) {
+        String[] all = new String[first.length + second.length];
+        System.arraycopy(first, 0, all, 0, first.length);
+        System.arraycopy(second, 0, all, first.length, second.length);
+        return all;
+    }
+}
@@ -0,0 +1,110 @@
+package com.springboot.spring_security.benchmark;
+
+import com.springboot.spring_security.SpringSecurityApplication;
+import com.springboot.spring_security.user.OffloadedPasswordEncoder;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Form logins with wrong passwords (every one is hashed, failures are never cached) next to cheap GET /login requests,
+ * with the OffloadedPasswordEncoder capped at one hashing thread per processor, and uncapped: a hashing thread per request thread
+ * and a queue they never fill, which hashes as many passwords at once as hashing on the request threads would.
+ * <p>
+ * The request thread of a login waits for its hash either way; what the cap changes is how many hashes compete with the other requests for the CPUs,
+ * so it is the latency of the cheap requests that shows it, and the 503s of the logins that did not get a hashing thread in time.
+ * <p>
+ * Skipped unless run with -Dbenchmark=true, e.g. {@code ./gradlew test --tests '*PasswordHashingBenchmark' -Dbenchmark=true}.
+ * Settings: load.threads (32, Tomcat's max-threads), load.concurrency (32), load.warmup-seconds (5) and load.seconds (20).
+ */
+public class PasswordHashingBenchmark {
+
+    private static final int THREADS = Integer.getInteger("load.threads", 32);
+
+    private static final int CONCURRENCY = Integer.getInteger("load.concurrency", 32);
+
+    private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("load.warmup-seconds", 5));
+
+    private static final Duration MEASUREMENT = Duration.ofSeconds(Long.getLong("load.seconds", 20));
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ConfigurableApplicationContext server;
+
+    @Before
+    public void start() {
+        Assume.assumeTrue(Boolean.getBoolean("benchmark"));
+    }
+
+    @After
+    public void stop() {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void capped() throws Exception {
+        run("capped at " + Runtime.getRuntime().availableProcessors() + " hashing threads",
+                "--password-hashing.threads=" + Runtime.getRuntime().availableProcessors(),
+                "--password-hashing.queue-capacity=64",
+                "--password-hashing.max-wait=2s");
+    }
+
+    @Test
+    public void uncapped() throws Exception {
+        run("uncapped",
+                "--password-hashing.threads=" + THREADS,
+                "--password-hashing.queue-capacity=" + THREADS,
+                "--password-hashing.max-wait=1m");
+    }
+
+    private void run(String setup, String... hashing) throws Exception {
+        server = new SpringApplicationBuilder(SpringSecurityApplication.class).run(concat(hashing,
+                "--server.port=0",
+                "--server.tomcat.max-threads=" + THREADS,
+                "--login-throttle.enabled=false",
+                "--token-store.directory=" + folder.newFolder("tokens"),
+                "--audit.file=" + folder.getRoot().toPath().resolve("audit/authentication.log")));
+        String serverUrl = "http://localhost:" + ((WebServerApplicationContext) server).getWebServer().getPort();
+
+        LoadDriver.Report report = new LoadDriver(CONCURRENCY).run(browser -> {
+            if (ThreadLocalRandom.current().nextBoolean()) {
+                browser.get("GET /login", serverUrl + "/login", 200);
+                return;
+            }
+            browser.get("GET /login (before login)", serverUrl + "/login", 200);
+            Map<String, String> form = new LinkedHashMap<>();
+            form.put("username", "user");
+            form.put("password", "wrong-" + ThreadLocalRandom.current().nextInt());
+            form.put("_csrf", browser.cookie(serverUrl, "XSRF-TOKEN"));
+            // 302 to /login?error, or 503 when the hashing pool is saturated
+            browser.post("POST /login", serverUrl + "/login", form, 302, 503);
+        }, WARMUP, MEASUREMENT);
+
+        System.out.printf("Wrong-password logins and GET /login, hashing %s, %d threads, %d users%n%s%s%n", setup, THREADS, CONCURRENCY, report,
+                server.getBean(OffloadedPasswordEncoder.class).stats());
+        assertThat((Integer) report.get("GET /login").get("count")).isPositive();
+    }
+
+    private static String[] concat(String[] first, String... second) {
+        String[] all = new String[first.length + second.length];
+        System.arraycopy(first, 0, all, 0, first.length);
+        System.arraycopy(second, 0, all, first.length, second.length);
+        return all;
+    }
+}
@@ -0,0 +1,98 @@
+package com.springboot.spring_security.benchmark;
+
+import com.springboot.spring_security_client.ClientApplication;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The ClientApplication's single sign on on the servlet stack (Tomcat, a thread per request) and on the reactive profile (WebFlux on netty),
+ * with the same number of threads, against the StubOAuthProvider standing in for a slow authorization server.
+ * <p>
+ * Every login waits for the token exchange and a user info (servlet: introspection) call; on the servlet stack a thread waits with each of them,
+ * so the logins per second stop growing at about threads / latency, while the reactive stack keeps up with the users.
+ * <p>
+ * Skipped unless run with -Dbenchmark=true, e.g. {@code ./gradlew test --tests '*ReactiveStackBenchmark' -Dbenchmark=true -Dload.concurrency=128}.
+ * Settings: load.threads (8, Tomcat's max-threads and netty's reactor.netty.ioWorkerCount), load.concurrency (64), load.warmup-seconds (10),
+ * load.seconds (30) and load.stub-latency-millis (200). Netty reads its thread count once, so run this class in a JVM of its own.
+ */
+public class ReactiveStackBenchmark {
+
+    private static final int THREADS = Integer.getInteger("load.threads", 8);
+
+    private static final int CONCURRENCY = Integer.getInteger("load.concurrency", 64);
+
+    private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("load.warmup-seconds", 10));
+
+    private static final Duration MEASUREMENT = Duration.ofSeconds(Long.getLong("load.seconds", 30));
+
+    private StubOAuthProvider authorizationServer;
+
+    private ConfigurableApplicationContext client;
+
+    @Before
+    public void start() throws Exception {
+        Assume.assumeTrue(Boolean.getBoolean("benchmark"));
+        System.setProperty("reactor.netty.ioWorkerCount", String.valueOf(THREADS));
+        authorizationServer = new StubOAuthProvider(CONCURRENCY * 2);
+        authorizationServer.setLatency(Duration.ofMillis(Long.getLong("load.stub-latency-millis", 200)));
+    }
+
+    @After
+    public void stop() {
+        if (client != null) {
+            client.close();
+        }
+        if (authorizationServer != null) {
+            authorizationServer.close();
+        }
+    }
+
+    @Test
+    public void servletStack() throws Exception {
+        client = new SpringApplicationBuilder(ClientApplication.class).properties("spring.config.name=client").run(concat(authorizationServer.clientArgs(),
+                "--server.port=0",
+                "--server.tomcat.max-threads=" + THREADS,
+                "--http-client.max-connections=" + CONCURRENCY * 2,
+                "--http-client.max-connections-per-route=" + CONCURRENCY * 2));
+        report("servlet stack", "http://localhost:" + ((WebServerApplicationContext) client).getWebServer().getPort() + "/client");
+    }
+
+    @Test
+    public void reactiveStack() throws Exception {
+        client = new SpringApplicationBuilder(ClientApplication.class).properties("spring.config.name=client").profiles("reactive").run(
+                concat(authorizationServer.reactiveClientArgs(),
+                        "--server.port=0",
+                        "--http-client.max-connections-per-route=" + CONCURRENCY * 2));
+        report("reactive stack", "http://localhost:" + ((WebServerApplicationContext) client).getWebServer().getPort());
+    }
+
+    private void report(String stack, String clientUrl) throws Exception {
+        LoadDriver.Report report = new LoadDriver(CONCURRENCY).run(browser -> {
+            LoadDriver.Response home = browser.get("client GET /", clientUrl + "/", 302);
+            LoadDriver.Response login = browser.get("client GET login", home.getLocation(), 302);
+            LoadDriver.Response authorize = browser.get("authorize", login.getLocation(), 302);
+            // the client exchanges the code and authenticates its token before it redirects
+            LoadDriver.Response callback = browser.get("client GET login callback", authorize.getLocation(), 302);
+            browser.get("client GET / (signed in)", callback.getLocation(), 200);
+        }, WARMUP, MEASUREMENT);
+
+        System.out.printf("%s with %d threads, %d users, authorization server stub %s%n%s", stack, THREADS, CONCURRENCY, authorizationServer.stats(), report);
+        assertThat((Integer) report.get("client GET / (signed in)").get("count")).isPositive();
+    }
+
+    private static String[] concat(String[] first, String... second) {
+        String[] all = new String[first.length + second.length];
+        System.arraycopy(first, 0, all, 0, first.length);
+        System.arraycopy(second, 0, all, first.length, second.length);
+        return all;
+    }
+}
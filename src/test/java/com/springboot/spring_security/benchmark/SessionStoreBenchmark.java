@@ -0,0 +1,108 @@
+package com.springboot.spring_security.benchmark;
+
+import com.springboot.spring_security.session.OffHeapSessionRepository;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.web.PortResolverImpl;
+import org.springframework.security.web.savedrequest.DefaultSavedRequest;
+import org.springframework.session.MapSessionRepository;
+import org.springframework.session.Session;
+import org.springframework.session.SessionRepository;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Heap usage and garbage collection with 200,000 logged-in sessions, kept on the heap (Spring Session's MapSessionRepository,
+ * which is what Tomcat's session map amounts to) or off the heap.
+ * Every session holds a security context and a saved request, like a form-login session does.
+ * <p>
+ * Skipped unless run with -Dbenchmark=true; run it with a fixed heap (e.g. -Xmx2g) for comparable GC numbers.
+ */
+public class SessionStoreBenchmark {
+
+    private static final int SESSIONS = 200_000;
+
+    private static final int CHURN = 1_000_000;
+
+    @Before
+    public void enabled() {
+        Assume.assumeTrue(Boolean.getBoolean("benchmark"));
+    }
+
+    @Test
+    public void heapVersusOffHeap() throws Exception {
+        report("heap (MapSessionRepository)", new MapSessionRepository(new ConcurrentHashMap<>()));
+        try (OffHeapSessionRepository offHeap = new OffHeapSessionRepository(16, 256 * 1024 * 1024, null, Duration.ofSeconds(1))) {
+            report("off-heap", offHeap);
+        }
+    }
+
+    private static <S extends Session> void report(String name, SessionRepository<S> repository) {
+        long baseline = usedHeapAfterGc();
+        List<String> ids = new ArrayList<>(SESSIONS);
+        for (int i = 0; i < SESSIONS; i++) {
+            S session = repository.createSession();
+            session.setAttribute("SPRING_SECURITY_CONTEXT", new SecurityContextImpl(
+                    new UsernamePasswordAuthenticationToken("user-" + i, null, AuthorityUtils.createAuthorityList("ROLE_USER"))));
+            session.setAttribute("SPRING_SECURITY_SAVED_REQUEST", savedRequest(i));
+            repository.save(session);
+            ids.add(session.getId());
+        }
+        long retained = usedHeapAfterGc() - baseline;
+
+        // request traffic: load a random session, touch it, and now and then log in again (a changed attribute)
+        long gcCount = gcCount();
+        long gcMillis = gcMillis();
+        long start = System.nanoTime();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < CHURN; i++) {
+            S session = repository.findById(ids.get(random.nextInt(SESSIONS)));
+            session.setLastAccessedTime(Instant.now());
+            if (i % 10 == 0) {
+                session.setAttribute("SPRING_SECURITY_CONTEXT", new SecurityContextImpl(
+                        new UsernamePasswordAuthenticationToken("user-" + i, null, AuthorityUtils.createAuthorityList("ROLE_USER"))));
+            }
+            repository.save(session);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("%-28s retained heap %6d MB, churn %7.0f requests/s, %4d GCs, %6d ms in GC%n", name,
+                retained / (1024 * 1024), CHURN / (elapsed / 1e9), gcCount() - gcCount, gcMillis() - gcMillis);
+        ids.forEach(repository::deleteById);
+    }
+
+    private static DefaultSavedRequest savedRequest(int i) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/user");
+        request.setQueryString("page=" + i);
+        request.addHeader("Accept", "text/html,application/xhtml+xml");
+        request.addHeader("User-Agent", "Mozilla/5.0 (X11; Linux x86_64) benchmark");
+        return new DefaultSavedRequest(request, new PortResolverImpl());
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+    }
+}
@@ -0,0 +1,128 @@
+package com.springboot.spring_security.benchmark;
+
+import com.springboot.spring_security.SpringSecurityApplication;
+import com.springboot.spring_security.sso.SsoProviderRegistry;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * GitHub logins while a second SSO provider hangs: its token endpoint answers only after load.hung-latency-seconds (60),
+ * and half of the logins go to it. Both providers are StubOAuthProviders.
+ * <ul>
+ * <li>without isolation the hung provider has a 10 s timeout (the http-client read-timeout), no concurrency limit and a circuit that never opens:
+ * its logins hold the request threads, and the GitHub logins queue behind them</li>
+ * <li>with isolation it has a 1 s timeout, at most 4 concurrent logins and a circuit that opens after 5 failures:
+ * its logins fail fast with 503, and the GitHub logins keep their latency</li>
+ * </ul>
+ * Skipped unless run with -Dbenchmark=true, e.g. {@code ./gradlew test --tests '*SsoProviderIsolationBenchmark' -Dbenchmark=true}.
+ * Settings: load.threads (16, Tomcat's max-threads), load.concurrency (32), load.warmup-seconds (5), load.seconds (20),
+ * load.stub-latency-millis (50) and load.hung-latency-seconds (60).
+ */
+public class SsoProviderIsolationBenchmark {
+
+    private static final int THREADS = Integer.getInteger("load.threads", 16);
+
+    private static final int CONCURRENCY = Integer.getInteger("load.concurrency", 32);
+
+    private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("load.warmup-seconds", 5));
+
+    private static final Duration MEASUREMENT = Duration.ofSeconds(Long.getLong("load.seconds", 20));
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private StubOAuthProvider github;
+
+    private StubOAuthProvider hung;
+
+    private ConfigurableApplicationContext server;
+
+    @Before
+    public void start() throws Exception {
+        Assume.assumeTrue(Boolean.getBoolean("benchmark"));
+        github = new StubOAuthProvider(CONCURRENCY * 2);
+        github.setLatency(Duration.ofMillis(Long.getLong("load.stub-latency-millis", 50)));
+        // its threads mostly sleep through the latency of the token endpoint, so it has plenty, and its authorize endpoint keeps answering
+        hung = new StubOAuthProvider(CONCURRENCY * 16);
+        hung.setLatency("access_token", Duration.ofSeconds(Long.getLong("load.hung-latency-seconds", 60)));
+    }
+
+    @After
+    public void stop() {
+        if (server != null) {
+            server.close();
+        }
+        if (github != null) {
+            github.close();
+        }
+        if (hung != null) {
+            hung.close();
+        }
+    }
+
+    @Test
+    public void withoutIsolation() throws Exception {
+        run("without isolation",
+                "--sso.providers.hung.timeout=10s",
+                "--sso.providers.hung.max-concurrent-logins=" + Integer.MAX_VALUE,
+                "--sso.providers.hung.failure-threshold=" + Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void withIsolation() throws Exception {
+        run("with isolation",
+                "--sso.providers.hung.timeout=1s",
+                "--sso.providers.hung.max-concurrent-logins=4",
+                "--sso.providers.hung.failure-threshold=5");
+    }
+
+    private void run(String setup, String... hungProvider) throws Exception {
+        server = new SpringApplicationBuilder(SpringSecurityApplication.class).run(concat(concat(concat(github.githubArgs(), hung.ssoArgs("hung")), hungProvider),
+                "--sso.providers.hung.client.clientId=hung",
+                "--server.port=0",
+                "--server.tomcat.max-threads=" + THREADS,
+                "--login-throttle.enabled=false",
+                "--token-store.directory=" + folder.newFolder("tokens"),
+                "--audit.file=" + folder.getRoot().toPath().resolve("audit/authentication.log")));
+        String serverUrl = "http://localhost:" + ((WebServerApplicationContext) server).getWebServer().getPort();
+
+        LoadDriver.Report report = new LoadDriver(CONCURRENCY).run(browser -> {
+            if (ThreadLocalRandom.current().nextBoolean()) {
+                LoadDriver.Response redirect = browser.get("GET /login/github", serverUrl + "/login/github", 302);
+                LoadDriver.Response authorize = browser.get("github authorize", redirect.getLocation(), 302);
+                browser.get("GET /login/github?code", authorize.getLocation(), 302);
+                browser.get("GET /user", serverUrl + "/user", 200);
+            } else {
+                // a login that fails (302 to /?error=true) or is refused (503), either way without a user
+                LoadDriver.Response redirect = browser.get("GET /login/hung", serverUrl + "/login/hung", 302, 503);
+                if (redirect.getStatus() == 302) {
+                    LoadDriver.Response authorize = browser.get("hung authorize", redirect.getLocation(), 302);
+                    browser.get("GET /login/hung?code", authorize.getLocation(), 302, 503);
+                }
+            }
+        }, WARMUP, MEASUREMENT);
+
+        System.out.printf("GitHub and a hung provider %s, %d threads, %d users%n%s%s%n", setup, THREADS, CONCURRENCY, report,
+                server.getBean(SsoProviderRegistry.class).stats());
+        assertThat((Integer) report.get("GET /user").get("count")).isPositive();
+    }
+
+    private static String[] concat(String[] first, String... second) {
+        String[] all = new String[first.length + second.length];
+        System.arraycopy(first, 0, all, 0, first.length);
+        System.arraycopy(second, 0, all, first.length, second.length);
+        return all;
+    }
+}
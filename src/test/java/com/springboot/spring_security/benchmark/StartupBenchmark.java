@@ -0,0 +1,132 @@
+package com.springboot.spring_security.benchmark;
+
+import com.springboot.spring_security.SpringSecurityApplication;
+import com.springboot.spring_security_client.ClientApplication;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Time to first request of both applications, with their default settings and with the fast-startup profile:
+ * from launching a new JVM until the first HTTP response (the index page of this application, the client's home page redirecting to its login).
+ * Each start is a cold start in a JVM of its own, like an instance started by the autoscaler; the two settings take turns.
+ * <p>
+ * Skipped unless run with -Dbenchmark=true, e.g. {@code ./gradlew test --tests '*StartupBenchmark' -Dbenchmark=true -Dload.startup-runs=5}.
+ * The medians are printed, along with the startup phases the StartupTimingReporter logged in the last run.
+ */
+public class StartupBenchmark {
+
+    private static final int RUNS = Integer.getInteger("load.startup-runs", 3);
+
+    private static final long TIMEOUT_MILLIS = 120_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void enabled() {
+        Assume.assumeTrue(Boolean.getBoolean("benchmark"));
+    }
+
+    @Test
+    public void authorizationServer() throws Exception {
+        compare(SpringSecurityApplication.class, "/", "--token-store.directory=" + folder.newFolder("tokens"),
+                "--revocation.file=" + new File(folder.getRoot(), "revocations.log"), "--audit.file=" + new File(folder.getRoot(), "audit.log"));
+    }
+
+    @Test
+    public void client() throws Exception {
+        compare(ClientApplication.class, "/client/", "--spring.config.name=client");
+    }
+
+    private void compare(Class<?> application, String path, String... args) throws Exception {
+        List<Long> defaults = new ArrayList<>();
+        List<Long> fast = new ArrayList<>();
+        String defaultReport = null;
+        String fastReport = null;
+        for (int i = 0; i < RUNS; i++) {
+            defaults.add(timeToFirstRequest(application, path, args));
+            defaultReport = lastReport;
+            fast.add(timeToFirstRequest(application, path, with(args, "--spring.profiles.active=fast-startup")));
+            fastReport = lastReport;
+        }
+        System.out.printf("%s time to first request, median of %d: default %d ms, fast-startup %d ms%n",
+                application.getSimpleName(), RUNS, median(defaults), median(fast));
+        System.out.println("  default:      " + defaultReport);
+        System.out.println("  fast-startup: " + fastReport);
+    }
+
+    private String lastReport;
+
+    private long timeToFirstRequest(Class<?> application, String path, String... args) throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        List<String> command = new ArrayList<>(Arrays.asList(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"), application.getName(), "--server.port=" + port));
+        command.addAll(Arrays.asList(args));
+        File log = folder.newFile();
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log).start();
+        try {
+            URL url = new URL("http://localhost:" + port + path);
+            while (!respond(url)) {
+                assertThat(process.isAlive()).as("%s exited, see %s", application.getSimpleName(), log).isTrue();
+                assertThat(System.nanoTime() - start).as("%s started within %d ms", application.getSimpleName(), TIMEOUT_MILLIS)
+                        .isLessThan(TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS));
+                Thread.sleep(5);
+            }
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        } finally {
+            process.destroy();
+            process.waitFor(30, TimeUnit.SECONDS);
+            lastReport = Files.readAllLines(log.toPath(), StandardCharsets.UTF_8).stream()
+                    .filter(line -> line.contains("Startup total")).map(line -> line.substring(line.indexOf("Startup total")))
+                    .findFirst().orElse("(no startup timings)");
+        }
+    }
+
+    private static boolean respond(URL url) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setInstanceFollowRedirects(false);
+            connection.setConnectTimeout(100);
+            int status = connection.getResponseCode();
+            connection.disconnect();
+            return status > 0;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    private static String[] with(String[] args, String arg) {
+        String[] all = Arrays.copyOf(args, args.length + 1);
+        all[args.length] = arg;
+        return all;
+    }
+
+    private static long median(List<Long> millis) {
+        List<Long> sorted = new ArrayList<>(millis);
+        Collections.sort(sorted);
+        return sorted.get(sorted.size() / 2);
+    }
+}
@@ -0,0 +1,300 @@
+package com.springboot.spring_security.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A local stand-in for GitHub's OAuth2 provider, so the /login/github flow can be load-tested without github.com:
+ * <ul>
+ * <li>GET /login/oauth/authorize redirects straight back to the redirect_uri with a new code (the user always approves)</li>
+ * <li>POST /login/oauth/access_token exchanges a code for a new access token, or answers one for grant_type=client_credentials</li>
+ * <li>GET /user answers the user of the access token, with an organizations_url pointing back here</li>
+ * <li>GET /users/{login}/orgs answers "spring-projects", so the authoritiesExtractor lets the user in</li>
+ * <li>POST /introspect answers a JSON array of tokens like the authorization server's batch introspection endpoint</li>
+ * </ul>
+ * With {@link #clientArgs()} or {@link #reactiveClientArgs()} it stands in for the authorization server of the ClientApplication as well.
+ * Every answer can be delayed by a fixed latency, and a share of them can be replaced by a 500, to see how the application copes.
+ */
+public class StubOAuthProvider implements Closeable {
+
+    private static final String CLIENT = "client";
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    private final Map<String, String> codes = new ConcurrentHashMap<>();
+
+    private final Map<String, String> tokens = new ConcurrentHashMap<>();
+
+    private final AtomicLong users = new AtomicLong();
+
+    private final Map<String, LongAdder> requests = new ConcurrentHashMap<>();
+
+    private final LongAdder injectedErrors = new LongAdder();
+
+    private volatile long latencyNanos;
+
+    private final Map<String, Long> endpointLatencyNanos = new ConcurrentHashMap<>();
+
+    private volatile double errorRate;
+
+    /**
+     * @param threads threads answering requests; the latency is spent on them, so have at least as many as concurrent callers
+     * @throws IOException if no local port can be bound
+     */
+    public StubOAuthProvider(int threads) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.server.setExecutor(executor);
+        this.server.createContext("/login/oauth/authorize", exchange -> handle(exchange, "authorize", this::authorize));
+        this.server.createContext("/login/oauth/access_token", exchange -> handle(exchange, "access_token", this::accessToken));
+        this.server.createContext("/user", exchange -> handle(exchange, "user", this::user));
+        this.server.createContext("/users/", exchange -> handle(exchange, "orgs", this::orgs));
+        this.server.createContext("/introspect", exchange -> handle(exchange, "introspect", this::introspect));
+        this.server.start();
+    }
+
+    /**
+     * @return e.g. "http://localhost:54321"
+     */
+    public String getBaseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /**
+     * The properties pointing the "github" SSO provider of the application at this stub.
+     *
+     * @return command line arguments
+     */
+    public String[] githubArgs() {
+        return ssoArgs("github");
+    }
+
+    /**
+     * The properties pointing an SSO provider of the application (sso.providers.{id}) at this stub.
+     *
+     * @param provider the id of the provider
+     * @return command line arguments
+     */
+    public String[] ssoArgs(String provider) {
+        return new String[]{
+                "--sso.providers." + provider + ".client.userAuthorizationUri=" + getBaseUrl() + "/login/oauth/authorize",
+                "--sso.providers." + provider + ".client.accessTokenUri=" + getBaseUrl() + "/login/oauth/access_token",
+                "--sso.providers." + provider + ".resource.userInfoUri=" + getBaseUrl() + "/user"
+        };
+    }
+
+    /**
+     * The properties pointing the ClientApplication (spring.config.name=client) at this stub, authorization server and introspection endpoint alike.
+     *
+     * @return command line arguments
+     */
+    public String[] clientArgs() {
+        return new String[]{
+                "--security.oauth2.client.access-token-uri=" + getBaseUrl() + "/login/oauth/access_token",
+                "--security.oauth2.client.user-authorization-uri=" + getBaseUrl() + "/login/oauth/authorize",
+                "--security.oauth2.resource.user-info-uri=" + getBaseUrl() + "/user",
+                "--introspection.uri=" + getBaseUrl() + "/introspect"
+        };
+    }
+
+    /**
+     * The properties pointing the ClientApplication's "acme" registration of the reactive profile at this stub.
+     *
+     * @return command line arguments
+     */
+    public String[] reactiveClientArgs() {
+        return new String[]{
+                "--spring.security.oauth2.client.provider.acme.authorization-uri=" + getBaseUrl() + "/login/oauth/authorize",
+                "--spring.security.oauth2.client.provider.acme.token-uri=" + getBaseUrl() + "/login/oauth/access_token",
+                "--spring.security.oauth2.client.provider.acme.user-info-uri=" + getBaseUrl() + "/user"
+        };
+    }
+
+    /**
+     * @param latency added to every answer
+     */
+    public void setLatency(Duration latency) {
+        this.latencyNanos = latency.toNanos();
+    }
+
+    /**
+     * @param endpoint e.g. "access_token", as in the stats
+     * @param latency  added to the answers of this endpoint instead of the latency of the others
+     */
+    public void setLatency(String endpoint, Duration latency) {
+        this.endpointLatencyNanos.put(endpoint, latency.toNanos());
+    }
+
+    /**
+     * @param errorRate share of the requests, from 0 to 1, answered with a 500 instead
+     */
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * Requests per endpoint and injected errors.
+     *
+     * @return
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        requests.forEach((endpoint, count) -> stats.put(endpoint, count.sum()));
+        stats.put("injectedErrors", injectedErrors.sum());
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange, String endpoint, Handler handler) throws IOException {
+        requests.computeIfAbsent(endpoint, key -> new LongAdder()).increment();
+        try (InputStream in = exchange.getRequestBody()) {
+            String body = new String(readAll(in), StandardCharsets.UTF_8);
+            Map<String, String> parameters = parameters(exchange.getRequestURI().getRawQuery());
+            if (!body.startsWith("[")) {
+                parameters.putAll(parameters(body));
+            }
+            long latency = endpointLatencyNanos.getOrDefault(endpoint, latencyNanos);
+            if (latency > 0) {
+                TimeUnit.NANOSECONDS.sleep(latency);
+            }
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                injectedErrors.increment();
+                respond(exchange, 500, "{\"message\":\"Injected error\"}");
+                return;
+            }
+            handler.handle(exchange, parameters, body);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void authorize(HttpExchange exchange, Map<String, String> parameters, String body) throws IOException {
+        String code = UUID.randomUUID().toString();
+        codes.put(code, "user-" + users.incrementAndGet());
+        String redirectUri = parameters.get("redirect_uri");
+        String location = redirectUri + (redirectUri.contains("?") ? "&" : "?") + "code=" + code
+                + (parameters.containsKey("state") ? "&state=" + parameters.get("state") : "");
+        exchange.getResponseHeaders().set("Location", location);
+        exchange.sendResponseHeaders(302, -1);
+    }
+
+    private void accessToken(HttpExchange exchange, Map<String, String> parameters, String body) throws IOException {
+        if ("client_credentials".equals(parameters.get("grant_type"))) {
+            String token = UUID.randomUUID().toString();
+            tokens.put(token, CLIENT);
+            respond(exchange, 200, "{\"access_token\":\"" + token + "\",\"token_type\":\"bearer\",\"expires_in\":3600}");
+            return;
+        }
+        String login = codes.remove(String.valueOf(parameters.get("code")));
+        if (login == null) {
+            respond(exchange, 400, "{\"error\":\"bad_verification_code\"}");
+            return;
+        }
+        String token = UUID.randomUUID().toString();
+        tokens.put(token, login);
+        respond(exchange, 200, "{\"access_token\":\"" + token + "\",\"token_type\":\"bearer\",\"scope\":\"\"}");
+    }
+
+    private void user(HttpExchange exchange, Map<String, String> parameters, String body) throws IOException {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        String token = authorization != null && authorization.regionMatches(true, 0, "Bearer ", 0, 7)
+                ? authorization.substring(7) : parameters.get("access_token");
+        String login = token == null ? null : tokens.get(token);
+        if (login == null) {
+            respond(exchange, 401, "{\"message\":\"Bad credentials\"}");
+            return;
+        }
+        respond(exchange, 200, "{\"id\":" + login.substring("user-".length()) + ",\"login\":\"" + login + "\",\"name\":\"" + login
+                + "\",\"organizations_url\":\"" + getBaseUrl() + "/users/" + login + "/orgs\"}");
+    }
+
+    private void orgs(HttpExchange exchange, Map<String, String> parameters, String body) throws IOException {
+        respond(exchange, 200, "[{\"login\":\"spring-projects\"}]");
+    }
+
+    /**
+     * Only for the client tokens of {@code grant_type=client_credentials}; the user tokens are active, any other is not.
+     */
+    private void introspect(HttpExchange exchange, Map<String, String> parameters, String body) throws IOException {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null || !CLIENT.equals(tokens.get(authorization.substring(authorization.indexOf(' ') + 1)))) {
+            respond(exchange, 401, "{\"error\":\"unauthorized\"}");
+            return;
+        }
+        StringBuilder entries = new StringBuilder("[");
+        for (String token : body.replaceAll("[\\[\\]\"\\s]", "").split(",")) {
+            String login = tokens.get(token);
+            entries.append(entries.length() > 1 ? "," : "").append(login == null || CLIENT.equals(login) ? "{\"active\":false}"
+                    : "{\"active\":true,\"username\":\"" + login + "\",\"client_id\":\"acme\",\"scope\":\"read write\",\"authorities\":[\"ROLE_USER\"]}");
+        }
+        respond(exchange, 200, entries.append("]").toString());
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static Map<String, String> parameters(String query) throws IOException {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, equals), "UTF-8"), URLDecoder.decode(pair.substring(equals + 1), "UTF-8"));
+            }
+        }
+        return parameters;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private interface Handler {
+
+        void handle(HttpExchange exchange, Map<String, String> parameters, String body) throws IOException;
+    }
+}
@@ -0,0 +1,113 @@
+package com.springboot.spring_security.benchmark;
+
+import com.springboot.spring_security.user.IndexedUserDetailsService;
+import com.springboot.spring_security.user.UserIndexWriter;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Memory per user and loadUserByUsername latency of the single-map InMemoryUserDetailsManager and of the IndexedUserDetailsService,
+ * with 1M and 10M users (-Dbenchmark.users=1000000,10000000). The in-memory manager is only measured up to 1M users,
+ * beyond that it needs more heap than a test JVM usually has.
+ * <p>
+ * Skipped unless run with -Dbenchmark=true; the 10M index is about a gigabyte in the temporary directory.
+ */
+public class UserIndexBenchmark {
+
+    private static final int LOOKUPS = 1_000_000;
+
+    private static final String PASSWORD = "{bcrypt}$2a$10$dXJ3SW6G7P50lGmMkkmwe.20cQQubK3.HZWzG3YB1tlRy.fqvM/BG";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void enabled() {
+        Assume.assumeTrue(Boolean.getBoolean("benchmark"));
+    }
+
+    @Test
+    public void inMemoryVersusIndexed() throws Exception {
+        for (String users : System.getProperty("benchmark.users", "1000000,10000000").split(",")) {
+            int count = Integer.parseInt(users.trim());
+            if (count <= 1_000_000) {
+                long baseline = usedHeapAfterGc();
+                InMemoryUserDetailsManager manager = new InMemoryUserDetailsManager();
+                for (UserDetails user : users(count)) {
+                    manager.createUser(user);
+                }
+                report("in-memory", count, usedHeapAfterGc() - baseline, 0, manager);
+            }
+
+            Path file = folder.getRoot().toPath().resolve("users-" + count + ".idx");
+            long start = System.nanoTime();
+            UserIndexWriter.write(file, users(count));
+            System.out.printf("wrote %,d users in %.1f s%n", count, (System.nanoTime() - start) / 1e9);
+            long baseline = usedHeapAfterGc();
+            try (IndexedUserDetailsService service = new IndexedUserDetailsService(file, Duration.ZERO)) {
+                report("indexed", count, usedHeapAfterGc() - baseline, Files.size(file), service);
+            }
+            Files.delete(file);
+        }
+    }
+
+    private static void report(String name, int count, long heapBytes, long fileBytes, UserDetailsService service) {
+        // warm up, then time every lookup of random existing users
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < LOOKUPS; i++) {
+            service.loadUserByUsername(username(random.nextInt(count)));
+        }
+        long[] nanos = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            String username = username(random.nextInt(count));
+            long start = System.nanoTime();
+            service.loadUserByUsername(username);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        System.out.printf("%-10s %,11d users: %5d heap bytes/user, %5d file bytes/user, lookup p50 %5d ns, p99 %6d ns, mean %5d ns%n",
+                name, count, heapBytes / count, fileBytes / count, nanos[LOOKUPS / 2], nanos[LOOKUPS * 99 / 100], Arrays.stream(nanos).sum() / LOOKUPS);
+    }
+
+    private static List<UserDetails> users(int count) {
+        // generated on the fly, so the writer streams them without the list ever holding them all
+        return new AbstractList<UserDetails>() {
+            @Override
+            public UserDetails get(int index) {
+                return User.withUsername(username(index)).password(PASSWORD).roles(index % 100 == 0 ? new String[]{"USER", "ADMIN"} : new String[]{"USER"}).build();
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    private static String username(int index) {
+        return "user" + index + "@example.com";
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,95 @@
+package com.springboot.spring_security.cache;
+
+import com.springboot.spring_security.support.MutableClock;
+import org.junit.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ExpiringCacheTests {
+
+    @Test
+    public void concurrentMissesShareOneLoad() throws Exception {
+        ExpiringCache<String, String> cache = new ExpiringCache<>("test");
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> cache.get("user", key -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return "ROLE_USER";
+                })));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<String> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("ROLE_USER");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void failuresAreCachedForTheNegativeTimeToLive() {
+        MutableClock clock = new MutableClock();
+        ExpiringCache<String, String> cache = new ExpiringCache<>("test");
+        cache.setClock(clock);
+        cache.setNegativelyCached(BadCredentialsException.class);
+        cache.setNegativeTimeToLive(Duration.ofSeconds(30));
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> cache.get("user", key -> {
+                loads.incrementAndGet();
+                throw new BadCredentialsException("Not in Spring Team");
+            })).isInstanceOf(BadCredentialsException.class);
+        }
+        assertThat(loads.get()).isEqualTo(1);
+
+        clock.advance(Duration.ofSeconds(31));
+        assertThat(cache.get("user", key -> "ROLE_USER")).isEqualTo("ROLE_USER");
+    }
+
+    @Test
+    public void entriesExpireAndEldestAreEvicted() {
+        MutableClock clock = new MutableClock();
+        ExpiringCache<Integer, Integer> cache = new ExpiringCache<>("test");
+        cache.setClock(clock);
+        cache.setMaximumSize(100);
+        cache.setTimeToLive(Duration.ofMinutes(1));
+
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, i);
+        }
+        assertThat(cache.size()).isEqualTo(100);
+        assertThat(cache.getIfPresent(0)).isNull();
+        assertThat(cache.getIfPresent(999)).isEqualTo(999);
+
+        clock.advance(Duration.ofMinutes(2));
+        assertThat(cache.getIfPresent(999)).isNull();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.springboot.spring_security.csrf;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.authentication.session.ChangeSessionIdAuthenticationStrategy;
+import org.springframework.security.web.authentication.session.CompositeSessionAuthenticationStrategy;
+import org.springframework.security.web.csrf.CsrfAuthenticationStrategy;
+import org.springframework.security.web.csrf.CsrfFilter;
+import org.springframework.security.web.csrf.CsrfToken;
+
+import javax.servlet.http.Cookie;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HmacCsrfTokenRepositoryTests {
+
+    private final AtomicLong now = new AtomicLong(Duration.ofDays(1).toMillis());
+
+    private final HmacCsrfTokenRepository repository = new HmacCsrfTokenRepository("secret".getBytes(StandardCharsets.UTF_8),
+            Duration.ofHours(1), new Clock() {
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(now.get());
+        }
+    });
+
+    @Test
+    public void theSameTokenIsHandedOutWithinTheWindowWithoutSettingTheCookieAgain() {
+        CsrfToken token = firstVisit();
+
+        MockHttpServletRequest request = request(token.getToken(), null);
+        assertThat(repository.loadToken(request).getToken()).isEqualTo(token.getToken());
+        assertThat(repository.loadToken(request(token.getToken(), null)).getToken()).isEqualTo(token.getToken());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        repository.saveToken(token, request, response);
+        assertThat(response.getCookies()).isEmpty();
+        assertThat(token.getHeaderName()).isEqualTo("X-XSRF-TOKEN");
+        assertThat(token.getParameterName()).isEqualTo("_csrf");
+    }
+
+    @Test
+    public void theTokenOfALoginOutlivesTheSessionIdChangeAndIsReissuedBeforeItExpires() throws Exception {
+        MockHttpSession session = new MockHttpSession(null, "anonymous");
+        MockHttpServletResponse page = perform(get("/login", null, session));
+        String anonymous = page.getCookie("XSRF-TOKEN").getValue();
+
+        MockHttpServletRequest login = post("/login", anonymous, session);
+        login.addParameter("_csrf", anonymous);
+        login.addParameter("username", "user");
+        login.addParameter("password", "123");
+        MockHttpServletResponse loggedIn = perform(login);
+        assertThat(loggedIn.getRedirectedUrl()).isEqualTo("/");
+        assertThat(session.getId()).isNotEqualTo("anonymous");
+        // the CsrfAuthenticationStrategy clears the cookie and sets the replacement
+        Cookie[] cookies = loggedIn.getCookies();
+        assertThat(cookies).hasSize(2);
+        String token = cookies[1].getValue();
+        assertThat(token).isNotEqualTo(anonymous);
+
+        // the replacement is good for the session with its new id, without another Set-Cookie
+        MockHttpServletRequest update = post("/user", token, session);
+        update.addHeader("X-XSRF-TOKEN", token);
+        MockHttpServletResponse updated = perform(update);
+        assertThat(updated.getStatus()).isEqualTo(200);
+        assertThat(updated.getCookies()).isEmpty();
+
+        // in the next window the first request gets the token of that window, and the page rendered for it too
+        now.addAndGet(Duration.ofMinutes(90).toMillis());
+        MockHttpServletRequest next = get("/home", token, session);
+        MockHttpServletResponse reissued = perform(next);
+        String nextToken = reissued.getCookie("XSRF-TOKEN").getValue();
+        assertThat(nextToken).isNotEqualTo(token);
+        assertThat(((CsrfToken) next.getAttribute(CsrfToken.class.getName())).getToken()).isEqualTo(nextToken);
+
+        // a page rendered before still sends the earlier token, next to the new cookie
+        MockHttpServletRequest earlier = post("/user", nextToken, session);
+        earlier.addHeader("X-XSRF-TOKEN", token);
+        assertThat(perform(earlier).getStatus()).isEqualTo(200);
+
+        // an active browser keeps a valid token however long it stays
+        now.addAndGet(Duration.ofHours(1).toMillis());
+        String lastToken = perform(get("/home", nextToken, session)).getCookie("XSRF-TOKEN").getValue();
+        now.addAndGet(Duration.ofHours(1).toMillis());
+        MockHttpServletRequest later = post("/user", lastToken, session);
+        later.addHeader("X-XSRF-TOKEN", lastToken);
+        assertThat(perform(later).getStatus()).isEqualTo(200);
+
+        // one left unused for a whole window has expired
+        now.addAndGet(Duration.ofHours(2).toMillis());
+        MockHttpServletRequest expired = post("/user", lastToken, session);
+        expired.addHeader("X-XSRF-TOKEN", lastToken);
+        assertThat(perform(expired).getStatus()).isEqualTo(403);
+    }
+
+    @Test
+    public void aLoginWithoutASessionCreatesTheSessionItsTokenIsBoundTo() throws Exception {
+        String anonymous = perform(get("/login", null, null)).getCookie("XSRF-TOKEN").getValue();
+
+        MockHttpServletRequest login = post("/login", anonymous, null);
+        login.addParameter("_csrf", anonymous);
+        login.addParameter("username", "user");
+        login.addParameter("password", "123");
+        MockHttpServletResponse loggedIn = perform(login);
+        String token = loggedIn.getCookies()[1].getValue();
+        MockHttpSession session = (MockHttpSession) login.getSession(false);
+        assertThat(session.getAttribute(HmacCsrfTokenRepository.SESSION_KEY_ATTRIBUTE)).isNotNull();
+
+        MockHttpServletRequest update = post("/user", token, session);
+        update.addHeader("X-XSRF-TOKEN", token);
+        assertThat(perform(update).getStatus()).isEqualTo(200);
+        // nor is the token of the session good without it, or the anonymous one with it
+        MockHttpServletRequest sessionless = post("/user", token, null);
+        sessionless.addHeader("X-XSRF-TOKEN", token);
+        assertThat(perform(sessionless).getStatus()).isEqualTo(403);
+        MockHttpServletRequest anonymousToken = post("/user", anonymous, session);
+        anonymousToken.addHeader("X-XSRF-TOKEN", anonymous);
+        assertThat(perform(anonymousToken).getStatus()).isEqualTo(403);
+    }
+
+    @Test
+    public void tokensAreBoundToTheSession() {
+        MockHttpSession session = new MockHttpSession(null, "first");
+        CsrfToken token = repository.generateToken(request(null, session));
+
+        assertThat(repository.loadToken(request(token.getToken(), session))).isNotNull();
+        assertThat(repository.loadToken(request(token.getToken(), new MockHttpSession(null, "second")))).isNull();
+        assertThat(repository.loadToken(request(token.getToken(), null))).isNull();
+    }
+
+    @Test
+    public void forgedAndMalformedTokensAreRejected() {
+        String token = firstVisit().getToken();
+        // a character of the MAC, not of the last one, whose lowest bits are padding
+        char mac = token.charAt(45);
+        String forged = token.substring(0, 45) + (mac == 'A' ? 'B' : 'A') + token.substring(46);
+
+        assertThat(repository.loadToken(request(forged, null))).isNull();
+        assertThat(repository.loadToken(request("not a token", null))).isNull();
+        assertThat(repository.loadToken(request(token.replace(token.charAt(3), '!'), null))).isNull();
+        assertThat(repository.loadToken(new MockHttpServletRequest())).isNull();
+        HmacCsrfTokenRepository otherSecret = new HmacCsrfTokenRepository("other".getBytes(StandardCharsets.UTF_8), Duration.ofHours(1), Clock.systemUTC());
+        assertThat(otherSecret.loadToken(request(token, null))).isNull();
+    }
+
+    @Test
+    public void savingNoTokenClearsTheCookie() {
+        MockHttpServletRequest request = request(firstVisit().getToken(), null);
+        request.setContextPath("/app");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        repository.saveToken(null, request, response);
+
+        Cookie cookie = response.getCookie("XSRF-TOKEN");
+        assertThat(cookie.getMaxAge()).isZero();
+        assertThat(cookie.getValue()).isEmpty();
+        assertThat(cookie.getPath()).isEqualTo("/app");
+    }
+
+    /**
+     * The request through a CsrfFilter and a form login, whose session authentication strategy is the one Spring Security builds:
+     * the CsrfAuthenticationStrategy, then the change of the session id.
+     */
+    private MockHttpServletResponse perform(MockHttpServletRequest request) throws Exception {
+        UsernamePasswordAuthenticationFilter login = new UsernamePasswordAuthenticationFilter();
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+        provider.setUserDetailsService(new InMemoryUserDetailsManager(User.withUsername("user").password("{noop}123").roles("USER").build()));
+        login.setAuthenticationManager(new ProviderManager(Collections.singletonList(provider)));
+        login.setSessionAuthenticationStrategy(new CompositeSessionAuthenticationStrategy(Arrays.asList(
+                new CsrfAuthenticationStrategy(repository), new ChangeSessionIdAuthenticationStrategy())));
+        login.afterPropertiesSet();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        new CsrfFilter(repository).doFilter(request, response, (filteredRequest, filteredResponse) ->
+                login.doFilter(filteredRequest, filteredResponse, new MockFilterChain()));
+        return response;
+    }
+
+    private static MockHttpServletRequest get(String path, String cookie, MockHttpSession session) {
+        MockHttpServletRequest request = request(cookie, session);
+        request.setServletPath(path);
+        return request;
+    }
+
+    private static MockHttpServletRequest post(String path, String cookie, MockHttpSession session) {
+        MockHttpServletRequest request = get(path, cookie, session);
+        request.setMethod("POST");
+        return request;
+    }
+
+    private CsrfToken firstVisit() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        CsrfToken token = repository.generateToken(request);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        repository.saveToken(token, request, response);
+        Cookie cookie = response.getCookie("XSRF-TOKEN");
+        assertThat(cookie.getValue()).isEqualTo(token.getToken());
+        assertThat(cookie.isHttpOnly()).isFalse();
+        assertThat(cookie.getPath()).isEqualTo("/");
+        return token;
+    }
+
+    private static MockHttpServletRequest request(String cookie, MockHttpSession session) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        if (cookie != null) {
+            request.setCookies(new Cookie("XSRF-TOKEN", cookie));
+        }
+        request.setSession(session);
+        return request;
+    }
+}
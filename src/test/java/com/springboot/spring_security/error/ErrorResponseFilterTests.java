@@ -0,0 +1,87 @@
+package com.springboot.spring_security.error;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.Servlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ErrorResponseFilterTests {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void unauthenticatedAndNotFoundAreAnsweredDirectly() throws Exception {
+        ErrorResponseFilter filter = new ErrorResponseFilter(true, 1);
+
+        MockHttpServletResponse unauthenticated = filter(filter, "/login/github", HttpServletResponse.SC_UNAUTHORIZED);
+        assertThat(unauthenticated.getStatus()).isEqualTo(302);
+        assertThat(unauthenticated.getRedirectedUrl()).isEqualTo("/?error=true");
+        assertThat(unauthenticated.getErrorMessage()).isNull();
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/app/wp-login.php");
+        request.setContextPath("/app");
+        MockHttpServletResponse notFound = new MockHttpServletResponse();
+        filter.doFilter(request, notFound, new MockFilterChain(sendError(HttpServletResponse.SC_NOT_FOUND)));
+        assertThat(notFound.getStatus()).isEqualTo(404);
+        assertThat(notFound.getErrorMessage()).isNull();
+        assertThat(notFound.getContentType()).isEqualTo("text/html;charset=UTF-8");
+        assertThat(notFound.getContentAsString()).contains("<h1>Not Found</h1>").contains("href=\"/app/home\"");
+        assertThat(notFound.getContentLength()).isEqualTo(notFound.getContentAsByteArray().length);
+
+        // other errors still go to the container
+        MockHttpServletResponse unavailable = filter(filter, "/login", HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        assertThat(unavailable.getStatus()).isEqualTo(503);
+        assertThat(unavailable.getErrorMessage()).isEqualTo("busy");
+
+        Map<String, Object> stats = filter.stats();
+        assertThat(stats).containsEntry("mode", "direct").containsEntry("written", 2L);
+        assertThat((Map<String, Long>) stats.get("errors")).containsEntry("401", 1L).containsEntry("404", 1L).containsEntry("503", 1L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void forwardModeOnlyCounts() throws Exception {
+        ErrorResponseFilter filter = new ErrorResponseFilter(false, 0);
+
+        MockHttpServletResponse notFound = filter(filter, "/missing", HttpServletResponse.SC_NOT_FOUND);
+        assertThat(notFound.getStatus()).isEqualTo(404);
+        assertThat(notFound.getErrorMessage()).isEqualTo("busy");
+
+        MockHttpServletResponse ok = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/"), ok, new MockFilterChain());
+        MockHttpServletResponse forbidden = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/oauth/authorize"), forbidden, new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                resp.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            }
+        }));
+
+        Map<String, Object> stats = filter.stats();
+        assertThat(stats).containsEntry("mode", "forward").containsEntry("written", 0L);
+        assertThat((Map<String, Long>) stats.get("errors")).containsOnlyKeys("403", "404");
+    }
+
+    private static MockHttpServletResponse filter(ErrorResponseFilter filter, String uri, int status) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", uri), response, new MockFilterChain(sendError(status)));
+        return response;
+    }
+
+    private static Servlet sendError(int status) {
+        return new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                resp.sendError(status, "busy");
+            }
+        };
+    }
+}
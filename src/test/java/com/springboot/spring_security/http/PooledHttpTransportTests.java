@@ -0,0 +1,67 @@
+package com.springboot.spring_security.http;
+
+import com.springboot.spring_security.resources.HttpClientProperties;
+import com.springboot.spring_security.support.StubServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.oauth2.client.DefaultOAuth2ClientContext;
+import org.springframework.security.oauth2.client.OAuth2RestTemplate;
+import org.springframework.security.oauth2.client.token.grant.client.ClientCredentialsResourceDetails;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PooledHttpTransportTests {
+
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+
+    private StubServer server;
+
+    private PooledHttpTransport transport;
+
+    @Before
+    public void start() throws Exception {
+        server = new StubServer().answer("/", (exchange, body) -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            return exchange.getRequestURI().getPath().equals("/oauth/token")
+                    ? "{\"access_token\":\"token\",\"token_type\":\"bearer\",\"expires_in\":3600}"
+                    : "{\"name\":\"user\"}";
+        });
+        transport = new PooledHttpTransport(new HttpClientProperties());
+    }
+
+    @After
+    public void stop() throws Exception {
+        transport.close();
+        server.close();
+    }
+
+    @Test
+    public void tokenAndApiCallsShareOneKeptAliveConnection() {
+        String base = server.getBaseUrl();
+        ClientCredentialsResourceDetails resource = new ClientCredentialsResourceDetails();
+        resource.setClientId("acme");
+        resource.setClientSecret("acmesecret");
+        resource.setAccessTokenUri(base + "/oauth/token");
+        OAuth2RestTemplate template = new OAuth2RestTemplate(resource, new DefaultOAuth2ClientContext());
+        transport.customize(template);
+
+        for (int i = 0; i < 20; i++) {
+            Map<String, Object> me = template.exchange(base + "/me", HttpMethod.GET, null, new ParameterizedTypeReference<Map<String, Object>>() {
+            }).getBody();
+            assertThat(me).containsEntry("name", "user");
+        }
+
+        assertThat(clientPorts).hasSize(1);
+        Map<String, Object> stats = transport.stats();
+        assertThat(stats.get("leases")).isEqualTo(21L);
+        assertThat(stats.get("leased")).isEqualTo(0);
+        assertThat(stats.get("available")).isEqualTo(1);
+    }
+}
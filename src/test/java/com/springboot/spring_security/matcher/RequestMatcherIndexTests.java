@@ -0,0 +1,133 @@
+package com.springboot.spring_security.matcher;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.web.DefaultSecurityFilterChain;
+import org.springframework.security.web.FilterChainProxy;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.AnyRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RegexRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+import javax.servlet.Filter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RequestMatcherIndexTests {
+
+    @Test
+    public void answersWhatTheAntMatchersOfTheWebSecurityConfigurationAnswer() {
+        List<RequestMatcher> matchers = Arrays.asList(ant("/"), ant("/unauthenticated"), ant("/error**"), ant("/webjars/**"),
+                ant("/login**"), AnyRequestMatcher.INSTANCE);
+        RequestMatcherIndex index = new RequestMatcherIndex(matchers);
+
+        assertThat(index.getUnindexedCount()).isZero();
+        for (String path : new String[]{"/", "/unauthenticated", "/unauthenticated/", "/error", "/errors", "/error/500", "/webjars",
+                "/webjars/", "/webjars/jquery/jquery.min.js", "/webjarsx", "/login", "/login/github", "/loginx", "/user", "/me", "/home"}) {
+            assertThat(index.indexOf(request("GET", path))).as(path).isEqualTo(linearIndexOf(matchers, request("GET", path)));
+        }
+        assertThat(index.indexOf(request("GET", "/login"))).isEqualTo(4);
+        assertThat(index.indexOf(request("GET", "/login/github"))).isEqualTo(5);
+    }
+
+    @Test
+    public void answersWhatTheAntMatchersAnswerForRandomPatternsAndPaths() {
+        Random random = new Random(42);
+        String[] patternSegments = {"a", "b", "c", "*", "**", "a*", "*c", "?", "b?", "{id}", "{id:[ab]}", "x.*", "error**"};
+        String[] pathSegments = {"a", "b", "c", "ab", "ac", "bc", "x.css", "error", "errors", "abc"};
+        String[] methods = {null, "GET", "POST"};
+        for (int round = 0; round < 200; round++) {
+            List<RequestMatcher> matchers = new ArrayList<>();
+            for (int rule = 0; rule < 1 + random.nextInt(12); rule++) {
+                StringBuilder pattern = new StringBuilder();
+                for (int segment = 0; segment < random.nextInt(4); segment++) {
+                    pattern.append('/').append(patternSegments[random.nextInt(patternSegments.length)]);
+                }
+                if (pattern.length() == 0 || random.nextInt(5) == 0) {
+                    pattern.append('/');
+                }
+                matchers.add(new AntPathRequestMatcher(pattern.toString(), methods[random.nextInt(methods.length)]));
+            }
+            RequestMatcherIndex index = new RequestMatcherIndex(matchers);
+            for (int i = 0; i < 50; i++) {
+                StringBuilder path = new StringBuilder();
+                for (int segment = 0; segment < random.nextInt(5); segment++) {
+                    path.append('/').append(pathSegments[random.nextInt(pathSegments.length)]);
+                }
+                if (path.length() == 0 || random.nextInt(4) == 0) {
+                    path.append('/');
+                }
+                String method = random.nextBoolean() ? "GET" : "POST";
+                assertThat(index.indexOf(request(method, path.toString())))
+                        .as("%s %s against %s", method, path, matchers)
+                        .isEqualTo(linearIndexOf(matchers, request(method, path.toString())));
+            }
+        }
+    }
+
+    @Test
+    public void matchersThatCannotBeIndexedKeepTheirPlace() {
+        List<RequestMatcher> matchers = Arrays.asList(ant("/a/b"), new RegexRequestMatcher("/a/.*", null), ant("/a/**"),
+                new AntPathRequestMatcher("/B/**", null, false), new OrRequestMatcher(ant("/c"), ant("/d/*")));
+        RequestMatcherIndex index = new RequestMatcherIndex(matchers);
+
+        assertThat(index.getUnindexedCount()).isEqualTo(2);
+        assertThat(index.indexOf(request("GET", "/a/b"))).isEqualTo(0);
+        assertThat(index.indexOf(request("GET", "/a/c"))).isEqualTo(1);
+        assertThat(index.indexOf(request("GET", "/a"))).isEqualTo(2);
+        assertThat(index.indexOf(request("GET", "/b/x"))).isEqualTo(3);
+        assertThat(index.indexOf(request("GET", "/d/x"))).isEqualTo(4);
+        assertThat(index.indexOf(request("GET", "/e"))).isEqualTo(-1);
+        // not a path for the trie: every matcher is asked, in order
+        assertThat(index.indexOf(request("GET", "/a//b"))).isEqualTo(linearIndexOf(matchers, request("GET", "/a//b")));
+    }
+
+    @Test
+    public void indexedProxySelectsTheSameChain() throws Exception {
+        List<String> ran = new ArrayList<>();
+        FilterChainProxy proxy = new IndexedFilterChainProxy(new FilterChainProxy(Arrays.asList(
+                new DefaultSecurityFilterChain(new OrRequestMatcher(ant("/oauth/token"), ant("/oauth/check_token")), recording(ran, "token")),
+                new DefaultSecurityFilterChain(ant("/me"), recording(ran, "me")),
+                new DefaultSecurityFilterChain(ant("/**"), recording(ran, "all")))));
+
+        for (String path : new String[]{"/oauth/check_token", "/me", "/me/", "/"}) {
+            proxy.doFilter(request("GET", path), new MockHttpServletResponse(), new MockFilterChain());
+        }
+
+        assertThat(ran).containsExactly("token", "me", "all", "all");
+        assertThat(proxy.getFilterChains().get(1).toString()).contains("Ant [pattern='/me']");
+    }
+
+    private static int linearIndexOf(List<RequestMatcher> matchers, MockHttpServletRequest request) {
+        for (int position = 0; position < matchers.size(); position++) {
+            if (matchers.get(position).matches(request)) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    private static Filter recording(List<String> ran, String name) {
+        return (request, response, chain) -> {
+            ran.add(name);
+            chain.doFilter(request, response);
+        };
+    }
+
+    private static AntPathRequestMatcher ant(String pattern) {
+        return new AntPathRequestMatcher(pattern);
+    }
+
+    private static MockHttpServletRequest request(String method, String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setServletPath(path);
+        return request;
+    }
+}
@@ -0,0 +1,112 @@
+package com.springboot.spring_security.metrics;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.web.DefaultSecurityFilterChain;
+import org.springframework.security.web.FilterChainProxy;
+import org.springframework.security.web.util.matcher.AnyRequestMatcher;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class FilterMetricsTests {
+
+    private final FilterMetrics metrics = new FilterMetrics(Duration.ZERO);
+
+    @After
+    public void close() {
+        metrics.close();
+    }
+
+    @Test
+    public void ownTimeLeavesOutTheRestOfTheChain() throws Exception {
+        FilterChainProxy proxy = new FilterChainProxy(new DefaultSecurityFilterChain(AnyRequestMatcher.INSTANCE,
+                Arrays.asList(new SlowFilter(20), new SlowFilter(60))));
+        metrics.instrument(proxy);
+        // instrumenting again changes nothing
+        metrics.instrument(proxy);
+
+        for (int i = 0; i < 3; i++) {
+            proxy.doFilter(new MockHttpServletRequest("GET", "/"), new MockHttpServletResponse(), new MockFilterChain());
+        }
+
+        Map<String, Object> chain = chain(metrics.stats(), "any request");
+        assertThat(chain).containsOnlyKeys("SlowFilter", "SlowFilter#2");
+        Map<String, Object> outer = filter(chain, "SlowFilter");
+        Map<String, Object> inner = filter(chain, "SlowFilter#2");
+        assertThat(outer.get("count")).isEqualTo(3L);
+        assertThat((Double) outer.get("p50Micros")).isBetween(19_000.0, 40_000.0);
+        assertThat((Double) inner.get("p50Micros")).isBetween(59_000.0, 90_000.0);
+    }
+
+    @Test
+    public void servletFiltersAreTimedUnderTheirOwnChain() throws Exception {
+        Filter timed = metrics.instrument("servlet", new SlowFilter(5));
+
+        timed.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(), new MockFilterChain());
+
+        assertThat(filter(chain(metrics.stats(), "servlet"), "SlowFilter").get("count")).isEqualTo(1L);
+    }
+
+    @Test
+    public void histogramPercentilesAreWithinTheBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram(4);
+        for (long micros = 1; micros <= 10_000; micros++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(micros));
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertThat(snapshot.getCount()).isEqualTo(10_000);
+        assertThat((double) snapshot.percentile(0.5)).isCloseTo(5_000_000, within(5_000_000 / 16.0));
+        assertThat((double) snapshot.percentile(0.99)).isCloseTo(9_900_000, within(9_900_000 / 16.0));
+        assertThat((double) snapshot.max()).isCloseTo(10_000_000, within(10_000_000 / 16.0));
+
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(50));
+        LatencyHistogram.Snapshot interval = histogram.snapshot().minus(snapshot);
+        assertThat(interval.getCount()).isEqualTo(1);
+        assertThat((double) interval.percentile(0.5)).isCloseTo(50_000_000, within(50_000_000 / 16.0));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> chain(Map<String, Object> stats, String name) {
+        return (Map<String, Object>) stats.get(name);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> filter(Map<String, Object> chain, String name) {
+        return (Map<String, Object>) chain.get(name);
+    }
+
+    private static class SlowFilter implements Filter {
+
+        private final long millis;
+
+        SlowFilter(long millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            chain.doFilter(request, response);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.springboot.spring_security.revocation;
+
+import com.springboot.spring_security.support.MutableClock;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RevocationIndexTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final MutableClock clock = new MutableClock();
+
+    @Test
+    public void onlyRevokedTokensAreRevoked() throws Exception {
+        try (RevocationIndex index = new RevocationIndex(folder.getRoot().toPath().resolve("revocations.log"), 1000, 0.01, Duration.ZERO, clock)) {
+            long expiresAt = clock.millis() + 60_000;
+            for (int i = 0; i < 1000; i++) {
+                index.revoke("revoked-" + i, expiresAt);
+            }
+
+            for (int i = 0; i < 1000; i++) {
+                assertThat(index.isRevoked("revoked-" + i)).isTrue();
+            }
+            for (int i = 0; i < 100_000; i++) {
+                assertThat(index.isRevoked("valid-" + i)).isFalse();
+            }
+            assertThat(index.stats()).containsEntry("revoked", 1000).containsEntry("checks", 101_000L).containsEntry("revokedHits", 1000L);
+            assertThat((double) index.stats().get("falsePositiveRate")).isLessThan(0.02);
+        }
+    }
+
+    @Test
+    public void revocationsSurviveARestartUntilTheyExpire() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("revocations.log");
+        try (RevocationIndex index = new RevocationIndex(file, 1000, 0.01, Duration.ZERO, clock)) {
+            index.revoke("short-lived", clock.millis() + 1_000);
+            index.revoke("long-lived", clock.millis() + 60_000);
+            index.revoke("expired", clock.millis() - 1_000);
+        }
+        // a torn record from a crash in the middle of an append
+        Files.write(file, new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+        clock.advance(Duration.ofSeconds(10));
+
+        try (RevocationIndex index = new RevocationIndex(file, 1000, 0.01, Duration.ZERO, clock)) {
+            assertThat(index.isRevoked("long-lived")).isTrue();
+            assertThat(index.isRevoked("short-lived")).isFalse();
+            assertThat(index.isRevoked("expired")).isFalse();
+            assertThat(Files.size(file)).isEqualTo(24);
+        }
+    }
+
+    @Test
+    public void rebuildsDropExpiredRevocationsAndGrowTheFilter() throws Exception {
+        try (RevocationIndex index = new RevocationIndex(folder.getRoot().toPath().resolve("revocations.log"), 100, 0.01, Duration.ZERO, clock)) {
+            for (int i = 0; i < 250; i++) {
+                index.revoke("token-" + i, clock.millis() + (i < 50 ? 1_000 : 60_000));
+            }
+            assertThat((int) index.stats().get("bloomCapacity")).isGreaterThanOrEqualTo(250);
+
+            clock.advance(Duration.ofSeconds(10));
+            index.rebuild();
+
+            assertThat(index.stats()).containsEntry("revoked", 200).containsEntry("logBytes", 200L * 24);
+            assertThat(index.isRevoked("token-0")).isFalse();
+            assertThat(index.isRevoked("token-249")).isTrue();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.springboot.spring_security.session;
+
+import com.springboot.spring_security.support.MutableClock;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextImpl;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OffHeapSessionRepositoryTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void sessionsRoundTripAndChangeTheirId() throws Exception {
+        try (OffHeapSessionRepository repository = new OffHeapSessionRepository(4, 64 * 1024, null, Duration.ZERO)) {
+            OffHeapSessionRepository.OffHeapSession session = repository.createSession();
+            session.setAttribute("SPRING_SECURITY_CONTEXT", securityContext("user"));
+            repository.save(session);
+
+            OffHeapSessionRepository.OffHeapSession loaded = repository.findById(session.getId());
+            SecurityContextImpl context = loaded.getAttribute("SPRING_SECURITY_CONTEXT");
+            assertThat(context.getAuthentication().getName()).isEqualTo("user");
+
+            String oldId = loaded.getId();
+            loaded.changeSessionId();
+            loaded.setAttribute("greeting", "hello");
+            repository.save(loaded);
+            assertThat(repository.findById(oldId)).isNull();
+            assertThat(repository.findById(loaded.getId()).<String>getAttribute("greeting")).isEqualTo("hello");
+
+            repository.deleteById(loaded.getId());
+            assertThat(repository.findById(loaded.getId())).isNull();
+            assertThat(repository.getSessionCount()).isEqualTo(0);
+        }
+    }
+
+    @Test
+    public void manySessionsGrowTheArenasAndReuseFreedBlocks() throws Exception {
+        try (OffHeapSessionRepository repository = new OffHeapSessionRepository(4, 64 * 1024, null, Duration.ZERO)) {
+            List<String> ids = new ArrayList<>();
+            for (int i = 0; i < 5000; i++) {
+                OffHeapSessionRepository.OffHeapSession session = repository.createSession();
+                session.setAttribute("SPRING_SECURITY_CONTEXT", securityContext("user-" + i));
+                repository.save(session);
+                ids.add(session.getId());
+            }
+            for (int i = 0; i < 5000; i += 2) {
+                repository.deleteById(ids.get(i));
+            }
+            long used = (Long) repository.stats().get("usedBytes");
+            for (int i = 0; i < 2500; i++) {
+                OffHeapSessionRepository.OffHeapSession session = repository.createSession();
+                session.setAttribute("SPRING_SECURITY_CONTEXT", securityContext("user-" + i));
+                repository.save(session);
+            }
+
+            assertThat(repository.getSessionCount()).isEqualTo(5000);
+            // without reuse the arenas would grow by half; stripes that got more new sessions than they freed still grow a little
+            assertThat((Long) repository.stats().get("usedBytes")).isLessThan(used + used / 10);
+            SecurityContextImpl context = repository.findById(ids.get(4999)).getAttribute("SPRING_SECURITY_CONTEXT");
+            assertThat(context.getAuthentication().getName()).isEqualTo("user-4999");
+        }
+    }
+
+    @Test
+    public void theTimerWheelExpiresIdleSessionsOnly() throws Exception {
+        MutableClock clock = new MutableClock();
+        try (OffHeapSessionRepository repository = new OffHeapSessionRepository(4, 64 * 1024, null, Duration.ZERO)) {
+            repository.setClock(clock);
+            repository.setDefaultMaxInactiveInterval(Duration.ofMinutes(30));
+            OffHeapSessionRepository.OffHeapSession idle = repository.createSession();
+            repository.save(idle);
+            OffHeapSessionRepository.OffHeapSession active = repository.createSession();
+            repository.save(active);
+
+            clock.advance(Duration.ofMinutes(20));
+            OffHeapSessionRepository.OffHeapSession loaded = repository.findById(active.getId());
+            loaded.setLastAccessedTime(clock.instant());
+            repository.save(loaded);
+
+            clock.advance(Duration.ofMinutes(11));
+            assertThat(repository.cleanUpExpiredSessions()).isEqualTo(1);
+            assertThat(repository.findById(idle.getId())).isNull();
+            assertThat(repository.findById(active.getId())).isNotNull();
+
+            clock.advance(Duration.ofMinutes(20));
+            assertThat(repository.cleanUpExpiredSessions()).isEqualTo(1);
+            assertThat(repository.getSessionCount()).isEqualTo(0);
+        }
+    }
+
+    @Test
+    public void persistedSessionsSurviveARestart() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        String id;
+        try (OffHeapSessionRepository repository = new OffHeapSessionRepository(4, 64 * 1024, directory, Duration.ZERO)) {
+            OffHeapSessionRepository.OffHeapSession session = repository.createSession();
+            session.setAttribute("SPRING_SECURITY_CONTEXT", securityContext("user"));
+            repository.save(session);
+            id = session.getId();
+            OffHeapSessionRepository.OffHeapSession removed = repository.createSession();
+            repository.save(removed);
+            repository.deleteById(removed.getId());
+        }
+        try (OffHeapSessionRepository repository = new OffHeapSessionRepository(4, 64 * 1024, directory, Duration.ZERO)) {
+            assertThat(repository.getSessionCount()).isEqualTo(1);
+            SecurityContextImpl context = repository.findById(id).getAttribute("SPRING_SECURITY_CONTEXT");
+            assertThat(context.getAuthentication().getName()).isEqualTo("user");
+        }
+    }
+
+    private static SecurityContextImpl securityContext(String userName) {
+        return new SecurityContextImpl(new UsernamePasswordAuthenticationToken(userName, null, AuthorityUtils.createAuthorityList("ROLE_USER")));
+    }
+}
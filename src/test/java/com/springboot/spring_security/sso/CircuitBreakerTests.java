@@ -0,0 +1,114 @@
+package com.springboot.spring_security.sso;
+
+import com.springboot.spring_security.support.MutableClock;
+import org.junit.Test;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CircuitBreakerTests {
+
+    private final MutableClock clock = new MutableClock();
+
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker(3, Duration.ofSeconds(30), clock);
+
+    @Test
+    public void opensAfterFailuresInARow() {
+        fail(2);
+        succeed();
+        fail(2);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        fail(1);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.isAvailable()).isFalse();
+        assertThat(circuitBreaker.tryAcquirePermission()).isEqualTo(CircuitBreaker.Permission.REFUSED);
+        assertThat(circuitBreaker.getRemainingOpenDuration()).isEqualTo(Duration.ofSeconds(30));
+        assertThat(circuitBreaker.stats()).containsEntry("failures", 5L).containsEntry("refused", 1L).containsEntry("opened", 1L);
+    }
+
+    @Test
+    public void aSingleProbeClosesTheCircuitAgain() {
+        fail(3);
+        clock.advance(Duration.ofSeconds(30));
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(circuitBreaker.isAvailable()).isTrue();
+        CircuitBreaker.Permission probe = circuitBreaker.tryAcquirePermission();
+        assertThat(probe).isEqualTo(CircuitBreaker.Permission.PROBE);
+        assertThat(circuitBreaker.tryAcquirePermission()).isEqualTo(CircuitBreaker.Permission.REFUSED);
+        circuitBreaker.onSuccess(probe);
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(circuitBreaker.tryAcquirePermission()).isEqualTo(CircuitBreaker.Permission.GRANTED);
+        assertThat(circuitBreaker.tryAcquirePermission()).isEqualTo(CircuitBreaker.Permission.GRANTED);
+    }
+
+    @Test
+    public void aLateSuccessOfACallStartedBeforeTheCircuitOpenedDoesNotCloseIt() {
+        CircuitBreaker.Permission slow = circuitBreaker.tryAcquirePermission();
+        CircuitBreaker.Permission slower = circuitBreaker.tryAcquirePermission();
+        fail(3);
+
+        circuitBreaker.onSuccess(slow);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        clock.advance(Duration.ofSeconds(30));
+        CircuitBreaker.Permission probe = circuitBreaker.tryAcquirePermission();
+        assertThat(probe).isEqualTo(CircuitBreaker.Permission.PROBE);
+        circuitBreaker.onSuccess(slower);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(circuitBreaker.tryAcquirePermission()).isEqualTo(CircuitBreaker.Permission.REFUSED);
+
+        circuitBreaker.onSuccess(probe);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    public void aFailedProbeOpensTheCircuitForAnotherOpenDuration() {
+        fail(3);
+        clock.advance(Duration.ofSeconds(40));
+
+        CircuitBreaker.Permission probe = circuitBreaker.tryAcquirePermission();
+        assertThat(probe).isEqualTo(CircuitBreaker.Permission.PROBE);
+        circuitBreaker.onFailure(probe);
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.getRemainingOpenDuration()).isEqualTo(Duration.ofSeconds(30));
+        clock.advance(Duration.ofSeconds(30));
+        assertThat(circuitBreaker.tryAcquirePermission()).isEqualTo(CircuitBreaker.Permission.PROBE);
+    }
+
+    @Test
+    public void aProbeEndingInAnErrorStillReportsItsOutcome() {
+        fail(3);
+        clock.advance(Duration.ofSeconds(30));
+        ClientHttpRequestInterceptor interceptor = SsoProvider.interceptor("github", circuitBreaker);
+
+        assertThatThrownBy(() -> interceptor.intercept(new MockClientHttpRequest(), new byte[0], (request, body) -> {
+            throw new StackOverflowError();
+        })).isInstanceOf(StackOverflowError.class);
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        clock.advance(Duration.ofSeconds(30));
+        assertThat(circuitBreaker.tryAcquirePermission()).isEqualTo(CircuitBreaker.Permission.PROBE);
+    }
+
+    private void fail(int calls) {
+        for (int i = 0; i < calls; i++) {
+            CircuitBreaker.Permission permission = circuitBreaker.tryAcquirePermission();
+            assertThat(permission.isGranted()).isTrue();
+            circuitBreaker.onFailure(permission);
+        }
+    }
+
+    private void succeed() {
+        CircuitBreaker.Permission permission = circuitBreaker.tryAcquirePermission();
+        assertThat(permission.isGranted()).isTrue();
+        circuitBreaker.onSuccess(permission);
+    }
+}
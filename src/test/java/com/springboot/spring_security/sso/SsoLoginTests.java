@@ -0,0 +1,156 @@
+package com.springboot.spring_security.sso;
+
+import com.springboot.spring_security.support.StubServer;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Logins through the login filters the WebSecurityConfiguration builds, against a stub provider for each case:
+ * "stub" lets everyone in, "user-info" and "organizations" open their circuit while the login is in progress,
+ * so the circuit refuses the user info and the organizations call respectively.
+ * Each case has a provider, and so a circuit, of its own.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ContextConfiguration(initializers = SsoLoginTests.Providers.class)
+@AutoConfigureMockMvc
+@DirtiesContext
+public class SsoLoginTests {
+
+    private static StubServer server;
+
+    private static volatile SsoProviderRegistry registry;
+
+    @Autowired
+    private SsoProviderRegistry ssoProviderRegistry;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Before
+    public void setUp() {
+        registry = ssoProviderRegistry;
+    }
+
+    @AfterClass
+    public static void stop() {
+        server.close();
+    }
+
+    @Test
+    public void aLoginTheProviderAnswersSucceeds() throws Exception {
+        MockHttpServletResponse response = login("stub");
+
+        assertThat(response.getStatus()).isEqualTo(302);
+        assertThat(response.getRedirectedUrl()).doesNotContain("error");
+    }
+
+    @Test
+    public void aLoginWhoseUserInfoCallTheCircuitRefusesGets503() throws Exception {
+        MockHttpServletResponse response = login("user-info");
+
+        assertThat(response.getStatus()).isEqualTo(503);
+        assertThat(Integer.parseInt(response.getHeader("Retry-After"))).isBetween(1, 31);
+    }
+
+    @Test
+    public void aLoginWhoseOrganizationsCallTheCircuitRefusesGets503() throws Exception {
+        MockHttpServletResponse response = login("organizations");
+
+        assertThat(response.getStatus()).isEqualTo(503);
+        assertThat(Integer.parseInt(response.getHeader("Retry-After"))).isBetween(1, 31);
+    }
+
+    /**
+     * Goes to the provider, then comes back with a code, as the browser does.
+     *
+     * @param id the provider
+     * @return the response to the way back
+     * @throws Exception
+     */
+    private MockHttpServletResponse login(String id) throws Exception {
+        MvcResult authorize = mvc.perform(get("/login/" + id)).andReturn();
+        String redirect = authorize.getResponse().getRedirectedUrl();
+        assertThat(redirect).startsWith(server.getBaseUrl() + "/oauth/authorize");
+        String state = UriComponentsBuilder.fromUriString(redirect).build().getQueryParams().getFirst("state");
+
+        // the session is the one of the SESSION cookie (Spring Session), not a MockHttpSession
+        return mvc.perform(get("/login/" + id).param("code", "code").param("state", state).cookie(authorize.getResponse().getCookies()))
+                .andReturn().getResponse();
+    }
+
+    /**
+     * Opens the circuit of the provider, as a concurrent login whose call failed would.
+     *
+     * @param id the provider
+     */
+    private static void open(String id) {
+        CircuitBreaker circuitBreaker = registry.getProvider(id).getCircuitBreaker();
+        circuitBreaker.onFailure(circuitBreaker.tryAcquirePermission());
+    }
+
+    /**
+     * Starts the stub provider and configures a provider on it for each case; the client id is the provider's id, and so is the access token.
+     */
+    static class Providers implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+
+        @Override
+        public void initialize(ConfigurableApplicationContext context) {
+            try {
+                server = new StubServer();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            String baseUrl = server.getBaseUrl();
+            server.answer("/oauth/token", (exchange, body) -> {
+                String id = UriComponentsBuilder.newInstance().query(body).build().getQueryParams().getFirst("client_id");
+                if (id.equals("user-info")) {
+                    open(id);
+                }
+                return "{\"access_token\":\"" + id + "\",\"token_type\":\"bearer\",\"expires_in\":3600}";
+            });
+            server.answer("/user", (exchange, body) -> {
+                String id = exchange.getRequestHeaders().getFirst("Authorization").substring("Bearer ".length());
+                if (id.equals("organizations")) {
+                    open(id);
+                }
+                return "{\"id\":\"" + id + "\",\"login\":\"" + id + "\",\"organizations_url\":\"" + baseUrl + "/orgs\"}";
+            });
+            server.answer("/orgs", (exchange, body) -> "[{\"login\":\"spring-projects\"}]");
+            TestPropertyValues properties = TestPropertyValues.empty();
+            for (String id : new String[]{"stub", "user-info", "organizations"}) {
+                String prefix = "sso.providers." + id + ".";
+                properties = properties.and(prefix + "client.clientId=" + id,
+                        prefix + "client.clientSecret=secret",
+                        prefix + "client.accessTokenUri=" + baseUrl + "/oauth/token",
+                        prefix + "client.userAuthorizationUri=" + baseUrl + "/oauth/authorize",
+                        prefix + "client.clientAuthenticationScheme=form",
+                        prefix + "resource.userInfoUri=" + baseUrl + "/user",
+                        prefix + "organization-check=true",
+                        prefix + "failure-threshold=1");
+            }
+            properties.applyTo(context);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.springboot.spring_security.sso;
+
+import com.springboot.spring_security.http.PooledHttpTransport;
+import com.springboot.spring_security.resources.HttpClientProperties;
+import com.springboot.spring_security.support.StubServer;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.oauth2.client.DefaultOAuth2ClientContext;
+import org.springframework.security.oauth2.client.OAuth2RestTemplate;
+import org.springframework.security.oauth2.client.token.grant.client.ClientCredentialsResourceDetails;
+
+import javax.servlet.Filter;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SsoProviderRegistryTests {
+
+    private final List<String> logins = new CopyOnWriteArrayList<>();
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private StubServer server;
+
+    private PooledHttpTransport transport;
+
+    @After
+    public void stop() throws Exception {
+        executor.shutdownNow();
+        if (transport != null) {
+            transport.close();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void requestsGoToTheLoginFilterOfTheirPath() throws Exception {
+        SsoProviderRegistry registry = new SsoProviderRegistry(Arrays.asList(provider("github", 10), provider("facebook", 10)));
+
+        assertThat(login(registry, "/login/facebook").getStatus()).isEqualTo(200);
+        assertThat(login(registry, "/login/github").getStatus()).isEqualTo(200);
+        MockFilterChain chain = new MockFilterChain();
+        registry.doFilter(request("/login/gitlab"), new MockHttpServletResponse(), chain);
+
+        assertThat(logins).containsExactly("facebook", "github");
+        assertThat(chain.getRequest()).isNotNull();
+        assertThat(registry.getRequestMatcher().matches(request("/login/github"))).isTrue();
+        assertThat(registry.getRequestMatcher().matches(request("/login"))).isFalse();
+    }
+
+    @Test
+    public void aProviderWithItsCircuitOpenFailsFastWithoutAffectingTheOthers() throws Exception {
+        SsoProvider github = provider("github", 10);
+        SsoProviderRegistry registry = new SsoProviderRegistry(Arrays.asList(github, provider("facebook", 10)));
+        for (int i = 0; i < 3; i++) {
+            github.getCircuitBreaker().onFailure(github.getCircuitBreaker().tryAcquirePermission());
+        }
+
+        MockHttpServletResponse refused = login(registry, "/login/github");
+        assertThat(refused.getStatus()).isEqualTo(503);
+        assertThat(refused.getHeader("Retry-After")).isEqualTo("31");
+        assertThat(login(registry, "/login/facebook").getStatus()).isEqualTo(200);
+        assertThat(logins).containsExactly("facebook");
+        assertThat(github.stats()).containsEntry("unavailable", 1L);
+    }
+
+    @Test
+    public void loginsOverTheConcurrencyLimitAreRefused() throws Exception {
+        CountDownLatch inProgress = new CountDownLatch(2);
+        CountDownLatch answer = new CountDownLatch(1);
+        SsoProvider github = new SsoProvider("github", "/login/github", (request, response, chain) -> {
+            inProgress.countDown();
+            try {
+                answer.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }, circuitBreaker(), 2, Duration.ZERO);
+        SsoProviderRegistry registry = new SsoProviderRegistry(Arrays.asList(github, provider("facebook", 10)));
+        Future<?> first = executor.submit(() -> login(registry, "/login/github"));
+        Future<?> second = executor.submit(() -> login(registry, "/login/github"));
+        assertThat(inProgress.await(10, TimeUnit.SECONDS)).isTrue();
+
+        MockHttpServletResponse busy = login(registry, "/login/github");
+        assertThat(busy.getStatus()).isEqualTo(503);
+        assertThat(busy.getHeader("Retry-After")).isEqualTo("1");
+        assertThat(login(registry, "/login/facebook").getStatus()).isEqualTo(200);
+
+        answer.countDown();
+        first.get(10, TimeUnit.SECONDS);
+        second.get(10, TimeUnit.SECONDS);
+        assertThat(github.stats()).containsEntry("logins", 2L).containsEntry("busy", 1L).containsEntry("inProgress", 0);
+    }
+
+    @Test
+    public void callsToASlowProviderTimeOutAndOpenItsCircuit() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        server = new StubServer().answer("/", (exchange, body) -> {
+            calls.incrementAndGet();
+            Thread.sleep(1000);
+            return "{\"access_token\":\"token\",\"token_type\":\"bearer\"}";
+        });
+        transport = new PooledHttpTransport(new HttpClientProperties());
+        CircuitBreaker circuitBreaker = circuitBreaker();
+        OAuth2RestTemplate template = template(server.getBaseUrl());
+        transport.customize(template, Duration.ofMillis(100), Collections.singletonList(SsoProvider.interceptor("github", circuitBreaker)));
+
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            assertThatThrownBy(template::getAccessToken).hasStackTraceContaining("SocketTimeoutException");
+            assertThat(System.nanoTime() - start).isLessThan(TimeUnit.MILLISECONDS.toNanos(900));
+        }
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThatThrownBy(template::getAccessToken).hasStackTraceContaining(ProviderUnavailableException.class.getName());
+        assertThat(calls.get()).isEqualTo(3);
+    }
+
+    private SsoProvider provider(String id, int maxConcurrentLogins) {
+        Filter filter = (request, response, chain) -> logins.add(id);
+        return new SsoProvider(id, "/login/" + id, filter, circuitBreaker(), maxConcurrentLogins, Duration.ZERO);
+    }
+
+    private static CircuitBreaker circuitBreaker() {
+        return new CircuitBreaker(3, Duration.ofSeconds(30), Clock.systemUTC());
+    }
+
+    private static OAuth2RestTemplate template(String baseUrl) {
+        ClientCredentialsResourceDetails resource = new ClientCredentialsResourceDetails();
+        resource.setClientId("acme");
+        resource.setClientSecret("acmesecret");
+        resource.setAccessTokenUri(baseUrl + "/oauth/token");
+        return new OAuth2RestTemplate(resource, new DefaultOAuth2ClientContext());
+    }
+
+    private static MockHttpServletResponse login(SsoProviderRegistry registry, String path) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        registry.doFilter(request(path), response, new MockFilterChain());
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setServletPath(path);
+        return request;
+    }
+}
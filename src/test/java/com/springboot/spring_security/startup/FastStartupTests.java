@@ -0,0 +1,53 @@
+package com.springboot.spring_security.startup;
+
+import com.springboot.spring_security_client.ClientApplication;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.index.CandidateComponentsIndexLoader;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * The application in the fast-startup profile; the StartupBenchmark times it.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("fast-startup")
+@AutoConfigureMockMvc
+@DirtiesContext
+public class FastStartupTests {
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Test
+    public void theContextStartsFromTheComponentIndexWithoutTheClient() {
+        assertThat(CandidateComponentsIndexLoader.loadIndex(getClass().getClassLoader())).isNotNull();
+        assertThat(context.getBeanNamesForType(ClientApplication.class)).isEmpty();
+    }
+
+    @Test
+    public void theSsoBeansAreCreatedByTheFirstLogin() throws Exception {
+        ConfigurableListableBeanFactory beanFactory = context.getBeanFactory();
+        assertThat(beanFactory.getBeanDefinition("pooledHttpTransport").isLazyInit()).isTrue();
+        assertThat(beanFactory.containsSingleton("pooledHttpTransport")).isFalse();
+
+        String redirect = mvc.perform(get("/login/github")).andReturn().getResponse().getRedirectedUrl();
+
+        assertThat(redirect).startsWith("https://github.com/login/oauth/authorize");
+        assertThat(beanFactory.containsSingleton("pooledHttpTransport")).isTrue();
+    }
+}
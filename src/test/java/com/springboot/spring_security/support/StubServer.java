@@ -0,0 +1,106 @@
+package com.springboot.spring_security.support;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A local HTTP server standing in for a provider or an authorization server in the tests: each path answers JSON computed by a handler,
+ * on a thread of its own, so a handler may block to hold an answer back.
+ * The load tests use the StubOAuthProvider, which plays a whole provider.
+ */
+public class StubServer implements Closeable {
+
+    private final HttpServer server;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    /**
+     * @throws IOException if no local port can be bound
+     */
+    public StubServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * @param path    the path and everything below it
+     * @param handler answers the request
+     * @return this
+     */
+    public StubServer answer(String path, Handler handler) {
+        server.createContext(path, exchange -> {
+            try (InputStream in = exchange.getRequestBody()) {
+                String json = handler.answer(exchange, new String(readAll(in), StandardCharsets.UTF_8));
+                if (json != null) {
+                    respond(exchange, 200, json);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                exchange.close();
+            }
+        });
+        return this;
+    }
+
+    /**
+     * @return e.g. "http://localhost:54321"
+     */
+    public String getBaseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /**
+     * For handlers answering something else than a 200.
+     *
+     * @param exchange
+     * @param status
+     * @param json
+     * @throws IOException
+     */
+    public static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    public interface Handler {
+
+        /**
+         * @param exchange the request, e.g. for its headers
+         * @param body     the request body
+         * @return the JSON to answer with a 200, or null when the handler has answered with {@link #respond(HttpExchange, int, String)}
+         */
+        String answer(HttpExchange exchange, String body) throws IOException, InterruptedException;
+    }
+}
@@ -0,0 +1,83 @@
+package com.springboot.spring_security.throttle;
+
+import com.springboot.spring_security.support.MutableClock;
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LoginThrottlingFilterTests {
+
+    private final MutableClock clock = new MutableClock();
+
+    private final LoginAttemptLimiter limiter = new LoginAttemptLimiter(Duration.ofMinutes(1), 20, 5, 1024, 4, clock);
+
+    private final LoginThrottlingFilter filter = new LoginThrottlingFilter(limiter);
+
+    @Test
+    public void attemptsOnOneUsernameAreLimitedFromAnyAddress() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            assertThat(formLogin("10.0.0." + i, "user").getStatus()).isEqualTo(200);
+        }
+        MockHttpServletResponse rejected = formLogin("10.0.0.99", "USER");
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader("Retry-After")).isEqualTo("60");
+        assertThat(formLogin("10.0.0.99", "someone-else").getStatus()).isEqualTo(200);
+
+        // ten seconds into the next window, five sixths of the previous one still count; two windows later it is forgotten
+        clock.advance(Duration.ofSeconds(70));
+        assertThat(formLogin("10.0.0.1", "user").getStatus()).isEqualTo(429);
+        clock.advance(Duration.ofMinutes(2));
+        assertThat(formLogin("10.0.0.1", "user").getStatus()).isEqualTo(200);
+        assertThat(limiter.stats()).containsEntry("usernameLimited", 2L);
+    }
+
+    @Test
+    public void attemptsFromOneAddressAreLimitedWhateverTheUsername() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            assertThat(formLogin("10.0.0.1", "user-" + i).getStatus()).isEqualTo(200);
+        }
+        assertThat(formLogin("10.0.0.1", "user-20").getStatus()).isEqualTo(429);
+
+        MockHttpServletRequest github = new MockHttpServletRequest("GET", "/login/github");
+        github.setServletPath("/login/github");
+        github.setRemoteAddr("10.0.0.1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(github, response, new MockFilterChain());
+        assertThat(response.getStatus()).isEqualTo(429);
+
+        MockHttpServletRequest page = new MockHttpServletRequest("GET", "/login");
+        page.setServletPath("/login");
+        page.setRemoteAddr("10.0.0.1");
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(page, new MockHttpServletResponse(), chain);
+        assertThat(chain.getRequest()).isNotNull();
+    }
+
+    @Test
+    public void manyDistinctKeysDoNotGrowMemoryOrLockOutOthers() throws Exception {
+        LoginAttemptLimiter wide = new LoginAttemptLimiter(Duration.ofMinutes(1), 20, 5, 65536, 4, clock);
+        long memory = (Long) wide.stats().get("memoryBytes");
+        for (int i = 0; i < 200_000; i++) {
+            wide.tryAttempt("ip-" + i, "user-" + i);
+        }
+
+        assertThat(wide.stats().get("memoryBytes")).isEqualTo(memory);
+        assertThat(wide.tryAttempt("10.0.0.1", "user")).isEqualTo(LoginAttemptLimiter.Decision.ALLOWED);
+    }
+
+    private MockHttpServletResponse formLogin(String remoteAddress, String username) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/login");
+        request.setServletPath("/login");
+        request.setRemoteAddr(remoteAddress);
+        request.setParameter("username", username);
+        request.setParameter("password", "guess");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
@@ -0,0 +1,131 @@
+package com.springboot.spring_security.token;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.spring_security.support.StubServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BatchingResourceServerTokenServicesTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final List<List<String>> requests = new CopyOnWriteArrayList<>();
+
+    private final long exp = System.currentTimeMillis() / 1000 + 3600;
+
+    private StubServer server;
+
+    private ExecutorService executor;
+
+    private BatchingResourceServerTokenServices tokenServices;
+
+    /**
+     * A stand-in for the authorization server's /introspect: tokens starting with "user-" are active.
+     */
+    @Before
+    public void startIntrospectionEndpoint() throws Exception {
+        server = new StubServer().answer("/introspect", (exchange, body) -> {
+            @SuppressWarnings("unchecked")
+            List<String> tokens = objectMapper.readValue(body, List.class);
+            requests.add(tokens);
+            List<Map<String, Object>> entries = new ArrayList<>();
+            for (String token : tokens) {
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("active", token.startsWith("user-"));
+                if (token.startsWith("user-")) {
+                    entry.put("username", token.substring("user-".length()));
+                    entry.put("client_id", "acme");
+                    entry.put("scope", "read write");
+                    entry.put("authorities", Collections.singletonList("ROLE_USER"));
+                    entry.put("exp", exp);
+                }
+                entries.add(entry);
+            }
+            return objectMapper.writeValueAsString(entries);
+        });
+        executor = Executors.newFixedThreadPool(16);
+        tokenServices = new BatchingResourceServerTokenServices(new RestTemplate(), executor);
+        tokenServices.setUri(server.getBaseUrl() + "/introspect");
+    }
+
+    @After
+    public void stop() {
+        tokenServices.close();
+        server.close();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void activeTokensBecomeAuthentications() {
+        OAuth2Authentication authentication = tokenServices.loadAuthentication("user-alice");
+
+        assertThat(authentication.getName()).isEqualTo("alice");
+        assertThat(authentication.getAuthorities()).isEqualTo(AuthorityUtils.createAuthorityList("ROLE_USER"));
+        assertThat(authentication.getOAuth2Request().getClientId()).isEqualTo("acme");
+        assertThat(authentication.getOAuth2Request().getScope()).containsExactly("read", "write");
+        assertThatThrownBy(() -> tokenServices.loadAuthentication("revoked")).isInstanceOf(InvalidTokenException.class);
+    }
+
+    @Test
+    public void activeTokensAreReadWithTheirExpiryAndScope() {
+        OAuth2AccessToken token = tokenServices.readAccessToken("user-alice");
+
+        assertThat(token.getValue()).isEqualTo("user-alice");
+        assertThat(token.getExpiration().getTime()).isEqualTo(exp * 1000);
+        assertThat(token.getScope()).containsExactly("read", "write");
+        assertThat(tokenServices.readAccessToken("revoked")).isNull();
+    }
+
+    @Test
+    public void concurrentLookupsShareOneCall() throws Exception {
+        tokenServices.setWindow(Duration.ofMillis(200));
+        List<Future<String>> names = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            String token = "user-" + (i % 5);
+            names.add(executor.submit(() -> tokenServices.loadAuthentication(token).getName()));
+        }
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(names.get(i).get()).isEqualTo(String.valueOf(i % 5));
+        }
+        assertThat(requests).hasSize(1);
+        assertThat(requests.get(0)).containsExactlyInAnyOrder("user-0", "user-1", "user-2", "user-3", "user-4");
+        assertThat(tokenServices.stats()).containsEntry("batches", 1L).containsEntry("tokens", 5L);
+    }
+
+    @Test
+    public void fullBatchesDoNotWaitForTheWindow() throws Exception {
+        tokenServices.setWindow(Duration.ofMinutes(1));
+        tokenServices.setMaxBatchSize(3);
+        List<Future<String>> names = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            String token = "user-" + i;
+            names.add(executor.submit(() -> tokenServices.loadAuthentication(token).getName()));
+        }
+
+        for (int i = 0; i < 6; i++) {
+            assertThat(names.get(i).get()).isEqualTo(String.valueOf(i));
+        }
+        assertThat(requests).hasSize(2).allSatisfy(tokens -> assertThat(tokens).hasSize(3));
+    }
+}
@@ -0,0 +1,99 @@
+package com.springboot.spring_security.token;
+
+import com.springboot.spring_security.cache.ExpiringCache;
+import com.springboot.spring_security.revocation.RevocationIndex;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidGrantException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.TokenRequest;
+import org.springframework.security.oauth2.provider.token.DefaultTokenServices;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CachingJwtTokenStoreTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private RevocationIndex revocationIndex;
+
+    private CachingJwtTokenStore tokenStore;
+
+    private DefaultTokenServices tokenServices;
+
+    @Before
+    public void setUp() throws Exception {
+        revocationIndex = new RevocationIndex(folder.getRoot().toPath().resolve("revocations.log"), 1000, 0.01, Duration.ZERO, Clock.systemUTC());
+        SignedTokenConverter converter = new SignedTokenConverter();
+        converter.afterPropertiesSet();
+        tokenStore = new CachingJwtTokenStore(converter, new ExpiringCache<>("verified-tokens"));
+        tokenStore.setRevocationIndex(revocationIndex);
+        // as the AuthorizationServerEndpointsConfigurer sets them up
+        tokenServices = new DefaultTokenServices();
+        tokenServices.setTokenStore(tokenStore);
+        tokenServices.setTokenEnhancer(converter);
+        tokenServices.setSupportRefreshToken(true);
+        tokenServices.setReuseRefreshToken(true);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        revocationIndex.close();
+    }
+
+    /**
+     * What the RevocationController does: read the access token, then remove it from the store.
+     */
+    @Test
+    public void revokingAnAccessTokenRefusesEveryRefreshTokenOfItsGrant() {
+        OAuth2AccessToken first = tokenServices.createAccessToken(authentication("user"));
+        OAuth2AccessToken second = tokenServices.refreshAccessToken(first.getRefreshToken().getValue(), refreshRequest());
+        assertThat(second.getRefreshToken().getValue()).isNotEqualTo(first.getRefreshToken().getValue());
+        OAuth2AccessToken other = tokenServices.createAccessToken(authentication("other"));
+
+        tokenStore.removeAccessToken(tokenStore.readAccessToken(second.getValue()));
+
+        assertThat(tokenStore.readRefreshToken(second.getRefreshToken().getValue())).isNull();
+        assertThatThrownBy(() -> tokenServices.refreshAccessToken(second.getRefreshToken().getValue(), refreshRequest()))
+                .isInstanceOf(InvalidGrantException.class);
+        assertThatThrownBy(() -> tokenServices.refreshAccessToken(first.getRefreshToken().getValue(), refreshRequest()))
+                .isInstanceOf(InvalidGrantException.class);
+        assertThat(tokenServices.refreshAccessToken(other.getRefreshToken().getValue(), refreshRequest()).getValue()).isNotEmpty();
+    }
+
+    @Test
+    public void aRemovedRefreshTokenIsRefused() {
+        tokenServices.setReuseRefreshToken(false);
+        OAuth2AccessToken first = tokenServices.createAccessToken(authentication("user"));
+
+        OAuth2AccessToken second = tokenServices.refreshAccessToken(first.getRefreshToken().getValue(), refreshRequest());
+
+        assertThatThrownBy(() -> tokenServices.refreshAccessToken(first.getRefreshToken().getValue(), refreshRequest()))
+                .isInstanceOf(InvalidGrantException.class);
+        assertThat(tokenServices.refreshAccessToken(second.getRefreshToken().getValue(), refreshRequest()).getValue()).isNotEmpty();
+    }
+
+    private static TokenRequest refreshRequest() {
+        return new TokenRequest(Collections.emptyMap(), "acme", Collections.emptySet(), "refresh_token");
+    }
+
+    private static OAuth2Authentication authentication(String userName) {
+        OAuth2Request request = new OAuth2Request(Collections.emptyMap(), "acme", AuthorityUtils.NO_AUTHORITIES, true,
+                Collections.singleton("read"), Collections.emptySet(), null, Collections.emptySet(), Collections.emptyMap());
+        return new OAuth2Authentication(request,
+                new UsernamePasswordAuthenticationToken(userName, null, AuthorityUtils.createAuthorityList("ROLE_USER")));
+    }
+}
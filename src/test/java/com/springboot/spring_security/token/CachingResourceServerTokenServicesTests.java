@@ -0,0 +1,94 @@
+package com.springboot.spring_security.token;
+
+import com.springboot.spring_security.cache.ExpiringCache;
+import com.springboot.spring_security.support.StubServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.UserInfoTokenServices;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CachingResourceServerTokenServicesTests {
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private volatile CountDownLatch release = new CountDownLatch(0);
+
+    private StubServer server;
+
+    private ExecutorService executor;
+
+    @Before
+    public void startUserInfoEndpoint() throws Exception {
+        server = new StubServer().answer("/me", (exchange, body) -> {
+            calls.incrementAndGet();
+            release.await(5, TimeUnit.SECONDS);
+            return "{\"name\":\"user\"}";
+        });
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @After
+    public void stop() {
+        server.close();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void userInfoIsFetchedOncePerToken() throws Exception {
+        CachingResourceServerTokenServices tokenServices = new CachingResourceServerTokenServices(userInfoTokenServices(), new ExpiringCache<>("test"));
+
+        List<Future<String>> names = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            names.add(executor.submit(() -> tokenServices.loadAuthentication("token-1").getName()));
+        }
+        for (Future<String> name : names) {
+            assertThat(name.get(5, TimeUnit.SECONDS)).isEqualTo("user");
+        }
+        assertThat(calls.get()).isEqualTo(1);
+
+        tokenServices.loadAuthentication("token-2");
+        tokenServices.loadAuthentication("token-2");
+        assertThat(calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void staleEntriesAreRefreshedWithoutBlocking() throws Exception {
+        ExpiringCache<String, CachingResourceServerTokenServices.CachedAuthentication> cache = new ExpiringCache<>("test");
+        cache.setRefreshAfter(Duration.ofMillis(50));
+        cache.setRefreshExecutor(executor);
+        CachingResourceServerTokenServices tokenServices = new CachingResourceServerTokenServices(userInfoTokenServices(), cache);
+        tokenServices.loadAuthentication("token-1");
+        Thread.sleep(100);
+
+        release = new CountDownLatch(1);
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            assertThat(tokenServices.loadAuthentication("token-1").getName()).isEqualTo("user");
+        }
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(1));
+        release.countDown();
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (cache.stats().get("refreshes").equals(0L) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(cache.stats().get("refreshes")).isEqualTo(1L);
+        assertThat(calls.get()).isEqualTo(2);
+    }
+
+    private UserInfoTokenServices userInfoTokenServices() {
+        return new UserInfoTokenServices(server.getBaseUrl() + "/me", "acme");
+    }
+}
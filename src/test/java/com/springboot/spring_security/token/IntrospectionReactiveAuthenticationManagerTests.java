@@ -0,0 +1,142 @@
+package com.springboot.spring_security.token;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.spring_security.support.StubServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class IntrospectionReactiveAuthenticationManagerTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final List<List<String>> requests = new CopyOnWriteArrayList<>();
+
+    private final List<String> authorizations = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger clientTokens = new AtomicInteger();
+
+    private volatile CountDownLatch answer = new CountDownLatch(0);
+
+    private StubServer server;
+
+    private IntrospectionReactiveAuthenticationManager authenticationManager;
+
+    /**
+     * A stand-in for the authorization server's /oauth/token and /introspect: tokens starting with "user-" are active.
+     */
+    @Before
+    public void startAuthorizationServer() throws Exception {
+        server = new StubServer().answer("/oauth/token", (exchange, body) ->
+                "{\"access_token\":\"client-" + clientTokens.incrementAndGet() + "\",\"token_type\":\"bearer\",\"expires_in\":3600}");
+        server.answer("/introspect", (exchange, body) -> {
+            @SuppressWarnings("unchecked")
+            List<String> tokens = objectMapper.readValue(body, List.class);
+            requests.add(tokens);
+            authorizations.add(exchange.getRequestHeaders().getFirst("Authorization"));
+            answer.await(10, TimeUnit.SECONDS);
+            List<Map<String, Object>> entries = new ArrayList<>();
+            for (String token : tokens) {
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("active", token.startsWith("user-"));
+                if (token.startsWith("user-")) {
+                    entry.put("username", token.substring("user-".length()));
+                    entry.put("client_id", "acme");
+                    entry.put("scope", "read write");
+                    entry.put("authorities", Collections.singletonList("ROLE_USER"));
+                }
+                entries.add(entry);
+            }
+            return objectMapper.writeValueAsString(entries);
+        });
+        String baseUrl = server.getBaseUrl();
+        ClientRegistration client = ClientRegistration.withRegistrationId("introspection")
+                .clientId("acme")
+                .clientSecret("acmesecret")
+                .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                .tokenUri(baseUrl + "/oauth/token")
+                .build();
+        authenticationManager = new IntrospectionReactiveAuthenticationManager(WebClient.create(), client);
+        authenticationManager.setUri(baseUrl + "/introspect");
+    }
+
+    @After
+    public void stop() {
+        answer.countDown();
+        server.close();
+    }
+
+    @Test
+    public void activeTokensBecomeAuthentications() {
+        OAuth2Authentication authentication = (OAuth2Authentication) authenticate("user-alice").block();
+
+        assertThat(authentication.getName()).isEqualTo("alice");
+        assertThat(authentication.getAuthorities()).isEqualTo(AuthorityUtils.createAuthorityList("ROLE_USER"));
+        assertThat(authentication.getOAuth2Request().getClientId()).isEqualTo("acme");
+        assertThat(authentication.getOAuth2Request().getScope()).containsExactly("read", "write");
+        assertThatThrownBy(() -> authenticate("revoked").block()).isInstanceOf(BadCredentialsException.class);
+    }
+
+    @Test
+    public void theClientTokenIsObtainedOnce() {
+        authenticate("user-alice").block();
+        authenticate("user-bob").block();
+
+        assertThat(clientTokens.get()).isEqualTo(1);
+        assertThat(authorizations).containsExactly("Bearer client-1", "Bearer client-1");
+    }
+
+    @Test
+    public void concurrentLookupsOfATokenShareOneCall() throws Exception {
+        answer = new CountDownLatch(1);
+        List<CompletableFuture<Authentication>> authentications = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            authentications.add(authenticate("user-alice").toFuture());
+        }
+        answer.countDown();
+
+        for (CompletableFuture<Authentication> authentication : authentications) {
+            assertThat(authentication.get(10, TimeUnit.SECONDS).getName()).isEqualTo("alice");
+        }
+        assertThat(requests).containsExactly(Collections.singletonList("user-alice"));
+        assertThat(authenticationManager.stats()).containsEntry("tokens", 1L).containsEntry("shared", 9L).containsEntry("inFlight", 0);
+    }
+
+    @Test
+    public void lateAnswersAreServiceErrors() {
+        answer = new CountDownLatch(1);
+        authenticationManager.setTimeout(Duration.ofMillis(200));
+
+        assertThatThrownBy(() -> authenticate("user-alice").block()).isInstanceOf(AuthenticationServiceException.class);
+        assertThat(authenticationManager.stats()).containsEntry("failures", 1L).containsEntry("inFlight", 0);
+    }
+
+    private Mono<Authentication> authenticate(String token) {
+        return authenticationManager.authenticate(new PreAuthenticatedAuthenticationToken(token, ""));
+    }
+}
@@ -0,0 +1,94 @@
+package com.springboot.spring_security.token;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.DefaultOAuth2RefreshToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LogStructuredTokenStoreTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void tokensSurviveARestart() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        OAuth2Authentication authentication = authentication("user");
+        DefaultOAuth2AccessToken accessToken = accessToken("access-1", new Date(System.currentTimeMillis() + 60_000));
+        accessToken.setRefreshToken(new DefaultOAuth2RefreshToken("refresh-1"));
+
+        try (LogStructuredTokenStore store = new LogStructuredTokenStore(directory, 64 * 1024, Duration.ZERO)) {
+            store.storeAccessToken(accessToken, authentication);
+            store.storeRefreshToken(accessToken.getRefreshToken(), authentication);
+            store.storeAccessToken(accessToken("access-2", null), authentication("other"));
+            store.removeAccessToken("access-2");
+        }
+
+        try (LogStructuredTokenStore store = new LogStructuredTokenStore(directory, 64 * 1024, Duration.ZERO)) {
+            assertThat(store.readAccessToken("access-1").getValue()).isEqualTo("access-1");
+            assertThat(store.readAuthentication("access-1").getName()).isEqualTo("user");
+            assertThat(store.readRefreshToken("refresh-1").getValue()).isEqualTo("refresh-1");
+            assertThat(store.getAccessToken(authentication).getValue()).isEqualTo("access-1");
+            assertThat(store.findTokensByClientIdAndUserName("acme", "user")).hasSize(1);
+            assertThat(store.findTokensByClientId("acme")).hasSize(1);
+            assertThat(store.readAccessToken("access-2")).isNull();
+
+            store.removeAccessTokenUsingRefreshToken(new DefaultOAuth2RefreshToken("refresh-1"));
+            assertThat(store.readAccessToken("access-1")).isNull();
+        }
+    }
+
+    @Test
+    public void compactionDropsRemovedAndExpiredTokens() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (LogStructuredTokenStore store = new LogStructuredTokenStore(directory, 16 * 1024, Duration.ZERO)) {
+            for (int i = 0; i < 200; i++) {
+                Date expiration = new Date(System.currentTimeMillis() + (i % 2 == 0 ? 60_000 : -1));
+                store.storeAccessToken(accessToken("token-" + i, expiration), authentication("user-" + i));
+            }
+            for (int i = 0; i < 200; i += 4) {
+                store.removeAccessToken("token-" + i);
+            }
+            int segments = store.getSegmentCount();
+
+            store.compact();
+
+            assertThat(store.getSegmentCount()).isLessThan(segments / 2);
+            assertThat(store.getAccessTokenCount()).isEqualTo(50);
+            assertThat(store.readAccessToken("token-2").getValue()).isEqualTo("token-2");
+            assertThat(store.readAuthentication("token-2").getName()).isEqualTo("user-2");
+            assertThat(store.readAccessToken("token-4")).isNull();
+            assertThat(store.readAccessToken("token-3")).isNull();
+        }
+        try (LogStructuredTokenStore store = new LogStructuredTokenStore(directory, 16 * 1024, Duration.ZERO)) {
+            assertThat(store.getAccessTokenCount()).isEqualTo(50);
+            assertThat(store.readAuthentication("token-198").getName()).isEqualTo("user-198");
+        }
+    }
+
+    private static DefaultOAuth2AccessToken accessToken(String value, Date expiration) {
+        DefaultOAuth2AccessToken token = new DefaultOAuth2AccessToken(value);
+        token.setExpiration(expiration);
+        token.setScope(Collections.singleton("read"));
+        return token;
+    }
+
+    private static OAuth2Authentication authentication(String userName) {
+        OAuth2Request request = new OAuth2Request(Collections.emptyMap(), "acme", AuthorityUtils.NO_AUTHORITIES, true,
+                Collections.singleton("read"), Collections.emptySet(), null, Collections.emptySet(), Collections.emptyMap());
+        return new OAuth2Authentication(request,
+                new UsernamePasswordAuthenticationToken(userName, null, AuthorityUtils.createAuthorityList("ROLE_USER")));
+    }
+}
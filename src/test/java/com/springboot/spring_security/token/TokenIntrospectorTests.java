@@ -0,0 +1,161 @@
+package com.springboot.spring_security.token;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.spring_security.cache.ExpiringCache;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.DefaultTokenServices;
+import org.springframework.security.oauth2.provider.token.store.InMemoryTokenStore;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TokenIntrospectorTests {
+
+    private final InMemoryTokenStore tokenStore = new InMemoryTokenStore();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @After
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void entriesFollowTheOrderOfTheTokens() throws Exception {
+        long exp = System.currentTimeMillis() / 1000 + 3600;
+        store("user-token", "user", exp);
+        store("client-token", null, exp);
+        store("expired-token", "user", System.currentTimeMillis() / 1000 - 10);
+
+        List<Map<String, Object>> entries = introspect(new TokenIntrospector(tokenStore, executor, 2),
+                Arrays.asList("user-token", "unknown", "expired-token", "client-token", "user-token"));
+
+        assertThat(entries).hasSize(5);
+        assertThat(entries.get(0)).containsEntry("active", true).containsEntry("username", "user").containsEntry("client_id", "acme")
+                .containsEntry("scope", "read write").containsEntry("authorities", Collections.singletonList("ROLE_USER"))
+                .containsEntry("exp", (int) exp);
+        assertThat(entries.get(1)).containsOnlyKeys("active").containsEntry("active", false);
+        assertThat(entries.get(2)).containsOnlyKeys("active").containsEntry("active", false);
+        assertThat(entries.get(3)).containsEntry("active", true).containsEntry("client_id", "acme").doesNotContainKey("username");
+        assertThat(entries.get(4)).isEqualTo(entries.get(0));
+    }
+
+    @Test
+    public void manyChunksAreLookedUpInParallel() throws Exception {
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            if (i % 3 == 0) {
+                store("token-" + i, "user-" + i, System.currentTimeMillis() / 1000 + 3600);
+            }
+            tokens.add("token-" + i);
+        }
+
+        List<Map<String, Object>> entries = introspect(new TokenIntrospector(tokenStore, executor, 64), tokens);
+
+        assertThat(entries).hasSize(1000);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(entries.get(i).get("active")).isEqualTo(i % 3 == 0);
+            assertThat(entries.get(i).get("username")).isEqualTo(i % 3 == 0 ? "user-" + i : null);
+        }
+    }
+
+    @Test
+    public void malformedAndRefreshTokensOfTheSignedStoreAreInactive() throws Exception {
+        SignedTokenConverter converter = new SignedTokenConverter();
+        converter.afterPropertiesSet();
+        CachingJwtTokenStore signedStore = new CachingJwtTokenStore(converter, new ExpiringCache<>("verified-tokens"));
+        DefaultTokenServices tokenServices = new DefaultTokenServices();
+        tokenServices.setTokenStore(signedStore);
+        tokenServices.setTokenEnhancer(converter);
+        tokenServices.setSupportRefreshToken(true);
+        OAuth2Request request = new OAuth2Request(null, "acme", AuthorityUtils.createAuthorityList("ROLE_CLIENT"), true,
+                new LinkedHashSet<>(Arrays.asList("read", "write")), null, null, null, null);
+        OAuth2AccessToken token = tokenServices.createAccessToken(new OAuth2Authentication(request,
+                new UsernamePasswordAuthenticationToken("user", "N/A", AuthorityUtils.createAuthorityList("ROLE_USER"))));
+
+        List<Map<String, Object>> entries = introspect(new TokenIntrospector(signedStore, executor, 2), Arrays.asList(token.getValue(),
+                "not.a.jwt", token.getRefreshToken().getValue(), token.getValue()));
+
+        assertThat(entries).hasSize(4);
+        assertThat(entries.get(0)).containsEntry("active", true).containsEntry("username", "user").containsEntry("scope", "read write");
+        assertThat(entries.get(1)).containsOnlyKeys("active").containsEntry("active", false);
+        assertThat(entries.get(2)).containsOnlyKeys("active").containsEntry("active", false);
+        assertThat(entries.get(3)).isEqualTo(entries.get(0));
+    }
+
+    @Test
+    public void aFailedChunkFailsTheIntrospectionBeforeAnythingIsWritten() throws Exception {
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            store("token-" + i, "user-" + i, System.currentTimeMillis() / 1000 + 3600);
+            tokens.add("token-" + i);
+        }
+        InMemoryTokenStore failing = new InMemoryTokenStore() {
+            @Override
+            public OAuth2AccessToken readAccessToken(String tokenValue) {
+                if (tokenValue.equals("token-7")) {
+                    throw new IllegalStateException("token store unavailable");
+                }
+                return tokenStore.readAccessToken(tokenValue);
+            }
+
+            @Override
+            public OAuth2Authentication readAuthentication(OAuth2AccessToken token) {
+                return tokenStore.readAuthentication(token);
+            }
+        };
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertThatThrownBy(() -> {
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+                new TokenIntrospector(failing, executor, 2).introspect(tokens, json);
+            }
+        }).isInstanceOf(IllegalStateException.class).hasMessage("token store unavailable");
+        assertThat(out.size()).isZero();
+    }
+
+    @Test
+    public void noTokensGiveAnEmptyArray() throws Exception {
+        assertThat(introspect(new TokenIntrospector(tokenStore, executor, 64), Collections.emptyList())).isEmpty();
+    }
+
+    private void store(String value, String username, long exp) {
+        DefaultOAuth2AccessToken token = new DefaultOAuth2AccessToken(value);
+        token.setScope(new LinkedHashSet<>(Arrays.asList("read", "write")));
+        token.setExpiration(new Date(exp * 1000));
+        OAuth2Request request = new OAuth2Request(null, "acme", AuthorityUtils.createAuthorityList("ROLE_CLIENT"), true,
+                token.getScope(), null, null, null, null);
+        tokenStore.storeAccessToken(token, new OAuth2Authentication(request, username == null ? null
+                : new UsernamePasswordAuthenticationToken(username, "N/A", AuthorityUtils.createAuthorityList("ROLE_USER"))));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> introspect(TokenIntrospector introspector, List<String> tokens) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            introspector.introspect(tokens, json);
+        }
+        return objectMapper.readValue(out.toByteArray(), List.class);
+    }
+}
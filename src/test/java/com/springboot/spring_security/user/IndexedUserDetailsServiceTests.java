@@ -0,0 +1,105 @@
+package com.springboot.spring_security.user;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class IndexedUserDetailsServiceTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void usersAreFoundByUsernameAndShareTheirAuthorities() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("users.idx");
+        assertThat(UserIndexWriter.write(file, users("user-", 20_000))).isEqualTo(20_000);
+
+        try (IndexedUserDetailsService service = new IndexedUserDetailsService(file, Duration.ZERO)) {
+            UserDetails user = service.loadUserByUsername("User-42");
+            assertThat(user.getUsername()).isEqualTo("user-42");
+            assertThat(user.getPassword()).isEqualTo("{noop}secret-42");
+            assertThat(user.isEnabled()).isTrue();
+            assertThat(user.getAuthorities()).extracting("authority").containsExactly("ROLE_ADMIN", "ROLE_USER");
+            assertThat(service.loadUserByUsername("user-7").isAccountNonLocked()).isFalse();
+            for (int i = 0; i < 20_000; i++) {
+                assertThat(service.loadUserByUsername("user-" + i).getUsername()).isEqualTo("user-" + i);
+            }
+            assertThat(service.loadUserByUsername("user-1").getAuthorities()).isSameAs(service.loadUserByUsername("user-3").getAuthorities());
+            assertThatThrownBy(() -> service.loadUserByUsername("nobody")).isInstanceOf(UsernameNotFoundException.class);
+            assertThat(service.stats()).containsEntry("users", 20_000).containsEntry("authoritySets", 2);
+        }
+    }
+
+    @Test
+    public void duplicateUsernamesAreRejected() {
+        Path file = folder.getRoot().toPath().resolve("users.idx");
+        List<UserDetails> users = users("user-", 10);
+        users.add(User.withUsername("USER-3").password("{noop}x").roles("USER").build());
+
+        assertThatThrownBy(() -> UserIndexWriter.write(file, users)).isInstanceOf(IllegalArgumentException.class).hasMessageContaining("user-3");
+        assertThat(file).doesNotExist();
+    }
+
+    @Test
+    public void reloadSwapsTheIndexWithoutFailingConcurrentLookups() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("users.idx");
+        UserIndexWriter.write(file, users("user-", 5_000));
+
+        try (IndexedUserDetailsService service = new IndexedUserDetailsService(file, Duration.ZERO)) {
+            AtomicBoolean running = new AtomicBoolean(true);
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            CountDownLatch done = new CountDownLatch(4);
+            for (int t = 0; t < 4; t++) {
+                new Thread(() -> {
+                    try {
+                        for (int i = 0; running.get(); i = (i + 1) % 5_000) {
+                            service.loadUserByUsername("user-" + i);
+                        }
+                    } catch (Throwable ex) {
+                        failure.set(ex);
+                    } finally {
+                        done.countDown();
+                    }
+                }).start();
+            }
+            for (int i = 0; i < 5; i++) {
+                List<UserDetails> users = users("user-", 5_000);
+                users.addAll(users("new-" + i + "-", 100));
+                UserIndexWriter.write(file, users);
+                service.reload();
+                assertThat(service.loadUserByUsername("new-" + i + "-99").getUsername()).isEqualTo("new-" + i + "-99");
+            }
+            running.set(false);
+            done.await();
+
+            assertThat(failure.get()).isNull();
+            assertThatThrownBy(() -> service.loadUserByUsername("new-3-0")).isInstanceOf(UsernameNotFoundException.class);
+        }
+    }
+
+    private static List<UserDetails> users(String prefix, int count) {
+        List<UserDetails> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            users.add(User.withUsername(prefix + i)
+                    .password("{noop}secret-" + i)
+                    .roles(i % 2 == 0 ? new String[]{"USER", "ADMIN"} : new String[]{"USER"})
+                    .accountLocked(i == 7)
+                    .build());
+        }
+        return users;
+    }
+}
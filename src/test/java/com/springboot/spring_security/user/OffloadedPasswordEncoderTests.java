@@ -0,0 +1,91 @@
+package com.springboot.spring_security.user;
+
+import com.springboot.spring_security.cache.ExpiringCache;
+import org.junit.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class OffloadedPasswordEncoderTests {
+
+    @Test
+    public void successfulChecksAreCachedByDigest() {
+        AtomicInteger hashed = new AtomicInteger();
+        PasswordEncoder counting = new BCryptPasswordEncoder(4) {
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                hashed.incrementAndGet();
+                return super.matches(rawPassword, encodedPassword);
+            }
+        };
+        try (OffloadedPasswordEncoder encoder = new OffloadedPasswordEncoder(counting, 2, 8, Duration.ofSeconds(5))) {
+            encoder.setVerifiedCache(new ExpiringCache<>("verified-passwords"));
+            String hash = encoder.encode("123");
+
+            assertThat(encoder.matches("123", hash)).isTrue();
+            assertThat(encoder.matches("123", hash)).isTrue();
+            assertThat(encoder.matches("wrong", hash)).isFalse();
+            assertThat(encoder.matches("wrong", hash)).isFalse();
+
+            assertThat(hashed.get()).isEqualTo(3);
+            assertThat(encoder.stats()).containsEntry("cacheHits", 1L).containsEntry("hashes", 4L);
+        }
+    }
+
+    @Test
+    public void aFullQueueIsRejectedAtOnce() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        PasswordEncoder blocking = new BCryptPasswordEncoder(4) {
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return true;
+            }
+        };
+        try (OffloadedPasswordEncoder encoder = new OffloadedPasswordEncoder(blocking, 1, 1, Duration.ofSeconds(10))) {
+            CompletableFuture<Boolean> running = CompletableFuture.supplyAsync(() -> encoder.matches("a", "hash"));
+            started.await();
+            CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> encoder.matches("b", "hash"));
+            while ((Integer) encoder.stats().get("queued") == 0) {
+                Thread.sleep(1);
+            }
+
+            assertThatThrownBy(() -> encoder.matches("c", "hash")).isInstanceOf(PasswordHashingSaturatedException.class);
+            assertThat(encoder.stats()).containsEntry("rejected", 1L).containsEntry("maxQueued", 1L);
+
+            release.countDown();
+            assertThat(running.get()).isTrue();
+            assertThat(queued.get()).isTrue();
+        }
+    }
+
+    @Test
+    public void bcryptHashesBelowTheCostAreUpgraded() {
+        PasswordEncoder delegate = new DelegatingPasswordEncoder("bcrypt", Collections.singletonMap("bcrypt", new BCryptPasswordEncoder(5)));
+        try (OffloadedPasswordEncoder encoder = new OffloadedPasswordEncoder(delegate, 1, 8, Duration.ofSeconds(5))) {
+            encoder.setBcryptCost(5);
+            String weak = "{bcrypt}" + new BCryptPasswordEncoder(4).encode("123");
+            String current = encoder.encode("123");
+
+            assertThat(encoder.upgradeEncoding(weak)).isTrue();
+            assertThat(encoder.upgradeEncoding(current)).isFalse();
+            assertThat(encoder.upgradeEncoding("{noop}123")).isTrue();
+            assertThat(encoder.matches("123", weak)).isTrue();
+        }
+    }
+}